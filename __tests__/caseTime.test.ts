@@ -0,0 +1,39 @@
+import { caseFinishEpochMs, caseFinishWallClockMs, JST_OFFSET_MS } from '../src/utils/caseTime';
+
+// 2025-04-01 18:30 JST（= 09:30 UTC）に完了した配達
+const FINISH_EPOCH = Date.UTC(2025, 3, 1, 9, 30);
+// 明細の「2025/04/01 18:30」を壁時計のままUTCとして読んだ値（StatementImporterの基準）
+const STATEMENT_WALL_CLOCK = Date.UTC(2025, 3, 1, 18, 30);
+
+const minuteKey = (ms: number | null) => (ms === null ? null : Math.floor(ms / 60000));
+
+describe('案件の時刻の正規化', () => {
+  it('手入力の案件（+9時間ずれたtimestampのみ）', () => {
+    const data = { timestamp: new Date(FINISH_EPOCH + JST_OFFSET_MS) };
+    expect(caseFinishEpochMs(data)).toBe(FINISH_EPOCH);
+    expect(minuteKey(caseFinishWallClockMs(data))).toBe(minuteKey(STATEMENT_WALL_CLOCK));
+  });
+
+  it('オーバーレイの案件（timestampもdeliveryEndTimeも実時刻）', () => {
+    const data = {
+      timestamp: { toMillis: () => FINISH_EPOCH },
+      deliveryEndTime: { toMillis: () => FINISH_EPOCH },
+    };
+    expect(caseFinishEpochMs(data)).toBe(FINISH_EPOCH);
+    expect(minuteKey(caseFinishWallClockMs(data))).toBe(minuteKey(STATEMENT_WALL_CLOCK));
+  });
+
+  it('ホーム画面の案件（timestampはずれ、deliveryEndTimeは実時刻）', () => {
+    const data = {
+      timestamp: new Date(FINISH_EPOCH + JST_OFFSET_MS + 2000),
+      deliveryEndTime: new Date(FINISH_EPOCH),
+    };
+    expect(caseFinishEpochMs(data)).toBe(FINISH_EPOCH);
+    expect(minuteKey(caseFinishWallClockMs(data))).toBe(minuteKey(STATEMENT_WALL_CLOCK));
+  });
+
+  it('時刻がない案件はnull', () => {
+    expect(caseFinishEpochMs({})).toBeNull();
+    expect(caseFinishWallClockMs({ timestamp: null })).toBeNull();
+  });
+});
@@ -0,0 +1,135 @@
+import { SessionCaseStore } from '../src/services/SessionCaseStore';
+
+type FakeDoc = { id: string; data: { timestamp: number; earnings: number; tip?: number } };
+type FakeChange = { type: 'added' | 'modified' | 'removed'; doc: any; oldIndex: number; newIndex: number };
+
+// onSnapshotのクエリ（timestampの新しい順）を模して、docChanges()のインデックスを
+// Firestoreと同じく「直前の変更を反映した後の並び」に対して振る
+class FakeQuery {
+  private docs: FakeDoc[] = [];
+  private changes: FakeChange[] = [];
+
+  upsert(id: string, timestamp: number, earnings: number, tip: number = 0): this {
+    const oldIndex = this.docs.findIndex((doc) => doc.id === id);
+    if (oldIndex >= 0) this.docs.splice(oldIndex, 1);
+    const doc: FakeDoc = { id, data: { timestamp, earnings, tip } };
+    let newIndex = this.docs.findIndex((other) => other.data.timestamp < timestamp);
+    if (newIndex < 0) newIndex = this.docs.length;
+    this.docs.splice(newIndex, 0, doc);
+    this.changes.push({ type: oldIndex >= 0 ? 'modified' : 'added', doc: this.toSnapshot(doc), oldIndex, newIndex });
+    return this;
+  }
+
+  remove(id: string): this {
+    const oldIndex = this.docs.findIndex((doc) => doc.id === id);
+    const [doc] = this.docs.splice(oldIndex, 1);
+    this.changes.push({ type: 'removed', doc: this.toSnapshot(doc), oldIndex, newIndex: -1 });
+    return this;
+  }
+
+  snapshot(): any {
+    const changes = this.changes;
+    this.changes = [];
+    return { docChanges: () => changes };
+  }
+
+  // 時系列順のID（ストアが保つべき並び）
+  expectedOrder(): string[] {
+    return this.docs.map((doc) => doc.id).reverse();
+  }
+
+  private toSnapshot(doc: FakeDoc): any {
+    const data = { ...doc.data };
+    return { id: doc.id, data: () => data };
+  }
+}
+
+const ids = (store: SessionCaseStore) => store.getCases().map((item) => item.id);
+
+describe('SessionCaseStoreの差分反映のテスト', () => {
+  let store: SessionCaseStore;
+  let query: FakeQuery;
+
+  beforeEach(() => {
+    store = new SessionCaseStore();
+    store.reset('session-1');
+    query = new FakeQuery();
+  });
+
+  it('初回のスナップショット（新しい順に届く）を時系列順に並べる', () => {
+    store.applySnapshot(query.upsert('a', 100, 500).upsert('b', 200, 600).upsert('c', 300, 700).snapshot());
+    expect(ids(store)).toEqual(['a', 'b', 'c']);
+    expect(store.getTotals()).toEqual({ totalEarnings: 1800, totalCases: 3 });
+  });
+
+  it('新しい案件は末尾、過去の時刻の案件は途中に入る', () => {
+    store.applySnapshot(query.upsert('a', 100, 500).upsert('c', 300, 700).snapshot());
+
+    const change = store.applySnapshot(query.upsert('d', 400, 800).snapshot());
+    expect(change?.added).toEqual(['d']);
+    expect(ids(store)).toEqual(['a', 'c', 'd']);
+
+    store.applySnapshot(query.upsert('b', 200, 600).snapshot());
+    expect(ids(store)).toEqual(query.expectedOrder());
+    expect(ids(store)).toEqual(['a', 'b', 'c', 'd']);
+  });
+
+  it('先頭・途中・末尾の削除', () => {
+    store.applySnapshot(
+      query.upsert('a', 100, 100).upsert('b', 200, 200).upsert('c', 300, 300).upsert('d', 400, 400).upsert('e', 500, 500).snapshot(),
+    );
+
+    const change = store.applySnapshot(query.remove('c').snapshot());
+    expect(change?.removed).toEqual(['c']);
+    expect(ids(store)).toEqual(['a', 'b', 'd', 'e']);
+
+    store.applySnapshot(query.remove('a').remove('e').snapshot());
+    expect(ids(store)).toEqual(['b', 'd']);
+    expect(store.getTotals()).toEqual({ totalEarnings: 600, totalCases: 2 });
+  });
+
+  it('時刻の変更で並びが入れ替わる', () => {
+    store.applySnapshot(query.upsert('a', 100, 500).upsert('b', 200, 600).upsert('c', 300, 700).snapshot());
+
+    const change = store.applySnapshot(query.upsert('a', 350, 500).snapshot());
+    expect(change?.orderChanged).toBe(true);
+    expect(change?.modified).toEqual(['a']);
+    expect(ids(store)).toEqual(['b', 'c', 'a']);
+
+    store.applySnapshot(query.upsert('c', 50, 700).snapshot());
+    expect(ids(store)).toEqual(['c', 'b', 'a']);
+  });
+
+  it('1回のスナップショットに追加・削除・並べ替えが混ざっても順序を保つ', () => {
+    store.applySnapshot(
+      query.upsert('a', 100, 100).upsert('b', 200, 200).upsert('c', 300, 300).upsert('d', 400, 400).snapshot(),
+    );
+
+    store.applySnapshot(
+      query.remove('b').upsert('e', 250, 500).upsert('d', 150, 400).upsert('f', 500, 600).remove('a').snapshot(),
+    );
+    expect(ids(store)).toEqual(query.expectedOrder());
+    expect(ids(store)).toEqual(['d', 'e', 'c', 'f']);
+    expect(store.getTotals()).toEqual({ totalEarnings: 1800, totalCases: 4 });
+  });
+
+  it('並びの変わらない報酬の変更は合計だけを差分で直す', () => {
+    store.applySnapshot(query.upsert('a', 100, 500).upsert('b', 200, 600).snapshot());
+    const before = store.getCases();
+
+    const change = store.applySnapshot(query.upsert('a', 100, 500, 200).snapshot());
+    expect(change?.orderChanged).toBe(false);
+    expect(change?.modified).toEqual(['a']);
+    expect(store.getTotals()).toEqual({ totalEarnings: 1300, totalCases: 2 });
+    expect(store.getCases()).not.toBe(before);
+    expect(ids(store)).toEqual(['a', 'b']);
+  });
+
+  it('内容が同じ変更は無視し、一覧の配列も作り直さない', () => {
+    store.applySnapshot(query.upsert('a', 100, 500).snapshot());
+    const before = store.getCases();
+
+    expect(store.applySnapshot(query.upsert('a', 100, 500).snapshot())).toBeNull();
+    expect(store.getCases()).toBe(before);
+  });
+});
@@ -0,0 +1,379 @@
+package com.urbandash;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Build;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.ActivityRecognition;
+import com.google.android.gms.location.ActivityRecognitionClient;
+import com.google.android.gms.location.ActivityRecognitionResult;
+import com.google.android.gms.location.DetectedActivity;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 勤務中だけ位置と動作認識を購読し、ActivitySegmenterで行動区間に分ける。
+ * 状態が切り替わった時だけリスナーへ通知する（配達ごとの経路はDeliveryRouteRecorderへ渡す）。
+ * 位置の購読はアプリで1つにまとめ、JSの走行記録もLocationListenerとしてここから測位を受け取る。
+ * 勤務の開始・休憩・終了はSessionAggregatorの状態に従い、配達数はオーバーレイから受け取る。
+ * 測位間隔はQoSレベルに合わせて広げる。すべてのメソッドはメインスレッドから呼ぶこと。
+ */
+public class ActivityMonitor implements SessionAggregator.Listener, QosGovernor.Listener {
+    private static final String ACTION_ACTIVITY_UPDATE = "com.urbandash.ACTIVITY_UPDATE";
+    private static final long ACTIVITY_INTERVAL_MS = 30 * 1000;
+    private static final int MIN_ACTIVITY_CONFIDENCE = 70;
+    private static final int MAX_SEGMENTS = 500;
+
+    public interface Listener {
+        void onActivityTransition(ActivitySegmenter.Transition transition);
+    }
+
+    public interface LocationListener {
+        void onLocation(Location location);
+    }
+
+    private static ActivityMonitor instance;
+
+    private final List<Listener> listeners = new ArrayList<>();
+    // 測位を受け取るリスナーと希望する間隔
+    private final Map<LocationListener, Long> locationListeners = new LinkedHashMap<>();
+    private final List<ActivitySegmenter.Segment> segments = new ArrayList<>();
+    private Context context;
+    private FusedLocationProviderClient locationClient;
+    private ActivityRecognitionClient activityClient;
+    private PendingIntent activityIntent;
+    private ActivitySegmenter segmenter;
+    private boolean running = false;
+    private boolean locationRequested = false;
+    private boolean receiverRegistered = false;
+    private long sessionStartMs = 0;
+    private int activeDeliveries = 0;
+    private int qosLevel = QosGovernor.LEVEL_FULL;
+    private Location lastLocation;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            if (!locationRequested) return;
+            long begin = WakeupAuditor.getInstance().begin();
+            for (Location location : result.getLocations()) {
+                lastLocation = location;
+                DeliveryRouteRecorder.getInstance().onLocation(location);
+                if (running) {
+                    dispatch(segmenter.onLocation(
+                        location.getTime(),
+                        location.getLatitude(),
+                        location.getLongitude(),
+                        location.hasSpeed() ? location.getSpeed() : Float.NaN,
+                        location.hasAccuracy() ? location.getAccuracy() : Float.MAX_VALUE));
+                }
+                for (LocationListener listener : new ArrayList<>(locationListeners.keySet())) {
+                    listener.onLocation(location);
+                }
+            }
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_NATIVE_LOCATION, begin);
+        }
+    };
+
+    private final BroadcastReceiver activityReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!running || !ActivityRecognitionResult.hasResult(intent)) return;
+            long begin = WakeupAuditor.getInstance().begin();
+            ActivityRecognitionResult result = ActivityRecognitionResult.extractResult(intent);
+            if (result != null) {
+                DetectedActivity detected = result.getMostProbableActivity();
+                int activity = detected.getConfidence() >= MIN_ACTIVITY_CONFIDENCE
+                    ? mapActivity(detected.getType()) : ActivitySegmenter.ACTIVITY_UNKNOWN;
+                double lat = lastLocation != null ? lastLocation.getLatitude() : 0;
+                double lng = lastLocation != null ? lastLocation.getLongitude() : 0;
+                dispatch(segmenter.onActivity(result.getTime(), activity, lat, lng));
+            }
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_ACTIVITY_RECOGNITION, begin);
+        }
+    };
+
+    public static synchronized ActivityMonitor getInstance() {
+        if (instance == null) {
+            instance = new ActivityMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * アプリ起動時に1回呼ぶ。以降は勤務状態に合わせて自動で開始・停止する
+     */
+    public void attach(Context context) {
+        if (this.context != null) return;
+        this.context = context.getApplicationContext();
+        locationClient = LocationServices.getFusedLocationProviderClient(this.context);
+        activityClient = ActivityRecognition.getClient(this.context);
+        SessionAggregator.getInstance().addListener(this);
+        QosGovernor.getInstance().addListener(this);
+    }
+
+    /**
+     * 権限を許可した直後などに、現在の勤務状態で開始できるか判定し直す
+     */
+    public void refresh() {
+        if (context == null) return;
+        onSnapshotChanged(SessionAggregator.getInstance().getSnapshot());
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 測位を受け取る（勤務中かどうかに関係なく、登録している間は位置を購読する）。
+     * 間隔は登録中のリスナーと行動判定のうち最も短いものになる。位置の権限がなければfalse
+     */
+    public boolean addLocationListener(LocationListener listener, long intervalMs) {
+        if (context == null) return false;
+        if (!hasPermission(Manifest.permission.ACCESS_FINE_LOCATION)
+            && !hasPermission(Manifest.permission.ACCESS_COARSE_LOCATION)) {
+            return false;
+        }
+        locationListeners.put(listener, Math.max(1000, intervalMs));
+        updateLocationRequest();
+        return true;
+    }
+
+    public void removeLocationListener(LocationListener listener) {
+        if (locationListeners.remove(listener) != null) {
+            updateLocationRequest();
+        }
+    }
+
+    public String getCurrentState() {
+        return segmenter != null ? segmenter.getState() : ActivitySegmenter.STATE_UNKNOWN;
+    }
+
+    public long getCurrentStateStartMs() {
+        return segmenter != null ? segmenter.getStateStartMs() : 0;
+    }
+
+    /**
+     * 今の勤務で確定した区間（古い順）
+     */
+    public List<ActivitySegmenter.Segment> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * 進行中の配達数（オーバーレイのSTART/FINISHごとに呼ぶ）
+     */
+    public void onActiveDeliveriesChanged(int count) {
+        if (activeDeliveries == count) return;
+        activeDeliveries = count;
+        if (segmenter != null) {
+            dispatch(segmenter.onActiveDeliveriesChanged(System.currentTimeMillis(), count));
+        }
+    }
+
+    @Override
+    public void onSnapshotChanged(SessionAggregator.Snapshot snapshot) {
+        if (snapshot.sessionStartMs != sessionStartMs) {
+            // 新しい勤務では区間を作り直す
+            stop();
+            segments.clear();
+            segmenter = null;
+            sessionStartMs = snapshot.sessionStartMs;
+        }
+        if (SessionAggregator.STATUS_WORKING.equals(snapshot.status)) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    @Override
+    public void onQosLevelChanged(int level) {
+        if (qosLevel == level) return;
+        qosLevel = level;
+        if (locationRequested) {
+            requestLocationUpdates();
+        }
+    }
+
+    private void start() {
+        if (running || context == null) return;
+        if (!hasPermission(Manifest.permission.ACCESS_FINE_LOCATION)
+            && !hasPermission(Manifest.permission.ACCESS_COARSE_LOCATION)) {
+            android.util.Log.d("ActivityMonitor", "Location permission not granted, segmentation disabled");
+            return;
+        }
+        running = true;
+        if (segmenter == null) {
+            segmenter = new ActivitySegmenter(System.currentTimeMillis());
+        }
+        segmenter.onActiveDeliveriesChanged(System.currentTimeMillis(), activeDeliveries);
+        updateLocationRequest();
+        requestActivityUpdates();
+        android.util.Log.d("ActivityMonitor", "Started");
+    }
+
+    private void stop() {
+        if (!running) return;
+        running = false;
+        updateLocationRequest();
+        if (activityIntent != null) {
+            try {
+                activityClient.removeActivityUpdates(activityIntent);
+            } catch (SecurityException e) {
+                android.util.Log.e("ActivityMonitor", "Error removing activity updates", e);
+            }
+        }
+        if (receiverRegistered) {
+            context.unregisterReceiver(activityReceiver);
+            receiverRegistered = false;
+        }
+        // 休憩・終了の時点で進行中の区間を閉じる（再開時はunknownから判定し直す）
+        addSegment(segmenter.finish(System.currentTimeMillis()));
+        android.util.Log.d("ActivityMonitor", "Stopped with " + segments.size() + " segments");
+    }
+
+    // 行動判定中かリスナーがある間だけ位置を購読する
+    private void updateLocationRequest() {
+        boolean needed = running || !locationListeners.isEmpty();
+        if (needed) {
+            requestLocationUpdates();
+            if (!locationRequested) {
+                locationRequested = true;
+                WakeupAuditor.getInstance().beginHold(WakeupAuditor.HOLD_NATIVE_LOCATION);
+            }
+        } else if (locationRequested) {
+            locationRequested = false;
+            locationClient.removeLocationUpdates(locationCallback);
+            WakeupAuditor.getInstance().endHold(WakeupAuditor.HOLD_NATIVE_LOCATION);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private void requestLocationUpdates() {
+        long interval = running ? locationIntervalMs(qosLevel) : Long.MAX_VALUE;
+        for (long requested : locationListeners.values()) {
+            interval = Math.min(interval, requested);
+        }
+        LocationRequest request = new LocationRequest.Builder(
+            qosLevel == QosGovernor.LEVEL_MINIMAL ? Priority.PRIORITY_BALANCED_POWER_ACCURACY : Priority.PRIORITY_HIGH_ACCURACY,
+            interval)
+            .setMinUpdateIntervalMillis(interval / 2)
+            .build();
+        try {
+            locationClient.removeLocationUpdates(locationCallback);
+            locationClient.requestLocationUpdates(request, locationCallback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            android.util.Log.e("ActivityMonitor", "Error requesting location updates", e);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private void requestActivityUpdates() {
+        // 動作認識は任意。権限がなければ速度と滞在半径だけで判定する
+        String permission = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+            ? Manifest.permission.ACTIVITY_RECOGNITION
+            : "com.google.android.gms.permission.ACTIVITY_RECOGNITION";
+        if (!hasPermission(permission)) {
+            android.util.Log.d("ActivityMonitor", "Activity recognition permission not granted");
+            return;
+        }
+        if (!receiverRegistered) {
+            ContextCompat.registerReceiver(context, activityReceiver,
+                new IntentFilter(ACTION_ACTIVITY_UPDATE), ContextCompat.RECEIVER_NOT_EXPORTED);
+            receiverRegistered = true;
+        }
+        if (activityIntent == null) {
+            Intent intent = new Intent(ACTION_ACTIVITY_UPDATE).setPackage(context.getPackageName());
+            // 結果はPlay開発者サービスがIntentに詰めるのでmutableにする
+            int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                flags |= PendingIntent.FLAG_MUTABLE;
+            }
+            activityIntent = PendingIntent.getBroadcast(context, 0, intent, flags);
+        }
+        try {
+            activityClient.requestActivityUpdates(ACTIVITY_INTERVAL_MS, activityIntent);
+        } catch (SecurityException e) {
+            android.util.Log.e("ActivityMonitor", "Error requesting activity updates", e);
+        }
+    }
+
+    private void dispatch(ActivitySegmenter.Transition transition) {
+        if (transition == null) return;
+        addSegment(transition.previous);
+        android.util.Log.d("ActivityMonitor", transition.previous.state + " -> " + transition.state);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onActivityTransition(transition);
+        }
+    }
+
+    private void addSegment(ActivitySegmenter.Segment segment) {
+        if (segment.durationMs() == 0 || ActivitySegmenter.STATE_UNKNOWN.equals(segment.state)) return;
+        if (segments.size() >= MAX_SEGMENTS) {
+            segments.remove(0);
+        }
+        segments.add(segment);
+    }
+
+    private boolean hasPermission(String permission) {
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    static long locationIntervalMs(int qosLevel) {
+        switch (qosLevel) {
+            case QosGovernor.LEVEL_REDUCED:
+                return 15 * 1000;
+            case QosGovernor.LEVEL_MINIMAL:
+                return 30 * 1000;
+            default:
+                return 5 * 1000;
+        }
+    }
+
+    private static int mapActivity(int type) {
+        switch (type) {
+            case DetectedActivity.STILL:
+                return ActivitySegmenter.ACTIVITY_STILL;
+            case DetectedActivity.ON_FOOT:
+            case DetectedActivity.WALKING:
+            case DetectedActivity.RUNNING:
+                return ActivitySegmenter.ACTIVITY_ON_FOOT;
+            case DetectedActivity.IN_VEHICLE:
+            case DetectedActivity.ON_BICYCLE:
+                return ActivitySegmenter.ACTIVITY_VEHICLE;
+            default:
+                return ActivitySegmenter.ACTIVITY_UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.urbandash;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/**
+ * ActivityMonitorの行動区間をJSへ公開する。状態が切り替わった時だけActivityTransitionを送る。
+ * JSの走行記録が測位を求めている間は、ActivityMonitorと同じ購読の測位をSharedLocationとして送る
+ * （距離フィルター未満の移動はここで捨て、JSを起こさない）。
+ */
+public class ActivitySegmentationModule extends ReactContextBaseJavaModule
+    implements ActivityMonitor.Listener, ActivityMonitor.LocationListener {
+    private static final String MODULE_NAME = "ActivitySegmentation";
+    private static final String TRANSITION_EVENT = "ActivityTransition";
+    private static final String LOCATION_EVENT = "SharedLocation";
+
+    private final ReactApplicationContext reactContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private float distanceFilterMeters = 0;
+    private Location lastSentLocation;
+
+    public ActivitySegmentationModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        mainHandler.post(() -> ActivityMonitor.getInstance().addListener(this));
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /**
+     * 権限の許可後に呼ぶと、勤務中であれば監視を始める
+     */
+    @ReactMethod
+    public void refresh(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                ActivityMonitor.getInstance().refresh();
+                promise.resolve(ActivityMonitor.getInstance().isRunning());
+            } catch (Exception e) {
+                promise.reject("ACTIVITY_SEGMENTATION_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * JSへ測位を送り始める。位置の権限がなければfalse（JS側で独自に購読する）
+     */
+    @ReactMethod
+    public void startLocationUpdates(double intervalMs, double distanceFilterMeters, Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                this.distanceFilterMeters = (float) distanceFilterMeters;
+                lastSentLocation = null;
+                promise.resolve(ActivityMonitor.getInstance().addLocationListener(this, (long) intervalMs));
+            } catch (Exception e) {
+                promise.reject("ACTIVITY_SEGMENTATION_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void stopLocationUpdates(Promise promise) {
+        mainHandler.post(() -> {
+            ActivityMonitor.getInstance().removeLocationListener(this);
+            lastSentLocation = null;
+            promise.resolve(true);
+        });
+    }
+
+    // { running, state, stateStartTime, segments: [{ state, startTime, endTime, durationMs, distanceMeters }] }
+    @ReactMethod
+    public void getSegments(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                ActivityMonitor monitor = ActivityMonitor.getInstance();
+                WritableArray segments = Arguments.createArray();
+                for (ActivitySegmenter.Segment segment : monitor.getSegments()) {
+                    segments.pushMap(toWritableMap(segment));
+                }
+                WritableMap result = Arguments.createMap();
+                result.putBoolean("running", monitor.isRunning());
+                result.putString("state", monitor.getCurrentState());
+                result.putDouble("stateStartTime", monitor.getCurrentStateStartMs());
+                result.putArray("segments", segments);
+                promise.resolve(result);
+            } catch (Exception e) {
+                promise.reject("ACTIVITY_SEGMENTATION_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onActivityTransition(ActivitySegmenter.Transition transition) {
+        if (!reactContext.hasActiveReactInstance()) return;
+        try {
+            WritableMap map = Arguments.createMap();
+            map.putString("state", transition.state);
+            map.putDouble("startTime", transition.startMs);
+            map.putDouble("latitude", transition.latitude);
+            map.putDouble("longitude", transition.longitude);
+            map.putMap("previous", toWritableMap(transition.previous));
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(TRANSITION_EVENT, map);
+        } catch (Exception e) {
+            android.util.Log.e("ActivitySegmentation", "Error emitting transition", e);
+        }
+    }
+
+    // { latitude, longitude, speed (m/s、不明ならnull), accuracy, timestamp }
+    @Override
+    public void onLocation(Location location) {
+        if (!reactContext.hasActiveReactInstance()) return;
+        if (lastSentLocation != null && distanceFilterMeters > 0
+            && lastSentLocation.distanceTo(location) < distanceFilterMeters) {
+            return;
+        }
+        lastSentLocation = location;
+        try {
+            WritableMap map = Arguments.createMap();
+            map.putDouble("latitude", location.getLatitude());
+            map.putDouble("longitude", location.getLongitude());
+            if (location.hasSpeed()) {
+                map.putDouble("speed", location.getSpeed());
+            } else {
+                map.putNull("speed");
+            }
+            map.putDouble("accuracy", location.hasAccuracy() ? location.getAccuracy() : 0);
+            map.putDouble("timestamp", location.getTime());
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(LOCATION_EVENT, map);
+        } catch (Exception e) {
+            android.util.Log.e("ActivitySegmentation", "Error emitting location", e);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        mainHandler.post(() -> {
+            ActivityMonitor.getInstance().removeListener(this);
+            ActivityMonitor.getInstance().removeLocationListener(this);
+        });
+        super.invalidate();
+    }
+
+    private static WritableMap toWritableMap(ActivitySegmenter.Segment segment) {
+        WritableMap map = Arguments.createMap();
+        map.putString("state", segment.state);
+        map.putDouble("startTime", segment.startMs);
+        map.putDouble("endTime", segment.endMs);
+        map.putDouble("durationMs", segment.durationMs());
+        map.putDouble("distanceMeters", Math.round(segment.distanceMeters));
+        return map;
+    }
+}
@@ -0,0 +1,281 @@
+package com.urbandash;
+
+/**
+ * 位置・動作認識のストリームから勤務中の行動を区間に分ける。
+ * 走行中 / ピックアップ待ち / ドロップ先での滞在 / 待機（地蔵）の4状態を持ち、
+ * 状態が確定して切り替わった時だけTransitionを返す（1回の測位ごとの処理は定数時間）。
+ * 停止の判定は「滞在半径の中に一定時間とどまったか」、走行の判定は「半径の外へ出たか・速度が続いたか」で行い、
+ * 確定した区間の開始時刻は動き出し/止まり始めた時点までさかのぼる。
+ * 停止中の状態は進行中の配達数で決める（配達中で走行前ならピックアップ待ち、走行後ならドロップ先）。
+ * Android APIに依存しないので、呼び出し側（ActivityMonitor）がスレッドを決める。
+ */
+public class ActivitySegmenter {
+    public static final String STATE_UNKNOWN = "unknown";
+    public static final String STATE_DRIVING = "driving";
+    public static final String STATE_WAITING_PICKUP = "waiting_pickup";
+    public static final String STATE_DWELL_DROPOFF = "dwell_dropoff";
+    public static final String STATE_IDLE = "idle";
+
+    public static final int ACTIVITY_UNKNOWN = 0;
+    public static final int ACTIVITY_STILL = 1;
+    public static final int ACTIVITY_ON_FOOT = 2;
+    public static final int ACTIVITY_VEHICLE = 3;
+
+    static final float MAX_ACCURACY_M = 50f;
+    static final double DWELL_RADIUS_M = 40;
+    // 徒歩で店内や玄関まで移動している間は停止とみなす範囲を広げる
+    static final double ON_FOOT_RADIUS_M = 150;
+    static final double DRIVE_CONFIRM_DISTANCE_M = 100;
+    static final float MOVING_SPEED_MPS = 2.0f;
+    static final long DRIVE_CONFIRM_MS = 20 * 1000;
+    static final long STATIONARY_CONFIRM_MS = 90 * 1000;
+    static final long STILL_CONFIRM_MS = 30 * 1000;
+    static final double MIN_STEP_M = 10;
+
+    /**
+     * 確定した1区間
+     */
+    public static final class Segment {
+        public final String state;
+        public final long startMs;
+        public final long endMs;
+        public final double distanceMeters;
+
+        Segment(String state, long startMs, long endMs, double distanceMeters) {
+            this.state = state;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public long durationMs() {
+            return Math.max(0, endMs - startMs);
+        }
+    }
+
+    /**
+     * 状態の切り替わり。previousは終わった区間（最初の確定時はunknown区間）
+     */
+    public static final class Transition {
+        public final Segment previous;
+        public final String state;
+        public final long startMs;
+        public final double latitude;
+        public final double longitude;
+
+        Transition(Segment previous, String state, long startMs, double latitude, double longitude) {
+            this.previous = previous;
+            this.state = state;
+            this.startMs = startMs;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    private String state = STATE_UNKNOWN;
+    private long stateStartMs;
+    private double stateDistance;
+    private boolean moving;
+
+    // 停止候補の中心（最後に半径の外へ出た地点）
+    private boolean hasAnchor;
+    private double anchorLat;
+    private double anchorLng;
+    private long anchorMs;
+
+    // 走行候補（停止中に動き出した時点）
+    private long moveSinceMs = -1;
+    private double pendingDistance;
+
+    private boolean hasLast;
+    private double lastLat;
+    private double lastLng;
+
+    private int activity = ACTIVITY_UNKNOWN;
+    private int activeDeliveries;
+    // 最後に配達が増えてから走行したか（ピックアップ待ちとドロップ先の区別に使う）
+    private boolean drivenSinceLegStart;
+
+    public ActivitySegmenter(long startMs) {
+        this.stateStartMs = startMs;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getStateStartMs() {
+        return stateStartMs;
+    }
+
+    /**
+     * 測位1回分を処理する。speedMpsが取れない場合はNaN
+     */
+    public Transition onLocation(long timeMs, double lat, double lng, float speedMps, float accuracyM) {
+        if (accuracyM > MAX_ACCURACY_M) {
+            return null;
+        }
+
+        // 停止中の揺らぎを距離に数えないよう、一定以上動いた時だけ前回地点を更新する
+        double step = 0;
+        if (!hasLast) {
+            hasLast = true;
+            lastLat = lat;
+            lastLng = lng;
+        } else {
+            double d = distanceMeters(lastLat, lastLng, lat, lng);
+            if (d >= MIN_STEP_M) {
+                step = d;
+                lastLat = lat;
+                lastLng = lng;
+            }
+        }
+
+        if (!hasAnchor) {
+            setAnchor(timeMs, lat, lng);
+            return null;
+        }
+
+        double fromAnchor = distanceMeters(anchorLat, anchorLng, lat, lng);
+        double radius = activity == ACTIVITY_ON_FOOT ? ON_FOOT_RADIUS_M : DWELL_RADIUS_M;
+        boolean fast = !Float.isNaN(speedMps) && speedMps >= MOVING_SPEED_MPS && activity != ACTIVITY_ON_FOOT;
+
+        if (moving) {
+            stateDistance += step;
+            if (fromAnchor > radius || fast) {
+                // 走行が続いているので停止候補を今の地点に置き直す
+                setAnchor(timeMs, lat, lng);
+                return null;
+            }
+            long confirmMs = activity == ACTIVITY_STILL ? STILL_CONFIRM_MS : STATIONARY_CONFIRM_MS;
+            if (timeMs - anchorMs >= confirmMs) {
+                moving = false;
+                return enter(stationaryState(), anchorMs, lat, lng, 0);
+            }
+            return null;
+        }
+
+        if (fromAnchor <= radius && !fast) {
+            // 停止中の揺らぎ。走行候補は取り消す
+            pendingDistance = 0;
+            moveSinceMs = -1;
+            if (state.equals(STATE_UNKNOWN) && timeMs - anchorMs >= STATIONARY_CONFIRM_MS) {
+                return enter(stationaryState(), anchorMs, lat, lng, 0);
+            }
+            return null;
+        }
+
+        if (moveSinceMs < 0) {
+            moveSinceMs = timeMs;
+        }
+        pendingDistance += step;
+        if (fromAnchor >= DRIVE_CONFIRM_DISTANCE_M || timeMs - moveSinceMs >= DRIVE_CONFIRM_MS
+            || activity == ACTIVITY_VEHICLE) {
+            return startDriving(timeMs, lat, lng);
+        }
+        return null;
+    }
+
+    /**
+     * 動作認識の結果（信頼度の低いものは呼び出し側でUNKNOWNにしておく）
+     */
+    public Transition onActivity(long timeMs, int activity, double lat, double lng) {
+        this.activity = activity;
+        if (activity == ACTIVITY_VEHICLE && !moving && moveSinceMs >= 0) {
+            return startDriving(timeMs, lat, lng);
+        }
+        if (activity == ACTIVITY_STILL && moving && hasAnchor && timeMs - anchorMs >= STILL_CONFIRM_MS) {
+            moving = false;
+            return enter(stationaryState(), anchorMs, anchorLat, anchorLng, 0);
+        }
+        return null;
+    }
+
+    /**
+     * 進行中の配達数が変わった時（オーバーレイのSTART/FINISH）
+     */
+    public Transition onActiveDeliveriesChanged(long timeMs, int count) {
+        int previous = activeDeliveries;
+        activeDeliveries = count;
+        if (count > previous) {
+            drivenSinceLegStart = false;
+        }
+        if (moving || state.equals(STATE_UNKNOWN)) {
+            return null;
+        }
+        // 停止中に受注・完了した場合はその時点から状態を切り替える
+        String next = stationaryState();
+        if (next.equals(state)) {
+            return null;
+        }
+        if ((count < previous && count > 0) || (count > previous && state.equals(STATE_DWELL_DROPOFF))) {
+            // 重ねた配達の1件目を渡した・渡し先で次を受注しただけなら同じ場所での滞在が続く
+            return null;
+        }
+        return enter(next, timeMs, hasLast ? lastLat : anchorLat, hasLast ? lastLng : anchorLng, 0);
+    }
+
+    /**
+     * 監視を止める時に進行中の区間を閉じる
+     */
+    public Segment finish(long timeMs) {
+        Segment segment = new Segment(state, stateStartMs, timeMs, stateDistance + pendingDistance);
+        state = STATE_UNKNOWN;
+        stateStartMs = timeMs;
+        stateDistance = 0;
+        pendingDistance = 0;
+        moveSinceMs = -1;
+        moving = false;
+        hasAnchor = false;
+        hasLast = false;
+        return segment;
+    }
+
+    private Transition startDriving(long timeMs, double lat, double lng) {
+        long since = moveSinceMs >= 0 ? moveSinceMs : timeMs;
+        double carried = pendingDistance;
+        pendingDistance = 0;
+        moveSinceMs = -1;
+        moving = true;
+        if (activeDeliveries > 0) {
+            drivenSinceLegStart = true;
+        }
+        setAnchor(timeMs, lat, lng);
+        return enter(STATE_DRIVING, since, lat, lng, carried);
+    }
+
+    private String stationaryState() {
+        if (activeDeliveries == 0) {
+            return STATE_IDLE;
+        }
+        return drivenSinceLegStart ? STATE_DWELL_DROPOFF : STATE_WAITING_PICKUP;
+    }
+
+    private Transition enter(String next, long startMs, double lat, double lng, double carriedDistance) {
+        if (next.equals(state)) {
+            return null;
+        }
+        long boundary = Math.max(startMs, stateStartMs);
+        Segment previous = new Segment(state, stateStartMs, boundary, stateDistance);
+        state = next;
+        stateStartMs = boundary;
+        stateDistance = carriedDistance;
+        return new Transition(previous, next, boundary, lat, lng);
+    }
+
+    private void setAnchor(long timeMs, double lat, double lng) {
+        hasAnchor = true;
+        anchorLat = lat;
+        anchorLng = lng;
+        anchorMs = timeMs;
+    }
+
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+            * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6371000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
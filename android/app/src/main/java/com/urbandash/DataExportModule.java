@@ -0,0 +1,170 @@
+package com.urbandash;
+
+import android.net.Uri;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ユーザーデータのストリーミングエクスポート。
+ * JS側はページ単位で取得したレコードをwriteBatchで順次渡し、ネイティブ側はそれをそのままファイルへ書き出す。
+ * 書き込みは単一のバックグラウンドスレッドで順番に処理する。
+ */
+public class DataExportModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "DataExport";
+    private static final String EXPORT_DIR_NAME = "exports";
+    private static final String PROGRESS_EVENT = "DataExportProgress";
+
+    private final ReactApplicationContext reactContext;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, StreamingExportWriter> writers = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> cancelled = new ConcurrentHashMap<>();
+    private int nextExportId = 1;
+
+    public DataExportModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    // options: { format: 'csv' | 'gpx' | 'ndjson', fileName: string, gzip?: boolean }
+    @ReactMethod
+    public void beginExport(ReadableMap options, Promise promise) {
+        final String exportId = "export_" + (nextExportId++);
+        final String format = options.hasKey("format") ? options.getString("format") : StreamingExportWriter.FORMAT_NDJSON;
+        final boolean gzip = options.hasKey("gzip") && options.getBoolean("gzip");
+        final String fileName = options.hasKey("fileName") ? options.getString("fileName") : exportId;
+
+        executor.execute(() -> {
+            try {
+                File dir = new File(reactContext.getFilesDir(), EXPORT_DIR_NAME);
+                if (!dir.exists() && !dir.mkdirs()) {
+                    promise.reject("EXPORT_ERROR", "Failed to create export directory");
+                    return;
+                }
+                String safeName = fileName.replaceAll("[^A-Za-z0-9_.-]", "_");
+                File file = new File(dir, safeName + "." + format + (gzip ? ".gz" : ""));
+                writers.put(exportId, new StreamingExportWriter(file, format, gzip));
+                promise.resolve(exportId);
+            } catch (Exception e) {
+                android.util.Log.e("DataExport", "Error beginning export", e);
+                promise.reject("EXPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void writeBatch(String exportId, ReadableArray records, Promise promise) {
+        executor.execute(() -> {
+            if (cancelled.containsKey(exportId)) {
+                promise.reject("EXPORT_CANCELLED", "Export was cancelled");
+                return;
+            }
+            StreamingExportWriter writer = writers.get(exportId);
+            if (writer == null) {
+                promise.reject("EXPORT_NOT_FOUND", "Unknown export: " + exportId);
+                return;
+            }
+
+            try {
+                for (int i = 0; i < records.size(); i++) {
+                    // キャンセルはバッチ途中でも反映する
+                    if (cancelled.containsKey(exportId)) {
+                        promise.reject("EXPORT_CANCELLED", "Export was cancelled");
+                        return;
+                    }
+                    writer.write(records.getMap(i).toHashMap());
+                }
+                emitProgress(exportId, writer);
+                promise.resolve((double) writer.getRecordCount());
+            } catch (Exception e) {
+                android.util.Log.e("DataExport", "Error writing export batch", e);
+                discard(exportId);
+                promise.reject("EXPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void finishExport(String exportId, Promise promise) {
+        executor.execute(() -> {
+            if (cancelled.containsKey(exportId)) {
+                discard(exportId);
+                promise.reject("EXPORT_CANCELLED", "Export was cancelled");
+                return;
+            }
+            StreamingExportWriter writer = writers.remove(exportId);
+            if (writer == null) {
+                promise.reject("EXPORT_NOT_FOUND", "Unknown export: " + exportId);
+                return;
+            }
+
+            try {
+                writer.finish();
+                WritableMap result = Arguments.createMap();
+                result.putString("path", writer.getFile().getAbsolutePath());
+                result.putString("uri", Uri.fromFile(writer.getFile()).toString());
+                result.putDouble("records", writer.getRecordCount());
+                result.putDouble("bytes", writer.getBytesWritten());
+                promise.resolve(result);
+            } catch (Exception e) {
+                android.util.Log.e("DataExport", "Error finishing export", e);
+                writer.getFile().delete();
+                promise.reject("EXPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void cancelExport(String exportId, Promise promise) {
+        // 実行待ちのバッチが即座に中断できるよう先にフラグを立てる
+        cancelled.put(exportId, true);
+        executor.execute(() -> {
+            discard(exportId);
+            cancelled.remove(exportId);
+            promise.resolve(true);
+        });
+    }
+
+    private void discard(String exportId) {
+        StreamingExportWriter writer = writers.remove(exportId);
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (Exception e) {
+            android.util.Log.e("DataExport", "Error closing discarded export", e);
+        }
+        writer.getFile().delete();
+    }
+
+    private void emitProgress(String exportId, StreamingExportWriter writer) {
+        try {
+            WritableMap params = Arguments.createMap();
+            params.putString("exportId", exportId);
+            params.putDouble("records", writer.getRecordCount());
+            params.putDouble("bytes", writer.getBytesWritten());
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(PROGRESS_EVENT, params);
+        } catch (Exception e) {
+            android.util.Log.e("DataExport", "Error emitting export progress", e);
+        }
+    }
+}
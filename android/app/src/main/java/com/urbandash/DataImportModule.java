@@ -0,0 +1,292 @@
+package com.urbandash;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.BaseActivityEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 配達サービスの売上明細のストリーミングインポート。
+ * ネイティブ側はファイルを開いたまま、JS側が要求した件数ずつ解析・重複除外したレコードを返す。
+ * JS側は書き込み中のバッチが上限（DataImportServiceのMAX_PENDING_COMMITS）に達すると、
+ * 最も古いバッチの書き込みを待ってから次のバッチを要求する。読み込みが先行するのはその件数分までで、
+ * メモリに載るレコードは上限×バッチ件数を超えない。
+ * 読み込みは単一のバックグラウンドスレッドで順番に処理する。
+ */
+public class DataImportModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "DataImport";
+    private static final String PROGRESS_EVENT = "DataImportProgress";
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int PICK_FILE_REQUEST = 4201;
+    private static final String[] STATEMENT_MIME_TYPES = {
+        "text/csv", "text/comma-separated-values", "text/plain", "application/vnd.ms-excel", "application/octet-stream"
+    };
+
+    /**
+     * 開いている明細ファイルと解析器
+     */
+    private static final class ImportSession {
+        final InputStream input;
+        final StatementImporter importer;
+        int imported;
+
+        ImportSession(InputStream input, StatementImporter importer) {
+            this.input = input;
+            this.importer = importer;
+        }
+    }
+
+    private final ReactApplicationContext reactContext;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, ImportSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> cancelled = new ConcurrentHashMap<>();
+    private int nextImportId = 1;
+    private Promise pickPromise;
+
+    public DataImportModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        reactContext.addActivityEventListener(new BaseActivityEventListener() {
+            @Override
+            public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
+                if (requestCode != PICK_FILE_REQUEST || pickPromise == null) return;
+                Promise promise = pickPromise;
+                pickPromise = null;
+                Uri uri = resultCode == Activity.RESULT_OK && data != null ? data.getData() : null;
+                // キャンセルはnull
+                promise.resolve(uri != null ? uri.toString() : null);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /**
+     * システムのファイル選択画面で明細ファイルを選ぶ。選んだファイルのcontent:// URIを返す
+     */
+    @ReactMethod
+    public void pickFile(Promise promise) {
+        Activity activity = reactContext.getCurrentActivity();
+        if (activity == null) {
+            promise.reject("PICK_ERROR", "No current activity");
+            return;
+        }
+        if (pickPromise != null) {
+            pickPromise.resolve(null);
+        }
+        try {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("*/*");
+            intent.putExtra(Intent.EXTRA_MIME_TYPES, STATEMENT_MIME_TYPES);
+            pickPromise = promise;
+            activity.startActivityForResult(intent, PICK_FILE_REQUEST);
+        } catch (Exception e) {
+            android.util.Log.e("DataImport", "Error opening file picker", e);
+            pickPromise = null;
+            promise.reject("PICK_ERROR", e.getMessage());
+        }
+    }
+
+    // options: { uri: string (content:// / file:// / パス), platform: 'Uber Eats' | '出前館' | 'Wolt' | 'menu' | 'その他' }
+    @ReactMethod
+    public void beginImport(ReadableMap options, Promise promise) {
+        final String importId = "import_" + (nextImportId++);
+        final String uri = options.hasKey("uri") ? options.getString("uri") : null;
+        final String platform = options.hasKey("platform") ? options.getString("platform").trim() : "その他";
+
+        executor.execute(() -> {
+            if (uri == null || uri.isEmpty()) {
+                promise.reject("IMPORT_ERROR", "No file specified");
+                return;
+            }
+            InputStream input = null;
+            try {
+                input = openInput(uri);
+                StatementImporter importer = new StatementImporter(input, platform);
+                importer.readHeader();
+                sessions.put(importId, new ImportSession(input, importer));
+                promise.resolve(importId);
+            } catch (Exception e) {
+                android.util.Log.e("DataImport", "Error beginning import", e);
+                closeQuietly(input);
+                promise.reject("IMPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 登録済みの案件のキー（サービス|完了日時(分)|報酬+チップ）。手入力の案件との重複判定に使う
+     */
+    @ReactMethod
+    public void addExistingKeys(String importId, ReadableArray keys, Promise promise) {
+        executor.execute(() -> {
+            ImportSession session = sessions.get(importId);
+            if (session == null) {
+                promise.reject("IMPORT_NOT_FOUND", "Unknown import: " + importId);
+                return;
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                session.importer.addExistingKey(keys.getString(i));
+            }
+            promise.resolve((double) keys.size());
+        });
+    }
+
+    @ReactMethod
+    public void nextBatch(String importId, int maxCount, Promise promise) {
+        executor.execute(() -> {
+            if (cancelled.containsKey(importId)) {
+                promise.reject("IMPORT_CANCELLED", "Import was cancelled");
+                return;
+            }
+            ImportSession session = sessions.get(importId);
+            if (session == null) {
+                promise.reject("IMPORT_NOT_FOUND", "Unknown import: " + importId);
+                return;
+            }
+
+            try {
+                List<StatementImporter.Record> records =
+                    session.importer.next(Math.max(1, Math.min(maxCount, MAX_BATCH_SIZE)));
+                boolean done = records.isEmpty();
+                session.imported += records.size();
+
+                WritableArray array = Arguments.createArray();
+                for (StatementImporter.Record record : records) {
+                    array.pushMap(toMap(record));
+                }
+                WritableMap result = Arguments.createMap();
+                result.putArray("records", array);
+                result.putBoolean("done", done);
+                putCounts(result, session);
+                if (done) {
+                    // 最後まで読んだらファイルを閉じる（以降のnextBatchは空で返す）
+                    closeQuietly(session.input);
+                }
+                emitProgress(importId, session);
+                promise.resolve(result);
+            } catch (Exception e) {
+                android.util.Log.e("DataImport", "Error reading import batch", e);
+                discard(importId);
+                promise.reject("IMPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void finishImport(String importId, Promise promise) {
+        executor.execute(() -> {
+            ImportSession session = sessions.remove(importId);
+            cancelled.remove(importId);
+            if (session == null) {
+                promise.reject("IMPORT_NOT_FOUND", "Unknown import: " + importId);
+                return;
+            }
+            closeQuietly(session.input);
+            WritableMap result = Arguments.createMap();
+            putCounts(result, session);
+            android.util.Log.d("DataImport", "Finished " + importId + ": " + session.imported + " records, "
+                + session.importer.getDuplicates() + " duplicates, " + session.importer.getSkipped() + " skipped");
+            promise.resolve(result);
+        });
+    }
+
+    @ReactMethod
+    public void cancelImport(String importId, Promise promise) {
+        // 実行待ちのバッチが即座に中断できるよう先にフラグを立てる
+        cancelled.put(importId, true);
+        executor.execute(() -> {
+            discard(importId);
+            cancelled.remove(importId);
+            promise.resolve(true);
+        });
+    }
+
+    private InputStream openInput(String uri) throws Exception {
+        if (uri.startsWith("content://")) {
+            InputStream input = reactContext.getContentResolver().openInputStream(Uri.parse(uri));
+            if (input == null) {
+                throw new IllegalStateException("Unable to open " + uri);
+            }
+            return input;
+        }
+        String path = uri.startsWith("file://") ? Uri.parse(uri).getPath() : uri;
+        return new FileInputStream(path);
+    }
+
+    private WritableMap toMap(StatementImporter.Record record) {
+        WritableMap map = Arguments.createMap();
+        map.putString("id", record.docId);
+        map.putString("key", record.key);
+        map.putDouble("timestamp", record.timestampMs);
+        map.putDouble("earnings", record.earnings);
+        map.putDouble("tip", record.tip);
+        if (record.distanceKm >= 0) {
+            map.putDouble("distanceKm", record.distanceKm);
+        }
+        if (record.durationMinutes >= 0) {
+            map.putInt("duration", record.durationMinutes);
+        }
+        return map;
+    }
+
+    private void putCounts(WritableMap map, ImportSession session) {
+        map.putInt("rowsRead", session.importer.getRowsRead());
+        map.putInt("imported", session.imported);
+        map.putInt("duplicates", session.importer.getDuplicates());
+        map.putInt("skipped", session.importer.getSkipped());
+    }
+
+    private void discard(String importId) {
+        ImportSession session = sessions.remove(importId);
+        if (session != null) {
+            closeQuietly(session.input);
+        }
+    }
+
+    private void closeQuietly(InputStream input) {
+        if (input == null) return;
+        try {
+            input.close();
+        } catch (Exception e) {
+            android.util.Log.e("DataImport", "Error closing import file", e);
+        }
+    }
+
+    private void emitProgress(String importId, ImportSession session) {
+        try {
+            WritableMap params = Arguments.createMap();
+            params.putString("importId", importId);
+            putCounts(params, session);
+            params.putDouble("charsRead", session.importer.getCharsRead());
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(PROGRESS_EVENT, params);
+        } catch (Exception e) {
+            android.util.Log.e("DataImport", "Error emitting import progress", e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.urbandash;
+
+import android.location.Location;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * オーバーレイのSTARTからFINISHまでの測位を配達ごとの区間に切り出し、距離・速度を集計する。
+ * 位置は新たに購読せず、ActivityMonitorがアプリで1つにまとめて購読している測位をそのまま使う。
+ * 同時進行中の配達にはそれぞれ同じ測位を加える。配達は開始時刻（startTimeMs）で識別する。
+ * すべてのメソッドはメインスレッドから呼ぶこと。
+ */
+public class DeliveryRouteRecorder {
+    private static final float MAX_ACCURACY_M = 50f;
+    // これより速い移動は測位の飛びとして捨てる
+    private static final double MAX_SPEED_MPS = 200 / 3.6;
+    // 移動中とみなす速度（徒歩より少し速い程度）
+    private static final double MOVING_SPEED_MPS = 1.5;
+    // START時にこれより新しい測位があれば区間の起点にする
+    private static final long SEED_MAX_AGE_MS = 60 * 1000;
+    // FINISHの位置として使える測位の時刻のずれの上限
+    private static final long FINISH_POSITION_MAX_AGE_MS = 2 * 60 * 1000;
+    // 区間の最初の測位がSTARTからこれ以上遅れた場合は開始時点を含まない区間とする
+    private static final long PARTIAL_THRESHOLD_MS = 60 * 1000;
+    // FINISHされずに残った区間（配達を閉じずにアプリを終了した場合など）を捨てるまでの時間
+    private static final long MAX_SEGMENT_AGE_MS = 12 * 60 * 60 * 1000L;
+    // 経路として残す点の上限（超えたら間引いて間隔を2倍にする）
+    private static final int MAX_POINTS = 360;
+
+    /**
+     * FINISHで確定した1配達分の経路
+     */
+    public static final class Route {
+        public long startTimeMs;
+        public long endTimeMs;
+        public double distanceMeters;
+        public long durationSeconds;
+        public long movingSeconds;
+        public double averageSpeedKmh;
+        public double maxSpeedKmh;
+        public int pointCount;
+        public boolean partial; // STARTの時点からの測位がない（プロセスの再起動・測位の停止中など）
+        public String pathJson; // [[緯度, 経度, 時刻(ms), 速度(km/h), 精度(m)], ...]
+
+        public String distanceKmText() {
+            return String.format(Locale.US, "%.1f", distanceMeters / 1000.0);
+        }
+    }
+
+    private static final class Segment {
+        final List<double[]> points = new ArrayList<>();
+        Location last;
+        double[] lastPoint;
+        double distanceMeters;
+        double maxSpeedMps;
+        long movingMs;
+        long firstFixMs;
+        int stride = 1;
+        int sinceKept = 0;
+    }
+
+    private static DeliveryRouteRecorder instance;
+
+    private final Map<Long, Segment> open = new LinkedHashMap<>();
+    private Location lastLocation;
+
+    public static synchronized DeliveryRouteRecorder getInstance() {
+        if (instance == null) {
+            instance = new DeliveryRouteRecorder();
+        }
+        return instance;
+    }
+
+    /**
+     * STARTで区間を開く（復元した配達で既に開いている場合はそのまま）
+     */
+    public void begin(long startTimeMs) {
+        if (open.containsKey(startTimeMs)) return;
+        long now = System.currentTimeMillis();
+        Iterator<Long> iterator = open.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next() > MAX_SEGMENT_AGE_MS) {
+                iterator.remove();
+            }
+        }
+        Segment segment = new Segment();
+        if (lastLocation != null && now - lastLocation.getTime() <= SEED_MAX_AGE_MS) {
+            add(segment, lastLocation);
+        }
+        open.put(startTimeMs, segment);
+    }
+
+    /**
+     * ActivityMonitorが受け取った測位
+     */
+    public void onLocation(Location location) {
+        if (location.hasAccuracy() && location.getAccuracy() > MAX_ACCURACY_M) return;
+        lastLocation = location;
+        for (Segment segment : open.values()) {
+            add(segment, location);
+        }
+    }
+
+    /**
+     * 指定時刻（FINISHなど）の位置として使える直近の測位。時刻が離れていればnull
+     */
+    public Location getLocationAt(long timeMs) {
+        if (lastLocation == null || Math.abs(timeMs - lastLocation.getTime()) > FINISH_POSITION_MAX_AGE_MS) return null;
+        return lastLocation;
+    }
+
+    /**
+     * FINISHで区間を閉じて集計する。測位が2点未満ならnull
+     */
+    public Route finish(long startTimeMs, long finishTimeMs) {
+        Segment segment = open.remove(startTimeMs);
+        if (segment == null || segment.lastPoint == null) return null;
+        if (segment.points.isEmpty() || segment.points.get(segment.points.size() - 1) != segment.lastPoint) {
+            // 間引きで落ちた最後の測位は必ず残す
+            segment.points.add(segment.lastPoint);
+        }
+        if (segment.points.size() < 2) return null;
+
+        Route route = new Route();
+        route.startTimeMs = startTimeMs;
+        route.endTimeMs = finishTimeMs;
+        route.distanceMeters = segment.distanceMeters;
+        route.durationSeconds = Math.max(0, finishTimeMs - startTimeMs) / 1000;
+        route.movingSeconds = segment.movingMs / 1000;
+        route.averageSpeedKmh = route.durationSeconds > 0 ? segment.distanceMeters / route.durationSeconds * 3.6 : 0;
+        route.maxSpeedKmh = segment.maxSpeedMps * 3.6;
+        route.pointCount = segment.points.size();
+        route.partial = segment.firstFixMs - startTimeMs > PARTIAL_THRESHOLD_MS;
+        route.pathJson = toJson(segment.points);
+        android.util.Log.d("DeliveryRouteRecorder", String.format(Locale.US,
+            "Delivery route %.0fm in %ds (%d points%s)", route.distanceMeters, route.durationSeconds,
+            route.pointCount, route.partial ? ", partial" : ""));
+        return route;
+    }
+
+    /**
+     * FINISHせずに終わった配達（勤務終了で破棄した配達など）の区間を集計せずに捨てる
+     */
+    public void discard(long startTimeMs) {
+        open.remove(startTimeMs);
+    }
+
+    /**
+     * 開いているすべての区間を捨てる（オーバーレイを表示していない間に勤務を終了した場合）
+     */
+    public void discardAll() {
+        open.clear();
+    }
+
+    private void add(Segment segment, Location location) {
+        long time = location.getTime();
+        double impliedSpeed = 0;
+        if (segment.last != null) {
+            long dt = time - segment.last.getTime();
+            if (dt <= 0) return;
+            float distance = segment.last.distanceTo(location);
+            impliedSpeed = distance / (dt / 1000.0);
+            if (impliedSpeed > MAX_SPEED_MPS) return;
+            segment.distanceMeters += distance;
+            if (impliedSpeed >= MOVING_SPEED_MPS) {
+                segment.movingMs += dt;
+            }
+        } else {
+            segment.firstFixMs = time;
+        }
+        double speed = location.hasSpeed() ? location.getSpeed() : impliedSpeed;
+        segment.maxSpeedMps = Math.max(segment.maxSpeedMps, Math.min(speed, MAX_SPEED_MPS));
+        segment.last = location;
+
+        double[] point = {
+            location.getLatitude(),
+            location.getLongitude(),
+            time,
+            speed * 3.6,
+            location.hasAccuracy() ? location.getAccuracy() : -1,
+        };
+        segment.lastPoint = point;
+        if (segment.points.isEmpty() || ++segment.sinceKept >= segment.stride) {
+            segment.points.add(point);
+            segment.sinceKept = 0;
+            if (segment.points.size() >= MAX_POINTS) {
+                thin(segment);
+            }
+        }
+    }
+
+    // 1点おきに間引き、以降は残す間隔を2倍にする
+    private static void thin(Segment segment) {
+        List<double[]> kept = new ArrayList<>(MAX_POINTS / 2 + 1);
+        for (int i = 0; i < segment.points.size(); i += 2) {
+            kept.add(segment.points.get(i));
+        }
+        segment.points.clear();
+        segment.points.addAll(kept);
+        segment.stride *= 2;
+    }
+
+    private static String toJson(List<double[]> points) {
+        JSONArray path = new JSONArray();
+        try {
+            for (double[] point : points) {
+                JSONArray p = new JSONArray();
+                p.put(Math.round(point[0] * 1e6) / 1e6);
+                p.put(Math.round(point[1] * 1e6) / 1e6);
+                p.put((long) point[2]);
+                p.put(Math.round(point[3] * 10) / 10.0);
+                p.put(Math.round(point[4]));
+                path.put(p);
+            }
+        } catch (JSONException e) {
+            android.util.Log.e("DeliveryRouteRecorder", "Error encoding route", e);
+        }
+        return path.toString();
+    }
+}
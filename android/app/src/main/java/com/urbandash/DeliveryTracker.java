@@ -0,0 +1,302 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * オーバーレイで同時進行中の配達（ダブル・スタック案件）を管理する。
+ * 経過時間の表示更新は配達ごとのRunnableではなく、共有のTimerWheelを1つのHandlerで回して行う。
+ * containerがnullの場合は行ビューを作らず、描画は呼び出し側がonElapsedTickを受けて行う。
+ */
+public class DeliveryTracker implements TimerWheel.Listener<DeliveryTracker.ActiveDelivery> {
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 64;
+
+    public interface Callback {
+        /**
+         * FINISHが押された時に呼ばれる。falseを返すと配達は継続扱いになる
+         */
+        boolean onFinish(ActiveDelivery delivery, long finishTimeMs);
+
+        void onActiveCountChanged(int count);
+
+        /**
+         * 各配達の経過時間が1秒進むごとに呼ばれる
+         */
+        default void onElapsedTick(ActiveDelivery delivery) {
+        }
+    }
+
+    public static class ActiveDelivery {
+        public final int number;
+        public final String service;
+        public final String reward;
+        public final String estimatedTime;
+        public final String distance;
+        public final long startTimeMs;
+        final long startElapsedMs;
+        View row;
+        TextView elapsedView;
+        TimerWheel.Timeout<ActiveDelivery> timeout;
+
+        ActiveDelivery(int number, String service, String reward, String estimatedTime, String distance,
+                       long startTimeMs, long startElapsedMs) {
+            this.number = number;
+            this.service = service;
+            this.reward = reward;
+            this.estimatedTime = estimatedTime;
+            this.distance = distance;
+            this.startTimeMs = startTimeMs;
+            this.startElapsedMs = startElapsedMs;
+        }
+    }
+
+    private final Context context;
+    private final LinearLayout container;
+    private final Callback callback;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final TimerWheel<ActiveDelivery> wheel = new TimerWheel<>(TICK_MS, WHEEL_SIZE, this);
+    private final List<ActiveDelivery> active = new ArrayList<>();
+    private int nextNumber = 1;
+    private boolean ticking = false;
+    private long minTickIntervalMs = TICK_MS;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long begin = WakeupAuditor.getInstance().begin();
+            long now = SystemClock.elapsedRealtime();
+            wheel.advanceTo(now);
+            if (wheel.isEmpty()) {
+                ticking = false;
+            } else {
+                handler.postDelayed(this, nextTickDelay(now));
+            }
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_OVERLAY_TICK, begin);
+        }
+    };
+
+    public DeliveryTracker(Context context, LinearLayout container, Callback callback) {
+        this.context = context;
+        this.container = container;
+        this.callback = callback;
+    }
+
+    public ActiveDelivery start(String service, String reward, String estimatedTime, String distance) {
+        long startElapsed = SystemClock.elapsedRealtime();
+        ActiveDelivery delivery = new ActiveDelivery(
+            nextNumber++, service, reward, estimatedTime, distance, System.currentTimeMillis(), startElapsed);
+
+        if (container != null) {
+            delivery.row = createRow(delivery);
+            container.addView(delivery.row);
+        }
+        active.add(delivery);
+        DeliveryRouteRecorder.getInstance().begin(delivery.startTimeMs);
+
+        delivery.timeout = wheel.schedule(delivery, startElapsed + TICK_MS);
+        ensureTicking();
+        callback.onActiveCountChanged(active.size());
+        return delivery;
+    }
+
+    /**
+     * 保存済みの起点時刻から進行中の配達を復元する（プロセス再起動後など）
+     */
+    public void restore(List<SessionStateStore.DeliveryAnchor> anchors, int savedNextNumber) {
+        if (anchors.isEmpty()) return;
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long nowMs = System.currentTimeMillis();
+
+        for (SessionStateStore.DeliveryAnchor anchor : anchors) {
+            long startElapsed = nowElapsed - Math.max(0, nowMs - anchor.startTimeMs);
+            ActiveDelivery delivery = new ActiveDelivery(anchor.number, anchor.service, anchor.reward,
+                anchor.estimatedTime, anchor.distance, anchor.startTimeMs, startElapsed);
+            if (container != null) {
+                delivery.row = createRow(delivery);
+                container.addView(delivery.row);
+            }
+            active.add(delivery);
+            // 同じプロセス内なら開いたままの区間を引き継ぐ（再起動後は復元した時点からの区間になる）
+            DeliveryRouteRecorder.getInstance().begin(delivery.startTimeMs);
+            delivery.timeout = wheel.schedule(delivery, nowElapsed + TICK_MS - ((nowElapsed - startElapsed) % TICK_MS));
+            nextNumber = Math.max(nextNumber, anchor.number + 1);
+        }
+        nextNumber = Math.max(nextNumber, savedNextNumber);
+
+        ensureTicking();
+        callback.onActiveCountChanged(active.size());
+    }
+
+    public void finish(ActiveDelivery delivery) {
+        if (!active.contains(delivery)) return;
+
+        long finishTimeMs = System.currentTimeMillis();
+        if (!callback.onFinish(delivery, finishTimeMs)) {
+            return;
+        }
+
+        wheel.cancel(delivery.timeout);
+        if (container != null) {
+            container.removeView(delivery.row);
+        }
+        active.remove(delivery);
+        if (active.isEmpty()) {
+            nextNumber = 1;
+        }
+        callback.onActiveCountChanged(active.size());
+    }
+
+    public int getNextNumber() {
+        return nextNumber;
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public View getContainer() {
+        return container;
+    }
+
+    public List<ActiveDelivery> getActive() {
+        return Collections.unmodifiableList(active);
+    }
+
+    public static long getElapsedMs(ActiveDelivery delivery) {
+        return SystemClock.elapsedRealtime() - delivery.startElapsedMs;
+    }
+
+    public void stop() {
+        handler.removeCallbacks(tickRunnable);
+        ticking = false;
+        wheel.clear();
+        if (container != null) {
+            container.removeAllViews();
+        }
+        active.clear();
+    }
+
+    /**
+     * 勤務終了で進行中の配達をすべて破棄する（FINISHしない。経路の区間も閉じる）
+     */
+    public void clear() {
+        if (active.isEmpty()) return;
+        DeliveryRouteRecorder recorder = DeliveryRouteRecorder.getInstance();
+        for (ActiveDelivery delivery : active) {
+            wheel.cancel(delivery.timeout);
+            if (container != null) {
+                container.removeView(delivery.row);
+            }
+            recorder.discard(delivery.startTimeMs);
+        }
+        active.clear();
+        nextNumber = 1;
+        callback.onActiveCountChanged(0);
+    }
+
+    @Override
+    public void onExpired(ActiveDelivery delivery, long deadlineMs) {
+        long now = SystemClock.elapsedRealtime();
+        if (delivery.elapsedView != null) {
+            delivery.elapsedView.setText(formatElapsed(now - delivery.startElapsedMs));
+        }
+        callback.onElapsedTick(delivery);
+        // 配達ごとの開始時刻を基準に次の1秒へ再登録
+        long next = deadlineMs + TICK_MS;
+        if (next <= now) {
+            next = now + TICK_MS - ((now - delivery.startElapsedMs) % TICK_MS);
+        }
+        delivery.timeout = wheel.schedule(delivery, next);
+    }
+
+    private void ensureTicking() {
+        if (ticking) return;
+        ticking = true;
+        long now = SystemClock.elapsedRealtime();
+        handler.postDelayed(tickRunnable, nextTickDelay(now));
+    }
+
+    // 間引き中は複数の秒をまとめて進める（期限切れの配達はadvanceToで1回ずつ更新される）
+    private long nextTickDelay(long now) {
+        return wheel.delayToNextTick(now) + (minTickIntervalMs - TICK_MS);
+    }
+
+    /**
+     * 経過時間表示の更新間隔を変える（QoSレベルに応じて1秒〜数十秒）
+     */
+    public void setMinTickIntervalMs(long intervalMs) {
+        long next = Math.max(TICK_MS, intervalMs);
+        if (next == minTickIntervalMs) return;
+        minTickIntervalMs = next;
+        if (ticking) {
+            // 間隔を縮める場合にすぐ反映されるよう予約し直す
+            handler.removeCallbacks(tickRunnable);
+            handler.postDelayed(tickRunnable, nextTickDelay(SystemClock.elapsedRealtime()));
+        }
+    }
+
+    private View createRow(ActiveDelivery delivery) {
+        int rowHeight = dp(40);
+        int margin = dp(3);
+
+        LinearLayout row = new LinearLayout(context);
+        row.setOrientation(LinearLayout.HORIZONTAL);
+        row.setGravity(Gravity.CENTER_VERTICAL);
+        row.setBackgroundResource(R.drawable.input_background);
+        row.setPadding(dp(8), 0, dp(4), 0);
+
+        TextView label = new TextView(context);
+        String rewardText = delivery.reward.isEmpty() ? "" : " ¥" + delivery.reward;
+        label.setText("#" + delivery.number + " " + delivery.service + rewardText);
+        label.setTextColor(0xFFE0E0E0);
+        label.setTextSize(12);
+        label.setSingleLine(true);
+        row.addView(label, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+
+        TextView elapsed = new TextView(context);
+        elapsed.setText(formatElapsed(getElapsedMs(delivery)));
+        elapsed.setTextColor(0xFFFFFFFF);
+        elapsed.setTextSize(14);
+        elapsed.setPadding(dp(6), 0, dp(6), 0);
+        row.addView(elapsed, new LinearLayout.LayoutParams(
+            LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+        delivery.elapsedView = elapsed;
+
+        Button finishButton = new Button(context);
+        finishButton.setText("FINISH");
+        finishButton.setTextColor(0xFFFFFFFF);
+        finishButton.setTextSize(12);
+        finishButton.setPadding(dp(8), 0, dp(8), 0);
+        finishButton.setBackgroundResource(R.drawable.cancel_button_background);
+        finishButton.setOnClickListener(v -> finish(delivery));
+        row.addView(finishButton, new LinearLayout.LayoutParams(
+            LinearLayout.LayoutParams.WRAP_CONTENT, dp(32)));
+
+        LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, rowHeight);
+        lp.setMargins(0, 0, 0, margin);
+        row.setLayoutParams(lp);
+        return row;
+    }
+
+    static String formatElapsed(long elapsedMs) {
+        long elapsedMinutes = elapsedMs / (1000 * 60);
+        long elapsedSeconds = (elapsedMs / 1000) % 60;
+        return String.format("%02d:%02d", elapsedMinutes, elapsedSeconds);
+    }
+
+    private int dp(int value) {
+        return Math.round(value * context.getResources().getDisplayMetrics().density);
+    }
+}
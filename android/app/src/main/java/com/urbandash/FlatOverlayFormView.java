@@ -0,0 +1,600 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * オーバーレイフォームを1つのViewで描画する版（設定の単一ビュー描画モード、試験中）。
+ * サービス選択・入力欄・クイック入力・テンキー・START・進行中の配達一覧を
+ * onSizeChangedで計算した矩形に直接描画し、タップも矩形のヒットテストで処理する。
+ * 子ビューを持たず、入力や経過時間の更新はinvalidateで再描画する（描画時間の比較は未計測）。
+ * 最小化状態は円を1つ描くだけになる。
+ */
+public class FlatOverlayFormView extends View {
+    public static final int FIELD_REWARD = 0;
+    public static final int FIELD_ESTIMATED_TIME = 1;
+    public static final int FIELD_DISTANCE = 2;
+
+    public interface Listener {
+        void onStartDelivery(String service, String reward, String estimatedTime, String distance);
+
+        void onFinishDelivery(DeliveryTracker.ActiveDelivery delivery);
+
+        /**
+         * サービスや入力欄の値が変わった時に呼ばれる（案件評価の更新用）
+         */
+        default void onInputChanged(String service, String reward, String estimatedTime, String distance) {
+        }
+    }
+
+    private static final String[] FIELD_UNITS = {"円", "分", "km"};
+    private static final String[] FIELD_HINTS = {"500", "15", "2.5"};
+    private static final long BACKSPACE_CLEAR_DELAY_MS = 500;
+
+    // 各要素の高さ（dp）。画面が小さい場合は全体を縮小して収める
+    private static final float PAD_DP = 8;
+    private static final float GAP_DP = 4;
+    private static final float HEADER_DP = 14;
+    private static final float SERVICE_DP = 32;
+    private static final float FIELD_DP = 34;
+    private static final float OFFER_DP = 14;
+    private static final float CHIP_DP = 28;
+    private static final float KEY_DP = 36;
+    private static final float START_DP = 38;
+    private static final float STATUS_DP = 16;
+    private static final float SUMMARY_DP = 14;
+    private static final float ROW_DP = 30;
+    private static final float ROW_GAP_DP = 3;
+    // 配達が少ない間も確保しておく行数。これを超えたら行の分だけ高さを伸ばす
+    private static final int RESERVED_ROWS = 2;
+    public static final float PREFERRED_WIDTH_DP = 240;
+
+    // ヒットテスト用のターゲットID
+    private static final int TARGET_NONE = -1;
+    private static final int TARGET_SERVICE_PREV = 0;
+    private static final int TARGET_SERVICE_NEXT = 1;
+    private static final int TARGET_FIELD = 10;
+    private static final int TARGET_CHIP = 20;
+    private static final int TARGET_KEY = 30;
+    private static final int TARGET_START = 50;
+    private static final int TARGET_FINISH = 100;
+
+    private final float density;
+    private final SharedPreferences prefs;
+    private final String[] services;
+    private final String[] fieldValues = {"", "", ""};
+    private final List<String> recentRewards;
+    private final Map<DeliveryTracker.ActiveDelivery, String> rowLabels = new IdentityHashMap<>();
+    private Listener listener;
+    private DeliveryTracker tracker;
+    private int serviceIndex = 0;
+    private int activeField = FIELD_REWARD;
+    private int activeCount = 0;
+    private int maxHeightPx = Integer.MAX_VALUE;
+    private String sessionSummary = "";
+    private String offerEvaluation = "";
+    private boolean minimized = false;
+    private int pressedTarget = TARGET_NONE;
+    private boolean longPressConsumed = false;
+
+    // 事前計算したレイアウト
+    private float scale;
+    private final RectF panelRect = new RectF();
+    private final RectF gripRect = new RectF();
+    private final RectF serviceRect = new RectF();
+    private final RectF[] fieldRects = {new RectF(), new RectF(), new RectF()};
+    private final RectF chipsRect = new RectF();
+    private final RectF[] keyRects = new RectF[12];
+    private final RectF startRect = new RectF();
+    private float offerBaseline;
+    private float statusBaseline;
+    private float summaryBaseline;
+    private float rowsTop;
+    private float rowHeight;
+    private float rowGap;
+    private float corner;
+    private final RectF scratch = new RectF();
+
+    private final Paint panelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Runnable backspaceLongPress = () -> {
+        if (pressedTarget == TARGET_KEY + 11) {
+            fieldValues[activeField] = "";
+            longPressConsumed = true;
+            notifyInputChanged();
+            invalidate();
+        }
+    };
+
+    public FlatOverlayFormView(Context context, String[] services) {
+        super(context);
+        this.density = context.getResources().getDisplayMetrics().density;
+        this.prefs = context.getSharedPreferences(OverlayKeypad.PREFS_NAME, Context.MODE_PRIVATE);
+        this.services = services;
+        this.recentRewards = OverlayKeypad.readRecentRewards(prefs);
+        for (int i = 0; i < keyRects.length; i++) {
+            keyRects[i] = new RectF();
+        }
+        panelPaint.setColor(0xE6101820);
+        strokePaint.setStyle(Paint.Style.STROKE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    public static int preferredHeightPx(float density, int activeCount) {
+        return Math.round(naturalHeightDp(layoutRows(activeCount)) * density);
+    }
+
+    /**
+     * 展開時の高さの上限。行が増えて上限を超える場合は全体を縮小して収める
+     */
+    public void setMaxHeightPx(int maxHeightPx) {
+        this.maxHeightPx = maxHeightPx;
+    }
+
+    /**
+     * 今の配達数で必要な展開時の高さ
+     */
+    public int getPreferredHeightPx() {
+        return Math.min(preferredHeightPx(density, activeCount), maxHeightPx);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setDeliveryTracker(DeliveryTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    public String getFieldValue(int field) {
+        return fieldValues[field];
+    }
+
+    public void clearAll() {
+        fieldValues[FIELD_REWARD] = "";
+        fieldValues[FIELD_ESTIMATED_TIME] = "";
+        fieldValues[FIELD_DISTANCE] = "";
+        activeField = FIELD_REWARD;
+        notifyInputChanged();
+        invalidate();
+    }
+
+    public void resetService() {
+        serviceIndex = 0;
+        notifyInputChanged();
+        invalidate();
+    }
+
+    public void setOfferEvaluation(String evaluation) {
+        if (evaluation.equals(offerEvaluation)) return;
+        offerEvaluation = evaluation;
+        invalidate();
+    }
+
+    private void notifyInputChanged() {
+        if (listener != null) {
+            listener.onInputChanged(services[serviceIndex], fieldValues[FIELD_REWARD].trim(),
+                fieldValues[FIELD_ESTIMATED_TIME].trim(), fieldValues[FIELD_DISTANCE].trim());
+        }
+    }
+
+    public void recordReward(String reward) {
+        if (reward == null || reward.isEmpty()) return;
+        OverlayKeypad.pushRecentReward(prefs, recentRewards, reward);
+        invalidate();
+    }
+
+    /**
+     * 現在の入力内容でSTARTを押したのと同じ処理を行う
+     */
+    public void performStart() {
+        if (listener != null) {
+            listener.onStartDelivery(services[serviceIndex], fieldValues[FIELD_REWARD].trim(),
+                fieldValues[FIELD_ESTIMATED_TIME].trim(), fieldValues[FIELD_DISTANCE].trim());
+        }
+    }
+
+    public void setActiveCount(int count) {
+        int previousRows = layoutRows(activeCount);
+        activeCount = count;
+        if (layoutRows(count) != previousRows) {
+            // 行の増減に合わせてウィンドウ（WRAP_CONTENT）の高さを変える。上限に達している場合は縮小率だけ変わる
+            requestLayout();
+            if (!minimized && getWidth() > 0 && getHeight() > 0) {
+                computeLayout(getWidth(), getHeight());
+            }
+        }
+        // 終了した配達のラベルを捨てる
+        if (tracker != null) {
+            rowLabels.keySet().retainAll(tracker.getActive());
+        }
+        invalidate();
+    }
+
+    public void onElapsedTick() {
+        if (!minimized) {
+            invalidate();
+        }
+    }
+
+    public void setSessionSummary(String summary) {
+        if (summary.equals(sessionSummary)) return;
+        sessionSummary = summary;
+        invalidate();
+    }
+
+    public void setMinimized(boolean minimized) {
+        if (this.minimized == minimized) return;
+        this.minimized = minimized;
+        pressedTarget = TARGET_NONE;
+        invalidate();
+    }
+
+    public boolean isMinimized() {
+        return minimized;
+    }
+
+    /**
+     * ドラッグではなくタップとして扱う位置か（OverlayServiceのドラッグ判定用）
+     */
+    public boolean isInteractiveAt(float x, float y) {
+        return !minimized && hitTest(x, y) != TARGET_NONE;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // 最小化中はウィンドウ側で固定サイズを指定している
+        int width = resolveSize(Math.round(PREFERRED_WIDTH_DP * density), widthMeasureSpec);
+        int height = resolveSize(getPreferredHeightPx(), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (minimized || w == 0 || h == 0) return;
+        computeLayout(w, h);
+    }
+
+    private static int layoutRows(int activeCount) {
+        return Math.max(RESERVED_ROWS, activeCount);
+    }
+
+    private static float naturalHeightDp(int rows) {
+        return PAD_DP * 2 + HEADER_DP + SERVICE_DP + FIELD_DP * 3 + OFFER_DP + CHIP_DP + KEY_DP * 4 + START_DP
+            + STATUS_DP + SUMMARY_DP + (ROW_DP + ROW_GAP_DP) * rows + GAP_DP * 12;
+    }
+
+    private void computeLayout(int w, int h) {
+        // 進行中の配達の行がすべて収まる縮小率にする
+        scale = Math.min(density, h / naturalHeightDp(layoutRows(activeCount)));
+        float pad = PAD_DP * scale;
+        float gap = GAP_DP * scale;
+        float left = pad;
+        float right = w - pad;
+        corner = 6 * scale;
+        rowsLabelsInvalidated();
+
+        panelRect.set(0, 0, w, h);
+        float y = pad;
+
+        gripRect.set(w / 2f - 16 * scale, y + HEADER_DP * scale / 2 - 2 * scale,
+            w / 2f + 16 * scale, y + HEADER_DP * scale / 2 + 2 * scale);
+        y += HEADER_DP * scale + gap;
+
+        serviceRect.set(left, y, right, y + SERVICE_DP * scale);
+        y += SERVICE_DP * scale + gap;
+
+        float unitWidth = 24 * scale;
+        for (RectF rect : fieldRects) {
+            rect.set(left, y, right - unitWidth, y + FIELD_DP * scale);
+            y += FIELD_DP * scale + gap;
+        }
+
+        offerBaseline = y + OFFER_DP * scale * 0.75f;
+        y += OFFER_DP * scale;
+
+        chipsRect.set(left, y, right, y + CHIP_DP * scale);
+        y += CHIP_DP * scale + gap;
+
+        float keyWidth = (right - left - gap * 2) / 3;
+        float keyHeight = KEY_DP * scale;
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 3; col++) {
+                float keyLeft = left + col * (keyWidth + gap);
+                keyRects[row * 3 + col].set(keyLeft, y, keyLeft + keyWidth, y + keyHeight);
+            }
+            y += keyHeight + gap;
+        }
+
+        startRect.set(left, y, right, y + START_DP * scale);
+        y += START_DP * scale + gap;
+
+        statusBaseline = y + STATUS_DP * scale * 0.75f;
+        y += STATUS_DP * scale;
+        summaryBaseline = y + SUMMARY_DP * scale * 0.75f;
+        y += SUMMARY_DP * scale + gap;
+
+        rowsTop = y;
+        rowHeight = ROW_DP * scale;
+        rowGap = ROW_GAP_DP * scale;
+    }
+
+    private void rowsLabelsInvalidated() {
+        rowLabels.clear();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int w = getWidth();
+        int h = getHeight();
+
+        if (minimized) {
+            float radius = Math.min(w, h) / 2f;
+            fillPaint.setColor(0x80FF3B30);
+            canvas.drawCircle(w / 2f, h / 2f, radius, fillPaint);
+            if (activeCount > 0) {
+                textPaint.setColor(0xFFFFFFFF);
+                textPaint.setTextSize(radius * 0.8f);
+                drawCenteredText(canvas, String.valueOf(activeCount), w / 2f, h / 2f);
+            }
+            return;
+        }
+
+        canvas.drawRoundRect(panelRect, corner * 2, corner * 2, panelPaint);
+        fillPaint.setColor(0xFF555555);
+        canvas.drawRoundRect(gripRect, gripRect.height() / 2, gripRect.height() / 2, fillPaint);
+
+        // サービス選択（左右タップで切り替え）
+        drawBox(canvas, serviceRect, 0xFF1E2A3A, false);
+        textPaint.setColor(0xFFFFFFFF);
+        textPaint.setTextSize(14 * scale);
+        drawCenteredText(canvas, services[serviceIndex], serviceRect.centerX(), serviceRect.centerY());
+        textPaint.setColor(0xFF9E9E9E);
+        drawCenteredText(canvas, "◀", serviceRect.left + 14 * scale, serviceRect.centerY());
+        drawCenteredText(canvas, "▶", serviceRect.right - 14 * scale, serviceRect.centerY());
+
+        // 入力欄
+        for (int i = 0; i < fieldRects.length; i++) {
+            RectF rect = fieldRects[i];
+            drawBox(canvas, rect, pressedTarget == TARGET_FIELD + i ? 0xFF2A3442 : 0xFF1E2A3A, i == activeField);
+            boolean empty = fieldValues[i].isEmpty();
+            textPaint.setColor(empty ? 0xFF666666 : 0xFFFFFFFF);
+            textPaint.setTextSize(16 * scale);
+            textPaint.setTextAlign(Paint.Align.LEFT);
+            canvas.drawText(empty ? FIELD_HINTS[i] : fieldValues[i], rect.left + 10 * scale,
+                baseline(rect.centerY()), textPaint);
+            textPaint.setColor(0xFFE0E0E0);
+            textPaint.setTextSize(12 * scale);
+            canvas.drawText(FIELD_UNITS[i], rect.right + 4 * scale, baseline(rect.centerY()), textPaint);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+        }
+
+        // 案件評価
+        if (!offerEvaluation.isEmpty()) {
+            textPaint.setColor(0xFFFFC107);
+            textPaint.setTextSize(11 * scale);
+            canvas.drawText(offerEvaluation, w / 2f, offerBaseline, textPaint);
+        }
+
+        // クイック入力チップ
+        int chipCount = recentRewards.size();
+        if (chipCount > 0) {
+            textPaint.setTextSize(13 * scale);
+            for (int i = 0; i < chipCount; i++) {
+                chipRect(i, scratch);
+                drawBox(canvas, scratch, pressedTarget == TARGET_CHIP + i ? 0xFF3A4A5E : 0xFF263445, false);
+                textPaint.setColor(0xFFE0E0E0);
+                drawCenteredText(canvas, "¥" + recentRewards.get(i), scratch.centerX(), scratch.centerY());
+            }
+        }
+
+        // テンキー
+        textPaint.setTextSize(18 * scale);
+        for (int i = 0; i < keyRects.length; i++) {
+            String label = OverlayKeypad.KEY_ROWS[i / 3][i % 3];
+            boolean disabled = OverlayKeypad.KEY_DECIMAL.equals(label) && activeField != FIELD_DISTANCE;
+            drawBox(canvas, keyRects[i], pressedTarget == TARGET_KEY + i ? 0xFF3A4A5E : 0xFF2A3442, false);
+            textPaint.setColor(disabled ? 0xFF555555 : 0xFFFFFFFF);
+            drawCenteredText(canvas, label, keyRects[i].centerX(), keyRects[i].centerY());
+        }
+
+        // START
+        drawBox(canvas, startRect, pressedTarget == TARGET_START ? 0xFF3D8B40 : 0xFF4CAF50, false);
+        textPaint.setColor(0xFFFFFFFF);
+        textPaint.setTextSize(16 * scale);
+        drawCenteredText(canvas, "START", startRect.centerX(), startRect.centerY());
+
+        // 状態表示
+        textPaint.setColor(0xFFE0E0E0);
+        textPaint.setTextSize(12 * scale);
+        canvas.drawText("配達中: " + activeCount + "件", w / 2f, statusBaseline, textPaint);
+        if (!sessionSummary.isEmpty()) {
+            textPaint.setColor(0xFF4CAF50);
+            textPaint.setTextSize(11 * scale);
+            canvas.drawText(sessionSummary, w / 2f, summaryBaseline, textPaint);
+        }
+
+        drawActiveRows(canvas, w, h);
+    }
+
+    private void drawActiveRows(Canvas canvas, int w, int h) {
+        if (tracker == null) return;
+        List<DeliveryTracker.ActiveDelivery> active = tracker.getActive();
+        float pad = PAD_DP * scale;
+
+        for (int i = 0; i < active.size(); i++) {
+            float top = rowsTop + i * (rowHeight + rowGap);
+            DeliveryTracker.ActiveDelivery delivery = active.get(i);
+
+            scratch.set(pad, top, w - pad, top + rowHeight);
+            drawBox(canvas, scratch, 0xFF1E2A3A, false);
+
+            finishRect(top, w, scratch);
+            drawBox(canvas, scratch, pressedTarget == TARGET_FINISH + i ? 0xFFCC2F26 : 0xFFFF3B30, false);
+            float finishLeft = scratch.left;
+            textPaint.setColor(0xFFFFFFFF);
+            textPaint.setTextSize(11 * scale);
+            drawCenteredText(canvas, "FINISH", scratch.centerX(), scratch.centerY());
+
+            textPaint.setTextSize(13 * scale);
+            String elapsed = DeliveryTracker.formatElapsed(DeliveryTracker.getElapsedMs(delivery));
+            float elapsedWidth = textPaint.measureText(elapsed);
+            textPaint.setTextAlign(Paint.Align.RIGHT);
+            canvas.drawText(elapsed, finishLeft - 6 * scale, baseline(top + rowHeight / 2), textPaint);
+
+            textPaint.setTextAlign(Paint.Align.LEFT);
+            textPaint.setColor(0xFFE0E0E0);
+            textPaint.setTextSize(11 * scale);
+            float labelWidth = finishLeft - 12 * scale - elapsedWidth - (pad + 6 * scale);
+            canvas.drawText(rowLabel(delivery, labelWidth), pad + 6 * scale, baseline(top + rowHeight / 2), textPaint);
+            textPaint.setTextAlign(Paint.Align.CENTER);
+        }
+    }
+
+    private String rowLabel(DeliveryTracker.ActiveDelivery delivery, float maxWidth) {
+        String label = rowLabels.get(delivery);
+        if (label == null) {
+            String rewardText = delivery.reward.isEmpty() ? "" : " ¥" + delivery.reward;
+            label = TextUtils.ellipsize("#" + delivery.number + " " + delivery.service + rewardText,
+                textPaint, Math.max(0, maxWidth), TextUtils.TruncateAt.END).toString();
+            rowLabels.put(delivery, label);
+        }
+        return label;
+    }
+
+    private void drawBox(Canvas canvas, RectF rect, int color, boolean selected) {
+        fillPaint.setColor(color);
+        canvas.drawRoundRect(rect, corner, corner, fillPaint);
+        if (selected) {
+            strokePaint.setColor(0xFF4CAF50);
+            strokePaint.setStrokeWidth(2 * scale);
+            canvas.drawRoundRect(rect, corner, corner, strokePaint);
+        }
+    }
+
+    private void drawCenteredText(Canvas canvas, String text, float cx, float cy) {
+        canvas.drawText(text, cx, baseline(cy), textPaint);
+    }
+
+    private float baseline(float centerY) {
+        return centerY - (textPaint.ascent() + textPaint.descent()) / 2;
+    }
+
+    private void chipRect(int index, RectF out) {
+        float gap = GAP_DP * scale;
+        int count = recentRewards.size();
+        float chipWidth = (chipsRect.width() - gap * (count - 1)) / count;
+        float left = chipsRect.left + index * (chipWidth + gap);
+        out.set(left, chipsRect.top, left + chipWidth, chipsRect.bottom);
+    }
+
+    private void finishRect(float rowTop, int w, RectF out) {
+        float pad = PAD_DP * scale;
+        float inset = 3 * scale;
+        out.set(w - pad - 58 * scale, rowTop + inset, w - pad - inset, rowTop + rowHeight - inset);
+    }
+
+    private int hitTest(float x, float y) {
+        if (serviceRect.contains(x, y)) {
+            return x < serviceRect.centerX() ? TARGET_SERVICE_PREV : TARGET_SERVICE_NEXT;
+        }
+        for (int i = 0; i < fieldRects.length; i++) {
+            if (fieldRects[i].contains(x, y)) return TARGET_FIELD + i;
+        }
+        if (!recentRewards.isEmpty() && chipsRect.contains(x, y)) {
+            for (int i = 0; i < recentRewards.size(); i++) {
+                chipRect(i, scratch);
+                if (scratch.contains(x, y)) return TARGET_CHIP + i;
+            }
+        }
+        for (int i = 0; i < keyRects.length; i++) {
+            if (keyRects[i].contains(x, y)) return TARGET_KEY + i;
+        }
+        if (startRect.contains(x, y)) return TARGET_START;
+        if (tracker != null && y >= rowsTop) {
+            int count = tracker.getActive().size();
+            for (int i = 0; i < count; i++) {
+                finishRect(rowsTop + i * (rowHeight + rowGap), getWidth(), scratch);
+                if (scratch.contains(x, y)) return TARGET_FINISH + i;
+            }
+        }
+        return TARGET_NONE;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (minimized) return false;
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                pressedTarget = hitTest(event.getX(), event.getY());
+                if (pressedTarget == TARGET_NONE) return false;
+                longPressConsumed = false;
+                if (pressedTarget == TARGET_KEY + 11) {
+                    postDelayed(backspaceLongPress, BACKSPACE_CLEAR_DELAY_MS);
+                }
+                invalidate();
+                return true;
+            case MotionEvent.ACTION_UP: {
+                int target = pressedTarget;
+                removeCallbacks(backspaceLongPress);
+                pressedTarget = TARGET_NONE;
+                if (target != TARGET_NONE && hitTest(event.getX(), event.getY()) == target && !longPressConsumed) {
+                    performTarget(target);
+                }
+                invalidate();
+                return true;
+            }
+            case MotionEvent.ACTION_CANCEL:
+                removeCallbacks(backspaceLongPress);
+                pressedTarget = TARGET_NONE;
+                invalidate();
+                return true;
+            default:
+                return pressedTarget != TARGET_NONE;
+        }
+    }
+
+    private void performTarget(int target) {
+        if (target == TARGET_SERVICE_PREV) {
+            serviceIndex = (serviceIndex + services.length - 1) % services.length;
+        } else if (target == TARGET_SERVICE_NEXT) {
+            serviceIndex = (serviceIndex + 1) % services.length;
+        } else if (target >= TARGET_FINISH) {
+            int index = target - TARGET_FINISH;
+            if (tracker != null && listener != null && index < tracker.getActive().size()) {
+                listener.onFinishDelivery(tracker.getActive().get(index));
+            }
+        } else if (target == TARGET_START) {
+            performStart();
+        } else if (target >= TARGET_KEY) {
+            String label = OverlayKeypad.KEY_ROWS[(target - TARGET_KEY) / 3][(target - TARGET_KEY) % 3];
+            fieldValues[activeField] = OverlayKeypad.applyKey(fieldValues[activeField], label, activeField == FIELD_DISTANCE);
+        } else if (target >= TARGET_CHIP) {
+            fieldValues[FIELD_REWARD] = recentRewards.get(target - TARGET_CHIP);
+            // 報酬が決まったら次の入力先へ
+            activeField = FIELD_ESTIMATED_TIME;
+        } else if (target >= TARGET_FIELD) {
+            activeField = target - TARGET_FIELD;
+        }
+        if (target < TARGET_START) {
+            notifyInputChanged();
+        }
+    }
+}
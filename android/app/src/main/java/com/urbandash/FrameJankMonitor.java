@@ -0,0 +1,277 @@
+package com.urbandash;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ウィンドウ×操作（ドラッグ・吸着・展開・画面名）ごとのフレーム時間ヒストグラムとジャンク数を集計する。
+ * MainActivityのウィンドウはFrameMetricsで全フレームを計測する。
+ * オーバーレイはWindowManagerに直接追加したビューでWindowを持たないため、
+ * 操作中だけChoreographerのフレーム間隔を計測する（操作していない間は毎フレームの起床をしない）。
+ * 集計はFrameMetricsのスレッドとメインスレッドから行われるのでstatsで同期する。
+ */
+public class FrameJankMonitor {
+    public static final String WINDOW_MAIN = "main";
+    public static final String WINDOW_OVERLAY = "overlay";
+
+    public static final String LABEL_DRAG = "drag";
+    public static final String LABEL_SNAP = "snap";
+    public static final String LABEL_EXPAND = "expand";
+
+    private static final int HISTOGRAM_BUCKETS = 128; // 1ms刻み、最後のバケットは128ms以上
+    private static final long FROZEN_FRAME_NS = 700_000_000L;
+    private static final long DEFAULT_FRAME_INTERVAL_NS = 16_666_667L;
+
+    static final class FrameStats {
+        final String window;
+        final String label;
+        final int[] histogram = new int[HISTOGRAM_BUCKETS];
+        long frames;
+        long jankFrames;
+        long frozenFrames;
+        long totalNs;
+        long maxNs;
+
+        FrameStats(String window, String label) {
+            this.window = window;
+            this.label = label;
+        }
+
+        void record(long durationNs, long deadlineNs) {
+            frames++;
+            totalNs += durationNs;
+            maxNs = Math.max(maxNs, durationNs);
+            if (durationNs > deadlineNs) jankFrames++;
+            if (durationNs >= FROZEN_FRAME_NS) frozenFrames++;
+            int bucket = (int) Math.min(HISTOGRAM_BUCKETS - 1, durationNs / 1_000_000L);
+            histogram[bucket]++;
+        }
+
+        /**
+         * ヒストグラムからのパーセンタイル（ms、バケットの上端）
+         */
+        int percentileMs(double percentile) {
+            if (frames == 0) return 0;
+            long target = (long) Math.ceil(frames * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= target) return i + 1;
+            }
+            return HISTOGRAM_BUCKETS;
+        }
+    }
+
+    /**
+     * 操作中のオーバーレイのフレーム間隔をChoreographerで計測する
+     */
+    private final class OverlayFrameCallback implements Choreographer.FrameCallback {
+        long lastFrameNs = 0;
+        boolean posted = false;
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            posted = false;
+            String label = overlayInteraction;
+            if (label == null) {
+                lastFrameNs = 0;
+                return;
+            }
+            if (lastFrameNs > 0) {
+                long delta = frameTimeNanos - lastFrameNs;
+                // 間隔が1.5フレームを超えたら少なくとも1回vsyncを取りこぼしている
+                record(WINDOW_OVERLAY, label, delta, overlayFrameIntervalNs + overlayFrameIntervalNs / 2);
+            }
+            lastFrameNs = frameTimeNanos;
+            post();
+        }
+
+        void post() {
+            if (posted) return;
+            posted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    private static FrameJankMonitor instance;
+
+    private final Map<String, FrameStats> stats = new LinkedHashMap<>();
+    private final OverlayFrameCallback overlayCallback = new OverlayFrameCallback();
+    private volatile String mainScreen = "unknown";
+    private volatile String overlayInteraction;
+    private long overlayFrameIntervalNs = DEFAULT_FRAME_INTERVAL_NS;
+    private long startedAtMs = System.currentTimeMillis();
+
+    private HandlerThread metricsThread;
+    private Handler metricsHandler;
+    private Activity attachedActivity;
+    private Window.OnFrameMetricsAvailableListener metricsListener;
+
+    public static synchronized FrameJankMonitor getInstance() {
+        if (instance == null) {
+            instance = new FrameJankMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * MainActivityのウィンドウの計測を始める（onCreateで呼ぶ）
+     */
+    public void attachActivity(Activity activity) {
+        detachActivity(attachedActivity);
+        if (metricsThread == null) {
+            metricsThread = new HandlerThread("FrameJankMonitor");
+            metricsThread.start();
+            metricsHandler = new Handler(metricsThread.getLooper());
+        }
+        final long fallbackIntervalNs = frameIntervalNs(activity.getWindowManager().getDefaultDisplay());
+        metricsListener = (window, frameMetrics, dropCount) -> {
+            if (frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) return;
+            long total = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            long deadline = fallbackIntervalNs;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                deadline = frameMetrics.getMetric(FrameMetrics.DEADLINE);
+            }
+            record(WINDOW_MAIN, mainScreen, total, deadline);
+        };
+        activity.getWindow().addOnFrameMetricsAvailableListener(metricsListener, metricsHandler);
+        attachedActivity = activity;
+    }
+
+    public void detachActivity(Activity activity) {
+        if (activity == null || activity != attachedActivity || metricsListener == null) return;
+        try {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(metricsListener);
+        } catch (Exception e) {
+            android.util.Log.e("FrameJankMonitor", "Error removing frame metrics listener", e);
+        }
+        metricsListener = null;
+        attachedActivity = null;
+    }
+
+    /**
+     * JSで表示中の画面名。MainActivityのフレームはこのラベルで集計する
+     */
+    public void setScreen(String screen) {
+        mainScreen = screen == null || screen.isEmpty() ? "unknown" : screen;
+    }
+
+    /**
+     * オーバーレイの操作の開始（メインスレッドから呼ぶ）。終わるまでフレーム間隔を計測する
+     */
+    public void beginOverlayInteraction(String label, Display display) {
+        if (label.equals(overlayInteraction)) return;
+        overlayInteraction = label;
+        if (display != null) {
+            overlayFrameIntervalNs = frameIntervalNs(display);
+        }
+        overlayCallback.lastFrameNs = 0;
+        overlayCallback.post();
+    }
+
+    /**
+     * オーバーレイの操作の終了。labelが現在の操作と違う場合は無視する（吸着中にドラッグが始まった場合など）
+     */
+    public void endOverlayInteraction(String label) {
+        if (label.equals(overlayInteraction)) {
+            overlayInteraction = null;
+        }
+    }
+
+    /**
+     * 指定した操作の間だけ計測するようアニメーションに登録する
+     */
+    public void trackAnimation(android.animation.Animator animator, String label, Display display) {
+        animator.addListener(new android.animation.AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(android.animation.Animator animation) {
+                beginOverlayInteraction(label, display);
+            }
+
+            @Override
+            public void onAnimationEnd(android.animation.Animator animation) {
+                endOverlayInteraction(label);
+            }
+        });
+    }
+
+    public void reset() {
+        synchronized (stats) {
+            stats.clear();
+            startedAtMs = System.currentTimeMillis();
+        }
+    }
+
+    public List<FrameStats> snapshot() {
+        List<FrameStats> result = new ArrayList<>();
+        synchronized (stats) {
+            for (FrameStats s : stats.values()) {
+                FrameStats copy = new FrameStats(s.window, s.label);
+                System.arraycopy(s.histogram, 0, copy.histogram, 0, HISTOGRAM_BUCKETS);
+                copy.frames = s.frames;
+                copy.jankFrames = s.jankFrames;
+                copy.frozenFrames = s.frozenFrames;
+                copy.totalNs = s.totalNs;
+                copy.maxNs = s.maxNs;
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 不具合報告に貼り付けるためのテキスト
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Frame timing since ").append(new java.util.Date(startedAtMs)).append('\n');
+        sb.append("device=").append(Build.MANUFACTURER).append(' ').append(Build.MODEL)
+            .append(" sdk=").append(Build.VERSION.SDK_INT)
+            .append(" qos=").append(QosGovernor.levelName(QosGovernor.getInstance().getLevel())).append('\n');
+        sb.append("window/label frames jank(%) frozen p50 p90 p95 p99 max(ms)\n");
+        for (FrameStats s : snapshot()) {
+            sb.append(String.format(Locale.US, "%s/%s %d %d(%.1f%%) %d %d %d %d %d %.1f%n",
+                s.window, s.label, s.frames, s.jankFrames,
+                s.frames > 0 ? s.jankFrames * 100.0 / s.frames : 0.0, s.frozenFrames,
+                s.percentileMs(50), s.percentileMs(90), s.percentileMs(95), s.percentileMs(99),
+                s.maxNs / 1_000_000.0));
+            sb.append("  histogram(ms:count)");
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                if (s.histogram[i] > 0) {
+                    sb.append(' ').append(i == HISTOGRAM_BUCKETS - 1 ? i + "+" : String.valueOf(i)).append(':').append(s.histogram[i]);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void record(String window, String label, long durationNs, long deadlineNs) {
+        String key = window + "/" + label;
+        synchronized (stats) {
+            FrameStats s = stats.get(key);
+            if (s == null) {
+                s = new FrameStats(window, label);
+                stats.put(key, s);
+            }
+            s.record(durationNs, deadlineNs);
+        }
+    }
+
+    private static long frameIntervalNs(Display display) {
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        return refreshRate > 0 ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NS;
+    }
+}
@@ -0,0 +1,91 @@
+package com.urbandash;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FrameJankMonitorの集計をJSから参照・書き出しできるようにする
+ */
+public class FrameMetricsModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "FrameMetrics";
+
+    private final ReactApplicationContext reactContext;
+
+    public FrameMetricsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void setScreen(String screen) {
+        FrameJankMonitor.getInstance().setScreen(screen);
+    }
+
+    // [{ window, label, frames, jankFrames, frozenFrames, jankRate, averageMs, p50Ms, p90Ms, p95Ms, p99Ms, maxMs }]
+    @ReactMethod
+    public void getReport(Promise promise) {
+        try {
+            WritableArray result = Arguments.createArray();
+            for (FrameJankMonitor.FrameStats stats : FrameJankMonitor.getInstance().snapshot()) {
+                WritableMap map = Arguments.createMap();
+                map.putString("window", stats.window);
+                map.putString("label", stats.label);
+                map.putDouble("frames", stats.frames);
+                map.putDouble("jankFrames", stats.jankFrames);
+                map.putDouble("frozenFrames", stats.frozenFrames);
+                map.putDouble("jankRate", stats.frames > 0 ? (double) stats.jankFrames / stats.frames : 0);
+                map.putDouble("averageMs", stats.frames > 0 ? stats.totalNs / 1_000_000.0 / stats.frames : 0);
+                map.putInt("p50Ms", stats.percentileMs(50));
+                map.putInt("p90Ms", stats.percentileMs(90));
+                map.putInt("p95Ms", stats.percentileMs(95));
+                map.putInt("p99Ms", stats.percentileMs(99));
+                map.putDouble("maxMs", stats.maxNs / 1_000_000.0);
+                result.pushMap(map);
+            }
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("FRAME_METRICS_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * 不具合報告用にテキストをキャッシュディレクトリへ書き出し、パスと内容を返す
+     */
+    @ReactMethod
+    public void dump(Promise promise) {
+        try {
+            String text = FrameJankMonitor.getInstance().dump();
+            File file = new File(reactContext.getCacheDir(), "frame_metrics_" + System.currentTimeMillis() + ".txt");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            android.util.Log.d("FrameMetrics", text);
+            WritableMap result = Arguments.createMap();
+            result.putString("path", file.getAbsolutePath());
+            result.putString("text", text);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("FRAME_METRICS_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void reset(Promise promise) {
+        FrameJankMonitor.getInstance().reset();
+        promise.resolve(true);
+    }
+}
@@ -0,0 +1,243 @@
+package com.urbandash;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.widget.RemoteViews;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * オーバーレイサービスのフォアグラウンド通知に勤務中の状況を表示する。
+ * 経過時間はChronometerに任せ、通知を出し直すのは売上・件数・配達状態などの表示内容が変わった時だけにする。
+ * 連続したイベントは最短間隔（QoSレベルに応じて2〜30秒）にまとめてから1回だけ投稿する。
+ * すべてのメソッドはメインスレッドから呼ぶこと。
+ */
+public class LiveSessionNotifier implements SessionAggregator.Listener {
+    public static final String ACTION_START_DELIVERY = "NOTIFICATION_START_DELIVERY";
+    public static final String ACTION_FINISH_DELIVERY = "NOTIFICATION_FINISH_DELIVERY";
+    public static final String ACTION_START_SESSION = "NOTIFICATION_START_SESSION";
+    public static final String ACTION_HIDE = "HIDE_OVERLAY";
+
+    /**
+     * 通知に表示する内容。経過時間の起点は壁時計で持ち、投稿時にelapsedRealtime基準へ変換する
+     */
+    static final class Content {
+        String timerLabel;
+        long timerStartWallMs; // 0の場合はタイマー非表示
+        boolean timerRunning;
+        long frozenElapsedMs;
+        String earningsText;
+        String rateText;
+        int activeCount;
+
+        boolean idle;
+
+        boolean sameAs(Content other) {
+            return other != null
+                && timerLabel.equals(other.timerLabel)
+                && timerStartWallMs == other.timerStartWallMs
+                && timerRunning == other.timerRunning
+                && frozenElapsedMs == other.frozenElapsedMs
+                && earningsText.equals(other.earningsText)
+                && rateText.equals(other.rateText)
+                && activeCount == other.activeCount
+                && idle == other.idle;
+        }
+    }
+
+    private final Service service;
+    private final String channelId;
+    private final int notificationId;
+    private final NotificationManager notificationManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private SessionAggregator.Snapshot snapshot;
+    private List<DeliveryTracker.ActiveDelivery> deliveries;
+    private Content posted;
+    private long lastPostElapsedMs = 0;
+    private boolean updateScheduled = false;
+    private boolean running = false;
+    private int postCount = 0;
+    private long minUpdateIntervalMs = QosGovernor.notificationIntervalMs(QosGovernor.LEVEL_FULL);
+
+    private final Runnable postRunnable = () -> {
+        long begin = WakeupAuditor.getInstance().begin();
+        updateScheduled = false;
+        postIfChanged();
+        WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_NOTIFICATION, begin);
+    };
+
+    public LiveSessionNotifier(Service service, String channelId, int notificationId) {
+        this.service = service;
+        this.channelId = channelId;
+        this.notificationId = notificationId;
+        this.notificationManager = (NotificationManager) service.getSystemService(Context.NOTIFICATION_SERVICE);
+    }
+
+    /**
+     * startForegroundに渡す初回の通知を作り、以降の更新を開始する
+     */
+    public Notification start() {
+        // 登録時に現在のスナップショットが同期的に届くので、投稿を始める前に受け取っておく
+        SessionAggregator.getInstance().addListener(this);
+        running = true;
+        posted = buildContent();
+        lastPostElapsedMs = SystemClock.elapsedRealtime();
+        postCount++;
+        return buildNotification(posted);
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(postRunnable);
+        updateScheduled = false;
+        SessionAggregator.getInstance().removeListener(this);
+        android.util.Log.d("LiveSessionNotifier", "Stopped after " + postCount + " notification posts");
+    }
+
+    public void setMinUpdateIntervalMs(long intervalMs) {
+        minUpdateIntervalMs = intervalMs;
+    }
+
+    @Override
+    public void onSnapshotChanged(SessionAggregator.Snapshot snapshot) {
+        this.snapshot = snapshot;
+        requestUpdate();
+    }
+
+    public void onDeliveriesChanged(List<DeliveryTracker.ActiveDelivery> deliveries) {
+        this.deliveries = deliveries;
+        requestUpdate();
+    }
+
+    private void requestUpdate() {
+        if (!running || updateScheduled) return;
+        long wait = lastPostElapsedMs + minUpdateIntervalMs - SystemClock.elapsedRealtime();
+        if (wait <= 0) {
+            postIfChanged();
+        } else {
+            // 間隔内のイベントはまとめて1回で反映する
+            updateScheduled = true;
+            handler.postDelayed(postRunnable, wait);
+        }
+    }
+
+    private void postIfChanged() {
+        if (!running) return;
+        Content content = buildContent();
+        if (content.sameAs(posted)) return;
+
+        try {
+            notificationManager.notify(notificationId, buildNotification(content));
+            posted = content;
+            lastPostElapsedMs = SystemClock.elapsedRealtime();
+            postCount++;
+        } catch (Exception e) {
+            android.util.Log.e("LiveSessionNotifier", "Error posting live notification", e);
+        }
+    }
+
+    private Content buildContent() {
+        Content content = new Content();
+        int activeCount = deliveries != null ? deliveries.size() : 0;
+        content.activeCount = activeCount;
+        content.idle = snapshot == null || SessionAggregator.STATUS_IDLE.equals(snapshot.status);
+
+        if (activeCount > 0) {
+            // 一番古い配達の経過時間を表示する
+            DeliveryTracker.ActiveDelivery oldest = deliveries.get(0);
+            content.timerLabel = activeCount > 1 ? "配達中 #" + oldest.number + "（他" + (activeCount - 1) + "件）" : "配達中 #" + oldest.number;
+            content.timerStartWallMs = oldest.startTimeMs;
+            content.timerRunning = true;
+        } else if (snapshot != null && snapshot.sessionStartMs > 0) {
+            boolean onBreak = SessionAggregator.STATUS_BREAK.equals(snapshot.status);
+            content.timerLabel = onBreak ? "休憩中" : "勤務時間";
+            content.timerStartWallMs = snapshot.sessionStartMs + snapshot.totalBreakMs;
+            content.timerRunning = !onBreak;
+            if (onBreak) {
+                content.frozenElapsedMs = Math.max(0, snapshot.breakStartMs - content.timerStartWallMs) / 1000 * 1000;
+            }
+        } else {
+            content.timerLabel = "待機中";
+            content.timerStartWallMs = 0;
+            content.timerRunning = false;
+        }
+
+        if (snapshot != null && (snapshot.cases > 0 || !SessionAggregator.STATUS_IDLE.equals(snapshot.status))) {
+            content.earningsText = String.format(Locale.JAPAN, "¥%,d（%d件）", snapshot.earnings, snapshot.cases);
+            content.rateText = String.format(Locale.JAPAN, "時給 ¥%,d / 直近60分 ¥%,d",
+                snapshot.hourlyRate, snapshot.last60HourlyRate);
+        } else {
+            content.earningsText = "Urban Dash";
+            content.rateText = "配達案件記録フォームが表示されています";
+        }
+        return content;
+    }
+
+    private Notification buildNotification(Content content) {
+        RemoteViews views = new RemoteViews(service.getPackageName(), R.layout.notification_live_session);
+        views.setTextViewText(R.id.live_timer_label, content.timerLabel);
+        views.setTextViewText(R.id.live_earnings, content.earningsText);
+        views.setTextViewText(R.id.live_rate, content.rateText);
+        if (content.timerStartWallMs > 0) {
+            long elapsedNow = SystemClock.elapsedRealtime();
+            long shown = content.timerRunning
+                ? System.currentTimeMillis() - content.timerStartWallMs
+                : content.frozenElapsedMs;
+            views.setChronometer(R.id.live_timer, elapsedNow - shown, null, content.timerRunning);
+            views.setViewVisibility(R.id.live_timer, android.view.View.VISIBLE);
+        } else {
+            views.setViewVisibility(R.id.live_timer, android.view.View.GONE);
+        }
+
+        Intent contentIntent = new Intent(service, MainActivity.class);
+        PendingIntent contentPendingIntent = PendingIntent.getActivity(
+            service, 0, contentIntent,
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0
+        );
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(service, channelId)
+            .setSmallIcon(R.mipmap.ic_launcher)
+            .setContentTitle(content.earningsText)
+            .setContentText(content.rateText)
+            .setCustomContentView(views)
+            .setStyle(new NotificationCompat.DecoratedCustomViewStyle())
+            .setContentIntent(contentPendingIntent)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setShowWhen(false)
+            .setPriority(NotificationCompat.PRIORITY_LOW);
+        if (content.idle) {
+            // 勤務前ならアプリを開かずにここから勤務を開始できる（表示できる操作は3つまでなのでSTARTと入れ替える）
+            builder.addAction(0, "勤務開始", serviceIntent(ACTION_START_SESSION, 4));
+        } else {
+            builder.addAction(0, "START", serviceIntent(ACTION_START_DELIVERY, 1));
+        }
+        if (content.activeCount > 0) {
+            builder.addAction(0, "FINISH", serviceIntent(ACTION_FINISH_DELIVERY, 2));
+        }
+        builder.addAction(0, "非表示", serviceIntent(ACTION_HIDE, 3));
+        return builder.build();
+    }
+
+    private PendingIntent serviceIntent(String action, int requestCode) {
+        Intent intent = new Intent(service, OverlayModule.OverlayService.class);
+        intent.setAction(action);
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.getService(service, requestCode, intent, flags);
+    }
+}
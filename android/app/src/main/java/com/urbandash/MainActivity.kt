@@ -25,9 +25,12 @@ class MainActivity : ReactActivity() {
 
   override fun onCreate(savedInstanceState: Bundle?) {
     super.onCreate(savedInstanceState)
+    // 画面ごとのフレーム時間を計測する
+    FrameJankMonitor.getInstance().attachActivity(this)
   }
 
   override fun onDestroy() {
+    FrameJankMonitor.getInstance().detachActivity(this)
     super.onDestroy()
     // アプリ終了時にオーバーレイサービスを停止
     try {
@@ -22,6 +22,16 @@ class MainApplication : Application(), ReactApplication {
               // add(MyReactNativePackage())
               add(SoundPlayerPackage())
               add(OverlayPackage())
+              add(RouteThumbnailPackage())
+              add(DataExportPackage())
+              add(SpatialIndexPackage())
+              add(SessionAggregatorPackage())
+              add(SessionStatePackage())
+              add(QosGovernorPackage())
+              add(ActivitySegmentationPackage())
+              add(FrameMetricsPackage())
+              add(DataImportPackage())
+              add(WakeupAuditPackage())
             }
 
         override fun getJSMainModuleName(): String = "index"
@@ -42,5 +52,10 @@ class MainApplication : Application(), ReactApplication {
       // If you opted-in for the New Architecture, we load the native entry point for this app.
       load()
     }
+    // 前回のプロセスで進行中だった勤務の時計をJSの起動を待たずに再開する
+    SessionStateStore.restoreSessionClock(this)
+    QosGovernor.getInstance().start(this)
+    ActivityMonitor.getInstance().attach(this)
+    WakeupAuditor.getInstance().attach()
   }
 }
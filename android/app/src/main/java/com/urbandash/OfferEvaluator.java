@@ -0,0 +1,324 @@
+package com.urbandash;
+
+import android.content.Context;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * オーバーレイで入力中の案件を、端末内の配達履歴と比べて評価する。
+ * サービス×時間帯ごとに 報酬/分・報酬/km・実所要時間と予測時間の比 と、
+ * 実績時給のヒストグラム（固定幅のバケット）を持ち、FINISHのたびに更新する。
+ * 評価は配列の合計と比較だけなので、入力のたびにUIスレッドで呼んでも1フレームに収まる。
+ * ネットワークもJSも使わない。統計の読み書き以外はメインスレッドから呼ぶこと。
+ *
+ * ファイル: filesDir/offer_stats.bin（version, サービス数, [サービス名, 24時間分の統計]...）
+ */
+public class OfferEvaluator {
+    private static final String FILE_NAME = "offer_stats.bin";
+    private static final int VERSION = 1;
+    private static final int HOURS = 24;
+    private static final int RATE_BUCKETS = 32;
+    private static final int RATE_BUCKET_WIDTH = 250; // 円/時
+    private static final int MIN_SAMPLES = 5;
+    private static final long MIN_DURATION_MS = 60 * 1000;
+
+    static final class HourStats {
+        int count;
+        long rewardSum;
+        long minutesSum;
+        // 予測時間が入力されていた配達のみ
+        int estimatedCount;
+        long estimatedMinutesSum;
+        long actualMinutesForEstimatedSum;
+        // 距離が入力されていた配達のみ
+        int distanceCount;
+        double distanceKmSum;
+        long minutesForDistanceSum;
+        final int[] rateHistogram = new int[RATE_BUCKETS];
+    }
+
+    public static final class Evaluation {
+        public long projectedHourlyRate;
+        public long expectedMinutes;
+        public int percentile = -1; // 履歴が足りない場合は-1
+        public int samples;
+        public long rewardPerKm;
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.JAPAN, "予測時給 ¥%,d", projectedHourlyRate));
+            if (rewardPerKm > 0) {
+                sb.append(String.format(Locale.JAPAN, "・¥%,d/km", rewardPerKm));
+            }
+            if (percentile < 0) {
+                sb.append("（履歴不足）");
+            } else {
+                sb.append("（").append(band(percentile)).append("・").append(samples).append("件中）");
+            }
+            return sb.toString();
+        }
+
+        static String band(int percentile) {
+            if (percentile >= 90) return "上位10%";
+            if (percentile >= 75) return "上位25%";
+            if (percentile >= 50) return "平均以上";
+            if (percentile >= 25) return "平均以下";
+            return "下位25%";
+        }
+    }
+
+    private static OfferEvaluator instance;
+
+    private final File file;
+    private final Map<String, HourStats[]> stats = new LinkedHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    public static synchronized OfferEvaluator getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfferEvaluator(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    OfferEvaluator(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * 入力中の案件を評価する。報酬が無いか所要時間を見積もれない場合はnull
+     */
+    public Evaluation evaluate(String service, String rewardText, String estimatedMinutesText, String distanceText) {
+        long reward = parseLong(rewardText);
+        if (reward <= 0) return null;
+        long estimatedMinutes = parseLong(estimatedMinutesText);
+        double distanceKm = parseDouble(distanceText);
+        int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+
+        HourStats combined = combinedStats(service, hour);
+
+        // 所要時間: 予測時間×実績の遅れ率 → 距離×実績の分/km → 予測時間そのまま の順で見積もる
+        double minutes = 0;
+        if (estimatedMinutes > 0) {
+            double ratio = 1.0;
+            if (combined.estimatedCount >= MIN_SAMPLES && combined.estimatedMinutesSum > 0) {
+                ratio = (double) combined.actualMinutesForEstimatedSum / combined.estimatedMinutesSum;
+            }
+            minutes = estimatedMinutes * ratio;
+        } else if (distanceKm > 0 && combined.distanceCount >= MIN_SAMPLES && combined.distanceKmSum > 0) {
+            minutes = distanceKm * combined.minutesForDistanceSum / combined.distanceKmSum;
+        }
+        if (minutes < 1) return null;
+
+        Evaluation evaluation = new Evaluation();
+        evaluation.expectedMinutes = Math.round(minutes);
+        evaluation.projectedHourlyRate = Math.round(reward * 60.0 / minutes);
+        if (distanceKm > 0) {
+            evaluation.rewardPerKm = Math.round(reward / distanceKm);
+        }
+        evaluation.samples = combined.count;
+        if (combined.count >= MIN_SAMPLES) {
+            evaluation.percentile = percentile(combined.rateHistogram, combined.count, evaluation.projectedHourlyRate);
+        }
+        return evaluation;
+    }
+
+    /**
+     * 完了した配達を統計に加え、バックグラウンドでファイルへ書き出す
+     */
+    public void record(String service, String rewardText, String estimatedMinutesText, String distanceText,
+                       long startMs, long finishMs) {
+        long reward = parseLong(rewardText);
+        long durationMs = finishMs - startMs;
+        if (reward <= 0 || durationMs < MIN_DURATION_MS) return;
+
+        long minutes = Math.max(1, Math.round(durationMs / 60000.0));
+        long estimatedMinutes = parseLong(estimatedMinutesText);
+        double distanceKm = parseDouble(distanceText);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startMs);
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+
+        synchronized (stats) {
+            HourStats s = hoursFor(normalize(service))[hour];
+            s.count++;
+            s.rewardSum += reward;
+            s.minutesSum += minutes;
+            if (estimatedMinutes > 0) {
+                s.estimatedCount++;
+                s.estimatedMinutesSum += estimatedMinutes;
+                s.actualMinutesForEstimatedSum += minutes;
+            }
+            if (distanceKm > 0) {
+                s.distanceCount++;
+                s.distanceKmSum += distanceKm;
+                s.minutesForDistanceSum += minutes;
+            }
+            s.rateHistogram[bucketOf(Math.round(reward * 60.0 / minutes))]++;
+        }
+        writer.execute(this::save);
+    }
+
+    // サービス×時間帯で件数が足りなければ、サービスの全時間帯 → 全サービスの同時間帯 → 全体 の順に広げる
+    private HourStats combinedStats(String service, int hour) {
+        synchronized (stats) {
+            HourStats[] hours = stats.get(normalize(service));
+            if (hours != null && hours[hour].count >= MIN_SAMPLES) {
+                return hours[hour];
+            }
+            HourStats result = new HourStats();
+            if (hours != null) {
+                for (HourStats s : hours) add(result, s);
+                if (result.count >= MIN_SAMPLES) return result;
+            }
+            result = new HourStats();
+            for (HourStats[] other : stats.values()) add(result, other[hour]);
+            if (result.count >= MIN_SAMPLES) return result;
+
+            result = new HourStats();
+            for (HourStats[] other : stats.values()) {
+                for (HourStats s : other) add(result, s);
+            }
+            return result;
+        }
+    }
+
+    private static void add(HourStats into, HourStats s) {
+        into.count += s.count;
+        into.rewardSum += s.rewardSum;
+        into.minutesSum += s.minutesSum;
+        into.estimatedCount += s.estimatedCount;
+        into.estimatedMinutesSum += s.estimatedMinutesSum;
+        into.actualMinutesForEstimatedSum += s.actualMinutesForEstimatedSum;
+        into.distanceCount += s.distanceCount;
+        into.distanceKmSum += s.distanceKmSum;
+        into.minutesForDistanceSum += s.minutesForDistanceSum;
+        for (int i = 0; i < RATE_BUCKETS; i++) {
+            into.rateHistogram[i] += s.rateHistogram[i];
+        }
+    }
+
+    // 実績時給のうち、この時給を下回るものの割合（同じバケット内は半分と数える）
+    static int percentile(int[] histogram, int count, long hourlyRate) {
+        int bucket = bucketOf(hourlyRate);
+        double below = 0;
+        for (int i = 0; i < bucket; i++) {
+            below += histogram[i];
+        }
+        below += histogram[bucket] / 2.0;
+        return (int) Math.round(below * 100.0 / count);
+    }
+
+    static int bucketOf(long hourlyRate) {
+        return (int) Math.max(0, Math.min(RATE_BUCKETS - 1, hourlyRate / RATE_BUCKET_WIDTH));
+    }
+
+    private HourStats[] hoursFor(String service) {
+        HourStats[] hours = stats.get(service);
+        if (hours == null) {
+            hours = new HourStats[HOURS];
+            for (int i = 0; i < HOURS; i++) {
+                hours[i] = new HourStats();
+            }
+            stats.put(service, hours);
+        }
+        return hours;
+    }
+
+    private static String normalize(String service) {
+        return service == null || service.isEmpty() ? "その他" : service;
+    }
+
+    private static long parseLong(String text) {
+        double value = parseDouble(text);
+        return value > 0 ? Math.round(value) : 0;
+    }
+
+    private static double parseDouble(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) return;
+            int serviceCount = in.readInt();
+            synchronized (stats) {
+                for (int i = 0; i < serviceCount; i++) {
+                    HourStats[] hours = hoursFor(in.readUTF());
+                    for (HourStats s : hours) {
+                        s.count = in.readInt();
+                        s.rewardSum = in.readLong();
+                        s.minutesSum = in.readLong();
+                        s.estimatedCount = in.readInt();
+                        s.estimatedMinutesSum = in.readLong();
+                        s.actualMinutesForEstimatedSum = in.readLong();
+                        s.distanceCount = in.readInt();
+                        s.distanceKmSum = in.readDouble();
+                        s.minutesForDistanceSum = in.readLong();
+                        for (int b = 0; b < RATE_BUCKETS; b++) {
+                            s.rateHistogram[b] = in.readInt();
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            android.util.Log.e("OfferEvaluator", "Error loading offer stats, starting fresh", e);
+            synchronized (stats) {
+                stats.clear();
+            }
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                synchronized (stats) {
+                    out.writeInt(stats.size());
+                    for (Map.Entry<String, HourStats[]> entry : stats.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        for (HourStats s : entry.getValue()) {
+                            out.writeInt(s.count);
+                            out.writeLong(s.rewardSum);
+                            out.writeLong(s.minutesSum);
+                            out.writeInt(s.estimatedCount);
+                            out.writeLong(s.estimatedMinutesSum);
+                            out.writeLong(s.actualMinutesForEstimatedSum);
+                            out.writeInt(s.distanceCount);
+                            out.writeDouble(s.distanceKmSum);
+                            out.writeLong(s.minutesForDistanceSum);
+                            for (int b = 0; b < RATE_BUCKETS; b++) {
+                                out.writeInt(s.rateHistogram[b]);
+                            }
+                        }
+                    }
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                android.util.Log.e("OfferEvaluator", "Failed to replace offer stats file");
+            }
+        } catch (Exception e) {
+            android.util.Log.e("OfferEvaluator", "Error saving offer stats", e);
+            tmp.delete();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * オーバーレイ内蔵のテンキー。
+ * 入力フィールドはフォーカスを持たないTextViewのままにしておき、キー入力を直接反映する。
+ * そのためオーバーレイウィンドウのFLAG_NOT_FOCUSABLE切り替えやIMEの起動が不要になる。
+ */
+public class OverlayKeypad {
+    static final String PREFS_NAME = "urban_dash_overlay";
+    private static final String KEY_RECENT_REWARDS = "recent_rewards";
+    private static final int MAX_RECENT_REWARDS = 4;
+    private static final int MAX_INPUT_LENGTH = 6;
+    static final String KEY_DECIMAL = ".";
+    static final String KEY_BACKSPACE = "⌫";
+    static final String[][] KEY_ROWS = {
+        {"1", "2", "3"},
+        {"4", "5", "6"},
+        {"7", "8", "9"},
+        {KEY_DECIMAL, "0", KEY_BACKSPACE},
+    };
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final LinearLayout keypadContainer;
+    private final LinearLayout chipContainer;
+    private final TextView rewardField;
+    private final TextView estimatedTimeField;
+    private final TextView distanceField;
+    private final List<String> recentRewards = new ArrayList<>();
+    private Button decimalKey;
+    private TextView activeField;
+
+    public OverlayKeypad(Context context, LinearLayout keypadContainer, LinearLayout chipContainer,
+                         TextView rewardField, TextView estimatedTimeField, TextView distanceField) {
+        this.context = context;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.keypadContainer = keypadContainer;
+        this.chipContainer = chipContainer;
+        this.rewardField = rewardField;
+        this.estimatedTimeField = estimatedTimeField;
+        this.distanceField = distanceField;
+    }
+
+    public void bind() {
+        buildKeys();
+        loadRecentRewards();
+        rebuildChips();
+
+        TextView[] fields = {rewardField, estimatedTimeField, distanceField};
+        for (TextView field : fields) {
+            field.setOnClickListener(v -> setActiveField((TextView) v));
+        }
+        setActiveField(rewardField);
+    }
+
+    public void setActiveField(TextView field) {
+        if (activeField != null) {
+            activeField.setSelected(false);
+        }
+        activeField = field;
+        activeField.setSelected(true);
+        // 小数点は距離入力のみ有効
+        if (decimalKey != null) {
+            decimalKey.setEnabled(activeField == distanceField);
+        }
+    }
+
+    /**
+     * FINISH後のリセット。入力先は報酬額に戻す
+     */
+    public void clearAll() {
+        rewardField.setText("");
+        estimatedTimeField.setText("");
+        distanceField.setText("");
+        setActiveField(rewardField);
+    }
+
+    /**
+     * 確定した報酬額をクイック入力候補の先頭に追加する
+     */
+    public void recordReward(String reward) {
+        if (reward == null || reward.isEmpty()) return;
+
+        pushRecentReward(prefs, recentRewards, reward);
+        rebuildChips();
+    }
+
+    public View[] getTouchTargets() {
+        return new View[] {rewardField, estimatedTimeField, distanceField, keypadContainer, chipContainer};
+    }
+
+    public void setVisibility(int visibility) {
+        keypadContainer.setVisibility(visibility);
+        updateChipVisibility();
+    }
+
+    private void buildKeys() {
+        keypadContainer.removeAllViews();
+        int keyHeight = dp(44);
+        int keyMargin = dp(3);
+
+        for (String[] row : KEY_ROWS) {
+            LinearLayout rowLayout = new LinearLayout(context);
+            rowLayout.setOrientation(LinearLayout.HORIZONTAL);
+
+            for (String label : row) {
+                Button key = new Button(context);
+                key.setText(label);
+                key.setTextColor(0xFFFFFFFF);
+                key.setTextSize(18);
+                key.setAllCaps(false);
+                key.setPadding(0, 0, 0, 0);
+                key.setBackgroundResource(R.drawable.keypad_key_background);
+
+                LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(0, keyHeight, 1f);
+                lp.setMargins(keyMargin, keyMargin, keyMargin, keyMargin);
+                rowLayout.addView(key, lp);
+
+                if (KEY_BACKSPACE.equals(label)) {
+                    key.setOnLongClickListener(v -> {
+                        if (activeField != null) activeField.setText("");
+                        return true;
+                    });
+                } else if (KEY_DECIMAL.equals(label)) {
+                    decimalKey = key;
+                }
+                key.setOnClickListener(v -> append(label));
+            }
+
+            keypadContainer.addView(rowLayout, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+        }
+    }
+
+    private void rebuildChips() {
+        chipContainer.removeAllViews();
+        int chipMargin = dp(3);
+
+        for (String amount : recentRewards) {
+            TextView chip = new TextView(context);
+            chip.setText("¥" + amount);
+            chip.setTextColor(0xFFE0E0E0);
+            chip.setTextSize(13);
+            chip.setGravity(Gravity.CENTER);
+            chip.setBackgroundResource(R.drawable.quick_amount_chip_background);
+            chip.setOnClickListener(v -> {
+                rewardField.setText(amount);
+                // 報酬が決まったら次の入力先へ
+                setActiveField(estimatedTimeField);
+            });
+
+            LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.MATCH_PARENT, 1f);
+            lp.setMargins(chipMargin, 0, chipMargin, 0);
+            chipContainer.addView(chip, lp);
+        }
+        updateChipVisibility();
+    }
+
+    // 候補がない時とキーパッドを隠している時はチップの行も出さない
+    private void updateChipVisibility() {
+        boolean show = !recentRewards.isEmpty() && keypadContainer.getVisibility() == View.VISIBLE;
+        chipContainer.setVisibility(show ? View.VISIBLE : View.GONE);
+    }
+
+    private void loadRecentRewards() {
+        recentRewards.clear();
+        recentRewards.addAll(readRecentRewards(prefs));
+    }
+
+    private void append(String key) {
+        if (activeField == null) return;
+
+        String current = activeField.getText().toString();
+        String next = applyKey(current, key, activeField == distanceField);
+        if (!next.equals(current)) {
+            activeField.setText(next);
+        }
+    }
+
+    static List<String> readRecentRewards(SharedPreferences prefs) {
+        List<String> rewards = new ArrayList<>();
+        String stored = prefs.getString(KEY_RECENT_REWARDS, "");
+        if (stored.isEmpty()) return rewards;
+
+        for (String value : stored.split(",")) {
+            if (!value.isEmpty() && rewards.size() < MAX_RECENT_REWARDS) {
+                rewards.add(value);
+            }
+        }
+        return rewards;
+    }
+
+    static void pushRecentReward(SharedPreferences prefs, List<String> recentRewards, String reward) {
+        recentRewards.remove(reward);
+        recentRewards.add(0, reward);
+        while (recentRewards.size() > MAX_RECENT_REWARDS) {
+            recentRewards.remove(recentRewards.size() - 1);
+        }
+        prefs.edit().putString(KEY_RECENT_REWARDS, String.join(",", recentRewards)).apply();
+    }
+
+    /**
+     * テンキー1打鍵分の入力ルール（⌫を含む）。受け付けない入力の場合はcurrentをそのまま返す
+     */
+    static String applyKey(String current, String key, boolean allowDecimal) {
+        if (KEY_BACKSPACE.equals(key)) {
+            return current.isEmpty() ? current : current.substring(0, current.length() - 1);
+        }
+        if (current.length() >= MAX_INPUT_LENGTH) return current;
+
+        if (KEY_DECIMAL.equals(key)) {
+            if (!allowDecimal || current.contains(KEY_DECIMAL)) return current;
+            if (current.isEmpty()) current = "0";
+        } else if ("0".equals(current)) {
+            // 先頭の0は置き換える
+            current = "";
+        }
+        return current + key;
+    }
+
+    private int dp(int value) {
+        return Math.round(value * context.getResources().getDisplayMetrics().density);
+    }
+}
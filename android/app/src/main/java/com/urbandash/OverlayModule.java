@@ -1,8 +1,10 @@
 package com.urbandash;
 
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.PixelFormat;
+import android.location.Location;
 import android.os.Build;
 import android.os.IBinder;
 import android.provider.Settings;
@@ -13,7 +15,7 @@ import android.view.View;
 import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.Button;
-import android.widget.EditText;
+import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.ArrayAdapter;
 import android.widget.Toast;
@@ -29,20 +31,37 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
 public class OverlayModule extends ReactContextBaseJavaModule {
     private static final String MODULE_NAME = "OverlayModule";
+    static final String PREF_FLAT_RENDERER = "flat_renderer";
     private ReactApplicationContext reactContext;
     private static OverlayService overlayService;
     private static ReactApplicationContext staticReactContext;
+    private static Context applicationContext;
+    // JSが案件送信を保存できる状態になるまで（勤務セッションの確定まで）送信はキューに積む
+    private static volatile boolean formListenerReady = false;
 
     public OverlayModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
         staticReactContext = reactContext;
+        applicationContext = reactContext.getApplicationContext();
+    }
+
+    @Override
+    public void invalidate() {
+        formListenerReady = false;
+        super.invalidate();
     }
 
     @Override
@@ -190,30 +209,195 @@ public class OverlayModule extends ReactContextBaseJavaModule {
         }
     }
 
-    public static void sendFormData(String deliveryService, String estimatedTime, String reward, String startTime, String finishTime, String memo, String distance, String durationMinutes) {
-        if (staticReactContext != null) {
-            try {
-                WritableMap params = Arguments.createMap();
-                params.putString("action", "form_submitted");
-                params.putString("deliveryService", deliveryService);
-                params.putString("estimatedTime", estimatedTime);
-                params.putString("reward", reward);
-                params.putString("startTime", startTime);
-                params.putString("finishTime", finishTime);
-                params.putString("memo", memo);
-                params.putString("distance", distance);
-                params.putString("durationMinutes", durationMinutes);
-                
-                android.util.Log.d("OverlayModule", "Sending form data: " + params.toString());
-                
-                staticReactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit("OverlayFormSubmitted", params);
-            } catch (Exception e) {
-                android.util.Log.e("OverlayModule", "Error sending form data", e);
+    // 単一ビュー描画モード（次にオーバーレイを生成した時から反映）
+    @ReactMethod
+    public void setFlatRendererEnabled(boolean enabled, Promise promise) {
+        try {
+            reactContext.getSharedPreferences(OverlayKeypad.PREFS_NAME, android.content.Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(PREF_FLAT_RENDERER, enabled)
+                .apply();
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("SETTINGS_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * JSが動いていない間に積まれた操作を取り出す。form_submittedを取り出した以降は送信を直接JSへ送る
+     */
+    @ReactMethod
+    public void takePendingActions(String type, Promise promise) {
+        try {
+            WritableArray result = Arguments.createArray();
+            for (JSONObject action : PendingActionQueue.take(reactContext, type)) {
+                result.pushMap(toWritableMap(action));
             }
-        } else {
-            android.util.Log.e("OverlayModule", "React context is null, cannot send form data");
+            if (PendingActionQueue.TYPE_FORM_SUBMITTED.equals(type)) {
+                formListenerReady = true;
+            }
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("PENDING_ACTIONS_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * 保存待ちの案件送信をキューに残したまま返す。保存できたものはackPendingActionで消す。
+     * これ以降の送信はJSへ直接送る
+     */
+    @ReactMethod
+    public void peekPendingActions(String type, Promise promise) {
+        try {
+            WritableArray result = Arguments.createArray();
+            for (JSONObject action : PendingActionQueue.peek(reactContext, type)) {
+                result.pushMap(toWritableMap(action));
+            }
+            if (PendingActionQueue.TYPE_FORM_SUBMITTED.equals(type)) {
+                formListenerReady = true;
+            }
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("PENDING_ACTIONS_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void ackPendingAction(String id, Promise promise) {
+        promise.resolve(PendingActionQueue.remove(reactContext, id));
+    }
+
+    /**
+     * JSで保存に失敗した送信をキューへ戻し、次の再送で保存し直す
+     */
+    @ReactMethod
+    public void requeuePendingAction(String type, ReadableMap data, Promise promise) {
+        try {
+            JSONObject action = new JSONObject(data.toHashMap());
+            action.remove("action");
+            PendingActionQueue.enqueue(reactContext, type, action);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("PENDING_ACTIONS_ERROR", e.getMessage());
+        }
+    }
+
+    /**
+     * JSが起動中なら新しい操作がキューに積まれたことを知らせる
+     */
+    static void notifyPendingAction(String type) {
+        ReactApplicationContext context = staticReactContext;
+        if (context == null || !context.hasActiveReactInstance()) return;
+        try {
+            WritableMap params = Arguments.createMap();
+            params.putString("type", type);
+            context
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("PendingActionQueued", params);
+        } catch (Exception e) {
+            android.util.Log.e("OverlayModule", "Error emitting pending action", e);
+        }
+    }
+
+    private static WritableMap toWritableMap(JSONObject json) throws org.json.JSONException {
+        WritableMap map = Arguments.createMap();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.get(key);
+            if (value instanceof Number) {
+                map.putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                map.putBoolean(key, (Boolean) value);
+            } else if (value == JSONObject.NULL) {
+                map.putNull(key);
+            } else {
+                map.putString(key, value.toString());
+            }
+        }
+        return map;
+    }
+
+    /**
+     * JSが受け取れない間の送信をキューに積む（ネイティブの集計へはFINISHの処理で反映済み）
+     */
+    private static void queueFormData(String deliveryService, String estimatedTime, String reward, String startTime, String finishTime, String memo, String distance, String durationMinutes, DeliveryRouteRecorder.Route route, Location dropoff) {
+        if (applicationContext == null) {
+            android.util.Log.e("OverlayModule", "No context, cannot queue form data");
+            return;
+        }
+        try {
+            JSONObject action = new JSONObject();
+            action.put("deliveryService", deliveryService);
+            action.put("estimatedTime", estimatedTime);
+            action.put("reward", reward);
+            action.put("startTime", startTime);
+            action.put("finishTime", finishTime);
+            action.put("memo", memo);
+            action.put("distance", distance);
+            action.put("durationMinutes", durationMinutes);
+            if (route != null) {
+                action.put("routeDistanceMeters", route.distanceMeters);
+                action.put("routeDurationSeconds", route.durationSeconds);
+                action.put("routeMovingSeconds", route.movingSeconds);
+                action.put("routeAverageSpeedKmh", route.averageSpeedKmh);
+                action.put("routeMaxSpeedKmh", route.maxSpeedKmh);
+                action.put("routePartial", route.partial);
+                action.put("routePath", route.pathJson);
+            }
+            if (dropoff != null) {
+                action.put("finishLatitude", dropoff.getLatitude());
+                action.put("finishLongitude", dropoff.getLongitude());
+            }
+            PendingActionQueue.enqueue(applicationContext, PendingActionQueue.TYPE_FORM_SUBMITTED, action);
+        } catch (Exception e) {
+            android.util.Log.e("OverlayModule", "Error queueing form data", e);
+            return;
+        }
+        notifyPendingAction(PendingActionQueue.TYPE_FORM_SUBMITTED);
+    }
+
+    /**
+     * 完了した配達をJSへ送る。routeは配達中の測位から求めた経路、dropoffはFINISH時点の位置（測位がなければともにnull）
+     */
+    public static void sendFormData(String deliveryService, String estimatedTime, String reward, String startTime, String finishTime, String memo, String distance, String durationMinutes, DeliveryRouteRecorder.Route route, Location dropoff) {
+        if (!formListenerReady || staticReactContext == null || !staticReactContext.hasActiveReactInstance()) {
+            // タイルなどからJSを起動せずに使っている間は、次にJSが起動するまで保持する
+            queueFormData(deliveryService, estimatedTime, reward, startTime, finishTime, memo, distance, durationMinutes, route, dropoff);
+            return;
+        }
+        try {
+            WritableMap params = Arguments.createMap();
+            params.putString("action", "form_submitted");
+            params.putString("deliveryService", deliveryService);
+            params.putString("estimatedTime", estimatedTime);
+            params.putString("reward", reward);
+            params.putString("startTime", startTime);
+            params.putString("finishTime", finishTime);
+            params.putString("memo", memo);
+            params.putString("distance", distance);
+            params.putString("durationMinutes", durationMinutes);
+            if (route != null) {
+                params.putDouble("routeDistanceMeters", route.distanceMeters);
+                params.putDouble("routeDurationSeconds", route.durationSeconds);
+                params.putDouble("routeMovingSeconds", route.movingSeconds);
+                params.putDouble("routeAverageSpeedKmh", route.averageSpeedKmh);
+                params.putDouble("routeMaxSpeedKmh", route.maxSpeedKmh);
+                params.putBoolean("routePartial", route.partial);
+                params.putString("routePath", route.pathJson);
+            }
+            if (dropoff != null) {
+                params.putDouble("finishLatitude", dropoff.getLatitude());
+                params.putDouble("finishLongitude", dropoff.getLongitude());
+            }
+            
+            android.util.Log.d("OverlayModule", "Sending form data: " + params.toString());
+            
+            staticReactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit("OverlayFormSubmitted", params);
+        } catch (Exception e) {
+            android.util.Log.e("OverlayModule", "Error sending form data", e);
         }
     }
 
@@ -222,6 +406,11 @@ public class OverlayModule extends ReactContextBaseJavaModule {
         private WindowManager windowManager;
         private View overlayView;
         private WindowManager.LayoutParams params;
+        private DeliveryTracker deliveryTracker;
+        private SessionAggregator.Listener sessionSummaryListener;
+        private LiveSessionNotifier liveNotifier;
+        private Runnable startDeliveryAction;
+        private QosGovernor.Listener qosListener;
         private static final String CHANNEL_ID = "OverlayServiceChannel";
         private static final int NOTIFICATION_ID = 1;
         private static OverlayService currentInstance = null;
@@ -247,10 +436,17 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             
             currentInstance = this;
             isServiceRunning = true;
+            applicationContext = getApplicationContext();
+            WakeupAuditor.getInstance().beginHold(WakeupAuditor.HOLD_FOREGROUND_SERVICE);
             
             windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
             createNotificationChannel();
             createOverlayView();
+
+            // 発熱・電池・画面状態に応じて更新頻度を落とす
+            qosListener = this::applyQosLevel;
+            QosGovernor.getInstance().addListener(qosListener);
+            OverlayTileService.requestUpdate(this);
             
             android.util.Log.d("OverlayModule", "OverlayService created successfully: " + this.hashCode());
         }
@@ -258,6 +454,20 @@ public class OverlayModule extends ReactContextBaseJavaModule {
         public static boolean isRunning() {
             return isServiceRunning && currentInstance != null;
         }
+
+        /**
+         * 勤務終了で進行中の配達を破棄する（保存済みの起点はSessionStateStore.clearSessionで消える）。
+         * メインスレッドから呼ぶこと
+         */
+        static void onWorkEnded() {
+            if (currentInstance != null && currentInstance.deliveryTracker != null) {
+                currentInstance.deliveryTracker.clear();
+            }
+            // オーバーレイを表示していない間の配達（区間・集計上の件数）も終える
+            DeliveryRouteRecorder.getInstance().discardAll();
+            ActivityMonitor.getInstance().onActiveDeliveriesChanged(0);
+            QosGovernor.getInstance().setActiveDeliveries(0);
+        }
         
         private void forceCleanup() {
             try {
@@ -291,22 +501,16 @@ public class OverlayModule extends ReactContextBaseJavaModule {
         }
 
         private void startForegroundService() {
-            Intent notificationIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, notificationIntent, 
-                Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0
-            );
-
-            Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Urban Dash")
-                .setContentText("配達案件記録フォームが表示されています")
-                .setSmallIcon(R.mipmap.ic_launcher)
-                .setContentIntent(pendingIntent)
-                .setOngoing(true)
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .build();
-
-            startForeground(NOTIFICATION_ID, notification);
+            // 通知の内容は勤務状況に合わせてLiveSessionNotifierが差分更新する
+            if (liveNotifier != null) {
+                liveNotifier.stop();
+            }
+            liveNotifier = new LiveSessionNotifier(this, CHANNEL_ID, NOTIFICATION_ID);
+            liveNotifier.setMinUpdateIntervalMs(QosGovernor.notificationIntervalMs(QosGovernor.getInstance().getLevel()));
+            if (deliveryTracker != null) {
+                liveNotifier.onDeliveriesChanged(deliveryTracker.getActive());
+            }
+            startForeground(NOTIFICATION_ID, liveNotifier.start());
         }
 
         @Override
@@ -321,8 +525,22 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                         createOverlayView();
                     }
                     showOverlay();
+                    logLaunchLatency(intent);
                 } else if ("HIDE_OVERLAY".equals(action)) {
                     hideOverlay();
+                } else if (LiveSessionNotifier.ACTION_START_DELIVERY.equals(action)) {
+                    // 通知のSTARTはフォームのSTARTと同じ扱い
+                    if (startDeliveryAction != null) {
+                        startDeliveryAction.run();
+                    }
+                } else if (LiveSessionNotifier.ACTION_START_SESSION.equals(action)) {
+                    // 通知から勤務を開始する（Firestoreのセッションは次にJSが起動した時に作成される）
+                    QuickLaunch.startSessionIfIdle(this);
+                } else if (LiveSessionNotifier.ACTION_FINISH_DELIVERY.equals(action)) {
+                    // 通知のFINISHは一番古い配達を完了する
+                    if (deliveryTracker != null && deliveryTracker.getActiveCount() > 0) {
+                        deliveryTracker.finish(deliveryTracker.getActive().get(0));
+                    }
                 } else if ("UPDATE_POSITION".equals(action)) {
                     int x = intent.getIntExtra("x", 50);
                     int y = intent.getIntExtra("y", 200);
@@ -346,7 +564,139 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             return START_NOT_STICKY; // START_STICKYから変更して自動再起動を防ぐ
         }
 
+        /**
+         * タイル・通知から開始した場合に、操作からオーバーレイが最初に描画されるまでの時間を記録する
+         */
+        private void logLaunchLatency(Intent intent) {
+            final long requestedAt = intent.getLongExtra(QuickLaunch.EXTRA_REQUESTED_AT, 0);
+            if (requestedAt == 0 || overlayView == null) return;
+            overlayView.post(() -> android.util.Log.d("OverlayModule",
+                "Overlay shown " + (android.os.SystemClock.elapsedRealtime() - requestedAt) + "ms after quick launch"));
+        }
+
+        private static String formatSessionSummary(SessionAggregator.Snapshot snapshot) {
+            if (SessionAggregator.STATUS_IDLE.equals(snapshot.status) && snapshot.cases == 0) {
+                return "";
+            }
+            return String.format(java.util.Locale.JAPAN,
+                "¥%,d（%d件）時給 ¥%,d / 直近60分 ¥%,d",
+                snapshot.earnings, snapshot.cases, snapshot.hourlyRate, snapshot.last60HourlyRate);
+        }
+
+        private void applyQosLevel(int level) {
+            if (deliveryTracker != null) {
+                deliveryTracker.setMinTickIntervalMs(QosGovernor.overlayTickIntervalMs(level));
+            }
+            if (liveNotifier != null) {
+                liveNotifier.setMinUpdateIntervalMs(QosGovernor.notificationIntervalMs(level));
+            }
+        }
+
+        // プロセスが落ちる前に進行中だった配達を起点時刻から復元する
+        private void restoreActiveDeliveries() {
+            SessionStateStore store = SessionStateStore.getInstance(this);
+            if (store == null) return;
+            SessionStateStore.State saved = store.read();
+            if (!saved.deliveries.isEmpty()) {
+                android.util.Log.d("OverlayModule", "Restoring " + saved.deliveries.size() + " active deliveries");
+                deliveryTracker.restore(saved.deliveries, saved.nextDeliveryNumber);
+            }
+        }
+
+        private void persistActiveDeliveries() {
+            SessionStateStore store = SessionStateStore.getInstance(this);
+            if (store != null && deliveryTracker != null) {
+                store.updateDeliveries(deliveryTracker.getActive(), deliveryTracker.getNextNumber());
+            }
+        }
+
+        // FINISHで参照するフォーム（通常の描画と単一ビュー描画で共通）
+        private interface FinishForm {
+            /**
+             * FlatOverlayFormView.FIELD_*の入力値
+             */
+            String field(int field);
+
+            void recordReward(String reward);
+
+            void clearAll();
+        }
+
+        /**
+         * 配達のFINISH。JSへの送信・案件評価・ネイティブの集計への反映を行う。falseを返すと配達は継続扱いになる
+         */
+        private boolean onDeliveryFinished(DeliveryTracker.ActiveDelivery delivery, long finishTimeMs, FinishForm form) {
+            // START時に未入力だった項目は現在のフォーム入力で補う
+            boolean usesFormInput = delivery.reward.isEmpty();
+            String reward = usesFormInput ? form.field(FlatOverlayFormView.FIELD_REWARD) : delivery.reward;
+            String estimatedTimeStr = usesFormInput ? form.field(FlatOverlayFormView.FIELD_ESTIMATED_TIME) : delivery.estimatedTime;
+            String distance = usesFormInput ? form.field(FlatOverlayFormView.FIELD_DISTANCE) : delivery.distance;
+
+            if (reward.isEmpty()) {
+                Toast.makeText(this, "報酬額を入力してから配達を完了してください", Toast.LENGTH_SHORT).show();
+                return false;
+            }
+
+            long durationMs = finishTimeMs - delivery.startTimeMs;
+            long durationMinutes = durationMs / (1000 * 60);
+
+            // 配達中の測位から求めた経路。距離が未入力なら実測値を使う（開始時点からの測位がない経路は短くなるので使わない）
+            DeliveryRouteRecorder.Route route = DeliveryRouteRecorder.getInstance().finish(delivery.startTimeMs, finishTimeMs);
+            if (distance.isEmpty() && route != null && !route.partial && route.distanceMeters > 0) {
+                distance = route.distanceKmText();
+            }
+            // ドロップ地点はFINISHの時点で決める（JSでの保存が後になっても送信時の位置にならないように）
+            Location dropoff = DeliveryRouteRecorder.getInstance().getLocationAt(finishTimeMs);
+
+            // React Nativeにデータを送信（経過時間を所要時間として使用）
+            android.util.Log.d("OverlayModule", "Finish clicked for delivery #" + delivery.number + ", auto-saving form data");
+            sendFormData(
+                delivery.service,
+                estimatedTimeStr.isEmpty() ? "0" : estimatedTimeStr,
+                reward,
+                String.valueOf(delivery.startTimeMs),
+                String.valueOf(finishTimeMs),
+                "", // メモは削除されたので空文字
+                distance.isEmpty() ? "0" : distance,
+                String.valueOf(durationMinutes), // 経過時間（分）を所要時間として追加
+                route,
+                dropoff
+            );
+
+            OfferEvaluator.getInstance(this).record(
+                delivery.service, reward, estimatedTimeStr, distance, delivery.startTimeMs, finishTimeMs);
+
+            try {
+                SessionAggregator.getInstance().recordDelivery(
+                    delivery.service, Math.round(Double.parseDouble(reward)), delivery.startTimeMs, finishTimeMs);
+            } catch (NumberFormatException e) {
+                android.util.Log.e("OverlayModule", "Invalid reward for session summary: " + reward, e);
+            }
+
+            form.recordReward(reward);
+            if (usesFormInput) {
+                form.clearAll();
+            }
+
+            Toast.makeText(this, "配達完了！案件を自動保存しました（" + DeliveryTracker.formatElapsed(durationMs) + "）", Toast.LENGTH_LONG).show();
+            return true;
+        }
+
+        private static int overlayWindowType() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                return WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY;
+            }
+            return WindowManager.LayoutParams.TYPE_PHONE;
+        }
+
         private void createOverlayView() {
+            boolean flatRenderer = getSharedPreferences(OverlayKeypad.PREFS_NAME, MODE_PRIVATE)
+                .getBoolean(PREF_FLAT_RENDERER, false);
+            if (flatRenderer) {
+                createFlatOverlayView();
+                return;
+            }
+
             overlayView = LayoutInflater.from(this).inflate(R.layout.overlay_form, null);
             
             // オーバーレイパラメータの設定
@@ -373,39 +723,21 @@ public class OverlayModule extends ReactContextBaseJavaModule {
 
             // フォーム要素の取得
             Spinner serviceSpinner = overlayView.findViewById(R.id.service_spinner);
-            EditText rewardInput = overlayView.findViewById(R.id.reward_input);
-            EditText estimatedTimeInput = overlayView.findViewById(R.id.estimated_time_input);
-            EditText distanceInput = overlayView.findViewById(R.id.distance_input);
+            TextView rewardInput = overlayView.findViewById(R.id.reward_input);
+            TextView estimatedTimeInput = overlayView.findViewById(R.id.estimated_time_input);
+            TextView distanceInput = overlayView.findViewById(R.id.distance_input);
+            LinearLayout keypadContainer = overlayView.findViewById(R.id.overlay_keypad);
+            LinearLayout chipContainer = overlayView.findViewById(R.id.quick_amount_chips);
             Button deliveryButton = overlayView.findViewById(R.id.delivery_button);
             TextView elapsedTimeDisplay = overlayView.findViewById(R.id.elapsed_time_display);
+            LinearLayout activeDeliveriesContainer = overlayView.findViewById(R.id.active_deliveries);
+            TextView sessionSummaryDisplay = overlayView.findViewById(R.id.session_summary_display);
+            TextView offerEvaluationDisplay = overlayView.findViewById(R.id.offer_evaluation_display);
 
-            // 配達時間計測用の変数
-            final long[] startTime = {0};
-            final long[] finishTime = {0};
-            final boolean[] isDelivering = {false};
             final boolean[] isMinimized = {false};
 
-            // 経過時間更新用のHandler
+            // 吸着・展開アニメーションの遅延実行用
             final android.os.Handler handler = new android.os.Handler();
-            final Runnable[] updateTimeRunnable = new Runnable[1];
-            
-            updateTimeRunnable[0] = new Runnable() {
-                @Override
-                public void run() {
-                    if (isDelivering[0] && startTime[0] > 0) {
-                        long currentTime = System.currentTimeMillis();
-                        long elapsedMs = currentTime - startTime[0];
-                        long elapsedMinutes = elapsedMs / (1000 * 60);
-                        long elapsedSeconds = (elapsedMs / 1000) % 60;
-                        
-                        String timeText = String.format("経過時間: %02d:%02d", elapsedMinutes, elapsedSeconds);
-                        elapsedTimeDisplay.setText(timeText);
-                        
-                        // 1秒後に再実行
-                        handler.postDelayed(updateTimeRunnable[0], 1000);
-                    }
-                }
-            };
 
             // 画面サイズを取得
             final int[] screenWidth = {0};
@@ -416,6 +748,63 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             screenWidth[0] = size.x;
             screenHeight[0] = size.y;
 
+            final OverlayKeypad keypad = new OverlayKeypad(
+                this, keypadContainer, chipContainer, rewardInput, estimatedTimeInput, distanceInput);
+
+            // 同時進行中の配達（経過時間は共有タイマーホイールで更新）
+            deliveryTracker = new DeliveryTracker(this, activeDeliveriesContainer, new DeliveryTracker.Callback() {
+                @Override
+                public boolean onFinish(DeliveryTracker.ActiveDelivery delivery, long finishTimeMs) {
+                    return onDeliveryFinished(delivery, finishTimeMs, new FinishForm() {
+                        @Override
+                        public String field(int field) {
+                            TextView input = field == FlatOverlayFormView.FIELD_REWARD ? rewardInput
+                                : field == FlatOverlayFormView.FIELD_ESTIMATED_TIME ? estimatedTimeInput : distanceInput;
+                            return input.getText().toString().trim();
+                        }
+
+                        @Override
+                        public void recordReward(String reward) {
+                            keypad.recordReward(reward);
+                        }
+
+                        @Override
+                        public void clearAll() {
+                            keypad.clearAll();
+                        }
+                    });
+                }
+
+                @Override
+                public void onActiveCountChanged(int count) {
+                    elapsedTimeDisplay.setText("配達中: " + count + "件");
+                    persistActiveDeliveries();
+                    ActivityMonitor.getInstance().onActiveDeliveriesChanged(count);
+                    QosGovernor.getInstance().setActiveDeliveries(count);
+                    if (liveNotifier != null) {
+                        liveNotifier.onDeliveriesChanged(deliveryTracker.getActive());
+                    }
+                }
+            });
+
+            // セッション集計はイベント時にしか変わらないので、変化通知を受けた時だけ書き換える
+            if (sessionSummaryListener != null) {
+                SessionAggregator.getInstance().removeListener(sessionSummaryListener);
+            }
+            sessionSummaryListener = snapshot -> {
+                String summary = formatSessionSummary(snapshot);
+                sessionSummaryDisplay.setText(summary);
+                if (summary.isEmpty()) {
+                    return;
+                }
+                if (!isMinimized[0]) {
+                    sessionSummaryDisplay.setVisibility(View.VISIBLE);
+                }
+            };
+            SessionAggregator.getInstance().addListener(sessionSummaryListener);
+            restoreActiveDeliveries();
+            applyQosLevel(QosGovernor.getInstance().getLevel());
+
             // ミニマイズ表示用のビューを作成
             View minimizedView = new View(this);
             minimizedView.setLayoutParams(new android.view.ViewGroup.LayoutParams(60, 60));
@@ -445,7 +834,7 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                     int overlayWidth = overlayView.getWidth();
                     if (overlayWidth == 0) {
                         // ビューがまだ測定されていない場合は少し待つ
-                        handler.postDelayed(this, 100);
+                        WakeupAuditor.getInstance().postDelayed(handler, WakeupAuditor.SOURCE_OVERLAY_POST, this, 100);
                         return;
                     }
                     
@@ -464,7 +853,7 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                     
                     // アニメーション的に移動
                     android.animation.ValueAnimator animator = android.animation.ValueAnimator.ofInt(params.x, targetX);
-                    animator.setDuration(300);
+                    animator.setDuration(QosGovernor.animationDurationMs(QosGovernor.getInstance().getLevel()));
                     animator.addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
                         @Override
                         public void onAnimationUpdate(android.animation.ValueAnimator animation) {
@@ -490,13 +879,18 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                             overlayView.findViewById(R.id.reward_input).setVisibility(View.GONE);
                             overlayView.findViewById(R.id.estimated_time_input).setVisibility(View.GONE);
                             overlayView.findViewById(R.id.distance_input).setVisibility(View.GONE);
+                            keypad.setVisibility(View.GONE);
                             overlayView.findViewById(R.id.delivery_button).setVisibility(View.GONE);
                             overlayView.findViewById(R.id.elapsed_time_display).setVisibility(View.GONE);
+                            sessionSummaryDisplay.setVisibility(View.GONE);
+                            offerEvaluationDisplay.setVisibility(View.GONE);
+                            activeDeliveriesContainer.setVisibility(View.GONE);
                             
                             // 背景を最小化ドット用に変更
                             overlayView.setBackgroundResource(R.drawable.minimized_dot_bg);
                         }
                     });
+                    FrameJankMonitor.getInstance().trackAnimation(animator, FrameJankMonitor.LABEL_SNAP, windowManager.getDefaultDisplay());
                     animator.start();
                 }
             };
@@ -510,7 +904,7 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                     int overlayWidth = overlayView.getWidth();
                     if (overlayWidth == 0) {
                         // ビューがまだ測定されていない場合は少し待つ
-                        handler.postDelayed(this, 100);
+                        WakeupAuditor.getInstance().postDelayed(handler, WakeupAuditor.SOURCE_OVERLAY_POST, this, 100);
                         return;
                     }
                     
@@ -527,7 +921,7 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                     
                     // アニメーション的に移動
                     android.animation.ValueAnimator animator = android.animation.ValueAnimator.ofInt(params.x, targetX);
-                    animator.setDuration(300);
+                    animator.setDuration(QosGovernor.animationDurationMs(QosGovernor.getInstance().getLevel()));
                     animator.addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
                         @Override
                         public void onAnimationUpdate(android.animation.ValueAnimator animation) {
@@ -553,13 +947,22 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                             overlayView.findViewById(R.id.reward_input).setVisibility(View.VISIBLE);
                             overlayView.findViewById(R.id.estimated_time_input).setVisibility(View.VISIBLE);
                             overlayView.findViewById(R.id.distance_input).setVisibility(View.VISIBLE);
+                            keypad.setVisibility(View.VISIBLE);
                             overlayView.findViewById(R.id.delivery_button).setVisibility(View.VISIBLE);
                             overlayView.findViewById(R.id.elapsed_time_display).setVisibility(View.VISIBLE);
+                            if (sessionSummaryDisplay.getText().length() > 0) {
+                                sessionSummaryDisplay.setVisibility(View.VISIBLE);
+                            }
+                            if (offerEvaluationDisplay.getText().length() > 0) {
+                                offerEvaluationDisplay.setVisibility(View.VISIBLE);
+                            }
+                            activeDeliveriesContainer.setVisibility(View.VISIBLE);
                             
                             // 背景を透明に戻す
                             overlayView.setBackgroundColor(0x00000000);
                         }
                     });
+                    FrameJankMonitor.getInstance().trackAnimation(animator, FrameJankMonitor.LABEL_EXPAND, windowManager.getDefaultDisplay());
                     animator.start();
                 }
             };
@@ -570,82 +973,74 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
             serviceSpinner.setAdapter(adapter);
 
-            // 入力フィールドのフォーカス設定とタッチリスナー
-            setupInputFieldFocus(rewardInput);
-            setupInputFieldFocus(estimatedTimeInput);
-            setupInputFieldFocus(distanceInput);
+            // 内蔵テンキー（ウィンドウはFLAG_NOT_FOCUSABLEのまま入力できる）
+            keypad.bind();
 
-            // 配達ボタンのクリックリスナー（START/FINISH切り替え）
-            deliveryButton.setOnClickListener(v -> {
-                if (!isDelivering[0]) {
-                    // START処理
-                    startTime[0] = System.currentTimeMillis();
-                    finishTime[0] = 0;
-                    isDelivering[0] = true;
-                    deliveryButton.setText("FINISH");
-                    deliveryButton.setBackground(getDrawable(R.drawable.cancel_button_background));
-                    elapsedTimeDisplay.setText("経過時間: 00:00");
-                    
-                    // 経過時間の更新を開始
-                    handler.post(updateTimeRunnable[0]);
-                    
-                    Toast.makeText(this, "配達開始時間を記録しました", Toast.LENGTH_SHORT).show();
+            // 入力が変わるたびに案件を評価する（端末内の統計だけを使うので同期で済む）
+            final OfferEvaluator offerEvaluator = OfferEvaluator.getInstance(this);
+            final Runnable evaluateOffer = () -> {
+                OfferEvaluator.Evaluation evaluation = offerEvaluator.evaluate(
+                    String.valueOf(serviceSpinner.getSelectedItem()),
+                    rewardInput.getText().toString(),
+                    estimatedTimeInput.getText().toString(),
+                    distanceInput.getText().toString());
+                if (evaluation == null) {
+                    offerEvaluationDisplay.setText("");
+                    offerEvaluationDisplay.setVisibility(View.GONE);
                 } else {
-                    // FINISH処理
-                    if (startTime[0] > 0) {
-                        finishTime[0] = System.currentTimeMillis();
-                        isDelivering[0] = false;
-                        
-                        // 経過時間の更新を停止
-                        handler.removeCallbacks(updateTimeRunnable[0]);
-                        
-                        long durationMs = finishTime[0] - startTime[0];
-                        long durationMinutes = durationMs / (1000 * 60);
-                        long durationSeconds = (durationMs / 1000) % 60;
-                        
-                        String finalTimeText = String.format("経過時間: %02d:%02d", durationMinutes, durationSeconds);
-                        elapsedTimeDisplay.setText(finalTimeText);
-                        
-                        // 自動保存処理
-                        String selectedService = serviceSpinner.getSelectedItem().toString();
-                        String reward = rewardInput.getText().toString().trim();
-                        String estimatedTimeStr = estimatedTimeInput.getText().toString().trim();
-                        String distance = distanceInput.getText().toString().trim();
-
-                        if (reward.isEmpty()) {
-                            Toast.makeText(this, "報酬額を入力してから配達を完了してください", Toast.LENGTH_SHORT).show();
-                            return;
-                        }
-
-                        // React Nativeにデータを送信（経過時間を所要時間として使用）
-                        android.util.Log.d("OverlayModule", "Finish button clicked, auto-saving form data");
-                        sendFormData(
-                            selectedService, 
-                            estimatedTimeStr.isEmpty() ? "0" : estimatedTimeStr,
-                            reward, 
-                            String.valueOf(startTime[0]),
-                            String.valueOf(finishTime[0]),
-                            "", // メモは削除されたので空文字
-                            distance.isEmpty() ? "0" : distance,
-                            String.valueOf(durationMinutes) // 経過時間（分）を所要時間として追加
-                        );
-                        
-                        // フォームを自動リセット
-                        rewardInput.setText("");
-                        estimatedTimeInput.setText("");
-                        distanceInput.setText("");
-                        serviceSpinner.setSelection(0);
-                        startTime[0] = 0;
-                        finishTime[0] = 0;
-                        deliveryButton.setText("START");
-                        deliveryButton.setBackground(getDrawable(R.drawable.save_button_background));
-                        elapsedTimeDisplay.setText("経過時間: 00:00");
-                        
-                        Toast.makeText(this, "配達完了！案件を自動保存しました", Toast.LENGTH_LONG).show();
+                    offerEvaluationDisplay.setText(evaluation.format());
+                    if (!isMinimized[0]) {
+                        offerEvaluationDisplay.setVisibility(View.VISIBLE);
                     }
                 }
+            };
+            android.text.TextWatcher offerWatcher = new android.text.TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence text, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(android.text.Editable editable) {
+                    evaluateOffer.run();
+                }
+            };
+            rewardInput.addTextChangedListener(offerWatcher);
+            estimatedTimeInput.addTextChangedListener(offerWatcher);
+            distanceInput.addTextChangedListener(offerWatcher);
+            serviceSpinner.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
+                @Override
+                public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
+                    evaluateOffer.run();
+                }
+
+                @Override
+                public void onNothingSelected(android.widget.AdapterView<?> parent) {
+                }
             });
 
+            // 配達ボタンのクリックリスナー（押すたびに新しい配達を開始）
+            deliveryButton.setOnClickListener(v -> {
+                String selectedService = serviceSpinner.getSelectedItem().toString();
+                DeliveryTracker.ActiveDelivery delivery = deliveryTracker.start(
+                    selectedService,
+                    rewardInput.getText().toString().trim(),
+                    estimatedTimeInput.getText().toString().trim(),
+                    distanceInput.getText().toString().trim()
+                );
+
+                // 次の案件を入力できるようにフォームをリセット
+                keypad.clearAll();
+                serviceSpinner.setSelection(0);
+
+                Toast.makeText(this, "配達開始時間を記録しました（#" + delivery.number + "）", Toast.LENGTH_SHORT).show();
+            });
+
+            startDeliveryAction = deliveryButton::performClick;
+
             // ドラッグ機能（フォーム全体に適用）
             View dragHandle = overlayView; // フォーム全体をドラッグハンドルとして使用
             dragHandle.setOnTouchListener(new View.OnTouchListener() {
@@ -687,6 +1082,9 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                             
                             // ドラッグ判定
                             if (Math.abs(deltaX) > CLICK_DRAG_TOLERANCE || Math.abs(deltaY) > CLICK_DRAG_TOLERANCE) {
+                                if (!isDragging) {
+                                    FrameJankMonitor.getInstance().beginOverlayInteraction(FrameJankMonitor.LABEL_DRAG, windowManager.getDefaultDisplay());
+                                }
                                 isDragging = true;
                                 params.x = initialX + (int) deltaX;
                                 params.y = initialY + (int) deltaY;
@@ -702,9 +1100,10 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                             android.util.Log.d("OverlayModule", "ACTION_UP: isDragging=" + isDragging + ", isMinimized=" + isMinimized[0]);
                             
                             if (isDragging) {
+                                FrameJankMonitor.getInstance().endOverlayInteraction(FrameJankMonitor.LABEL_DRAG);
                                 // ドラッグ終了時に画面端に吸着
                                 android.util.Log.d("OverlayModule", "Drag ended, snapping to edge");
-                                handler.postDelayed(snapToEdge, 100);
+                                WakeupAuditor.getInstance().postDelayed(handler, WakeupAuditor.SOURCE_OVERLAY_POST, snapToEdge, 100);
                             } else {
                                 // タップの場合
                                 long touchDuration = System.currentTimeMillis() - touchStartTime;
@@ -724,10 +1123,11 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                 
                 private boolean isTouchOnInputField(float x, float y) {
                     // 各入力フィールドの位置をチェック
-                    View[] inputViews = {
-                        rewardInput, estimatedTimeInput, distanceInput,
-                        deliveryButton, serviceSpinner
-                    };
+                    View[] keypadViews = keypad.getTouchTargets();
+                    View[] inputViews = java.util.Arrays.copyOf(keypadViews, keypadViews.length + 3);
+                    inputViews[keypadViews.length] = deliveryButton;
+                    inputViews[keypadViews.length + 1] = serviceSpinner;
+                    inputViews[keypadViews.length + 2] = deliveryTracker.getContainer();
                     
                     for (View view : inputViews) {
                         if (view != null && isTouchInsideView(view, x, y)) {
@@ -761,49 +1161,208 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             });
         }
 
-        private void setupInputFieldFocus(EditText editText) {
-            if (editText == null) return;
-            
-            editText.setFocusableInTouchMode(true);
-            editText.setOnTouchListener((v, event) -> {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
-                    android.util.Log.d("OverlayModule", "Input field touched, enabling focus");
-                    
-                    // 一時的にフォーカス可能にする
-                    params.flags &= ~WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
+        /**
+         * 単一ビュー描画モードのオーバーレイ。フォーム全体をFlatOverlayFormView1枚で描画する
+         */
+        private void createFlatOverlayView() {
+            final String[] services = {"Uber Eats", "出前館", "Wolt", "menu", "その他"};
+            final FlatOverlayFormView formView = new FlatOverlayFormView(this, services);
+            overlayView = formView;
+
+            android.util.DisplayMetrics metrics = getResources().getDisplayMetrics();
+            final int screenWidth = metrics.widthPixels;
+            final int screenHeight = metrics.heightPixels;
+            final int fullWidth = Math.round(FlatOverlayFormView.PREFERRED_WIDTH_DP * metrics.density);
+            // 展開時の高さは配達の行数に合わせてビューが決める（WRAP_CONTENT）
+            formView.setMaxHeightPx(screenHeight * 4 / 5);
+            final int minimizedSize = 140;
+
+            params = new WindowManager.LayoutParams(
+                fullWidth,
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                overlayWindowType(),
+                WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL |
+                WindowManager.LayoutParams.FLAG_WATCH_OUTSIDE_TOUCH |
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
+                PixelFormat.TRANSLUCENT
+            );
+            params.gravity = Gravity.TOP | Gravity.LEFT;
+            params.x = 50;
+            params.y = 200;
+
+            deliveryTracker = new DeliveryTracker(this, null, new DeliveryTracker.Callback() {
+                @Override
+                public boolean onFinish(DeliveryTracker.ActiveDelivery delivery, long finishTimeMs) {
+                    return onDeliveryFinished(delivery, finishTimeMs, new FinishForm() {
+                        @Override
+                        public String field(int field) {
+                            return formView.getFieldValue(field).trim();
+                        }
+
+                        @Override
+                        public void recordReward(String reward) {
+                            formView.recordReward(reward);
+                        }
+
+                        @Override
+                        public void clearAll() {
+                            formView.clearAll();
+                        }
+                    });
+                }
+
+                @Override
+                public void onActiveCountChanged(int count) {
+                    formView.setActiveCount(count);
+                    persistActiveDeliveries();
+                    ActivityMonitor.getInstance().onActiveDeliveriesChanged(count);
+                    QosGovernor.getInstance().setActiveDeliveries(count);
+                    if (liveNotifier != null) {
+                        liveNotifier.onDeliveriesChanged(deliveryTracker.getActive());
+                    }
+                }
+
+                @Override
+                public void onElapsedTick(DeliveryTracker.ActiveDelivery delivery) {
+                    formView.onElapsedTick();
+                }
+            });
+            formView.setDeliveryTracker(deliveryTracker);
+
+            startDeliveryAction = formView::performStart;
+
+            formView.setListener(new FlatOverlayFormView.Listener() {
+                @Override
+                public void onStartDelivery(String service, String reward, String estimatedTime, String distance) {
+                    DeliveryTracker.ActiveDelivery delivery = deliveryTracker.start(service, reward, estimatedTime, distance);
+                    formView.clearAll();
+                    formView.resetService();
+                    Toast.makeText(OverlayService.this, "配達開始時間を記録しました（#" + delivery.number + "）", Toast.LENGTH_SHORT).show();
+                }
+
+                @Override
+                public void onFinishDelivery(DeliveryTracker.ActiveDelivery delivery) {
+                    deliveryTracker.finish(delivery);
+                }
+
+                @Override
+                public void onInputChanged(String service, String reward, String estimatedTime, String distance) {
+                    OfferEvaluator.Evaluation evaluation = OfferEvaluator.getInstance(OverlayService.this)
+                        .evaluate(service, reward, estimatedTime, distance);
+                    formView.setOfferEvaluation(evaluation != null ? evaluation.format() : "");
+                }
+            });
+
+            if (sessionSummaryListener != null) {
+                SessionAggregator.getInstance().removeListener(sessionSummaryListener);
+            }
+            sessionSummaryListener = snapshot -> formView.setSessionSummary(formatSessionSummary(snapshot));
+            SessionAggregator.getInstance().addListener(sessionSummaryListener);
+            restoreActiveDeliveries();
+            applyQosLevel(QosGovernor.getInstance().getLevel());
+
+            // 最小化・展開はウィンドウサイズと描画フラグの切り替えだけで済む
+            final Runnable snapToEdge = () -> {
+                if (overlayView == null || overlayView.getParent() == null) return;
+                int centerX = params.x + params.width / 2;
+                int targetX = centerX < screenWidth / 2 ? -params.width + 30 : screenWidth - 30;
+                animateOverlayX(targetX, FrameJankMonitor.LABEL_SNAP, () -> {
+                    formView.setMinimized(true);
+                    params.width = minimizedSize;
+                    params.height = minimizedSize;
+                    if (params.x > 0) {
+                        params.x = screenWidth - minimizedSize;
+                    } else {
+                        params.x = 0;
+                    }
                     windowManager.updateViewLayout(overlayView, params);
-                    
-                    // フォーカスを設定してキーボードを表示
-                    v.requestFocus();
-                    android.view.inputmethod.InputMethodManager imm = 
-                        (android.view.inputmethod.InputMethodManager) getSystemService(android.content.Context.INPUT_METHOD_SERVICE);
-                    if (imm != null) {
-                        imm.showSoftInput(v, android.view.inputmethod.InputMethodManager.SHOW_IMPLICIT);
+                });
+            };
+
+            final Runnable expandToFull = () -> {
+                if (overlayView == null || overlayView.getParent() == null) return;
+                boolean fromRight = params.x > 0;
+                formView.setMinimized(false);
+                params.width = fullWidth;
+                params.height = WindowManager.LayoutParams.WRAP_CONTENT;
+                params.y = Math.max(0, Math.min(screenHeight - formView.getPreferredHeightPx(), params.y));
+                params.x = fromRight ? screenWidth - 30 : -fullWidth + 30;
+                windowManager.updateViewLayout(overlayView, params);
+                animateOverlayX(fromRight ? screenWidth - fullWidth - 20 : 20, FrameJankMonitor.LABEL_EXPAND, null);
+            };
+
+            formView.setOnTouchListener(new View.OnTouchListener() {
+                private int initialX, initialY;
+                private float initialTouchX, initialTouchY;
+                private boolean isDragging = false;
+                private static final int CLICK_DRAG_TOLERANCE = 10; // ピクセル
+
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    // ボタン等の上のタッチはビュー自身のヒットテストに任せる
+                    if (formView.isInteractiveAt(event.getX(), event.getY())) {
+                        return false;
                     }
-                    
-                    // 少し待ってからフォーカスを無効に戻す（入力中は有効のまま）
-                    new android.os.Handler().postDelayed(() -> {
-                        if (!v.hasFocus()) {
-                            params.flags |= WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
-                            windowManager.updateViewLayout(overlayView, params);
-                            android.util.Log.d("OverlayModule", "Input field focus disabled");
-                        }
-                    }, 500);
+
+                    switch (event.getAction()) {
+                        case MotionEvent.ACTION_DOWN:
+                            initialX = params.x;
+                            initialY = params.y;
+                            initialTouchX = event.getRawX();
+                            initialTouchY = event.getRawY();
+                            isDragging = false;
+                            return true;
+                        case MotionEvent.ACTION_MOVE:
+                            float deltaX = event.getRawX() - initialTouchX;
+                            float deltaY = event.getRawY() - initialTouchY;
+                            if (Math.abs(deltaX) > CLICK_DRAG_TOLERANCE || Math.abs(deltaY) > CLICK_DRAG_TOLERANCE) {
+                                if (!isDragging) {
+                                    FrameJankMonitor.getInstance().beginOverlayInteraction(FrameJankMonitor.LABEL_DRAG, windowManager.getDefaultDisplay());
+                                }
+                                isDragging = true;
+                                params.x = Math.max(-params.width + 30, Math.min(screenWidth - 30, initialX + (int) deltaX));
+                                // 展開時のparams.heightはWRAP_CONTENT（負の値）なので、実際に測った高さで画面内に収める
+                                params.y = Math.max(0, Math.min(screenHeight - overlayView.getHeight(), initialY + (int) deltaY));
+                                windowManager.updateViewLayout(overlayView, params);
+                            }
+                            return true;
+                        case MotionEvent.ACTION_UP:
+                            if (isDragging) {
+                                FrameJankMonitor.getInstance().endOverlayInteraction(FrameJankMonitor.LABEL_DRAG);
+                                if (!formView.isMinimized()) {
+                                    snapToEdge.run();
+                                }
+                            } else if (formView.isMinimized()) {
+                                expandToFull.run();
+                            }
+                            return true;
+                    }
+                    return false;
                 }
-                return false; // 通常のタッチ処理も実行
             });
-            
-            // フォーカス変更リスナーを追加
-            editText.setOnFocusChangeListener((v, hasFocus) -> {
-                if (!hasFocus) {
-                    // フォーカスを失った時にオーバーレイのフォーカスを無効にする
-                    new android.os.Handler().postDelayed(() -> {
-                        params.flags |= WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE;
-                        windowManager.updateViewLayout(overlayView, params);
-                        android.util.Log.d("OverlayModule", "Input field lost focus, overlay focus disabled");
-                    }, 100);
+        }
+
+        private void animateOverlayX(int targetX, String interaction, @Nullable Runnable onEnd) {
+            android.animation.ValueAnimator animator = android.animation.ValueAnimator.ofInt(params.x, targetX);
+            animator.setDuration(QosGovernor.animationDurationMs(QosGovernor.getInstance().getLevel()));
+            animator.addUpdateListener(animation -> {
+                params.x = (Integer) animation.getAnimatedValue();
+                if (overlayView != null && overlayView.getParent() != null) {
+                    windowManager.updateViewLayout(overlayView, params);
                 }
             });
+            FrameJankMonitor.getInstance().trackAnimation(animator, interaction, windowManager.getDefaultDisplay());
+            if (onEnd != null) {
+                animator.addListener(new android.animation.AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationEnd(android.animation.Animator animation) {
+                        if (overlayView != null && overlayView.getParent() != null) {
+                            onEnd.run();
+                        }
+                    }
+                });
+            }
+            animator.start();
         }
 
         private void showOverlay() {
@@ -851,6 +1410,24 @@ public class OverlayModule extends ReactContextBaseJavaModule {
             super.onDestroy();
             android.util.Log.d("OverlayModule", "OverlayService onDestroy called: " + this.hashCode());
             
+            // 経過時間の更新だけを停止する。進行中の配達の起点と経路は残し、次の表示で復元する
+            // （アプリを前面に出すたびにオーバーレイは閉じるので、ここで消すと配達中の記録が失われる）
+            if (deliveryTracker != null) {
+                deliveryTracker.stop();
+            }
+            if (sessionSummaryListener != null) {
+                SessionAggregator.getInstance().removeListener(sessionSummaryListener);
+                sessionSummaryListener = null;
+            }
+            if (liveNotifier != null) {
+                liveNotifier.stop();
+                liveNotifier = null;
+            }
+            if (qosListener != null) {
+                QosGovernor.getInstance().removeListener(qosListener);
+                qosListener = null;
+            }
+            
             // オーバーレイビューを確実に削除
             try {
                 if (overlayView != null && overlayView.getParent() != null) {
@@ -874,6 +1451,10 @@ public class OverlayModule extends ReactContextBaseJavaModule {
                 isServiceRunning = false;
                 android.util.Log.d("OverlayModule", "Service instance cleared in onDestroy");
             }
+            OverlayTileService.requestUpdate(this);
+            if (!isServiceRunning) {
+                WakeupAuditor.getInstance().endHold(WakeupAuditor.HOLD_FOREGROUND_SERVICE);
+            }
             
             android.util.Log.d("OverlayModule", "OverlayService destroyed: " + this.hashCode());
         }
@@ -0,0 +1,87 @@
+package com.urbandash;
+
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+
+/**
+ * クイック設定タイル。タップでReact Nativeを起動せずにオーバーレイを表示し、勤務前なら勤務も開始する。
+ * 表示中にタップするとオーバーレイだけを閉じる（勤務は続く）。
+ * オーバーレイの権限がない場合やバックグラウンドからサービスを開始できない場合はアプリを開く。
+ */
+public class OverlayTileService extends TileService {
+
+    /**
+     * オーバーレイの表示状態が変わった時にタイルの表示を更新させる
+     */
+    public static void requestUpdate(Context context) {
+        try {
+            requestListeningState(context, new ComponentName(context, OverlayTileService.class));
+        } catch (Exception e) {
+            android.util.Log.e("OverlayTileService", "Error requesting tile update", e);
+        }
+    }
+
+    @Override
+    public void onStartListening() {
+        super.onStartListening();
+        updateTile();
+    }
+
+    @Override
+    public void onClick() {
+        super.onClick();
+        if (OverlayModule.OverlayService.isRunning()) {
+            Intent intent = new Intent(this, OverlayModule.OverlayService.class);
+            intent.setAction("STOP_SERVICE");
+            startService(intent);
+            updateTile(false);
+            return;
+        }
+
+        if (!QuickLaunch.canDrawOverlays(this)) {
+            // 権限の案内はアプリ側で行う
+            openApp();
+            return;
+        }
+
+        // サービスの開始を先に行い、勤務の開始（状態ファイルとキューへの書き込み）はその後にする
+        if (!QuickLaunch.showOverlay(this)) {
+            openApp();
+            return;
+        }
+        QuickLaunch.startSessionIfIdle(this);
+        updateTile(true);
+    }
+
+    private void updateTile() {
+        updateTile(OverlayModule.OverlayService.isRunning());
+    }
+
+    private void updateTile(boolean active) {
+        Tile tile = getQsTile();
+        if (tile == null) return;
+        tile.setState(active ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            SessionStateStore store = SessionStateStore.getInstance(this);
+            boolean working = store != null && store.read().hasActiveSession();
+            tile.setSubtitle(working ? "勤務中" : "勤務前");
+        }
+        tile.updateTile();
+    }
+
+    @SuppressLint("StartActivityAndCollapseDeprecated")
+    private void openApp() {
+        Intent intent = QuickLaunch.appLaunchIntent(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            startActivityAndCollapse(PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+        } else {
+            startActivityAndCollapse(intent);
+        }
+    }
+}
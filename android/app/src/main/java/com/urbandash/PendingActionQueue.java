@@ -0,0 +1,152 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JSが動いていない間にネイティブ側で発生した操作（クイック設定タイルからの勤務開始、オーバーレイの案件送信など）を
+ * 次にJSが起動するまで保持する。プロセスが終了しても失われないようSharedPreferencesに保存する。
+ * 件数は1回の勤務中の操作分だけなので、全体を1つのJSON配列として読み書きする。
+ */
+public class PendingActionQueue {
+    public static final String TYPE_SESSION_STARTED = "session_started";
+    public static final String TYPE_FORM_SUBMITTED = "form_submitted";
+
+    private static final String PREFS_NAME = "urban_dash_pending_actions";
+    private static final String KEY_ACTIONS = "actions";
+    private static final int MAX_ACTIONS = 200;
+
+    private PendingActionQueue() {
+    }
+
+    /**
+     * 操作を末尾に追加する。dataにはtype・queuedAtと、処理後に削除するためのidを付けて保存する
+     */
+    public static synchronized void enqueue(Context context, String type, JSONObject data) {
+        try {
+            SharedPreferences prefs = prefs(context);
+            JSONArray actions = load(prefs);
+            if (actions.length() >= MAX_ACTIONS) {
+                android.util.Log.e("PendingActionQueue", "Queue is full, dropping oldest action");
+                actions.remove(0);
+            }
+            data.put("type", type);
+            if (!data.has("queuedAt")) {
+                data.put("queuedAt", System.currentTimeMillis());
+            }
+            if (!data.has("id")) {
+                data.put("id", UUID.randomUUID().toString());
+            }
+            actions.put(data);
+            // 直後にプロセスが落ちても残るよう同期的に書き込む
+            prefs.edit().putString(KEY_ACTIONS, actions.toString()).commit();
+            android.util.Log.d("PendingActionQueue", "Queued " + type + " (" + actions.length() + " pending)");
+        } catch (Exception e) {
+            android.util.Log.e("PendingActionQueue", "Error queueing action", e);
+        }
+    }
+
+    /**
+     * 指定した種類の操作を古い順に取り出して削除する（他の種類は残す）
+     */
+    public static synchronized List<JSONObject> take(Context context, String type) {
+        List<JSONObject> taken = new ArrayList<>();
+        try {
+            SharedPreferences prefs = prefs(context);
+            JSONArray actions = load(prefs);
+            JSONArray remaining = new JSONArray();
+            for (int i = 0; i < actions.length(); i++) {
+                JSONObject action = actions.getJSONObject(i);
+                if (type.equals(action.optString("type"))) {
+                    taken.add(action);
+                } else {
+                    remaining.put(action);
+                }
+            }
+            if (!taken.isEmpty()) {
+                prefs.edit().putString(KEY_ACTIONS, remaining.toString()).commit();
+            }
+        } catch (Exception e) {
+            android.util.Log.e("PendingActionQueue", "Error reading queued actions", e);
+        }
+        return taken;
+    }
+
+    /**
+     * 指定した種類の操作を古い順に返す（キューには残す）。処理が済んだものはremoveで消す
+     */
+    public static synchronized List<JSONObject> peek(Context context, String type) {
+        List<JSONObject> found = new ArrayList<>();
+        try {
+            SharedPreferences prefs = prefs(context);
+            JSONArray actions = load(prefs);
+            boolean assigned = false;
+            for (int i = 0; i < actions.length(); i++) {
+                JSONObject action = actions.getJSONObject(i);
+                if (!type.equals(action.optString("type"))) continue;
+                // idのない操作（idを付ける前に積まれたもの）にはここで付ける
+                if (!action.has("id")) {
+                    action.put("id", UUID.randomUUID().toString());
+                    assigned = true;
+                }
+                found.add(action);
+            }
+            if (assigned) {
+                prefs.edit().putString(KEY_ACTIONS, actions.toString()).commit();
+            }
+        } catch (Exception e) {
+            android.util.Log.e("PendingActionQueue", "Error reading queued actions", e);
+        }
+        return found;
+    }
+
+    /**
+     * 処理が済んだ操作をidで削除する。該当がなければfalse
+     */
+    public static synchronized boolean remove(Context context, String id) {
+        try {
+            SharedPreferences prefs = prefs(context);
+            JSONArray actions = load(prefs);
+            for (int i = 0; i < actions.length(); i++) {
+                if (id.equals(actions.getJSONObject(i).optString("id"))) {
+                    actions.remove(i);
+                    prefs.edit().putString(KEY_ACTIONS, actions.toString()).commit();
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            android.util.Log.e("PendingActionQueue", "Error removing queued action", e);
+        }
+        return false;
+    }
+
+    public static synchronized boolean has(Context context, String type) {
+        try {
+            JSONArray actions = load(prefs(context));
+            for (int i = 0; i < actions.length(); i++) {
+                if (type.equals(actions.getJSONObject(i).optString("type"))) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            android.util.Log.e("PendingActionQueue", "Error reading queued actions", e);
+        }
+        return false;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static JSONArray load(SharedPreferences prefs) throws org.json.JSONException {
+        String json = prefs.getString(KEY_ACTIONS, null);
+        return json != null ? new JSONArray(json) : new JSONArray();
+    }
+}
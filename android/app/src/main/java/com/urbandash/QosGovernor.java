@@ -0,0 +1,298 @@
+package com.urbandash;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 端末の発熱・電池・画面状態から、アプリ全体の動作品質（QoS）レベルを決める。
+ * 画面オフは配達中でなければ下げる理由にする（配達中は画面を消して走行していても経路の記録・経過時間を保つ）。
+ * オーバーレイの経過時間更新・アニメーション・通知更新（ネイティブ）と、
+ * GPSの取得間隔・状態通知のまとめ方（JS）はこのレベルを購読して負荷を下げる。
+ * レベルが変わった時だけリスナーへ通知する。すべてのメソッドはメインスレッドから呼ぶこと。
+ */
+public class QosGovernor {
+    public static final int LEVEL_FULL = 0;
+    public static final int LEVEL_REDUCED = 1;
+    public static final int LEVEL_MINIMAL = 2;
+
+    private static final long HEADROOM_POLL_MS = 60 * 1000;
+    private static final int HEADROOM_FORECAST_SECONDS = 30;
+    private static final float HEADROOM_REDUCED = 0.85f;
+    private static final float HEADROOM_MINIMAL = 0.95f;
+    private static final int BATTERY_REDUCED = 20;
+    private static final int BATTERY_MINIMAL = 10;
+
+    public interface Listener {
+        void onQosLevelChanged(int level);
+    }
+
+    private static QosGovernor instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private PowerManager powerManager;
+    private boolean started = false;
+
+    private int level = LEVEL_FULL;
+    private int thermalStatus = 0;
+    private float thermalHeadroom = Float.NaN;
+    private int batteryPercent = 100;
+    private boolean charging = false;
+    private boolean powerSave = false;
+    private boolean screenOn = true;
+    private int activeDeliveries = 0;
+    private final List<String> reasons = new ArrayList<>();
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            long begin = WakeupAuditor.getInstance().begin();
+            String action = intent.getAction();
+            if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
+                readBattery(intent);
+            } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                screenOn = true;
+            } else if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                screenOn = false;
+            } else if (PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(action)) {
+                powerSave = powerManager.isPowerSaveMode();
+            }
+            recompute();
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_QOS_BROADCAST, begin);
+        }
+    };
+
+    private final Runnable headroomPoll = new Runnable() {
+        @Override
+        public void run() {
+            long begin = WakeupAuditor.getInstance().begin();
+            readHeadroom();
+            recompute();
+            // 画面オフ中は間隔を空ける
+            handler.postDelayed(this, screenOn ? HEADROOM_POLL_MS : HEADROOM_POLL_MS * 5);
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_QOS_POLL, begin);
+        }
+    };
+
+    public static synchronized QosGovernor getInstance() {
+        if (instance == null) {
+            instance = new QosGovernor();
+        }
+        return instance;
+    }
+
+    /**
+     * 端末状態の監視を始める（アプリ起動時に1回）
+     */
+    public void start(Context context) {
+        if (started) return;
+        started = true;
+        Context app = context.getApplicationContext();
+        powerManager = (PowerManager) app.getSystemService(Context.POWER_SERVICE);
+        screenOn = powerManager.isInteractive();
+        powerSave = powerManager.isPowerSaveMode();
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        Intent battery = app.registerReceiver(receiver, filter);
+        if (battery != null) {
+            readBattery(battery);
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+            powerManager.addThermalStatusListener(app.getMainExecutor(), status -> {
+                thermalStatus = status;
+                recompute();
+            });
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            handler.post(headroomPoll);
+        }
+        recompute();
+        android.util.Log.d("QosGovernor", "Started at level " + levelName(level));
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    public float getThermalHeadroom() {
+        return thermalHeadroom;
+    }
+
+    public int getBatteryPercent() {
+        return batteryPercent;
+    }
+
+    public boolean isCharging() {
+        return charging;
+    }
+
+    public boolean isPowerSave() {
+        return powerSave;
+    }
+
+    public boolean isScreenOn() {
+        return screenOn;
+    }
+
+    /**
+     * 進行中の配達数（オーバーレイのSTART/FINISHごとに呼ぶ）
+     */
+    public void setActiveDeliveries(int count) {
+        if (activeDeliveries == count) return;
+        activeDeliveries = count;
+        recompute();
+    }
+
+    public List<String> getReasons() {
+        return new ArrayList<>(reasons);
+    }
+
+    /**
+     * 登録時に現在のレベルを1回通知する
+     */
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+        listener.onQosLevelChanged(level);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public static String levelName(int level) {
+        switch (level) {
+            case LEVEL_REDUCED:
+                return "reduced";
+            case LEVEL_MINIMAL:
+                return "minimal";
+            default:
+                return "full";
+        }
+    }
+
+    /**
+     * オーバーレイの経過時間表示の更新間隔
+     */
+    public static long overlayTickIntervalMs(int level) {
+        switch (level) {
+            case LEVEL_REDUCED:
+                return 5000;
+            case LEVEL_MINIMAL:
+                return 30000;
+            default:
+                return 1000;
+        }
+    }
+
+    /**
+     * オーバーレイの吸着・展開アニメーションの長さ（0ならアニメーションしない）
+     */
+    public static long animationDurationMs(int level) {
+        return level == LEVEL_FULL ? 300 : 0;
+    }
+
+    /**
+     * フォアグラウンド通知を出し直す最短間隔
+     */
+    public static long notificationIntervalMs(int level) {
+        switch (level) {
+            case LEVEL_REDUCED:
+                return 10000;
+            case LEVEL_MINIMAL:
+                return 30000;
+            default:
+                return 2000;
+        }
+    }
+
+    private void readBattery(Intent intent) {
+        int rawLevel = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (rawLevel >= 0 && scale > 0) {
+            batteryPercent = Math.round(rawLevel * 100f / scale);
+        }
+        int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        charging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    private void readHeadroom() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                thermalHeadroom = powerManager.getThermalHeadroom(HEADROOM_FORECAST_SECONDS);
+            } catch (Exception e) {
+                android.util.Log.e("QosGovernor", "Error reading thermal headroom", e);
+            }
+        }
+    }
+
+    private void recompute() {
+        int next = LEVEL_FULL;
+        reasons.clear();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+                next = LEVEL_MINIMAL;
+                reasons.add("thermal_severe");
+            } else if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE) {
+                next = Math.max(next, LEVEL_REDUCED);
+                reasons.add("thermal_moderate");
+            }
+        }
+        // 発熱の予測値（1.0でスロットリング開始）。状態が変わる前に先回りして下げる
+        if (!Float.isNaN(thermalHeadroom)) {
+            if (thermalHeadroom >= HEADROOM_MINIMAL) {
+                next = LEVEL_MINIMAL;
+                reasons.add("thermal_headroom");
+            } else if (thermalHeadroom >= HEADROOM_REDUCED) {
+                next = Math.max(next, LEVEL_REDUCED);
+                reasons.add("thermal_headroom");
+            }
+        }
+        if (!charging) {
+            if (batteryPercent <= BATTERY_MINIMAL) {
+                next = LEVEL_MINIMAL;
+                reasons.add("battery_critical");
+            } else if (batteryPercent <= BATTERY_REDUCED) {
+                next = Math.max(next, LEVEL_REDUCED);
+                reasons.add("battery_low");
+            }
+        }
+        if (powerSave) {
+            next = Math.max(next, LEVEL_REDUCED);
+            reasons.add("power_save");
+        }
+        if (!screenOn && activeDeliveries == 0) {
+            next = Math.max(next, LEVEL_REDUCED);
+            reasons.add("screen_off");
+        }
+
+        if (next == level) return;
+        android.util.Log.d("QosGovernor", "Level " + levelName(level) + " -> " + levelName(next) + " " + reasons);
+        level = next;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onQosLevelChanged(level);
+        }
+    }
+}
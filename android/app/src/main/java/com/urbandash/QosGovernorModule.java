@@ -0,0 +1,86 @@
+package com.urbandash;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/**
+ * QosGovernorのレベルをJSへ公開する。レベルが変わった時だけQosLevelChangedを送る。
+ */
+public class QosGovernorModule extends ReactContextBaseJavaModule implements QosGovernor.Listener {
+    private static final String MODULE_NAME = "QosGovernor";
+    private static final String LEVEL_EVENT = "QosLevelChanged";
+
+    private final ReactApplicationContext reactContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public QosGovernorModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        mainHandler.post(() -> QosGovernor.getInstance().addListener(this));
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void getState(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                promise.resolve(toWritableMap(QosGovernor.getInstance()));
+            } catch (Exception e) {
+                promise.reject("QOS_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onQosLevelChanged(int level) {
+        if (!reactContext.hasActiveReactInstance()) return;
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(LEVEL_EVENT, toWritableMap(QosGovernor.getInstance()));
+        } catch (Exception e) {
+            android.util.Log.e("QosGovernor", "Error emitting level", e);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        mainHandler.post(() -> QosGovernor.getInstance().removeListener(this));
+        super.invalidate();
+    }
+
+    private static WritableMap toWritableMap(QosGovernor governor) {
+        WritableMap map = Arguments.createMap();
+        map.putString("level", QosGovernor.levelName(governor.getLevel()));
+        map.putInt("thermalStatus", governor.getThermalStatus());
+        float headroom = governor.getThermalHeadroom();
+        if (Float.isNaN(headroom)) {
+            map.putNull("thermalHeadroom");
+        } else {
+            map.putDouble("thermalHeadroom", headroom);
+        }
+        map.putInt("batteryPercent", governor.getBatteryPercent());
+        map.putBoolean("charging", governor.isCharging());
+        map.putBoolean("powerSave", governor.isPowerSave());
+        map.putBoolean("screenOn", governor.isScreenOn());
+        WritableArray reasons = Arguments.createArray();
+        for (String reason : governor.getReasons()) {
+            reasons.pushString(reason);
+        }
+        map.putArray("reasons", reasons);
+        return map;
+    }
+}
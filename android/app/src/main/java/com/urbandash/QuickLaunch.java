@@ -0,0 +1,77 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.provider.Settings;
+
+import androidx.core.content.ContextCompat;
+
+import org.json.JSONObject;
+
+/**
+ * React Nativeを起動せずにオーバーレイと勤務の時計を開始する（クイック設定タイル・通知の操作から呼ぶ）。
+ * 勤務はネイティブの集計と状態ファイルだけで開始し、Firestoreのセッション作成は
+ * PendingActionQueueに積んで次にJSが起動した時に行う。
+ */
+public class QuickLaunch {
+    static final String EXTRA_REQUESTED_AT = "requestedAtElapsedMs";
+
+    private QuickLaunch() {
+    }
+
+    public static boolean canDrawOverlays(Context context) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.M || Settings.canDrawOverlays(context);
+    }
+
+    /**
+     * 勤務中でなければネイティブ側で勤務を開始する。開始した場合はtrue。メインスレッドから呼ぶこと
+     */
+    public static boolean startSessionIfIdle(Context context) {
+        SessionStateStore store = SessionStateStore.getInstance(context);
+        if (store == null || store.read().hasActiveSession()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        // セッションIDはJSがFirestoreに作成した時に保存し直す
+        store.updateSession("", SessionStateStore.STATUS_WORKING, now, 0, 0);
+        SessionAggregator.getInstance().startSession(now);
+        try {
+            JSONObject action = new JSONObject();
+            action.put("startTime", now);
+            PendingActionQueue.enqueue(context, PendingActionQueue.TYPE_SESSION_STARTED, action);
+        } catch (Exception e) {
+            android.util.Log.e("QuickLaunch", "Error queueing session start", e);
+        }
+        OverlayModule.notifyPendingAction(PendingActionQueue.TYPE_SESSION_STARTED);
+        android.util.Log.d("QuickLaunch", "Session started natively");
+        return true;
+    }
+
+    /**
+     * オーバーレイサービスを直接開始する。バックグラウンドからの開始が許可されない場合はfalse
+     */
+    public static boolean showOverlay(Context context) {
+        if (OverlayModule.OverlayService.isRunning()) {
+            return true;
+        }
+        Intent intent = new Intent(context, OverlayModule.OverlayService.class);
+        intent.setAction("SHOW_OVERLAY");
+        intent.putExtra(EXTRA_REQUESTED_AT, SystemClock.elapsedRealtime());
+        try {
+            ContextCompat.startForegroundService(context, intent);
+            return true;
+        } catch (Exception e) {
+            // Android 12以降はバックグラウンドからのフォアグラウンドサービス開始が制限される
+            android.util.Log.e("QuickLaunch", "Error starting overlay service", e);
+            return false;
+        }
+    }
+
+    public static Intent appLaunchIntent(Context context) {
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        return intent;
+    }
+}
@@ -0,0 +1,66 @@
+package com.urbandash;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+
+public class RouteThumbnailModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "RouteThumbnail";
+    private final RouteThumbnailRenderer renderer;
+
+    public RouteThumbnailModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.renderer = RouteThumbnailRenderer.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void getCachedThumbnail(String logId, double width, double height, Promise promise) {
+        renderer.getCached(logId, (int) width, (int) height, promiseCallback(promise));
+    }
+
+    // latLngs: [lat0, lng0, lat1, lng1, ...] のフラットな配列
+    @ReactMethod
+    public void renderThumbnail(String logId, ReadableArray latLngs, double width, double height, Promise promise) {
+        try {
+            double[] points = new double[latLngs.size()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = latLngs.getDouble(i);
+            }
+            renderer.render(logId, points, (int) width, (int) height, promiseCallback(promise));
+        } catch (Exception e) {
+            promise.reject("THUMBNAIL_RENDER_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void renderEncodedThumbnail(String logId, String encodedPath, double width, double height, Promise promise) {
+        renderer.renderEncoded(logId, encodedPath, (int) width, (int) height, promiseCallback(promise));
+    }
+
+    @ReactMethod
+    public void clearCache(Promise promise) {
+        renderer.clear(() -> promise.resolve(true));
+    }
+
+    private RouteThumbnailRenderer.Callback promiseCallback(Promise promise) {
+        return new RouteThumbnailRenderer.Callback() {
+            @Override
+            public void onRendered(String uri) {
+                promise.resolve(uri);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                android.util.Log.e("RouteThumbnail", "Error rendering route thumbnail", e);
+                promise.reject("THUMBNAIL_RENDER_ERROR", e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,305 @@
+package com.urbandash;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 走行ルートを小さなビットマップに投影して描画し、PNGとしてディスクにキャッシュする。
+ * 描画とファイル書き込みはバックグラウンドスレッドで順番に行う。
+ * キャッシュ済みかどうかはファイルの有無だけなので、描画の順番を待たずに呼び出し元のスレッドで答える。
+ */
+public class RouteThumbnailRenderer {
+    private static final String CACHE_DIR_NAME = "route_thumbnails";
+    private static final int MAX_DISK_ENTRIES = 500;
+    private static final int PADDING_DP = 6;
+    private static final float STROKE_DP = 2.5f;
+    private static final float ENDPOINT_RADIUS_DP = 3.5f;
+    private static final int ROUTE_COLOR = 0xFF4CAF50;
+    private static final int START_COLOR = 0xFF2DD4BF;
+    private static final int END_COLOR = 0xFFFF3B30;
+    private static final int BACKGROUND_COLOR = 0xFF1E2A3A;
+
+    public interface Callback {
+        void onRendered(String uri);
+
+        void onError(Exception e);
+    }
+
+    private static RouteThumbnailRenderer instance;
+
+    private final File cacheDir;
+    private final float density;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private int writesSinceTrim = 0;
+
+    public static synchronized RouteThumbnailRenderer getInstance(Context context) {
+        if (instance == null) {
+            instance = new RouteThumbnailRenderer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private RouteThumbnailRenderer(Context context) {
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        this.density = context.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * キャッシュ済みならURIを返す（ディスクを確認するだけで描画はしない）
+     */
+    public void getCached(String logId, int widthDp, int heightDp, Callback callback) {
+        callback.onRendered(lookup(logId, widthDp, heightDp));
+    }
+
+    /**
+     * 緯度経度を交互に並べた配列 [lat0, lng0, lat1, lng1, ...] から描画する
+     */
+    public void render(String logId, double[] latLngs, int widthDp, int heightDp, Callback callback) {
+        String cached = lookup(logId, widthDp, heightDp);
+        if (cached != null) {
+            callback.onRendered(cached);
+            return;
+        }
+        executor.execute(() -> renderInternal(logId, latLngs, widthDp, heightDp, callback));
+    }
+
+    /**
+     * Google Encoded Polyline形式のルートから描画する
+     */
+    public void renderEncoded(String logId, String encodedPath, int widthDp, int heightDp, Callback callback) {
+        String cached = lookup(logId, widthDp, heightDp);
+        if (cached != null) {
+            callback.onRendered(cached);
+            return;
+        }
+        executor.execute(() -> {
+            double[] latLngs;
+            try {
+                latLngs = decodePolyline(encodedPath);
+            } catch (RuntimeException e) {
+                callback.onError(e);
+                return;
+            }
+            renderInternal(logId, latLngs, widthDp, heightDp, callback);
+        });
+    }
+
+    public void clear(Runnable onCleared) {
+        executor.execute(() -> {
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            onCleared.run();
+        });
+    }
+
+    private String lookup(String logId, int widthDp, int heightDp) {
+        File file = fileFor(logId, widthDp, heightDp);
+        if (!file.exists()) return null;
+        touch(file);
+        return Uri.fromFile(file).toString();
+    }
+
+    // 参照のたびに更新日時を進め、ディスクの整理を最終参照順（LRU）にする
+    private static void touch(File file) {
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            android.util.Log.d("RouteThumbnail", "Failed to touch " + file.getName());
+        }
+    }
+
+    private void renderInternal(String logId, double[] latLngs, int widthDp, int heightDp, Callback callback) {
+        File file = fileFor(logId, widthDp, heightDp);
+
+        try {
+            // 順番待ちの間に同じサムネイルの描画が済んでいる場合
+            if (file.exists()) {
+                touch(file);
+                callback.onRendered(Uri.fromFile(file).toString());
+                return;
+            }
+
+            // 書き出した後のビットマップは使わない（表示側はファイルを読む）
+            Bitmap bitmap = draw(latLngs, Math.round(widthDp * density), Math.round(heightDp * density));
+            try {
+                writePng(bitmap, file);
+            } finally {
+                bitmap.recycle();
+            }
+            callback.onRendered(Uri.fromFile(file).toString());
+        } catch (Exception e) {
+            callback.onError(e);
+        }
+    }
+
+    private Bitmap draw(double[] latLngs, int widthPx, int heightPx) {
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, widthPx), Math.max(1, heightPx), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(BACKGROUND_COLOR);
+
+        int pointCount = latLngs.length / 2;
+        if (pointCount == 0) {
+            return bitmap;
+        }
+
+        // 範囲を求める
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < pointCount; i++) {
+            double lat = latLngs[i * 2];
+            double lng = latLngs[i * 2 + 1];
+            if (lat < minLat) minLat = lat;
+            if (lat > maxLat) maxLat = lat;
+            if (lng < minLng) minLng = lng;
+            if (lng > maxLng) maxLng = lng;
+        }
+
+        // 正距円筒図法（中央緯度で経度方向を補正）で縦横比を保って収める
+        double lngScale = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        double spanX = Math.max((maxLng - minLng) * lngScale, 1e-9);
+        double spanY = Math.max(maxLat - minLat, 1e-9);
+        float padding = PADDING_DP * density;
+        double drawWidth = widthPx - padding * 2;
+        double drawHeight = heightPx - padding * 2;
+        double scale = Math.min(drawWidth / spanX, drawHeight / spanY);
+        double offsetX = padding + (drawWidth - spanX * scale) / 2;
+        double offsetY = padding + (drawHeight - spanY * scale) / 2;
+
+        Path path = new Path();
+        float lastX = 0, lastY = 0;
+        float startX = 0, startY = 0;
+        for (int i = 0; i < pointCount; i++) {
+            float x = (float) (offsetX + (latLngs[i * 2 + 1] - minLng) * lngScale * scale);
+            float y = (float) (offsetY + (maxLat - latLngs[i * 2]) * scale);
+            if (i == 0) {
+                path.moveTo(x, y);
+                startX = x;
+                startY = y;
+            } else if (i == pointCount - 1 || Math.abs(x - lastX) >= 1f || Math.abs(y - lastY) >= 1f) {
+                // 1px未満の移動は描画しても見えないので間引く
+                path.lineTo(x, y);
+            } else {
+                continue;
+            }
+            lastX = x;
+            lastY = y;
+        }
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(STROKE_DP * density);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setColor(ROUTE_COLOR);
+        canvas.drawPath(path, paint);
+
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(START_COLOR);
+        canvas.drawCircle(startX, startY, ENDPOINT_RADIUS_DP * density, paint);
+        paint.setColor(END_COLOR);
+        canvas.drawCircle(lastX, lastY, ENDPOINT_RADIUS_DP * density, paint);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(density);
+        paint.setColor(Color.WHITE);
+        canvas.drawCircle(lastX, lastY, ENDPOINT_RADIUS_DP * density, paint);
+
+        return bitmap;
+    }
+
+    private void writePng(Bitmap bitmap, File file) throws IOException {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            throw new IOException("Failed to create cache dir: " + cacheDir);
+        }
+
+        // 書き込み途中のファイルを読まれないよう一時ファイル経由でリネーム
+        File tmp = new File(cacheDir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Failed to write thumbnail: " + file);
+        }
+
+        if (++writesSinceTrim >= 50) {
+            writesSinceTrim = 0;
+            trimDiskCache();
+        }
+    }
+
+    private void trimDiskCache() {
+        File[] files = cacheDir.listFiles();
+        if (files == null || files.length <= MAX_DISK_ENTRIES) return;
+
+        // 最後に参照されたのが古いものから削除。並べ替え中に参照で日時が変わっても順序が崩れないよう先に読んでおく
+        long[] accessed = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            accessed[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(accessed[a], accessed[b]));
+        for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+            files[order[i]].delete();
+        }
+    }
+
+    private File fileFor(String logId, int widthDp, int heightDp) {
+        return new File(cacheDir, cacheKey(logId, widthDp, heightDp) + ".png");
+    }
+
+    private static String cacheKey(String logId, int widthDp, int heightDp) {
+        // ファイル名として安全な文字だけ残す
+        return logId.replaceAll("[^A-Za-z0-9_-]", "_") + "_" + widthDp + "x" + heightDp;
+    }
+
+    static double[] decodePolyline(String encoded) {
+        double[] out = new double[16];
+        int count = 0;
+        int index = 0;
+        int lat = 0;
+        int lng = 0;
+
+        while (index < encoded.length()) {
+            int result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = encoded.charAt(index++) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+            lat += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+            result = 0;
+            shift = 0;
+            do {
+                b = encoded.charAt(index++) - 63;
+                result |= (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20);
+            lng += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+            if (count + 2 > out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            out[count++] = lat / 1e5;
+            out[count++] = lng / 1e5;
+        }
+        return Arrays.copyOf(out, count);
+    }
+}
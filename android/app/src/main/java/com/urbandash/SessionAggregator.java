@@ -0,0 +1,413 @@
+package com.urbandash;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 勤務中セッションの売上・時給を逐次集計する。
+ * 配達完了・休憩開始/終了・走行サマリーなどのイベントごとにO(1)で累計を更新し、
+ * 表示値が変わった時だけスナップショットをリスナー（JSとオーバーレイ）へ配信する。
+ * 直近60分の集計は1分単位のリングバッファで持ち、期限切れ分は1分ごとの更新でまとめて落とす。
+ * すべてのメソッドはメインスレッドから呼ぶこと。
+ */
+public class SessionAggregator {
+    public static final String STATUS_IDLE = "idle";
+    public static final String STATUS_WORKING = "working";
+    public static final String STATUS_BREAK = "break";
+
+    private static final long MINUTE_MS = 60 * 1000;
+    private static final int WINDOW_MINUTES = 60;
+
+    public interface Listener {
+        void onSnapshotChanged(Snapshot snapshot);
+    }
+
+    public static final class ServiceTotals {
+        public long earnings;
+        public int cases;
+        public long busyMs;
+
+        /**
+         * 配達に費やした時間あたりの売上
+         */
+        public long hourlyRate() {
+            return busyMs > 0 ? Math.round(earnings * 3600000.0 / busyMs) : 0;
+        }
+    }
+
+    /**
+     * JSとオーバーレイに配信する集計結果。勤務時間は計算時点の値なので、
+     * 秒単位の表示が必要な場合はsessionStartMs / totalBreakMs / breakStartMsから各自で算出する
+     */
+    public static final class Snapshot {
+        public int version;
+        public long computedAtMs;
+        public String status;
+        public long sessionStartMs;
+        public long totalBreakMs;
+        public long breakStartMs;
+        public long workingMs;
+        public long busyMs;
+        public long earnings;
+        public int cases;
+        public long hourlyRate;
+        public long last60Earnings;
+        public int last60Cases;
+        public long last60HourlyRate;
+        public long todayEarnings;
+        public int todayCases;
+        public long distanceMeters;
+        public final Map<String, ServiceTotals> services = new LinkedHashMap<>();
+
+        /**
+         * 表示に影響する値が同じか（勤務時間のように常に変わる値は比較しない）
+         */
+        boolean sameValues(Snapshot other) {
+            if (other == null) return false;
+            if (!status.equals(other.status) || sessionStartMs != other.sessionStartMs
+                || totalBreakMs != other.totalBreakMs || breakStartMs != other.breakStartMs
+                || earnings != other.earnings || cases != other.cases || hourlyRate != other.hourlyRate
+                || last60Earnings != other.last60Earnings || last60Cases != other.last60Cases
+                || last60HourlyRate != other.last60HourlyRate || todayEarnings != other.todayEarnings
+                || todayCases != other.todayCases || distanceMeters != other.distanceMeters
+                || busyMs != other.busyMs || services.size() != other.services.size()) {
+                return false;
+            }
+            for (Map.Entry<String, ServiceTotals> entry : services.entrySet()) {
+                ServiceTotals theirs = other.services.get(entry.getKey());
+                if (theirs == null || theirs.earnings != entry.getValue().earnings
+                    || theirs.cases != entry.getValue().cases) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static SessionAggregator instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private String status = STATUS_IDLE;
+    private long sessionStartMs = 0;
+    private long totalBreakMs = 0;
+    private long breakStartMs = 0;
+    private long earnings = 0;
+    private int cases = 0;
+    private long busyMs = 0;
+    private long distanceMeters = 0;
+    private final Map<String, ServiceTotals> services = new LinkedHashMap<>();
+
+    // 本日分（端末ローカルの日付が変わった時だけリセットし、勤務の開始では消さない）
+    // todayEarnings/todayCasesは今の勤務の分、todayEarlier*は同じ日に終えた勤務の分
+    private long todayKey = -1;
+    private long todayEarnings = 0;
+    private int todayCases = 0;
+    private long todayEarlierEarnings = 0;
+    private int todayEarlierCases = 0;
+
+    // 直近60分のリングバッファ（1スロット = 1分）
+    private final long[] windowSlotMinute = new long[WINDOW_MINUTES];
+    private final long[] windowSlotEarnings = new long[WINDOW_MINUTES];
+    private final int[] windowSlotCases = new int[WINDOW_MINUTES];
+    private long windowEarnings = 0;
+    private int windowCases = 0;
+    private long windowExpiredThroughMinute = Long.MIN_VALUE;
+
+    private Snapshot lastSnapshot;
+    private int version = 0;
+    private boolean ticking = false;
+
+    private final Runnable minuteTick = new Runnable() {
+        @Override
+        public void run() {
+            long begin = WakeupAuditor.getInstance().begin();
+            long now = System.currentTimeMillis();
+            publishIfChanged(now);
+            if (STATUS_IDLE.equals(status)) {
+                ticking = false;
+            } else {
+                handler.postDelayed(this, MINUTE_MS - (now % MINUTE_MS));
+            }
+            WakeupAuditor.getInstance().end(WakeupAuditor.SOURCE_SESSION_MINUTE, begin);
+        }
+    };
+
+    public static synchronized SessionAggregator getInstance() {
+        if (instance == null) {
+            instance = new SessionAggregator();
+        }
+        return instance;
+    }
+
+    private SessionAggregator() {
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            windowSlotMinute[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+        if (lastSnapshot != null) {
+            listener.onSnapshotChanged(lastSnapshot);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void startSession(long startMs) {
+        // 前の勤務の本日分を引き継いでから、勤務単位の集計を作り直す
+        rollToday(dayKey(System.currentTimeMillis()));
+        todayEarlierEarnings += todayEarnings;
+        todayEarlierCases += todayCases;
+        reset();
+        status = STATUS_WORKING;
+        sessionStartMs = startMs;
+        onEvent();
+    }
+
+    public void endSession(long endMs) {
+        if (STATUS_BREAK.equals(status)) {
+            endBreak(endMs);
+        }
+        status = STATUS_IDLE;
+        onEvent();
+    }
+
+    public void startBreak(long startMs) {
+        if (!STATUS_WORKING.equals(status)) return;
+        status = STATUS_BREAK;
+        breakStartMs = startMs;
+        onEvent();
+    }
+
+    public void endBreak(long endMs) {
+        if (!STATUS_BREAK.equals(status)) return;
+        totalBreakMs += Math.max(0, endMs - breakStartMs);
+        breakStartMs = 0;
+        status = STATUS_WORKING;
+        onEvent();
+    }
+
+    public void recordDelivery(String service, long reward, long startMs, long finishMs) {
+        addDelivery(service, reward, startMs, finishMs);
+        onEvent();
+    }
+
+    /**
+     * 走行ログ保存時の距離を加算する
+     */
+    public void recordTracking(long meters) {
+        if (meters <= 0) return;
+        distanceMeters += meters;
+        onEvent();
+    }
+
+    /**
+     * アプリ再起動時などに保存済みのセッションから集計を作り直す（この時だけO(件数)）。
+     * 今の勤務の本日分も作り直す。同じ日に終えた勤務の分はプロセス内に残っている分だけ引き継ぐ
+     */
+    public void restore(long startMs, long restoredBreakMs, long currentBreakStartMs, List<long[]> deliveries,
+                        List<String> deliveryServices, long restoredDistanceMeters) {
+        reset();
+        status = currentBreakStartMs > 0 ? STATUS_BREAK : STATUS_WORKING;
+        sessionStartMs = startMs;
+        totalBreakMs = restoredBreakMs;
+        breakStartMs = currentBreakStartMs;
+        distanceMeters = restoredDistanceMeters;
+        // deliveries: {reward, startMs, finishMs}
+        for (int i = 0; i < deliveries.size(); i++) {
+            long[] d = deliveries.get(i);
+            addDelivery(deliveryServices.get(i), d[0], d[1], d[2]);
+        }
+        onEvent();
+    }
+
+    public Snapshot getSnapshot() {
+        if (lastSnapshot == null) {
+            lastSnapshot = buildSnapshot(System.currentTimeMillis());
+        }
+        return lastSnapshot;
+    }
+
+    private void addDelivery(String service, long reward, long startMs, long finishMs) {
+        String name = service == null || service.isEmpty() ? "その他" : service;
+        long duration = finishMs > startMs ? finishMs - startMs : 0;
+
+        earnings += reward;
+        cases++;
+        busyMs += duration;
+
+        ServiceTotals totals = services.get(name);
+        if (totals == null) {
+            totals = new ServiceTotals();
+            services.put(name, totals);
+        }
+        totals.earnings += reward;
+        totals.cases++;
+        totals.busyMs += duration;
+
+        long dayKey = dayKey(finishMs);
+        rollToday(dayKey(System.currentTimeMillis()));
+        if (dayKey == todayKey) {
+            todayEarnings += reward;
+            todayCases++;
+        }
+
+        long minute = finishMs / MINUTE_MS;
+        long nowMinute = System.currentTimeMillis() / MINUTE_MS;
+        if (minute > nowMinute - WINDOW_MINUTES && minute <= nowMinute) {
+            int slot = (int) (minute % WINDOW_MINUTES);
+            if (windowSlotMinute[slot] != minute) {
+                windowEarnings -= windowSlotEarnings[slot];
+                windowCases -= windowSlotCases[slot];
+                windowSlotMinute[slot] = minute;
+                windowSlotEarnings[slot] = 0;
+                windowSlotCases[slot] = 0;
+            }
+            windowSlotEarnings[slot] += reward;
+            windowSlotCases[slot]++;
+            windowEarnings += reward;
+            windowCases++;
+        }
+    }
+
+    private void onEvent() {
+        publishIfChanged(System.currentTimeMillis());
+        if (!STATUS_IDLE.equals(status) && !ticking) {
+            ticking = true;
+            long now = System.currentTimeMillis();
+            handler.postDelayed(minuteTick, MINUTE_MS - (now % MINUTE_MS));
+        }
+    }
+
+    private void publishIfChanged(long nowMs) {
+        Snapshot snapshot = buildSnapshot(nowMs);
+        if (snapshot.sameValues(lastSnapshot)) {
+            return;
+        }
+        snapshot.version = ++version;
+        lastSnapshot = snapshot;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            try {
+                listener.onSnapshotChanged(snapshot);
+            } catch (Exception e) {
+                android.util.Log.e("SessionAggregator", "Error notifying snapshot listener", e);
+            }
+        }
+    }
+
+    private Snapshot buildSnapshot(long nowMs) {
+        expireWindow(nowMs / MINUTE_MS);
+        rollToday(dayKey(nowMs));
+
+        Snapshot s = new Snapshot();
+        s.version = version;
+        s.computedAtMs = nowMs;
+        s.status = status;
+        s.sessionStartMs = sessionStartMs;
+        s.totalBreakMs = totalBreakMs;
+        s.breakStartMs = breakStartMs;
+        s.workingMs = workingMs(nowMs);
+        s.busyMs = busyMs;
+        s.earnings = earnings;
+        s.cases = cases;
+        s.hourlyRate = s.workingMs > 0 ? Math.round(earnings * 3600000.0 / s.workingMs) : 0;
+        s.last60Earnings = windowEarnings;
+        s.last60Cases = windowCases;
+        // 勤務開始から60分未満なら実際の勤務時間で割る
+        long windowMs = Math.min(WINDOW_MINUTES * MINUTE_MS, s.workingMs);
+        s.last60HourlyRate = windowMs > 0 ? Math.round(windowEarnings * 3600000.0 / windowMs) : 0;
+        s.todayEarnings = todayEarlierEarnings + todayEarnings;
+        s.todayCases = todayEarlierCases + todayCases;
+        s.distanceMeters = distanceMeters;
+        for (Map.Entry<String, ServiceTotals> entry : services.entrySet()) {
+            ServiceTotals copy = new ServiceTotals();
+            copy.earnings = entry.getValue().earnings;
+            copy.cases = entry.getValue().cases;
+            copy.busyMs = entry.getValue().busyMs;
+            s.services.put(entry.getKey(), copy);
+        }
+        return s;
+    }
+
+    private long workingMs(long nowMs) {
+        if (STATUS_IDLE.equals(status) && lastSnapshot != null) {
+            return lastSnapshot.workingMs;
+        }
+        if (sessionStartMs <= 0) return 0;
+        long breakMs = totalBreakMs;
+        if (STATUS_BREAK.equals(status) && breakStartMs > 0) {
+            breakMs += nowMs - breakStartMs;
+        }
+        return Math.max(0, nowMs - sessionStartMs - breakMs);
+    }
+
+    /**
+     * 直近60分から外れたスロットを差し引く。前回からの経過分だけ（最大60スロット）見ればよい
+     */
+    private void expireWindow(long nowMinute) {
+        long expireThrough = nowMinute - WINDOW_MINUTES;
+        if (windowExpiredThroughMinute >= expireThrough) return;
+        long from = Math.max(windowExpiredThroughMinute + 1, expireThrough - WINDOW_MINUTES + 1);
+        for (long minute = from; minute <= expireThrough; minute++) {
+            int slot = (int) Math.floorMod(minute, (long) WINDOW_MINUTES);
+            if (windowSlotMinute[slot] == minute) {
+                windowEarnings -= windowSlotEarnings[slot];
+                windowCases -= windowSlotCases[slot];
+                windowSlotMinute[slot] = Long.MIN_VALUE;
+                windowSlotEarnings[slot] = 0;
+                windowSlotCases[slot] = 0;
+            }
+        }
+        windowExpiredThroughMinute = expireThrough;
+    }
+
+    private void rollToday(long key) {
+        if (key != todayKey) {
+            todayKey = key;
+            todayEarnings = 0;
+            todayCases = 0;
+            todayEarlierEarnings = 0;
+            todayEarlierCases = 0;
+        }
+    }
+
+    private void reset() {
+        status = STATUS_IDLE;
+        sessionStartMs = 0;
+        totalBreakMs = 0;
+        breakStartMs = 0;
+        earnings = 0;
+        cases = 0;
+        busyMs = 0;
+        distanceMeters = 0;
+        services.clear();
+        // 本日分は今の勤務の分だけ消す（日付の判定と終えた勤務の分はrollTodayに任せる）
+        todayEarnings = 0;
+        todayCases = 0;
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            windowSlotMinute[i] = Long.MIN_VALUE;
+            windowSlotEarnings[i] = 0;
+            windowSlotCases[i] = 0;
+        }
+        windowEarnings = 0;
+        windowCases = 0;
+        windowExpiredThroughMinute = Long.MIN_VALUE;
+    }
+
+    private static long dayKey(long ms) {
+        return (ms + TimeZone.getDefault().getOffset(ms)) / (24 * 60 * MINUTE_MS);
+    }
+}
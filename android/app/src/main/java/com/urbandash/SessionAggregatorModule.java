@@ -0,0 +1,164 @@
+package com.urbandash;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SessionAggregatorをJSへ公開する。
+ * イベントはメインスレッドに投げて集計し、値が変わった時だけSessionSnapshotChangedを送る。
+ */
+public class SessionAggregatorModule extends ReactContextBaseJavaModule implements SessionAggregator.Listener {
+    private static final String MODULE_NAME = "SessionAggregator";
+    private static final String SNAPSHOT_EVENT = "SessionSnapshotChanged";
+
+    private final ReactApplicationContext reactContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public SessionAggregatorModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        mainHandler.post(() -> SessionAggregator.getInstance().addListener(this));
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void startSession(double startMs) {
+        mainHandler.post(() -> SessionAggregator.getInstance().startSession((long) startMs));
+    }
+
+    @ReactMethod
+    public void endSession(double endMs) {
+        mainHandler.post(() -> SessionAggregator.getInstance().endSession((long) endMs));
+    }
+
+    @ReactMethod
+    public void startBreak(double startMs) {
+        mainHandler.post(() -> SessionAggregator.getInstance().startBreak((long) startMs));
+    }
+
+    @ReactMethod
+    public void endBreak(double endMs) {
+        mainHandler.post(() -> SessionAggregator.getInstance().endBreak((long) endMs));
+    }
+
+    // delivery: { service, reward, startTime, finishTime }
+    @ReactMethod
+    public void recordDelivery(ReadableMap delivery) {
+        final String service = delivery.hasKey("service") ? delivery.getString("service") : null;
+        final long reward = delivery.hasKey("reward") ? (long) delivery.getDouble("reward") : 0;
+        final long finishTime = delivery.hasKey("finishTime") ? (long) delivery.getDouble("finishTime") : System.currentTimeMillis();
+        final long startTime = delivery.hasKey("startTime") ? (long) delivery.getDouble("startTime") : finishTime;
+        mainHandler.post(() -> SessionAggregator.getInstance().recordDelivery(service, reward, startTime, finishTime));
+    }
+
+    @ReactMethod
+    public void recordTracking(double distanceMeters) {
+        mainHandler.post(() -> SessionAggregator.getInstance().recordTracking(Math.round(distanceMeters)));
+    }
+
+    // session: { startTime, totalBreakMs, breakStartTime?, distanceMeters?, deliveries: [{ service, reward, startTime, finishTime }] }
+    @ReactMethod
+    public void restoreSession(ReadableMap session) {
+        final long startTime = (long) session.getDouble("startTime");
+        final long totalBreakMs = session.hasKey("totalBreakMs") ? (long) session.getDouble("totalBreakMs") : 0;
+        final long breakStartTime = session.hasKey("breakStartTime") && !session.isNull("breakStartTime")
+            ? (long) session.getDouble("breakStartTime") : 0;
+        final long distanceMeters = session.hasKey("distanceMeters") ? (long) session.getDouble("distanceMeters") : 0;
+
+        final List<long[]> deliveries = new ArrayList<>();
+        final List<String> services = new ArrayList<>();
+        ReadableArray items = session.hasKey("deliveries") ? session.getArray("deliveries") : null;
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                ReadableMap item = items.getMap(i);
+                long finishTime = (long) item.getDouble("finishTime");
+                long start = item.hasKey("startTime") ? (long) item.getDouble("startTime") : finishTime;
+                deliveries.add(new long[] { (long) item.getDouble("reward"), start, finishTime });
+                services.add(item.hasKey("service") ? item.getString("service") : null);
+            }
+        }
+
+        mainHandler.post(() -> SessionAggregator.getInstance().restore(
+            startTime, totalBreakMs, breakStartTime, deliveries, services, distanceMeters));
+    }
+
+    @ReactMethod
+    public void getSnapshot(Promise promise) {
+        mainHandler.post(() -> {
+            try {
+                promise.resolve(toWritableMap(SessionAggregator.getInstance().getSnapshot()));
+            } catch (Exception e) {
+                promise.reject("SESSION_AGGREGATOR_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void onSnapshotChanged(SessionAggregator.Snapshot snapshot) {
+        if (!reactContext.hasActiveReactInstance()) return;
+        try {
+            reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(SNAPSHOT_EVENT, toWritableMap(snapshot));
+        } catch (Exception e) {
+            android.util.Log.e("SessionAggregator", "Error emitting snapshot", e);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        mainHandler.post(() -> SessionAggregator.getInstance().removeListener(this));
+        super.invalidate();
+    }
+
+    private static WritableMap toWritableMap(SessionAggregator.Snapshot snapshot) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("version", snapshot.version);
+        map.putDouble("computedAt", snapshot.computedAtMs);
+        map.putString("status", snapshot.status);
+        map.putDouble("sessionStartTime", snapshot.sessionStartMs);
+        map.putDouble("totalBreakMs", snapshot.totalBreakMs);
+        map.putDouble("breakStartTime", snapshot.breakStartMs);
+        map.putDouble("workingMs", snapshot.workingMs);
+        map.putDouble("busyMs", snapshot.busyMs);
+        map.putDouble("earnings", snapshot.earnings);
+        map.putInt("cases", snapshot.cases);
+        map.putDouble("hourlyRate", snapshot.hourlyRate);
+        map.putDouble("last60Earnings", snapshot.last60Earnings);
+        map.putInt("last60Cases", snapshot.last60Cases);
+        map.putDouble("last60HourlyRate", snapshot.last60HourlyRate);
+        map.putDouble("todayEarnings", snapshot.todayEarnings);
+        map.putInt("todayCases", snapshot.todayCases);
+        map.putDouble("distanceMeters", snapshot.distanceMeters);
+
+        WritableMap services = Arguments.createMap();
+        for (Map.Entry<String, SessionAggregator.ServiceTotals> entry : snapshot.services.entrySet()) {
+            WritableMap totals = Arguments.createMap();
+            totals.putDouble("earnings", entry.getValue().earnings);
+            totals.putInt("cases", entry.getValue().cases);
+            totals.putDouble("busyMs", entry.getValue().busyMs);
+            totals.putDouble("hourlyRate", entry.getValue().hourlyRate());
+            services.putMap(entry.getKey(), totals);
+        }
+        map.putMap("services", services);
+        return map;
+    }
+}
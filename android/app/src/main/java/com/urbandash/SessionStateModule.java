@@ -0,0 +1,105 @@
+package com.urbandash;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * SessionStateStore（メモリマップした勤務状態ファイル）をJSへ公開する。
+ * 読み込みは同期メソッドにして、WorkContextが初回描画前に状態を取れるようにする。
+ */
+public class SessionStateModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "SessionState";
+
+    private final ReactApplicationContext reactContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public SessionStateModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getStateSync() {
+        SessionStateStore store = SessionStateStore.getInstance(reactContext);
+        if (store == null) return null;
+        return toMap(store.read());
+    }
+
+    // session: { sessionId, status: 'working' | 'break', startTime, totalBreakMs, breakStartTime? }（実時刻）
+    @ReactMethod
+    public void saveSession(ReadableMap session, Promise promise) {
+        SessionStateStore store = SessionStateStore.getInstance(reactContext);
+        if (store == null) {
+            promise.reject("SESSION_STATE_ERROR", "Session state file is unavailable");
+            return;
+        }
+        try {
+            String status = session.hasKey("status") ? session.getString("status") : "working";
+            store.updateSession(
+                session.hasKey("sessionId") ? session.getString("sessionId") : "",
+                "break".equals(status) ? SessionStateStore.STATUS_BREAK : SessionStateStore.STATUS_WORKING,
+                (long) session.getDouble("startTime"),
+                session.hasKey("totalBreakMs") ? (long) session.getDouble("totalBreakMs") : 0,
+                session.hasKey("breakStartTime") && !session.isNull("breakStartTime")
+                    ? (long) session.getDouble("breakStartTime") : 0
+            );
+            promise.resolve(true);
+        } catch (Exception e) {
+            android.util.Log.e("SessionState", "Error saving session state", e);
+            promise.reject("SESSION_STATE_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void clearSession(Promise promise) {
+        SessionStateStore store = SessionStateStore.getInstance(reactContext);
+        if (store != null) {
+            store.clearSession();
+        }
+        // 勤務終了では進行中だった配達と経路の区間も破棄する（オーバーレイを閉じただけでは残す）
+        mainHandler.post(OverlayModule.OverlayService::onWorkEnded);
+        promise.resolve(true);
+    }
+
+    private static WritableMap toMap(SessionStateStore.State state) {
+        WritableMap map = Arguments.createMap();
+        String status = "idle";
+        if (state.status == SessionStateStore.STATUS_WORKING) {
+            status = "working";
+        } else if (state.status == SessionStateStore.STATUS_BREAK) {
+            status = "break";
+        }
+        map.putString("status", status);
+        map.putString("sessionId", state.sessionId);
+        map.putDouble("startTime", state.sessionStartMs);
+        map.putDouble("totalBreakMs", state.totalBreakMs);
+        map.putDouble("breakStartTime", state.breakStartMs);
+        map.putDouble("updatedAt", state.updatedAtMs);
+
+        WritableArray deliveries = Arguments.createArray();
+        for (SessionStateStore.DeliveryAnchor anchor : state.deliveries) {
+            WritableMap delivery = Arguments.createMap();
+            delivery.putInt("number", anchor.number);
+            delivery.putDouble("startTime", anchor.startTimeMs);
+            delivery.putString("service", anchor.service);
+            delivery.putString("reward", anchor.reward);
+            deliveries.pushMap(delivery);
+        }
+        map.putArray("activeDeliveries", deliveries);
+        return map;
+    }
+}
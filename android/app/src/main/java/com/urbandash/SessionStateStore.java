@@ -0,0 +1,342 @@
+package com.urbandash;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 勤務セッション・休憩・進行中の配達の起点時刻を固定レイアウトのファイルに保持する。
+ * ファイルはメモリマップしておき、更新は2KB弱のスロットへの上書きだけで済ませる。
+ * スロットは2面（A/B）あり、書き込みは常に非アクティブ側へ行ってから連番とCRCを書くので、
+ * 書き込み途中でプロセスが落ちても直前の状態が残る。
+ * プロセスが強制終了されても書き込んだ内容はページキャッシュに残るため、次回起動時にそのまま復元できる。
+ *
+ * ファイル: filesDir/session_state.bin
+ *   0: magic int, 4: version int（64バイトまでヘッダー）
+ *   64 / 64 + SLOT_SIZE: スロットA / B
+ * スロット:
+ *   0: sequence long, 8: crc int（16バイト目からスロット末尾までのCRC32）
+ *   16: status byte, 24: sessionStartMs, 32: totalBreakMs, 40: breakStartMs, 48: updatedAtMs
+ *   56: sessionId（64バイト固定長文字列）, 120: nextDeliveryNumber int, 124: deliveryCount int
+ *   128: 配達 × MAX_DELIVERIES（各DELIVERY_SIZEバイト）
+ * 配達:
+ *   0: number int, 8: startTimeMs long, 16: service（32バイト）, 48: reward, 64: estimatedTime, 80: distance（各16バイト）
+ * 時刻はすべて実時刻（エポックミリ秒）。
+ */
+public class SessionStateStore {
+    public static final int STATUS_IDLE = 0;
+    public static final int STATUS_WORKING = 1;
+    public static final int STATUS_BREAK = 2;
+
+    // スロットに収まる数（128 + 16 × 96 = 1664バイト）。超えた分は保存せずログに残す
+    public static final int MAX_DELIVERIES = 16;
+
+    private static final String FILE_NAME = "session_state.bin";
+    private static final int MAGIC = 0x55445353; // "UDSS"
+    private static final int VERSION = 2; // 2: スロットを拡大し配達を16件まで
+    private static final int V1_SLOT_SIZE = 1024;
+    private static final int FILE_SIZE = 4096;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 2016; // ヘッダーと2面でちょうどFILE_SIZE
+    private static final int PAYLOAD_OFFSET = 16;
+
+    private static final int OFF_STATUS = 16;
+    private static final int OFF_SESSION_START = 24;
+    private static final int OFF_TOTAL_BREAK = 32;
+    private static final int OFF_BREAK_START = 40;
+    private static final int OFF_UPDATED_AT = 48;
+    private static final int OFF_SESSION_ID = 56;
+    private static final int SESSION_ID_SIZE = 64;
+    private static final int OFF_NEXT_NUMBER = 120;
+    private static final int OFF_DELIVERY_COUNT = 124;
+    private static final int OFF_DELIVERIES = 128;
+
+    private static final int DELIVERY_SIZE = 96;
+    private static final int D_NUMBER = 0;
+    private static final int D_START = 8;
+    private static final int D_SERVICE = 16;
+    private static final int D_SERVICE_SIZE = 32;
+    private static final int D_REWARD = 48;
+    private static final int D_ESTIMATED_TIME = 64;
+    private static final int D_DISTANCE = 80;
+    private static final int D_FIELD_SIZE = 16;
+
+    public static final class DeliveryAnchor {
+        public int number;
+        public long startTimeMs;
+        public String service = "";
+        public String reward = "";
+        public String estimatedTime = "";
+        public String distance = "";
+    }
+
+    public static final class State {
+        public int status = STATUS_IDLE;
+        public String sessionId = "";
+        public long sessionStartMs;
+        public long totalBreakMs;
+        public long breakStartMs;
+        public long updatedAtMs;
+        public int nextDeliveryNumber = 1;
+        public final List<DeliveryAnchor> deliveries = new ArrayList<>();
+
+        public boolean hasActiveSession() {
+            return status != STATUS_IDLE && sessionStartMs > 0;
+        }
+
+        State copy() {
+            State s = new State();
+            s.status = status;
+            s.sessionId = sessionId;
+            s.sessionStartMs = sessionStartMs;
+            s.totalBreakMs = totalBreakMs;
+            s.breakStartMs = breakStartMs;
+            s.updatedAtMs = updatedAtMs;
+            s.nextDeliveryNumber = nextDeliveryNumber;
+            s.deliveries.addAll(deliveries);
+            return s;
+        }
+    }
+
+    private static SessionStateStore instance;
+
+    private final MappedByteBuffer mapped;
+    private final byte[] scratch = new byte[SLOT_SIZE];
+    private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private State state = new State();
+    private long sequence = 0;
+    private int activeSlot = -1;
+
+    public static synchronized SessionStateStore getInstance(Context context) {
+        if (instance == null) {
+            try {
+                instance = new SessionStateStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+            } catch (Exception e) {
+                android.util.Log.e("SessionStateStore", "Error opening session state file", e);
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    SessionStateStore(File file) throws java.io.IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != FILE_SIZE) {
+                raf.setLength(FILE_SIZE);
+            }
+            // マップはチャネルを閉じても有効
+            mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+
+        int version = mapped.getInt(0) == MAGIC ? mapped.getInt(4) : 0;
+        if (version == VERSION) {
+            load(SLOT_SIZE);
+            return;
+        }
+        // 旧形式（スロット1KB）は読み込んでから新しい形式で書き直す
+        if (version == 1) {
+            load(V1_SLOT_SIZE);
+        }
+        for (int i = 0; i < FILE_SIZE; i++) {
+            mapped.put(i, (byte) 0);
+        }
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, VERSION);
+        if (version == 1) {
+            activeSlot = -1;
+            commit();
+            android.util.Log.d("SessionStateStore", "Migrated session state file from version 1");
+        }
+    }
+
+    /**
+     * 起動直後（JSバンドルの読み込み前）に、保存済みのセッション時刻でネイティブの集計を再開する。
+     * 売上はJS側がFirestoreから復元するまで0件のまま。メインスレッドから呼ぶこと
+     */
+    public static void restoreSessionClock(Context context) {
+        SessionStateStore store = getInstance(context);
+        if (store == null) return;
+        State saved = store.read();
+        if (!saved.hasActiveSession()) return;
+        long breakStart = saved.status == STATUS_BREAK ? saved.breakStartMs : 0;
+        SessionAggregator.getInstance().restore(saved.sessionStartMs, saved.totalBreakMs, breakStart,
+            new ArrayList<>(), new ArrayList<>(), 0);
+        android.util.Log.d("SessionStateStore", "Restored session clock for " + saved.sessionId);
+    }
+
+    public synchronized State read() {
+        return state.copy();
+    }
+
+    public synchronized void updateSession(String sessionId, int status, long sessionStartMs, long totalBreakMs, long breakStartMs) {
+        state.sessionId = sessionId != null ? sessionId : "";
+        state.status = status;
+        state.sessionStartMs = sessionStartMs;
+        state.totalBreakMs = totalBreakMs;
+        state.breakStartMs = breakStartMs;
+        commit();
+    }
+
+    /**
+     * 勤務終了。進行中だった配達の起点も一緒に消す（次の勤務で復元しない）
+     */
+    public synchronized void clearSession() {
+        state.sessionId = "";
+        state.status = STATUS_IDLE;
+        state.sessionStartMs = 0;
+        state.totalBreakMs = 0;
+        state.breakStartMs = 0;
+        state.deliveries.clear();
+        state.nextDeliveryNumber = 1;
+        commit();
+    }
+
+    public synchronized void updateDeliveries(List<DeliveryTracker.ActiveDelivery> active, int nextDeliveryNumber) {
+        state.deliveries.clear();
+        for (int i = 0; i < active.size() && i < MAX_DELIVERIES; i++) {
+            DeliveryTracker.ActiveDelivery delivery = active.get(i);
+            DeliveryAnchor anchor = new DeliveryAnchor();
+            anchor.number = delivery.number;
+            anchor.startTimeMs = delivery.startTimeMs;
+            anchor.service = delivery.service;
+            anchor.reward = delivery.reward;
+            anchor.estimatedTime = delivery.estimatedTime;
+            anchor.distance = delivery.distance;
+            state.deliveries.add(anchor);
+        }
+        if (active.size() > MAX_DELIVERIES) {
+            android.util.Log.e("SessionStateStore", "Only " + MAX_DELIVERIES + " of " + active.size()
+                + " active deliveries are saved; the rest will not be restored");
+        }
+        state.nextDeliveryNumber = nextDeliveryNumber;
+        commit();
+    }
+
+    private void load(int slotSize) {
+        long bestSequence = 0;
+        int bestSlot = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int base = HEADER_SIZE + slot * slotSize;
+            long slotSequence = mapped.getLong(base);
+            if (slotSequence <= bestSequence) continue;
+            copySlot(base, slotSize);
+            if (checksum(slotSize) == mapped.getInt(base + 8)) {
+                bestSequence = slotSequence;
+                bestSlot = slot;
+            } else {
+                android.util.Log.d("SessionStateStore", "Ignoring slot " + slot + " with bad checksum");
+            }
+        }
+        if (bestSlot < 0) return;
+
+        copySlot(HEADER_SIZE + bestSlot * slotSize, slotSize);
+        State s = new State();
+        s.status = scratch[OFF_STATUS];
+        s.sessionStartMs = scratchBuffer.getLong(OFF_SESSION_START);
+        s.totalBreakMs = scratchBuffer.getLong(OFF_TOTAL_BREAK);
+        s.breakStartMs = scratchBuffer.getLong(OFF_BREAK_START);
+        s.updatedAtMs = scratchBuffer.getLong(OFF_UPDATED_AT);
+        s.sessionId = readString(OFF_SESSION_ID, SESSION_ID_SIZE);
+        s.nextDeliveryNumber = Math.max(1, scratchBuffer.getInt(OFF_NEXT_NUMBER));
+        int count = Math.min(MAX_DELIVERIES, Math.max(0, scratchBuffer.getInt(OFF_DELIVERY_COUNT)));
+        for (int i = 0; i < count; i++) {
+            int base = OFF_DELIVERIES + i * DELIVERY_SIZE;
+            DeliveryAnchor anchor = new DeliveryAnchor();
+            anchor.number = scratchBuffer.getInt(base + D_NUMBER);
+            anchor.startTimeMs = scratchBuffer.getLong(base + D_START);
+            anchor.service = readString(base + D_SERVICE, D_SERVICE_SIZE);
+            anchor.reward = readString(base + D_REWARD, D_FIELD_SIZE);
+            anchor.estimatedTime = readString(base + D_ESTIMATED_TIME, D_FIELD_SIZE);
+            anchor.distance = readString(base + D_DISTANCE, D_FIELD_SIZE);
+            s.deliveries.add(anchor);
+        }
+        state = s;
+        sequence = bestSequence;
+        activeSlot = bestSlot;
+    }
+
+    private void commit() {
+        state.updatedAtMs = System.currentTimeMillis();
+
+        java.util.Arrays.fill(scratch, (byte) 0);
+        scratch[OFF_STATUS] = (byte) state.status;
+        scratchBuffer.putLong(OFF_SESSION_START, state.sessionStartMs);
+        scratchBuffer.putLong(OFF_TOTAL_BREAK, state.totalBreakMs);
+        scratchBuffer.putLong(OFF_BREAK_START, state.breakStartMs);
+        scratchBuffer.putLong(OFF_UPDATED_AT, state.updatedAtMs);
+        writeString(OFF_SESSION_ID, SESSION_ID_SIZE, state.sessionId);
+        scratchBuffer.putInt(OFF_NEXT_NUMBER, state.nextDeliveryNumber);
+        scratchBuffer.putInt(OFF_DELIVERY_COUNT, state.deliveries.size());
+        for (int i = 0; i < state.deliveries.size(); i++) {
+            DeliveryAnchor anchor = state.deliveries.get(i);
+            int base = OFF_DELIVERIES + i * DELIVERY_SIZE;
+            scratchBuffer.putInt(base + D_NUMBER, anchor.number);
+            scratchBuffer.putLong(base + D_START, anchor.startTimeMs);
+            writeString(base + D_SERVICE, D_SERVICE_SIZE, anchor.service);
+            writeString(base + D_REWARD, D_FIELD_SIZE, anchor.reward);
+            writeString(base + D_ESTIMATED_TIME, D_FIELD_SIZE, anchor.estimatedTime);
+            writeString(base + D_DISTANCE, D_FIELD_SIZE, anchor.distance);
+        }
+
+        sequence++;
+        scratchBuffer.putLong(0, sequence);
+        scratchBuffer.putInt(8, checksum(SLOT_SIZE));
+
+        // 非アクティブ側のスロットへ本体を書いてから、連番とCRCを書いて有効化する
+        int target = activeSlot == 0 ? 1 : 0;
+        int base = slotOffset(target);
+        for (int i = PAYLOAD_OFFSET; i < SLOT_SIZE; i += 8) {
+            mapped.putLong(base + i, scratchBuffer.getLong(i));
+        }
+        mapped.putInt(base + 8, scratchBuffer.getInt(8));
+        mapped.putLong(base, sequence);
+        activeSlot = target;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private void copySlot(int base, int slotSize) {
+        java.util.Arrays.fill(scratch, (byte) 0);
+        for (int i = 0; i < slotSize; i += 8) {
+            scratchBuffer.putLong(i, mapped.getLong(base + i));
+        }
+    }
+
+    private int checksum(int slotSize) {
+        crc.reset();
+        crc.update(scratch, PAYLOAD_OFFSET, slotSize - PAYLOAD_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    // 固定長文字列: 先頭2バイトが長さ、続いてUTF-8（収まらない分は文字単位で切り詰める）
+    private void writeString(int offset, int size, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int max = size - 2;
+        if (bytes.length > max) {
+            String truncated = value;
+            while (bytes.length > max && !truncated.isEmpty()) {
+                truncated = truncated.substring(0, truncated.length() - 1);
+                bytes = truncated.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        scratchBuffer.putShort(offset, (short) bytes.length);
+        System.arraycopy(bytes, 0, scratch, offset + 2, bytes.length);
+    }
+
+    private String readString(int offset, int size) {
+        int length = scratchBuffer.getShort(offset);
+        if (length <= 0 || length > size - 2) return "";
+        return new String(scratch, offset + 2, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,406 @@
+package com.urbandash;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 配達のピックアップ地点・ドロップ地点を固定サイズの緯度経度グリッドに集計する空間インデックス。
+ * ディスク上は1配達地点 = 28バイトの固定長レコードを追記するだけのログで、
+ * 起動時にログを読み直してセル → (種別, サービス, 時間帯) ごとの集計をメモリ上に復元する。
+ * 集計はすべて加算のみなので、配達完了ごとの更新もビューポート検索もネットワークなしで済む。
+ * スレッドセーフではないので呼び出し側で単一スレッドから使うこと。
+ */
+public class SpatialGridIndex {
+    public static final int KIND_PICKUP = 0;
+    public static final int KIND_DROPOFF = 1;
+
+    public static final int GROUP_BY_CELL = 0;
+    public static final int GROUP_BY_HOUR = 1;
+    public static final int GROUP_BY_SERVICE = 2;
+
+    public static final int ANY = -1;
+
+    // 約220m四方（東京付近）。セル番号は緯度経度をこの幅で割った整数
+    static final double CELL_LAT_DEG = 0.002;
+    static final double CELL_LNG_DEG = 0.0025;
+
+    private static final int RECORD_MAGIC = 0x55445349; // "UDSI"
+    private static final int RECORD_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 28;
+    private static final String RECORDS_FILE = "records.bin";
+    private static final String SERVICES_FILE = "services.txt";
+
+    /**
+     * 集計値。稼ぎ（円）、所要時間（秒）、件数
+     */
+    public static final class Totals {
+        public long earnings;
+        public long durationSeconds;
+        public int count;
+
+        void add(long earnings, long durationSeconds) {
+            this.earnings += earnings;
+            this.durationSeconds += durationSeconds;
+            this.count++;
+        }
+
+        void add(Totals other) {
+            this.earnings += other.earnings;
+            this.durationSeconds += other.durationSeconds;
+            this.count += other.count;
+        }
+
+        public double earningsPerHour() {
+            return durationSeconds > 0 ? earnings * 3600.0 / durationSeconds : 0;
+        }
+    }
+
+    /**
+     * 検索結果の1行。groupByに応じてセル座標・時間帯・サービスのいずれかが埋まる
+     */
+    public static final class Row {
+        public final int latIndex;
+        public final int lngIndex;
+        public final int hour;
+        public final String service;
+        public final Totals totals = new Totals();
+
+        Row(int latIndex, int lngIndex, int hour, String service) {
+            this.latIndex = latIndex;
+            this.lngIndex = lngIndex;
+            this.hour = hour;
+            this.service = service;
+        }
+
+        public double centerLatitude() {
+            return (latIndex + 0.5) * CELL_LAT_DEG;
+        }
+
+        public double centerLongitude() {
+            return (lngIndex + 0.5) * CELL_LNG_DEG;
+        }
+    }
+
+    /**
+     * 1セル分の集計。キーは (種別 << 16) | (サービスID << 5) | 時間帯
+     */
+    private static final class Cell {
+        final int latIndex;
+        final int lngIndex;
+        final Map<Integer, Totals> buckets = new HashMap<>();
+
+        Cell(int latIndex, int lngIndex) {
+            this.latIndex = latIndex;
+            this.lngIndex = lngIndex;
+        }
+    }
+
+    private final File dir;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final List<String> services = new ArrayList<>();
+    private final Map<String, Integer> serviceIds = new HashMap<>();
+    private DataOutputStream out;
+    private long recordCount = 0;
+
+    public SpatialGridIndex(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * ディスク上のログを読み込んでメモリ上の集計を復元する
+     */
+    public void load() throws IOException {
+        // ファイルを作り直すことがあるので追記用のストリームは開き直す
+        close();
+        cells.clear();
+        services.clear();
+        serviceIds.clear();
+        recordCount = 0;
+
+        File servicesFile = new File(dir, SERVICES_FILE);
+        if (servicesFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(servicesFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    serviceIds.put(line, services.size());
+                    services.add(line);
+                }
+            }
+        }
+
+        File recordsFile = new File(dir, RECORDS_FILE);
+        if (!recordsFile.exists()) return;
+
+        // ヘッダーの書き込み中に終了した場合はレコードがないので作り直す（次の追記でヘッダーから書く）
+        if (recordsFile.length() < HEADER_SIZE) {
+            android.util.Log.d("SpatialGridIndex", "Discarding records file with a truncated header");
+            if (!recordsFile.delete()) {
+                throw new IOException("Failed to delete truncated spatial index: " + recordsFile);
+            }
+            return;
+        }
+
+        // 書き込み途中で終了した末尾の不完全なレコードを切り詰め、以降の追記位置を揃える
+        long validLength = recordsFile.length() - HEADER_SIZE;
+        if (validLength > 0 && validLength % RECORD_SIZE != 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(recordsFile, "rw")) {
+                raf.setLength(HEADER_SIZE + validLength / RECORD_SIZE * RECORD_SIZE);
+            }
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(recordsFile)))) {
+            if (in.readInt() != RECORD_MAGIC || in.readInt() != RECORD_VERSION) {
+                in.close();
+                // 読めないファイルは退避して空のインデックスから始める（毎回の読み込みで失敗し続けないように）
+                File corrupt = new File(dir, RECORDS_FILE + ".corrupt");
+                corrupt.delete();
+                if (!recordsFile.renameTo(corrupt)) {
+                    throw new IOException("Unsupported spatial index format");
+                }
+                android.util.Log.e("SpatialGridIndex", "Moved unreadable records file to " + corrupt.getName());
+                return;
+            }
+            byte[] record = new byte[RECORD_SIZE];
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                applyRecord(record);
+            }
+        }
+    }
+
+    /**
+     * 配達地点を1件追加してディスクへ追記する
+     */
+    public void add(int kind, double latitude, double longitude, String service, int hour,
+                    long earnings, long durationSeconds, long timestampMs) throws IOException {
+        int latIndex = latIndex(latitude);
+        int lngIndex = lngIndex(longitude);
+        int serviceId = serviceId(service);
+
+        DataOutputStream stream = openForAppend();
+        stream.writeInt(latIndex);
+        stream.writeInt(lngIndex);
+        stream.writeByte(kind);
+        stream.writeByte(hour);
+        stream.writeShort(serviceId);
+        stream.writeInt((int) earnings);
+        stream.writeInt((int) durationSeconds);
+        stream.writeLong(timestampMs);
+        stream.flush();
+
+        accumulate(latIndex, lngIndex, kind, serviceId, hour, earnings, durationSeconds);
+    }
+
+    /**
+     * ビューポート内の集計を返す。kind/hour/serviceはANY（またはnull）で絞り込みなし
+     */
+    public List<Row> query(double minLat, double minLng, double maxLat, double maxLng,
+                           int kind, int hour, String service, int groupBy) {
+        List<Row> rows = new ArrayList<>();
+        int serviceId = ANY;
+        if (service != null) {
+            Integer id = serviceIds.get(service);
+            if (id == null) return rows;
+            serviceId = id;
+        }
+
+        int minLatIndex = latIndex(minLat);
+        int maxLatIndex = latIndex(maxLat);
+        int minLngIndex = lngIndex(minLng);
+        int maxLngIndex = lngIndex(maxLng);
+        long viewportCells = (long) (maxLatIndex - minLatIndex + 1) * (maxLngIndex - minLngIndex + 1);
+
+        Map<Integer, Row> grouped = new HashMap<>();
+        if (viewportCells <= cells.size()) {
+            // 狭いビューポートはセル番号を直接引く
+            for (int lat = minLatIndex; lat <= maxLatIndex; lat++) {
+                for (int lng = minLngIndex; lng <= maxLngIndex; lng++) {
+                    Cell cell = cells.get(cellKey(lat, lng));
+                    if (cell != null) {
+                        collect(cell, kind, hour, serviceId, groupBy, grouped, rows);
+                    }
+                }
+            }
+        } else {
+            for (Cell cell : cells.values()) {
+                if (cell.latIndex >= minLatIndex && cell.latIndex <= maxLatIndex
+                        && cell.lngIndex >= minLngIndex && cell.lngIndex <= maxLngIndex) {
+                    collect(cell, kind, hour, serviceId, groupBy, grouped, rows);
+                }
+            }
+        }
+        return rows;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+        }
+        out = null;
+    }
+
+    public void clear() throws IOException {
+        close();
+        new File(dir, RECORDS_FILE).delete();
+        new File(dir, SERVICES_FILE).delete();
+        cells.clear();
+        services.clear();
+        serviceIds.clear();
+        recordCount = 0;
+    }
+
+    private void collect(Cell cell, int kind, int hour, int serviceId, int groupBy,
+                         Map<Integer, Row> grouped, List<Row> rows) {
+        Row cellRow = null;
+        for (Map.Entry<Integer, Totals> entry : cell.buckets.entrySet()) {
+            int key = entry.getKey();
+            int bucketKind = key >>> 16;
+            int bucketService = (key >>> 5) & 0x7FF;
+            int bucketHour = key & 0x1F;
+            if ((kind != ANY && bucketKind != kind)
+                    || (hour != ANY && bucketHour != hour)
+                    || (serviceId != ANY && bucketService != serviceId)) {
+                continue;
+            }
+
+            Row row;
+            if (groupBy == GROUP_BY_HOUR) {
+                row = grouped.get(bucketHour);
+                if (row == null) {
+                    row = new Row(0, 0, bucketHour, null);
+                    grouped.put(bucketHour, row);
+                    rows.add(row);
+                }
+            } else if (groupBy == GROUP_BY_SERVICE) {
+                row = grouped.get(bucketService);
+                if (row == null) {
+                    row = new Row(0, 0, ANY, services.get(bucketService));
+                    grouped.put(bucketService, row);
+                    rows.add(row);
+                }
+            } else {
+                if (cellRow == null) {
+                    cellRow = new Row(cell.latIndex, cell.lngIndex, ANY, null);
+                    rows.add(cellRow);
+                }
+                row = cellRow;
+            }
+            row.totals.add(entry.getValue());
+        }
+    }
+
+    private void applyRecord(byte[] r) {
+        int latIndex = readInt(r, 0);
+        int lngIndex = readInt(r, 4);
+        int kind = r[8];
+        int hour = r[9];
+        int serviceId = ((r[10] & 0xFF) << 8) | (r[11] & 0xFF);
+        long earnings = readInt(r, 12);
+        long durationSeconds = readInt(r, 16);
+        if (serviceId >= services.size()) return;
+        accumulate(latIndex, lngIndex, kind, serviceId, hour, earnings, durationSeconds);
+    }
+
+    private void accumulate(int latIndex, int lngIndex, int kind, int serviceId, int hour,
+                            long earnings, long durationSeconds) {
+        long key = cellKey(latIndex, lngIndex);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(latIndex, lngIndex);
+            cells.put(key, cell);
+        }
+        int bucketKey = (kind << 16) | (serviceId << 5) | hour;
+        Totals totals = cell.buckets.get(bucketKey);
+        if (totals == null) {
+            totals = new Totals();
+            cell.buckets.put(bucketKey, totals);
+        }
+        totals.add(earnings, durationSeconds);
+        recordCount++;
+    }
+
+    private int serviceId(String service) throws IOException {
+        String name = service == null || service.isEmpty() ? "その他" : service.replace('\n', ' ');
+        Integer id = serviceIds.get(name);
+        if (id != null) return id;
+
+        ensureDir();
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(dir, SERVICES_FILE), true), StandardCharsets.UTF_8)) {
+            writer.write(name);
+            writer.write('\n');
+        }
+        id = services.size();
+        services.add(name);
+        serviceIds.put(name, id);
+        return id;
+    }
+
+    private DataOutputStream openForAppend() throws IOException {
+        if (out != null) return out;
+        ensureDir();
+        File recordsFile = new File(dir, RECORDS_FILE);
+        boolean isNew = !recordsFile.exists() || recordsFile.length() == 0;
+        out = new DataOutputStream(new FileOutputStream(recordsFile, true));
+        if (isNew) {
+            out.writeInt(RECORD_MAGIC);
+            out.writeInt(RECORD_VERSION);
+        }
+        return out;
+    }
+
+    private void ensureDir() throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Failed to create spatial index dir: " + dir);
+        }
+    }
+
+    static int latIndex(double latitude) {
+        return (int) Math.floor(latitude / CELL_LAT_DEG);
+    }
+
+    static int lngIndex(double longitude) {
+        return (int) Math.floor(longitude / CELL_LNG_DEG);
+    }
+
+    private static long cellKey(int latIndex, int lngIndex) {
+        return ((long) latIndex << 32) | (lngIndex & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16)
+            | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+}
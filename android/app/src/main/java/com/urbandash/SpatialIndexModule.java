@@ -0,0 +1,184 @@
+package com.urbandash;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 配達地点の空間インデックス（SpatialGridIndex）をJSへ公開する。
+ * インデックスへのアクセスはすべて単一のバックグラウンドスレッドで行う。
+ */
+public class SpatialIndexModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "SpatialIndex";
+    private static final String INDEX_DIR_NAME = "spatial_index";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SpatialGridIndex index;
+    private boolean loaded = false;
+
+    public SpatialIndexModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.index = new SpatialGridIndex(new File(reactContext.getFilesDir(), INDEX_DIR_NAME));
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    // delivery: { service, earnings, durationSeconds, startTime, pickup?: {latitude, longitude}, dropoff?: {latitude, longitude} }
+    @ReactMethod
+    public void recordDelivery(ReadableMap delivery, Promise promise) {
+        final String service = delivery.hasKey("service") ? delivery.getString("service") : null;
+        final long earnings = delivery.hasKey("earnings") ? (long) delivery.getDouble("earnings") : 0;
+        final long durationSeconds = delivery.hasKey("durationSeconds") ? (long) delivery.getDouble("durationSeconds") : 0;
+        final long startTime = delivery.hasKey("startTime") ? (long) delivery.getDouble("startTime") : System.currentTimeMillis();
+        final double[] pickup = readLatLng(delivery, "pickup");
+        final double[] dropoff = readLatLng(delivery, "dropoff");
+
+        // 時間帯は受注（配達開始）時刻の端末ローカル時刻で集計する
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startTime);
+        final int hour = calendar.get(Calendar.HOUR_OF_DAY);
+
+        executor.execute(() -> {
+            try {
+                ensureLoaded();
+                if (pickup != null) {
+                    index.add(SpatialGridIndex.KIND_PICKUP, pickup[0], pickup[1], service, hour,
+                        earnings, durationSeconds, startTime);
+                }
+                if (dropoff != null) {
+                    index.add(SpatialGridIndex.KIND_DROPOFF, dropoff[0], dropoff[1], service, hour,
+                        earnings, durationSeconds, startTime);
+                }
+                promise.resolve((double) index.getRecordCount());
+            } catch (Exception e) {
+                android.util.Log.e("SpatialIndex", "Error recording delivery", e);
+                promise.reject("SPATIAL_INDEX_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    // viewport: { minLat, minLng, maxLat, maxLng, kind?: 'pickup' | 'dropoff', hour?: number, service?: string, groupBy?: 'cell' | 'hour' | 'service' }
+    // 1件の配達はピックアップとドロップの2レコードになるので、時間帯・サービス別の集計ではkindを必須にする
+    @ReactMethod
+    public void queryViewport(ReadableMap viewport, Promise promise) {
+        final double minLat = viewport.getDouble("minLat");
+        final double minLng = viewport.getDouble("minLng");
+        final double maxLat = viewport.getDouble("maxLat");
+        final double maxLng = viewport.getDouble("maxLng");
+        final int kind = parseKind(viewport);
+        final int hour = viewport.hasKey("hour") && !viewport.isNull("hour") ? viewport.getInt("hour") : SpatialGridIndex.ANY;
+        final String service = viewport.hasKey("service") && !viewport.isNull("service") ? viewport.getString("service") : null;
+        final int groupBy = parseGroupBy(viewport);
+        if (groupBy != SpatialGridIndex.GROUP_BY_CELL && kind == SpatialGridIndex.ANY) {
+            promise.reject("SPATIAL_INDEX_ERROR", "時間帯・サービス別の集計にはkindの指定が必要です");
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                ensureLoaded();
+                List<SpatialGridIndex.Row> rows = index.query(minLat, minLng, maxLat, maxLng, kind, hour, service, groupBy);
+                WritableArray result = Arguments.createArray();
+                for (SpatialGridIndex.Row row : rows) {
+                    WritableMap item = Arguments.createMap();
+                    if (groupBy == SpatialGridIndex.GROUP_BY_CELL) {
+                        item.putDouble("latitude", row.centerLatitude());
+                        item.putDouble("longitude", row.centerLongitude());
+                    } else if (groupBy == SpatialGridIndex.GROUP_BY_HOUR) {
+                        item.putInt("hour", row.hour);
+                    } else {
+                        item.putString("service", row.service);
+                    }
+                    item.putDouble("earnings", row.totals.earnings);
+                    item.putDouble("durationSeconds", row.totals.durationSeconds);
+                    item.putInt("count", row.totals.count);
+                    item.putDouble("earningsPerHour", row.totals.earningsPerHour());
+                    result.pushMap(item);
+                }
+                promise.resolve(result);
+            } catch (Exception e) {
+                android.util.Log.e("SpatialIndex", "Error querying viewport", e);
+                promise.reject("SPATIAL_INDEX_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        executor.execute(() -> {
+            try {
+                ensureLoaded();
+                WritableMap stats = Arguments.createMap();
+                stats.putDouble("records", index.getRecordCount());
+                stats.putInt("cells", index.getCellCount());
+                stats.putDouble("cellSizeLat", SpatialGridIndex.CELL_LAT_DEG);
+                stats.putDouble("cellSizeLng", SpatialGridIndex.CELL_LNG_DEG);
+                promise.resolve(stats);
+            } catch (Exception e) {
+                promise.reject("SPATIAL_INDEX_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void clearIndex(Promise promise) {
+        executor.execute(() -> {
+            try {
+                index.clear();
+                loaded = true;
+                promise.resolve(true);
+            } catch (Exception e) {
+                promise.reject("SPATIAL_INDEX_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void invalidate() {
+        executor.execute(index::close);
+        super.invalidate();
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) return;
+        long start = System.currentTimeMillis();
+        index.load();
+        loaded = true;
+        android.util.Log.d("SpatialIndex", "Loaded " + index.getRecordCount() + " records in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private static double[] readLatLng(ReadableMap map, String key) {
+        if (!map.hasKey(key) || map.isNull(key)) return null;
+        ReadableMap point = map.getMap(key);
+        if (point == null || !point.hasKey("latitude") || !point.hasKey("longitude")) return null;
+        return new double[] { point.getDouble("latitude"), point.getDouble("longitude") };
+    }
+
+    private static int parseKind(ReadableMap map) {
+        if (!map.hasKey("kind") || map.isNull("kind")) return SpatialGridIndex.ANY;
+        return "dropoff".equals(map.getString("kind")) ? SpatialGridIndex.KIND_DROPOFF : SpatialGridIndex.KIND_PICKUP;
+    }
+
+    private static int parseGroupBy(ReadableMap map) {
+        String groupBy = map.hasKey("groupBy") ? map.getString("groupBy") : "cell";
+        if ("hour".equals(groupBy)) return SpatialGridIndex.GROUP_BY_HOUR;
+        if ("service".equals(groupBy)) return SpatialGridIndex.GROUP_BY_SERVICE;
+        return SpatialGridIndex.GROUP_BY_CELL;
+    }
+}
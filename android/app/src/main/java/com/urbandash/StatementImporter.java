@@ -0,0 +1,544 @@
+package com.urbandash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 配達サービスの売上明細（CSV）を1行ずつ読み、配達案件のレコードに変換する。
+ * 行は再利用する文字バッファに読み込んで区切り位置だけを記録し、
+ * 対応付けた列だけを直接数値・日時に変換する（不要な列の文字列は作らない）。
+ * 行のキーは注文IDがあればサービス+注文ID、なければサービス+完了日時(分)+報酬（同じ分・同じ報酬の2行目以降は連番付き）。
+ * すべての行を登録済みの案件（オーバーレイ・手入力）と日時・報酬で照合し、注文IDは明細内の重複の判定にも使う。
+ * メモリ使用量は1行分のバッファとキーの64bitハッシュの表だけで、ファイルサイズに比例しない。
+ *
+ * 明細の日時は日本時間の壁時計として読み、アプリの保存形式（+9時間ずらした時刻）に合わせて
+ * そのままUTCとして解釈したミリ秒で返す。
+ */
+public class StatementImporter {
+    public static final String PLATFORM_UBER_EATS = "Uber Eats";
+    public static final String PLATFORM_DEMAEKAN = "出前館";
+    public static final String PLATFORM_WOLT = "Wolt";
+    public static final String PLATFORM_MENU = "menu";
+
+    private static final int MAX_FIELDS = 64;
+    private static final long JST_OFFSET_MS = 9 * 60 * 60 * 1000L;
+
+    /**
+     * サービスごとの列名の候補（先頭から優先）。明細の書式が変わっても共通の候補で拾えるようにする
+     */
+    static final class ColumnMapping {
+        final String[] date;
+        final String[] orderId;
+        final String[] earnings;
+        final String[] tip;
+        final String[] distance;
+        final String[] duration;
+
+        ColumnMapping(String[] date, String[] orderId, String[] earnings, String[] tip, String[] distance, String[] duration) {
+            this.date = date;
+            this.orderId = orderId;
+            this.earnings = earnings;
+            this.tip = tip;
+            this.distance = distance;
+            this.duration = duration;
+        }
+    }
+
+    private static final String[] COMMON_DATE = {"完了日時", "配達日時", "日時", "日付", "Date", "Date/Time", "Completed At"};
+    private static final String[] COMMON_ORDER_ID = {"注文ID", "注文番号", "オーダーID", "Order ID", "Order Number"};
+    private static final String[] COMMON_EARNINGS = {"報酬", "配達報酬", "金額", "売上", "Earnings", "Amount", "Total"};
+    private static final String[] COMMON_TIP = {"チップ", "Tip", "Tips"};
+    private static final String[] COMMON_DISTANCE = {"距離", "距離(km)", "距離（km）", "Distance", "Distance (km)"};
+    private static final String[] COMMON_DURATION = {"所要時間", "所要時間(分)", "配達時間", "Duration", "Duration (min)"};
+
+    static ColumnMapping mappingFor(String platform) {
+        switch (platform) {
+            case PLATFORM_UBER_EATS:
+                return new ColumnMapping(
+                    concat(new String[] {"Trip Date", "Request Time", "Drop Off Time"}, COMMON_DATE),
+                    concat(new String[] {"Trip UUID", "Trip ID"}, COMMON_ORDER_ID),
+                    concat(new String[] {"Fare", "Total Earnings", "Your Earnings"}, COMMON_EARNINGS),
+                    COMMON_TIP,
+                    concat(new String[] {"Trip Distance"}, COMMON_DISTANCE),
+                    concat(new String[] {"Trip Duration"}, COMMON_DURATION));
+            case PLATFORM_DEMAEKAN:
+                return new ColumnMapping(
+                    concat(new String[] {"配達完了日時", "稼働日"}, COMMON_DATE),
+                    concat(new String[] {"配達番号"}, COMMON_ORDER_ID),
+                    concat(new String[] {"配達料", "報酬額"}, COMMON_EARNINGS),
+                    COMMON_TIP,
+                    COMMON_DISTANCE,
+                    COMMON_DURATION);
+            case PLATFORM_WOLT:
+                return new ColumnMapping(
+                    concat(new String[] {"Delivery Time", "Task Completed"}, COMMON_DATE),
+                    concat(new String[] {"Task ID", "Purchase ID"}, COMMON_ORDER_ID),
+                    concat(new String[] {"Task Fee", "Delivery Fee"}, COMMON_EARNINGS),
+                    COMMON_TIP,
+                    concat(new String[] {"Task Distance"}, COMMON_DISTANCE),
+                    COMMON_DURATION);
+            default:
+                return new ColumnMapping(
+                    concat(new String[] {"配達完了時刻"}, COMMON_DATE),
+                    COMMON_ORDER_ID,
+                    concat(new String[] {"配達報酬額"}, COMMON_EARNINGS),
+                    COMMON_TIP,
+                    COMMON_DISTANCE,
+                    COMMON_DURATION);
+        }
+    }
+
+    /**
+     * 変換した1件分。timestampMsはアプリの保存形式（日本時間の壁時計をUTCとみなした値）
+     */
+    public static final class Record {
+        public String docId;
+        public String key;
+        public long timestampMs;
+        public long earnings;
+        public long tip;
+        public double distanceKm = -1;
+        public int durationMinutes = -1;
+    }
+
+    private final Reader reader;
+    private final String platform;
+    // 明細内で取り込んだ注文IDのキー
+    private final Set<Long> seenOrderKeys = new HashSet<>();
+    // 注文IDのない行の日時+報酬のキーごとの出現数
+    private final Map<Long, Integer> fallbackOccurrences = new HashMap<>();
+    // アプリに登録済みの案件の日時+報酬のキーごとの件数（照合した行の分だけ減らす）
+    private final Map<Long, Integer> existingKeys = new HashMap<>();
+
+    private char[] line = new char[1024];
+    private int lineLength;
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fieldCount;
+
+    private final char[] readBuffer = new char[16 * 1024];
+    private int readPos;
+    private int readLimit;
+    private boolean eof;
+    private long charsRead;
+
+    private int dateColumn = -1;
+    private int orderIdColumn = -1;
+    private int earningsColumn = -1;
+    private int tipColumn = -1;
+    private int distanceColumn = -1;
+    private int durationColumn = -1;
+
+    private int rowsRead;
+    private int duplicates;
+    private int skipped;
+
+    public StatementImporter(InputStream in, String platform) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8), platform);
+    }
+
+    StatementImporter(Reader reader, String platform) {
+        this.reader = reader;
+        this.platform = platform;
+    }
+
+    /**
+     * ヘッダー行を読んで列を対応付ける。日時と報酬の列が見つからなければIOException
+     */
+    public void readHeader() throws IOException {
+        if (!readRow()) {
+            throw new IOException("明細ファイルが空です");
+        }
+        // UTF-8のBOMを除く
+        if (fieldCount > 0 && lineLength > 0 && line[0] == '\uFEFF') {
+            fieldStart[0]++;
+        }
+        ColumnMapping mapping = mappingFor(platform);
+        dateColumn = findColumn(mapping.date);
+        orderIdColumn = findColumn(mapping.orderId);
+        earningsColumn = findColumn(mapping.earnings);
+        tipColumn = findColumn(mapping.tip);
+        distanceColumn = findColumn(mapping.distance);
+        durationColumn = findColumn(mapping.duration);
+        if (dateColumn < 0 || earningsColumn < 0) {
+            throw new IOException(platform + "の明細の日時・報酬の列が見つかりません");
+        }
+    }
+
+    /**
+     * 既存の案件のキー（同じ形式の文字列）を登録して重複扱いにする。
+     * 日時はJS側で保存経路ごとの基準を揃え、日本時間の壁時計（+9時間ずらした値）にしてから渡すこと
+     */
+    public void addExistingKey(String key) {
+        existingKeys.merge(hash(key), 1, Integer::sum);
+    }
+
+    /**
+     * 次のレコードを最大maxCount件読む。空のリストが返ればファイルの終わり
+     */
+    public List<Record> next(int maxCount) throws IOException {
+        List<Record> records = new ArrayList<>(Math.min(maxCount, 512));
+        while (records.size() < maxCount && readRow()) {
+            if (fieldCount == 1 && fieldEnd[0] == fieldStart[0]) {
+                continue; // 空行
+            }
+            rowsRead++;
+            Record record = toRecord();
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public long getCharsRead() {
+        return charsRead;
+    }
+
+    /**
+     * アプリ内の案件から重複判定用のキーを作る（JS側も同じ形式で作る）
+     */
+    public static String fallbackKey(String service, long timestampMs, long amount) {
+        return fallbackKeyForMinute(service, timestampMs / 60000, amount);
+    }
+
+    private static String fallbackKeyForMinute(String service, long minute, long amount) {
+        return service + "|" + minute + "|" + amount;
+    }
+
+    private Record toRecord() {
+        long timestamp = parseTimestamp(dateColumn);
+        long earnings = parseAmount(earningsColumn);
+        if (timestamp <= 0 || earnings <= 0) {
+            // 調整・返金などの行や壊れた行は取り込まない
+            skipped++;
+            return null;
+        }
+        long tip = Math.max(0, parseAmount(tipColumn));
+
+        String orderId = orderIdColumn >= 0
+            ? new String(line, fieldStart[orderIdColumn], fieldEnd[orderIdColumn] - fieldStart[orderIdColumn]).trim()
+            : "";
+        String orderKey = orderId.isEmpty() ? null : platform + "|#" + orderId;
+        // 明細内で同じ注文IDが繰り返された行は、登録済みの案件と照合する前に除く
+        if (orderKey != null && !seenOrderKeys.add(hash(orderKey))) {
+            duplicates++;
+            return null;
+        }
+
+        long minute = timestamp / 60000;
+        long amount = earnings + tip;
+        // アプリで記録した案件とは日時と報酬で照合する（記録のずれを前後1分まで許す）。登録済みの1件に対応するのは明細の1行だけ
+        if (consumeExisting(minute, amount) || consumeExisting(minute - 1, amount) || consumeExisting(minute + 1, amount)) {
+            duplicates++;
+            return null;
+        }
+
+        String key;
+        if (orderKey != null) {
+            key = orderKey;
+        } else {
+            // 同じ分・同じ報酬の配達が続いた場合も別の案件として取り込む（取り込み直しても同じ連番になる）
+            String fallback = fallbackKeyForMinute(platform, minute, amount);
+            int occurrence = fallbackOccurrences.merge(hash(fallback), 1, Integer::sum);
+            key = occurrence == 1 ? fallback : fallback + "|" + occurrence;
+        }
+        long keyHash = hash(key);
+
+        Record record = new Record();
+        record.key = key;
+        record.docId = "import_" + Long.toHexString(keyHash);
+        record.timestampMs = timestamp;
+        record.earnings = earnings;
+        record.tip = tip;
+        if (distanceColumn >= 0) {
+            double distance = parseDecimal(distanceColumn);
+            if (!Double.isNaN(distance) && distance >= 0) {
+                record.distanceKm = distance;
+            }
+        }
+        if (durationColumn >= 0) {
+            double duration = parseDecimal(durationColumn);
+            if (!Double.isNaN(duration) && duration >= 0) {
+                record.durationMinutes = (int) Math.round(duration);
+            }
+        }
+        return record;
+    }
+
+    private boolean consumeExisting(long minute, long amount) {
+        long keyHash = hash(fallbackKeyForMinute(platform, minute, amount));
+        Integer count = existingKeys.get(keyHash);
+        if (count == null) return false;
+        if (count <= 1) {
+            existingKeys.remove(keyHash);
+        } else {
+            existingKeys.put(keyHash, count - 1);
+        }
+        return true;
+    }
+
+    private int findColumn(String[] candidates) {
+        for (String candidate : candidates) {
+            for (int i = 0; i < fieldCount; i++) {
+                if (fieldEquals(i, candidate)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean fieldEquals(int field, String text) {
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        while (start < end && line[start] == ' ') start++;
+        while (end > start && line[end - 1] == ' ') end--;
+        if (end - start != text.length()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.toLowerCase(line[start + i]) != Character.toLowerCase(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 日時の列から日付と 時 分 秒 の数字を順に拾う（区切り文字の種類は問わない）。
+     * 日付は 年/月/日 のほか、年が末尾の 月/日/年（13以上なら 日/月/年）も読む。
+     * AM/PM・午前/午後があれば12時間制として直し、末尾がZの場合はUTCとして日本時間に直す
+     */
+    long parseTimestamp(int field) {
+        if (field < 0 || field >= fieldCount) return -1;
+        int[] parts = new int[6];
+        int count = 0;
+        int value = -1;
+        boolean utc = false;
+        int meridiem = 0; // 1: 午前, 2: 午後
+        int end = fieldEnd[field];
+        for (int i = fieldStart[field]; i < end; i++) {
+            char c = line[i];
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                continue;
+            }
+            if (value >= 0 && count < 6) parts[count++] = value;
+            value = -1;
+            char upper = Character.toUpperCase(c);
+            if ((upper == 'A' || upper == 'P') && i + 1 < end && Character.toUpperCase(line[i + 1]) == 'M') {
+                meridiem = upper == 'A' ? 1 : 2;
+                i++;
+            } else if (c == '午' && i + 1 < end && (line[i + 1] == '前' || line[i + 1] == '後')) {
+                meridiem = line[i + 1] == '前' ? 1 : 2;
+                i++;
+            } else if (c == 'Z' && count >= 5) {
+                utc = true;
+            } else if (c == '.' && count >= 6) {
+                // 秒の小数部やタイムゾーンは読まない
+                break;
+            }
+        }
+        if (value >= 0 && count < 6) parts[count++] = value;
+        if (count < 3) return -1;
+        int year;
+        int month;
+        int day;
+        if (parts[0] >= 1000) {
+            year = parts[0];
+            month = parts[1];
+            day = parts[2];
+        } else if (parts[2] >= 1000) {
+            year = parts[2];
+            boolean dayFirst = parts[0] > 12;
+            month = dayFirst ? parts[1] : parts[0];
+            day = dayFirst ? parts[0] : parts[1];
+        } else {
+            return -1;
+        }
+        if (year < 2000 || month < 1 || month > 12 || day < 1 || day > 31) return -1;
+        int hour = parts[3];
+        if (meridiem != 0) {
+            if (hour < 1 || hour > 12) return -1;
+            hour = hour % 12 + (meridiem == 2 ? 12 : 0);
+        }
+        if (hour > 23 || parts[4] > 59 || parts[5] > 59) return -1;
+        long days = daysFromCivil(year, month, day);
+        long ms = days * 86400000L + hour * 3600000L + parts[4] * 60000L + parts[5] * 1000L;
+        return utc ? ms + JST_OFFSET_MS : ms;
+    }
+
+    /**
+     * 金額の列（¥・円・カンマ・空白は無視、小数は四捨五入）。列がなければ0、読めなければ-1
+     */
+    long parseAmount(int field) {
+        if (field < 0 || field >= fieldCount) return 0;
+        double value = parseDecimal(field);
+        return Double.isNaN(value) ? -1 : Math.round(value);
+    }
+
+    private double parseDecimal(int field) {
+        long whole = 0;
+        long fraction = 0;
+        long scale = 1;
+        boolean digits = false;
+        boolean inFraction = false;
+        boolean negative = false;
+        for (int i = fieldStart[field]; i < fieldEnd[field]; i++) {
+            char c = line[i];
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (inFraction) {
+                    if (scale < 1_000_000) {
+                        fraction = fraction * 10 + (c - '0');
+                        scale *= 10;
+                    }
+                } else {
+                    whole = whole * 10 + (c - '0');
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else if ((c == '-' || c == '−') && !digits) {
+                negative = true;
+            } else if (c == ',' || c == '¥' || c == '￥' || c == '円' || c == ' ' || c == 'k' || c == 'm') {
+                // 区切り・単位
+            } else if (digits) {
+                break;
+            }
+        }
+        if (!digits) return Double.NaN;
+        double value = whole + (double) fraction / scale;
+        return negative ? -value : value;
+    }
+
+    /**
+     * 1行（引用符内の改行を含む）を読み、各フィールドの開始・終了位置を記録する。
+     * 引用符で囲まれたフィールドは "" を " に詰めてバッファ内で書き換える
+     */
+    private boolean readRow() throws IOException {
+        lineLength = 0;
+        fieldCount = 0;
+        int start = 0;
+        boolean quoted = false;
+        boolean any = false;
+        while (true) {
+            int c = readChar();
+            if (c < 0) {
+                if (!any) return false;
+                break;
+            }
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    int next = peekChar();
+                    if (next == '"') {
+                        readChar();
+                        append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    append((char) c);
+                }
+                continue;
+            }
+            if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                endField(start);
+                start = lineLength;
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                append((char) c);
+            }
+        }
+        endField(start);
+        return true;
+    }
+
+    private void endField(int start) {
+        if (fieldCount < MAX_FIELDS) {
+            fieldStart[fieldCount] = start;
+            fieldEnd[fieldCount] = lineLength;
+            fieldCount++;
+        }
+    }
+
+    private void append(char c) {
+        if (lineLength == line.length) {
+            char[] grown = new char[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        line[lineLength++] = c;
+    }
+
+    private int readChar() throws IOException {
+        if (readPos >= readLimit && !fill()) return -1;
+        charsRead++;
+        return readBuffer[readPos++];
+    }
+
+    private int peekChar() throws IOException {
+        if (readPos >= readLimit && !fill()) return -1;
+        return readBuffer[readPos];
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int n = reader.read(readBuffer, 0, readBuffer.length);
+        if (n <= 0) {
+            eof = true;
+            return false;
+        }
+        readPos = 0;
+        readLimit = n;
+        return true;
+    }
+
+    // 1970-01-01からの日数（グレゴリオ暦）
+    private static long daysFromCivil(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153L * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    // FNV-1a 64bit
+    private static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,298 @@
+package com.urbandash;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * エクスポートをレコード単位でファイルに書き出すライター。
+ * レコードは受け取った順にバッファ付き（必要ならgzip圧縮）ストリームへ直接書き込むため、
+ * 全体をメモリ上に組み立てることはない。
+ */
+public class StreamingExportWriter implements Closeable {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_GPX = "gpx";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 確定申告用にExcelで開けるよう、CSVはBOM付きUTF-8で出力する
+    private static final String UTF8_BOM = "\uFEFF";
+    private static final String[] CSV_COLUMNS = {
+        "date", "service", "earnings", "tip", "total", "durationMinutes",
+        "distanceKm", "estimatedMinutes", "workSessionId", "memo",
+    };
+
+    private final String format;
+    private final File file;
+    private final CountingOutputStream counter;
+    private final BufferedWriter writer;
+    private final SimpleDateFormat isoFormat;
+    private long recordCount = 0;
+    private boolean closed = false;
+
+    public StreamingExportWriter(File file, String format, boolean gzip) throws IOException {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_GPX.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+        this.format = format;
+        this.file = file;
+        this.counter = new CountingOutputStream(new FileOutputStream(file));
+        OutputStream out = gzip ? new GZIPOutputStream(counter, BUFFER_SIZE) : counter;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        this.isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        this.isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        writeHeader();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * ファイルに書き出されたバイト数（gzip時は圧縮後）
+     */
+    public long getBytesWritten() {
+        return counter.count;
+    }
+
+    public void write(Map<String, Object> record) throws IOException {
+        switch (format) {
+            case FORMAT_CSV:
+                writeCsvRow(record);
+                break;
+            case FORMAT_GPX:
+                writeGpxTrack(record);
+                break;
+            default:
+                writer.write(toJson(record));
+                writer.write('\n');
+                break;
+        }
+        recordCount++;
+    }
+
+    /**
+     * フッターを書き込んで閉じる
+     */
+    public void finish() throws IOException {
+        if (FORMAT_GPX.equals(format)) {
+            writer.write("</gpx>\n");
+        }
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        writer.close();
+    }
+
+    private void writeHeader() throws IOException {
+        if (FORMAT_CSV.equals(format)) {
+            writer.write(UTF8_BOM);
+            writer.write(String.join(",", CSV_COLUMNS));
+            writer.write("\r\n");
+        } else if (FORMAT_GPX.equals(format)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<gpx version=\"1.1\" creator=\"UrbanDash\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+        }
+    }
+
+    private void writeCsvRow(Map<String, Object> record) throws IOException {
+        double earnings = number(record.get("earnings"));
+        double tip = number(record.get("tip"));
+        Object[] values = {
+            formatTime(record.get("timestamp")),
+            record.get("service"),
+            formatNumber(earnings),
+            formatNumber(tip),
+            formatNumber(earnings + tip),
+            formatOptionalNumber(record.get("duration")),
+            formatOptionalNumber(record.get("distance")),
+            formatOptionalNumber(record.get("estimatedTime")),
+            record.get("workSessionId"),
+            record.get("memo"),
+        };
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) writer.write(',');
+            writer.write(escapeCsv(values[i] == null ? "" : String.valueOf(values[i])));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 1レコード = 1走行ログ。routePathは [lat, lng, timeMs, lat, lng, timeMs, ...] のフラット配列
+     */
+    private void writeGpxTrack(Map<String, Object> record) throws IOException {
+        writer.write("  <trk>\n    <name>");
+        writer.write(escapeXml(String.valueOf(record.get("id"))));
+        writer.write("</name>\n    <trkseg>\n");
+
+        Object routePath = record.get("routePath");
+        if (routePath instanceof List) {
+            List<?> values = (List<?>) routePath;
+            for (int i = 0; i + 2 < values.size(); i += 3) {
+                writer.write("      <trkpt lat=\"");
+                writer.write(String.valueOf(number(values.get(i))));
+                writer.write("\" lon=\"");
+                writer.write(String.valueOf(number(values.get(i + 1))));
+                writer.write("\"><time>");
+                writer.write(formatTime(values.get(i + 2)));
+                writer.write("</time></trkpt>\n");
+            }
+        }
+
+        writer.write("    </trkseg>\n  </trk>\n");
+    }
+
+    private String formatTime(Object value) {
+        if (value instanceof Number) {
+            return isoFormat.format(new Date(((Number) value).longValue()));
+        }
+        return value == null ? "" : String.valueOf(value);
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static String formatOptionalNumber(Object value) {
+        return value instanceof Number ? formatNumber(((Number) value).doubleValue()) : "";
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    static String toJson(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb, value);
+        return sb.toString();
+    }
+
+    private static void appendJson(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                sb.append("null");
+            } else {
+                sb.append(formatNumber(d));
+            }
+        } else if (value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                appendJsonString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                appendJson(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (List<?>) value) {
+                if (!first) sb.append(',');
+                first = false;
+                appendJson(sb, item);
+            }
+            sb.append(']');
+        } else {
+            appendJsonString(sb, String.valueOf(value));
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * 実際にファイルへ書かれたバイト数を数える
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
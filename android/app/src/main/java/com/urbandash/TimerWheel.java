@@ -0,0 +1,143 @@
+package com.urbandash;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * ハッシュ化タイマーホイール。
+ * 期限をtick単位のスロットに振り分け、1tickごとに該当スロットだけを走査する。
+ * 登録数が増えてもtickごとの処理は期限を迎えたエントリ分だけで済む。
+ * 時刻は呼び出し側のセッションクロック（単調増加のms）で与える。
+ */
+public class TimerWheel<T> {
+
+    public interface Listener<T> {
+        void onExpired(T item, long deadlineMs);
+    }
+
+    public static final class Timeout<T> {
+        final T item;
+        final long deadlineMs;
+        final long deadlineTick;
+        boolean cancelled;
+        boolean expired;
+
+        Timeout(T item, long deadlineMs, long deadlineTick) {
+            this.item = item;
+            this.deadlineMs = deadlineMs;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long tickMs;
+    private final List<Timeout<T>>[] buckets;
+    private final Listener<T> listener;
+    private long currentTick = -1;
+    private int pending = 0;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMs, int wheelSize, Listener<T> listener) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        this.tickMs = tickMs;
+        this.listener = listener;
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * 指定時刻（セッションクロック）に期限を迎えるタイマーを登録する
+     */
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        // 期限より早く発火しないよう切り上げる
+        long deadlineTick = (deadlineMs + tickMs - 1) / tickMs;
+        // 既に走査済みのtickに入れると一周待たされるので次のtickに寄せる
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+        Timeout<T> timeout = new Timeout<>(item, deadlineMs, deadlineTick);
+        buckets[(int) (deadlineTick % buckets.length)].add(timeout);
+        pending++;
+        return timeout;
+    }
+
+    /**
+     * 現在時刻までの各tickを処理し、期限を迎えたタイマーを発火する
+     */
+    public void advanceTo(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        if (currentTick < 0) {
+            currentTick = targetTick - 1;
+        }
+        // 長時間止まっていた場合でも走査は最大一周分で十分
+        if (targetTick - currentTick > buckets.length) {
+            currentTick = targetTick - buckets.length;
+        }
+
+        List<Timeout<T>> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            List<Timeout<T>> bucket = buckets[(int) (currentTick % buckets.length)];
+            Iterator<Timeout<T>> it = bucket.iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                } else if (timeout.deadlineTick <= targetTick) {
+                    it.remove();
+                    pending--;
+                    timeout.expired = true;
+                    expired.add(timeout);
+                }
+            }
+        }
+
+        // コールバック内での再登録がバケット走査と干渉しないよう後でまとめて発火
+        for (Timeout<T> timeout : expired) {
+            if (!timeout.cancelled) {
+                listener.onExpired(timeout.item, timeout.deadlineMs);
+            }
+        }
+    }
+
+    /**
+     * 登録済みのタイマーを取り消す。バケットからは次の走査時に取り除かれる
+     */
+    public void cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.cancelled) return;
+        timeout.cancelled = true;
+        if (!timeout.expired) {
+            pending--;
+        }
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * 次のtick境界までの待ち時間（ms）
+     */
+    public long delayToNextTick(long nowMs) {
+        return tickMs - (nowMs % tickMs);
+    }
+
+    public void clear() {
+        for (List<Timeout<T>> bucket : buckets) {
+            bucket.clear();
+        }
+        pending = 0;
+    }
+}
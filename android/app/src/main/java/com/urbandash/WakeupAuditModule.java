@@ -0,0 +1,97 @@
+package com.urbandash;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * WakeupAuditorへJS側の起床を渡し、勤務ごとのレポートを返す
+ */
+public class WakeupAuditModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "WakeupAudit";
+
+    public WakeupAuditModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    // batch: { [source]: { wakeups, screenOffWakeups, cpuMs } }
+    @ReactMethod
+    public void recordBatch(ReadableMap batch) {
+        ReadableMapKeySetIterator iterator = batch.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String source = iterator.nextKey();
+            ReadableMap entry = batch.getMap(source);
+            if (entry == null) continue;
+            WakeupAuditor.getInstance().record(source,
+                entry.hasKey("wakeups") ? (long) entry.getDouble("wakeups") : 0,
+                entry.hasKey("screenOffWakeups") ? (long) entry.getDouble("screenOffWakeups") : 0,
+                entry.hasKey("cpuMs") ? (long) (entry.getDouble("cpuMs") * 1_000_000) : 0);
+        }
+    }
+
+    @ReactMethod
+    public void beginHold(String source) {
+        WakeupAuditor.getInstance().beginHold(source);
+    }
+
+    @ReactMethod
+    public void endHold(String source) {
+        WakeupAuditor.getInstance().endHold(source);
+    }
+
+    // { shiftStartTime, windowMs, totalWakeups, totalWakeupsPerHour, totalCpuMs, overBudget: [source],
+    //   sources: [{ source, wakeups, screenOffWakeups, wakeupsPerHour, cpuMs, holdMs, budgetPerHour, overBudget }] }
+    @ReactMethod
+    public void getReport(Promise promise) {
+        try {
+            WakeupAuditor.Report report = WakeupAuditor.getInstance().getReport();
+            WritableMap result = Arguments.createMap();
+            result.putDouble("shiftStartTime", report.shiftStartMs);
+            result.putDouble("windowMs", report.windowMs);
+            result.putDouble("totalWakeups", report.totalWakeups);
+            result.putDouble("totalWakeupsPerHour", report.totalWakeupsPerHour);
+            result.putDouble("totalCpuMs", report.totalCpuMs);
+
+            WritableArray overBudget = Arguments.createArray();
+            for (String source : report.overBudget) {
+                overBudget.pushString(source);
+            }
+            result.putArray("overBudget", overBudget);
+
+            WritableArray sources = Arguments.createArray();
+            for (WakeupAuditor.SourceReport source : report.sources) {
+                WritableMap map = Arguments.createMap();
+                map.putString("source", source.source);
+                map.putDouble("wakeups", source.wakeups);
+                map.putDouble("screenOffWakeups", source.screenOffWakeups);
+                map.putDouble("wakeupsPerHour", source.wakeupsPerHour);
+                map.putDouble("cpuMs", source.cpuMs);
+                map.putDouble("holdMs", source.holdMs);
+                map.putInt("budgetPerHour", source.budgetPerHour);
+                map.putBoolean("overBudget", source.overBudget);
+                sources.pushMap(map);
+            }
+            result.putArray("sources", sources);
+            promise.resolve(result);
+        } catch (Exception e) {
+            promise.reject("WAKEUP_AUDIT_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void reset(Promise promise) {
+        WakeupAuditor.getInstance().reset();
+        promise.resolve(true);
+    }
+}
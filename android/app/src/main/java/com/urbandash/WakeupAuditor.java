@@ -0,0 +1,266 @@
+package com.urbandash;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 勤務中にアプリがCPUを起こした回数・CPU時間・保持時間（フォアグラウンドサービス・位置の購読など）を発生元ごとに集計する。
+ * ネイティブの定期処理はbegin/endで囲むかwrap/postDelayedで包んで計測し、
+ * JSのタイマー・GPS・onSnapshotはJS側でまとめた件数と実行時間をrecordBatchで受け取る。
+ * 勤務が始まるたびに集計を作り直し、発生元ごとの1時間あたりの予算と比べた結果をレポートで返す。
+ * 計測のコストはDebug.threadCpuTimeNanosの呼び出し2回とマップの参照1回だけ。
+ */
+public class WakeupAuditor implements SessionAggregator.Listener {
+    public static final String SOURCE_OVERLAY_TICK = "overlay_tick";
+    public static final String SOURCE_OVERLAY_POST = "overlay_handler_post";
+    public static final String SOURCE_NOTIFICATION = "live_notification";
+    public static final String SOURCE_SESSION_MINUTE = "session_minute_tick";
+    public static final String SOURCE_QOS_POLL = "qos_headroom_poll";
+    public static final String SOURCE_QOS_BROADCAST = "qos_broadcast";
+    public static final String SOURCE_NATIVE_LOCATION = "native_location";
+    public static final String SOURCE_ACTIVITY_RECOGNITION = "activity_recognition";
+    public static final String SOURCE_JS_TIMER = "js_timer";
+    public static final String SOURCE_JS_GPS = "js_gps_callback";
+    public static final String SOURCE_FIRESTORE_SNAPSHOT = "firestore_snapshot";
+
+    public static final String HOLD_FOREGROUND_SERVICE = "foreground_service";
+    public static final String HOLD_NATIVE_LOCATION = "native_location_updates";
+    public static final String HOLD_JS_GPS_WATCH = "js_gps_watch";
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    // 予算を判定するまでの最短の勤務時間（開始直後の初期化の起床で誤判定しないように）
+    private static final long MIN_BUDGET_WINDOW_MS = 10 * 60 * 1000L;
+
+    // 発生元ごとの1時間あたりの起床回数の予算（配達中に1秒ごとに表示を更新するものが上限）
+    private static final Map<String, Integer> WAKEUP_BUDGET_PER_HOUR = new LinkedHashMap<>();
+
+    static {
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_OVERLAY_TICK, 3600);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_OVERLAY_POST, 120);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_NOTIFICATION, 1800);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_SESSION_MINUTE, 60);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_QOS_POLL, 120);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_QOS_BROADCAST, 120);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_NATIVE_LOCATION, 720);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_ACTIVITY_RECOGNITION, 120);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_JS_TIMER, 3600);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_JS_GPS, 720);
+        WAKEUP_BUDGET_PER_HOUR.put(SOURCE_FIRESTORE_SNAPSHOT, 360);
+    }
+
+    static final class SourceStats {
+        final String source;
+        long wakeups;
+        long screenOffWakeups;
+        long cpuNs;
+        long holdMs;
+        long holdSinceElapsedMs; // 0の場合は保持していない
+        boolean budgetWarned;
+
+        SourceStats(String source) {
+            this.source = source;
+        }
+
+        long holdMsAt(long nowElapsedMs) {
+            return holdMs + (holdSinceElapsedMs > 0 ? nowElapsedMs - holdSinceElapsedMs : 0);
+        }
+    }
+
+    /**
+     * 1発生元分のレポート
+     */
+    public static final class SourceReport {
+        public String source;
+        public long wakeups;
+        public long screenOffWakeups;
+        public double wakeupsPerHour;
+        public double cpuMs;
+        public long holdMs;
+        public int budgetPerHour; // 0の場合は予算なし
+        public boolean overBudget;
+    }
+
+    public static final class Report {
+        public long shiftStartMs;
+        public long windowMs;
+        public long totalWakeups;
+        public double totalWakeupsPerHour;
+        public double totalCpuMs;
+        public final List<SourceReport> sources = new ArrayList<>();
+        public final List<String> overBudget = new ArrayList<>();
+    }
+
+    private static WakeupAuditor instance;
+
+    private final Map<String, SourceStats> stats = new LinkedHashMap<>();
+    private long windowStartElapsedMs = SystemClock.elapsedRealtime();
+    private long shiftStartMs = 0;
+    private boolean attached = false;
+
+    public static synchronized WakeupAuditor getInstance() {
+        if (instance == null) {
+            instance = new WakeupAuditor();
+        }
+        return instance;
+    }
+
+    /**
+     * 勤務の開始で集計を作り直すようにする（アプリ起動時に1回、メインスレッドから呼ぶ）
+     */
+    public void attach() {
+        if (attached) return;
+        attached = true;
+        SessionAggregator.getInstance().addListener(this);
+    }
+
+    @Override
+    public void onSnapshotChanged(SessionAggregator.Snapshot snapshot) {
+        if (snapshot.sessionStartMs > 0 && snapshot.sessionStartMs != shiftStartMs) {
+            shiftStartMs = snapshot.sessionStartMs;
+            reset();
+        }
+    }
+
+    /**
+     * 計測の開始。戻り値をendに渡す
+     */
+    public long begin() {
+        return Debug.threadCpuTimeNanos();
+    }
+
+    public void end(String source, long beginCpuNs) {
+        long cpu = Debug.threadCpuTimeNanos() - beginCpuNs;
+        boolean screenOn = QosGovernor.getInstance().isScreenOn();
+        synchronized (stats) {
+            SourceStats s = get(source);
+            s.wakeups++;
+            if (!screenOn) s.screenOffWakeups++;
+            s.cpuNs += Math.max(0, cpu);
+        }
+    }
+
+    public Runnable wrap(String source, Runnable runnable) {
+        return () -> {
+            long begin = begin();
+            try {
+                runnable.run();
+            } finally {
+                end(source, begin);
+            }
+        };
+    }
+
+    /**
+     * 1回限りの遅延処理を計測付きで登録する
+     */
+    public void postDelayed(Handler handler, String source, Runnable runnable, long delayMs) {
+        handler.postDelayed(wrap(source, runnable), delayMs);
+    }
+
+    /**
+     * JS側でまとめた件数と実行時間を加算する
+     */
+    public void record(String source, long wakeups, long screenOffWakeups, long cpuNs) {
+        synchronized (stats) {
+            SourceStats s = get(source);
+            s.wakeups += wakeups;
+            s.screenOffWakeups += screenOffWakeups;
+            s.cpuNs += cpuNs;
+        }
+    }
+
+    public void beginHold(String source) {
+        synchronized (stats) {
+            SourceStats s = get(source);
+            if (s.holdSinceElapsedMs == 0) {
+                s.holdSinceElapsedMs = SystemClock.elapsedRealtime();
+            }
+        }
+    }
+
+    public void endHold(String source) {
+        synchronized (stats) {
+            SourceStats s = get(source);
+            if (s.holdSinceElapsedMs > 0) {
+                s.holdMs += SystemClock.elapsedRealtime() - s.holdSinceElapsedMs;
+                s.holdSinceElapsedMs = 0;
+            }
+        }
+    }
+
+    /**
+     * 集計を作り直す。保持中の発生元は今の時点から数え直す
+     */
+    public void reset() {
+        synchronized (stats) {
+            long now = SystemClock.elapsedRealtime();
+            Map<String, SourceStats> held = new LinkedHashMap<>();
+            for (SourceStats s : stats.values()) {
+                if (s.holdSinceElapsedMs > 0) {
+                    SourceStats fresh = new SourceStats(s.source);
+                    fresh.holdSinceElapsedMs = now;
+                    held.put(s.source, fresh);
+                }
+            }
+            stats.clear();
+            stats.putAll(held);
+            windowStartElapsedMs = now;
+        }
+        android.util.Log.d("WakeupAuditor", "Reset for shift starting at " + shiftStartMs);
+    }
+
+    public Report getReport() {
+        Report report = new Report();
+        long now = SystemClock.elapsedRealtime();
+        List<String> warnings = new ArrayList<>();
+        synchronized (stats) {
+            report.shiftStartMs = shiftStartMs;
+            report.windowMs = now - windowStartElapsedMs;
+            double hours = Math.max(report.windowMs, 1) / (double) HOUR_MS;
+            boolean judge = report.windowMs >= MIN_BUDGET_WINDOW_MS;
+            for (SourceStats s : stats.values()) {
+                SourceReport r = new SourceReport();
+                r.source = s.source;
+                r.wakeups = s.wakeups;
+                r.screenOffWakeups = s.screenOffWakeups;
+                r.wakeupsPerHour = s.wakeups / hours;
+                r.cpuMs = s.cpuNs / 1_000_000.0;
+                r.holdMs = s.holdMsAt(now);
+                Integer budget = WAKEUP_BUDGET_PER_HOUR.get(s.source);
+                r.budgetPerHour = budget != null ? budget : 0;
+                r.overBudget = judge && budget != null && r.wakeupsPerHour > budget;
+                if (r.overBudget) {
+                    report.overBudget.add(s.source);
+                    if (!s.budgetWarned) {
+                        s.budgetWarned = true;
+                        warnings.add(String.format(Locale.US, "%s %.0f/h over budget %d/h", s.source, r.wakeupsPerHour, budget));
+                    }
+                }
+                report.totalWakeups += s.wakeups;
+                report.totalCpuMs += r.cpuMs;
+                report.sources.add(r);
+            }
+            report.totalWakeupsPerHour = report.totalWakeups / hours;
+        }
+        for (String warning : warnings) {
+            android.util.Log.w("WakeupAuditor", warning);
+        }
+        return report;
+    }
+
+    private SourceStats get(String source) {
+        SourceStats s = stats.get(source);
+        if (s == null) {
+            s = new SourceStats(source);
+            stats.put(source, s);
+        }
+        return s;
+    }
+}
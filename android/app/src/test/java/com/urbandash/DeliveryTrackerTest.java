@@ -0,0 +1,138 @@
+package com.urbandash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 行ビューを作らないモード（containerがnull）で、同時進行中の配達の管理を確かめる
+ */
+public class DeliveryTrackerTest {
+    private final List<Integer> counts = new ArrayList<>();
+    private final List<Integer> finished = new ArrayList<>();
+    private final List<Integer> ticks = new ArrayList<>();
+    private boolean acceptFinish = true;
+    private DeliveryTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new DeliveryTracker(null, null, new DeliveryTracker.Callback() {
+            @Override
+            public boolean onFinish(DeliveryTracker.ActiveDelivery delivery, long finishTimeMs) {
+                if (acceptFinish) finished.add(delivery.number);
+                return acceptFinish;
+            }
+
+            @Override
+            public void onActiveCountChanged(int count) {
+                counts.add(count);
+            }
+
+            @Override
+            public void onElapsedTick(DeliveryTracker.ActiveDelivery delivery) {
+                ticks.add(delivery.number);
+            }
+        });
+    }
+
+    @Test
+    public void numbersConcurrentDeliveriesInOrder() {
+        DeliveryTracker.ActiveDelivery first = tracker.start("Uber Eats", "600", "", "");
+        DeliveryTracker.ActiveDelivery second = tracker.start("出前館", "550", "", "");
+        DeliveryTracker.ActiveDelivery third = tracker.start("Wolt", "700", "", "");
+
+        assertEquals(1, first.number);
+        assertEquals(2, second.number);
+        assertEquals(3, third.number);
+        assertEquals(3, tracker.getActiveCount());
+        assertEquals(Arrays.asList(1, 2, 3), counts);
+    }
+
+    @Test
+    public void finishingOneDeliveryKeepsTheOthersRunning() {
+        DeliveryTracker.ActiveDelivery first = tracker.start("Uber Eats", "600", "", "");
+        DeliveryTracker.ActiveDelivery second = tracker.start("出前館", "550", "", "");
+
+        tracker.finish(first);
+        assertEquals(Arrays.asList(1), finished);
+        assertEquals(1, tracker.getActiveCount());
+        assertEquals(second, tracker.getActive().get(0));
+        assertTrue(first.timeout.isCancelled());
+        // 進行中の配達が残っている間は番号を振り直さない
+        assertEquals(3, tracker.getNextNumber());
+
+        tracker.finish(second);
+        assertEquals(0, tracker.getActiveCount());
+        assertEquals(1, tracker.getNextNumber());
+    }
+
+    @Test
+    public void rejectedFinishKeepsTheDeliveryActive() {
+        DeliveryTracker.ActiveDelivery delivery = tracker.start("Uber Eats", "600", "", "");
+        acceptFinish = false;
+
+        tracker.finish(delivery);
+        assertEquals(1, tracker.getActiveCount());
+        assertEquals(false, delivery.timeout.isCancelled());
+    }
+
+    @Test
+    public void finishingTwiceIsIgnored() {
+        DeliveryTracker.ActiveDelivery delivery = tracker.start("Uber Eats", "600", "", "");
+        tracker.finish(delivery);
+        tracker.finish(delivery);
+        assertEquals(Arrays.asList(1), finished);
+    }
+
+    @Test
+    public void clearDiscardsEveryDeliveryWithoutFinishing() {
+        DeliveryTracker.ActiveDelivery first = tracker.start("Uber Eats", "600", "", "");
+        DeliveryTracker.ActiveDelivery second = tracker.start("出前館", "550", "", "");
+
+        tracker.clear();
+        assertEquals(0, tracker.getActiveCount());
+        assertEquals(1, tracker.getNextNumber());
+        assertTrue(finished.isEmpty());
+        assertTrue(first.timeout.isCancelled());
+        assertTrue(second.timeout.isCancelled());
+        assertEquals(Integer.valueOf(0), counts.get(counts.size() - 1));
+    }
+
+    @Test
+    public void restoreKeepsNumbersAndContinuesAfterTheHighest() {
+        SessionStateStore.DeliveryAnchor a = anchor(2, "Uber Eats");
+        SessionStateStore.DeliveryAnchor b = anchor(5, "Wolt");
+
+        tracker.restore(Arrays.asList(a, b), 3);
+        assertEquals(2, tracker.getActiveCount());
+        assertEquals(2, tracker.getActive().get(0).number);
+        assertEquals(5, tracker.getActive().get(1).number);
+        assertEquals(6, tracker.getNextNumber());
+
+        assertEquals(6, tracker.start("出前館", "", "", "").number);
+    }
+
+    @Test
+    public void expiredTickReschedulesTheNextSecond() {
+        DeliveryTracker.ActiveDelivery delivery = tracker.start("Uber Eats", "600", "", "");
+        TimerWheel.Timeout<DeliveryTracker.ActiveDelivery> previous = delivery.timeout;
+
+        tracker.onExpired(delivery, previous.deadlineMs);
+        assertEquals(Arrays.asList(1), ticks);
+        assertEquals(previous.deadlineMs + 1000, delivery.timeout.deadlineMs);
+    }
+
+    private static SessionStateStore.DeliveryAnchor anchor(int number, String service) {
+        SessionStateStore.DeliveryAnchor anchor = new SessionStateStore.DeliveryAnchor();
+        anchor.number = number;
+        anchor.service = service;
+        anchor.startTimeMs = System.currentTimeMillis() - 60_000;
+        return anchor;
+    }
+}
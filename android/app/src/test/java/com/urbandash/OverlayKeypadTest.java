@@ -0,0 +1,66 @@
+package com.urbandash;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class OverlayKeypadTest {
+
+    private static String type(String current, boolean allowDecimal, String... keys) {
+        for (String key : keys) {
+            current = OverlayKeypad.applyKey(current, key, allowDecimal);
+        }
+        return current;
+    }
+
+    @Test
+    public void appendsDigits() {
+        assertEquals("450", type("", false, "4", "5", "0"));
+    }
+
+    @Test
+    public void replacesALeadingZero() {
+        assertEquals("0", type("", false, "0", "0"));
+        assertEquals("7", type("", false, "0", "7"));
+        assertEquals("105", type("", false, "1", "0", "5"));
+    }
+
+    @Test
+    public void keepsTheZeroBeforeADecimalPoint() {
+        assertEquals("0.5", type("", true, "0", ".", "5"));
+        // 空欄で小数点を押すと0.から始める
+        assertEquals("0.", type("", true, "."));
+    }
+
+    @Test
+    public void acceptsOnlyOneDecimalPoint() {
+        assertEquals("1.25", type("", true, "1", ".", "2", ".", "5"));
+    }
+
+    @Test
+    public void ignoresTheDecimalPointInIntegerFields() {
+        assertEquals("12", type("", false, "1", ".", "2"));
+    }
+
+    @Test
+    public void stopsAtTheMaximumLength() {
+        assertEquals("123456", type("", false, "1", "2", "3", "4", "5", "6", "7"));
+        assertEquals("12345.", type("", true, "1", "2", "3", "4", "5", ".", "6"));
+    }
+
+    @Test
+    public void backspaceRemovesTheLastCharacter() {
+        assertEquals("12", type("123", false, OverlayKeypad.KEY_BACKSPACE));
+        assertEquals("1", type("1.", true, OverlayKeypad.KEY_BACKSPACE));
+    }
+
+    @Test
+    public void backspaceStillWorksAtTheMaximumLength() {
+        assertEquals("12345", type("123456", false, OverlayKeypad.KEY_BACKSPACE));
+    }
+
+    @Test
+    public void backspaceOnAnEmptyFieldDoesNothing() {
+        assertEquals("", type("", false, OverlayKeypad.KEY_BACKSPACE, OverlayKeypad.KEY_BACKSPACE));
+    }
+}
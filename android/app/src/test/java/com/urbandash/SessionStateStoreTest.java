@@ -0,0 +1,159 @@
+package com.urbandash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+public class SessionStateStoreTest {
+    // SessionStateStoreのクラスコメントのレイアウト
+    private static final int SLOT_A = 64;
+    private static final int SLOT_B = 64 + 2016;
+    private static final int PAYLOAD_OFFSET = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "session_state.bin");
+    }
+
+    @Test
+    public void restoresTheLastCommittedState() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("session-1", SessionStateStore.STATUS_BREAK, 1_000L, 60_000L, 5_000L);
+        store.updateDeliveries(Arrays.asList(
+            delivery(1, "Uber Eats", "600", 2_000L),
+            delivery(2, "出前館", "550", 3_000L)), 3);
+
+        SessionStateStore.State state = new SessionStateStore(file).read();
+        assertEquals("session-1", state.sessionId);
+        assertEquals(SessionStateStore.STATUS_BREAK, state.status);
+        assertEquals(1_000L, state.sessionStartMs);
+        assertEquals(60_000L, state.totalBreakMs);
+        assertEquals(5_000L, state.breakStartMs);
+        assertEquals(3, state.nextDeliveryNumber);
+        assertEquals(2, state.deliveries.size());
+        assertEquals(2, state.deliveries.get(1).number);
+        assertEquals("出前館", state.deliveries.get(1).service);
+        assertEquals("550", state.deliveries.get(1).reward);
+        assertEquals(3_000L, state.deliveries.get(1).startTimeMs);
+    }
+
+    @Test
+    public void alternatesBetweenTheTwoSlots() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("first", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        assertEquals(1L, readLong(SLOT_A));
+        assertEquals(0L, readLong(SLOT_B));
+
+        store.updateSession("second", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        assertEquals(1L, readLong(SLOT_A));
+        assertEquals(2L, readLong(SLOT_B));
+
+        store.updateSession("third", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        assertEquals(3L, readLong(SLOT_A));
+        assertEquals(2L, readLong(SLOT_B));
+
+        // 連番の大きい方のスロットを読む
+        assertEquals("third", new SessionStateStore(file).read().sessionId);
+    }
+
+    @Test
+    public void ignoresATornWriteAndFallsBackToThePreviousSlot() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("before", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        store.updateSession("after", SessionStateStore.STATUS_WORKING, 2_000L, 0, 0);
+
+        // 新しい方（B）の本体が書きかけのまま連番だけ進んだ状態を作る
+        flipByte(SLOT_B + PAYLOAD_OFFSET + 8);
+
+        SessionStateStore.State state = new SessionStateStore(file).read();
+        assertEquals("before", state.sessionId);
+        assertEquals(1_000L, state.sessionStartMs);
+    }
+
+    @Test
+    public void keepsWritingAfterRecoveringFromATornWrite() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("before", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        store.updateSession("after", SessionStateStore.STATUS_WORKING, 2_000L, 0, 0);
+        flipByte(SLOT_B + PAYLOAD_OFFSET + 8);
+
+        SessionStateStore recovered = new SessionStateStore(file);
+        recovered.updateSession("next", SessionStateStore.STATUS_WORKING, 3_000L, 0, 0);
+
+        // 復元に使った正常なスロット（A）は上書きせず、壊れていたBに書く
+        assertEquals(1L, readLong(SLOT_A));
+        assertEquals(2L, readLong(SLOT_B));
+        assertEquals("next", new SessionStateStore(file).read().sessionId);
+    }
+
+    @Test
+    public void startsIdleWhenBothSlotsAreCorrupt() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("before", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        store.updateSession("after", SessionStateStore.STATUS_WORKING, 2_000L, 0, 0);
+        flipByte(SLOT_A + PAYLOAD_OFFSET + 8);
+        flipByte(SLOT_B + PAYLOAD_OFFSET + 8);
+
+        SessionStateStore.State state = new SessionStateStore(file).read();
+        assertFalse(state.hasActiveSession());
+        assertEquals("", state.sessionId);
+        assertTrue(state.deliveries.isEmpty());
+    }
+
+    @Test
+    public void clearSessionDropsDeliveryAnchors() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        store.updateSession("session-1", SessionStateStore.STATUS_WORKING, 1_000L, 0, 0);
+        store.updateDeliveries(Arrays.asList(delivery(1, "Wolt", "700", 2_000L)), 2);
+        store.clearSession();
+
+        SessionStateStore.State state = new SessionStateStore(file).read();
+        assertFalse(state.hasActiveSession());
+        assertTrue(state.deliveries.isEmpty());
+        assertEquals(1, state.nextDeliveryNumber);
+    }
+
+    @Test
+    public void truncatesLongStringsOnCharacterBoundaries() throws IOException {
+        SessionStateStore store = new SessionStateStore(file);
+        // サービス名の枠は30バイト。3バイト文字を12文字（36バイト）入れると10文字に切り詰める
+        store.updateDeliveries(Arrays.asList(delivery(1, "出前館出前館出前館出前館", "", 2_000L)), 2);
+
+        assertEquals("出前館出前館出前館出", new SessionStateStore(file).read().deliveries.get(0).service);
+    }
+
+    private static DeliveryTracker.ActiveDelivery delivery(int number, String service, String reward, long startTimeMs) {
+        return new DeliveryTracker.ActiveDelivery(number, service, reward, "", "", startTimeMs, 0);
+    }
+
+    private long readLong(int offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(offset);
+            return raf.readLong();
+        }
+    }
+
+    private void flipByte(int offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 0xFF);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.urbandash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class StatementImporterTest {
+
+    @Test
+    public void parsesUberEatsStatementInUtc() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_UBER_EATS,
+            "Trip Date,Trip UUID,Fare,Tip,Trip Distance,Trip Duration\n"
+                + "2025-04-01T09:30:15Z,trip-1,\"¥1,234\",100,3.25,18.4\n");
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(1, records.size());
+        StatementImporter.Record record = records.get(0);
+        // UTCの09:30は日本時間の18:30
+        assertEquals(wallClock(2025, 4, 1, 18, 30, 15), record.timestampMs);
+        assertEquals(1234, record.earnings);
+        assertEquals(100, record.tip);
+        assertEquals(3.25, record.distanceKm, 0.0001);
+        assertEquals(18, record.durationMinutes);
+        assertEquals("Uber Eats|#trip-1", record.key);
+    }
+
+    @Test
+    public void parsesDemaekanStatementWithBomAndJapaneseMeridiem() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_DEMAEKAN,
+            "\uFEFF配達完了日時,配達番号,配達料,チップ,距離\n"
+                + "2025/04/01 午後6:30,D-100,550円,,1.5\n"
+                + "2025/04/02 午前12:05,D-101,600円,50,2\n");
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(2, records.size());
+        assertEquals(wallClock(2025, 4, 1, 18, 30, 0), records.get(0).timestampMs);
+        assertEquals(550, records.get(0).earnings);
+        assertEquals(0, records.get(0).tip);
+        assertEquals(-1, records.get(0).durationMinutes);
+        // 午前12時は0時
+        assertEquals(wallClock(2025, 4, 2, 0, 5, 0), records.get(1).timestampMs);
+        assertEquals(50, records.get(1).tip);
+    }
+
+    @Test
+    public void parsesWoltStatementWithYearLastDates() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_WOLT,
+            "Delivery Time,Task ID,Task Fee\n"
+                + "04/01/2025 6:30 PM,T-1,780.50\n"
+                + "13/04/2025 18:45,T-2,700\n");
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(2, records.size());
+        // 月/日/年
+        assertEquals(wallClock(2025, 4, 1, 18, 30, 0), records.get(0).timestampMs);
+        assertEquals(781, records.get(0).earnings);
+        // 先頭が13以上なら日/月/年
+        assertEquals(wallClock(2025, 4, 13, 18, 45, 0), records.get(1).timestampMs);
+    }
+
+    @Test
+    public void parsesMenuStatementAndSkipsAdjustments() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_MENU,
+            "配達完了時刻,配達報酬額\n"
+                + "2025-04-01 18:30,\"1,050\"\n"
+                + "2025-04-01 18:40,-300\n"
+                + "\n"
+                + "不明,500\n");
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(1, records.size());
+        assertEquals(1050, records.get(0).earnings);
+        assertEquals(3, importer.getRowsRead());
+        assertEquals(2, importer.getSkipped());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsStatementWithoutDateOrEarningsColumns() throws IOException {
+        open(StatementImporter.PLATFORM_UBER_EATS, "Trip UUID,Tip\ntrip-1,100\n");
+    }
+
+    @Test
+    public void dropsRepeatedOrderIdsWithinTheFile() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_UBER_EATS,
+            "Trip Date,Trip UUID,Fare\n"
+                + "2025-04-01 18:30,trip-1,600\n"
+                + "2025-04-01 18:30,trip-1,600\n"
+                + "2025-04-01 18:30,trip-2,600\n");
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(2, records.size());
+        assertEquals(1, importer.getDuplicates());
+    }
+
+    @Test
+    public void matchesExistingCasesWithinOneMinuteEvenWithOrderIds() throws IOException {
+        StatementImporter importer = open(StatementImporter.PLATFORM_UBER_EATS,
+            "Trip Date,Trip UUID,Fare,Tip\n"
+                + "2025-04-01 18:30,trip-1,600,100\n"
+                + "2025-04-01 18:30,trip-2,600,100\n");
+        // アプリで記録した案件は1分前（報酬+チップで照合）
+        importer.addExistingKey(StatementImporter.fallbackKey(
+            StatementImporter.PLATFORM_UBER_EATS, wallClock(2025, 4, 1, 18, 29, 0), 700));
+
+        List<StatementImporter.Record> records = importer.next(10);
+        // 登録済みの1件に対応するのは1行だけ
+        assertEquals(1, records.size());
+        assertEquals("Uber Eats|#trip-2", records.get(0).key);
+        assertEquals(1, importer.getDuplicates());
+    }
+
+    @Test
+    public void numbersRepeatedRowsWithoutOrderIds() throws IOException {
+        String csv = "日時,報酬\n"
+            + "2025-04-01 18:30,500\n"
+            + "2025-04-01 18:30,500\n"
+            + "2025-04-01 18:30,500\n";
+        StatementImporter importer = open(StatementImporter.PLATFORM_MENU, csv);
+        importer.addExistingKey(StatementImporter.fallbackKey(
+            StatementImporter.PLATFORM_MENU, wallClock(2025, 4, 1, 18, 30, 0), 500));
+
+        List<StatementImporter.Record> records = importer.next(10);
+        assertEquals(2, records.size());
+        String base = StatementImporter.fallbackKey(StatementImporter.PLATFORM_MENU, wallClock(2025, 4, 1, 18, 30, 0), 500);
+        assertEquals(base, records.get(0).key);
+        assertEquals(base + "|2", records.get(1).key);
+
+        // 取り込み直しても同じドキュメントIDになる
+        StatementImporter again = open(StatementImporter.PLATFORM_MENU, csv);
+        again.addExistingKey(base);
+        List<StatementImporter.Record> reimported = again.next(10);
+        assertEquals(records.get(0).docId, reimported.get(0).docId);
+        assertEquals(records.get(1).docId, reimported.get(1).docId);
+        assertTrue(records.get(0).docId.startsWith("import_"));
+    }
+
+    @Test
+    public void returnsRecordsInBatches() throws IOException {
+        StringBuilder csv = new StringBuilder("日時,報酬\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("2025-04-01 18:3").append(i).append(",500\n");
+        }
+        StatementImporter importer = open(StatementImporter.PLATFORM_MENU, csv.toString());
+
+        assertEquals(2, importer.next(2).size());
+        assertEquals(2, importer.next(2).size());
+        assertEquals(1, importer.next(2).size());
+        assertTrue(importer.next(2).isEmpty());
+    }
+
+    private static StatementImporter open(String platform, String csv) throws IOException {
+        StatementImporter importer = new StatementImporter(new StringReader(csv), platform);
+        importer.readHeader();
+        return importer;
+    }
+
+    // 日本時間の壁時計をUTCとみなしたミリ秒（アプリの保存形式）
+    private static long wallClock(int year, int month, int day, int hour, int minute, int second) {
+        return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC) * 1000L;
+    }
+}
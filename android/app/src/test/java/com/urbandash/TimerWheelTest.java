@@ -0,0 +1,127 @@
+package com.urbandash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimerWheelTest {
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 8;
+
+    private final List<String> fired = new ArrayList<>();
+    private TimerWheel<String> wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new TimerWheel<>(TICK_MS, WHEEL_SIZE, (item, deadlineMs) -> fired.add(item));
+        wheel.advanceTo(0);
+    }
+
+    @Test
+    public void firesConcurrentTimersAtTheirOwnDeadlines() {
+        wheel.schedule("a", 1000);
+        wheel.schedule("b", 1000);
+        wheel.schedule("c", 2500);
+
+        wheel.advanceTo(999);
+        assertTrue(fired.isEmpty());
+
+        wheel.advanceTo(1000);
+        assertEquals(Arrays.asList("a", "b"), fired);
+
+        // 2500msはtick 3に切り上げられ、期限より早くは発火しない
+        wheel.advanceTo(2999);
+        assertEquals(2, fired.size());
+        assertFalse(wheel.isEmpty());
+
+        wheel.advanceTo(3000);
+        assertEquals(Arrays.asList("a", "b", "c"), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void waitsForTheRightRoundWhenTheDeadlineIsBeyondOneWheel() {
+        // tick 20はtick 4・12と同じスロットに入る
+        wheel.schedule("late", 20 * TICK_MS);
+
+        wheel.advanceTo(4 * TICK_MS);
+        wheel.advanceTo(12 * TICK_MS);
+        assertTrue(fired.isEmpty());
+
+        wheel.advanceTo(20 * TICK_MS);
+        assertEquals(Arrays.asList("late"), fired);
+    }
+
+    @Test
+    public void firesOverdueTimersAfterALongStall() {
+        wheel.schedule("a", 3 * TICK_MS);
+        wheel.schedule("b", 5 * TICK_MS);
+
+        // 何周分も止まっていても走査は1周で済み、期限切れはすべて発火する
+        wheel.advanceTo(100 * TICK_MS);
+        assertEquals(2, fired.size());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void cancelledTimersDoNotFire() {
+        TimerWheel.Timeout<String> a = wheel.schedule("a", 1000);
+        wheel.schedule("b", 1000);
+        wheel.cancel(a);
+        assertTrue(a.isCancelled());
+        assertFalse(wheel.isEmpty());
+
+        wheel.advanceTo(1000);
+        assertEquals(Arrays.asList("b"), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void cancellingAnExpiredTimerKeepsThePendingCount() {
+        TimerWheel.Timeout<String> a = wheel.schedule("a", 1000);
+        wheel.advanceTo(1000);
+        wheel.cancel(a);
+        wheel.cancel(a);
+        assertTrue(wheel.isEmpty());
+
+        wheel.schedule("b", 2000);
+        assertFalse(wheel.isEmpty());
+    }
+
+    @Test
+    public void schedulingIntoAPassedTickFiresOnTheNextTick() {
+        wheel.advanceTo(5 * TICK_MS);
+        wheel.schedule("past", 2 * TICK_MS);
+
+        wheel.advanceTo(6 * TICK_MS - 1);
+        assertTrue(fired.isEmpty());
+
+        wheel.advanceTo(6 * TICK_MS);
+        assertEquals(Arrays.asList("past"), fired);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reschedulingFromTheListenerDoesNotFireTwiceInOneAdvance() {
+        List<Long> deadlines = new ArrayList<>();
+        TimerWheel<String>[] holder = new TimerWheel[1];
+        holder[0] = new TimerWheel<>(TICK_MS, WHEEL_SIZE, (item, deadlineMs) -> {
+            deadlines.add(deadlineMs);
+            holder[0].schedule(item, deadlineMs + TICK_MS);
+        });
+        holder[0].advanceTo(0);
+        holder[0].schedule("tick", TICK_MS);
+
+        holder[0].advanceTo(TICK_MS);
+        holder[0].advanceTo(2 * TICK_MS);
+        holder[0].advanceTo(3 * TICK_MS);
+        assertEquals(Arrays.asList(1000L, 2000L, 3000L), deadlines);
+    }
+}
@@ -11,6 +11,7 @@ import {
 } from 'react-native';
 import DateTimePicker from '@react-native-community/datetimepicker';
 import { useWork } from '../context/WorkContext';
+import { useSessionCaseTotals } from '../utils/performance';
 import SimpleProgressBar from './SimpleProgressBar';
 
 interface AddCaseModalProps {
@@ -30,6 +31,7 @@ const deliveryServices = [
 
 const AddCaseModal: React.FC<AddCaseModalProps> = ({ visible, onClose }) => {
   const { addDeliveryCase, state } = useWork();
+  const { totalEarnings } = useSessionCaseTotals();
   
   // 目標金額（後で設定画面から取得予定）
   const dailyTarget = 10000;
@@ -213,7 +215,7 @@ const AddCaseModal: React.FC<AddCaseModalProps> = ({ visible, onClose }) => {
         {/* プログレスバー */}
         <View style={styles.progressContainer}>
           <SimpleProgressBar 
-            currentAmount={state.totalEarnings}
+            currentAmount={totalEarnings}
             targetAmount={dailyTarget}
           />
         </View>
@@ -0,0 +1,57 @@
+import React, { useEffect, useState } from 'react';
+import { View, Image, StyleSheet } from 'react-native';
+import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
+import { RoutePoint } from '../types/driveLog';
+import { RouteThumbnailService } from '../services/RouteThumbnailService';
+
+interface RouteThumbnailProps {
+  logId: string;
+  routePath: RoutePoint[] | string;
+  width?: number;
+  height?: number;
+}
+
+const RouteThumbnail: React.FC<RouteThumbnailProps> = ({
+  logId,
+  routePath,
+  width = 64,
+  height = 48,
+}) => {
+  const [uri, setUri] = useState<string | null>(null);
+
+  useEffect(() => {
+    let isMounted = true;
+    RouteThumbnailService.getInstance()
+      .getThumbnailUri(logId, routePath, width, height)
+      .then((result) => {
+        if (isMounted) setUri(result);
+      });
+    return () => {
+      isMounted = false;
+    };
+    // routePathはlogIdごとに不変なので依存関係に含めない
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [logId, width, height]);
+
+  return (
+    <View style={[styles.container, { width, height }]}>
+      {uri ? (
+        <Image source={{ uri }} style={{ width, height }} fadeDuration={0} />
+      ) : (
+        <Icon name="map-marker-path" size={20} color="#4CAF50" />
+      )}
+    </View>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    borderRadius: 8,
+    overflow: 'hidden',
+    backgroundColor: '#1E2A3A',
+    justifyContent: 'center',
+    alignItems: 'center',
+  },
+});
+
+export default React.memo(RouteThumbnail);
@@ -1,6 +1,7 @@
 import React, { createContext, useContext, useReducer, useEffect, useCallback, ReactNode } from 'react';
 import { GpsService } from '../services/GpsService';
 import { DriveLogService } from '../services/DriveLogService';
+import { SessionAggregatorService } from '../services/SessionAggregatorService';
 import { GpsTrackingState, DriveLog } from '../types/driveLog';
 import auth from '@react-native-firebase/auth';
 import { useWork } from './WorkContext';
@@ -148,6 +149,7 @@ export const GpsProvider: React.FC<GpsProviderProps> = ({ children }) => {
         };
         
         dispatch({ type: 'ADD_DRIVE_LOG', payload: newLog });
+        SessionAggregatorService.getInstance().recordTracking(statistics.totalDistance);
         
         console.log('Drive log saved successfully:', savedLogId);
       }
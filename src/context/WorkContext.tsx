@@ -4,6 +4,11 @@ import FirebaseService, { WorkSessionData, BreakPeriodData, DeliveryCaseData } f
 import firestore, { FirebaseFirestoreTypes } from '@react-native-firebase/firestore';
 import Toast from 'react-native-toast-message';
 import StorageService from '../services/StorageService';
+import { SessionAggregatorService } from '../services/SessionAggregatorService';
+import { ActivitySegmentService } from '../services/ActivitySegmentService';
+import OverlayService from '../services/OverlayService';
+import { WakeupAuditService } from '../services/WakeupAuditService';
+import { SessionCaseStore } from '../services/SessionCaseStore';
 
 // 勤務状態の型定義
 export type WorkStatus = 'idle' | 'working' | 'break';
@@ -27,9 +32,6 @@ export interface WorkState {
   currentBreakStart: Date | null;
   totalWorkingTime: number; // 秒
   totalBreakTime: number; // 秒
-  totalEarnings: number;
-  totalCases: number;
-  todayCases: DeliveryCaseData[];
   todayRecords: DeliveryRecordData[]; // 新しい配達記録の配列
   // 今週データ
   weeklyEarnings: number;
@@ -49,11 +51,10 @@ type WorkAction =
   | { type: 'END_WORK' }
   | { type: 'START_BREAK'; payload: Date }
   | { type: 'END_BREAK'; payload: { breakDuration: number } }
-  | { type: 'ADD_CASE'; payload: DeliveryCaseData }
   | { type: 'ADD_DELIVERY_RECORD'; payload: DeliveryRecordData } // 新しいアクションタイプ
-  | { type: 'UPDATE_EARNINGS'; payload: number }
   | { type: 'UPDATE_TIMES'; payload: { workingTime: number; breakTime: number } }
-  | { type: 'LOAD_SESSION'; payload: { sessionId: string; session: WorkSessionData; cases: DeliveryCaseData[] } }
+  | { type: 'LOAD_SESSION'; payload: { sessionId: string; session: WorkSessionData } }
+  | { type: 'UPDATE_SESSION'; payload: WorkSessionData }
   | { type: 'RESET_STATE' }
   | { type: 'UPDATE_WEEKLY_DATA'; payload: { weeklyEarnings: number; weeklyDeliveries: number; weeklyWorkingTime: number; weeklyAverageHourlyRate: number } };
 
@@ -65,9 +66,6 @@ const initialState: WorkState = {
   currentBreakStart: null,
   totalWorkingTime: 0,
   totalBreakTime: 0,
-  totalEarnings: 0,
-  totalCases: 0,
-  todayCases: [],
   todayRecords: [],
   weeklyEarnings: 0,
   weeklyDeliveries: 0,
@@ -78,6 +76,28 @@ const initialState: WorkState = {
   isWorking: false,
 };
 
+// 状態ファイルに勤務中のセッションが残っていれば、Firestoreの確認を待たずにその状態から始める
+function initWorkState(base: WorkState): WorkState {
+  const saved = StorageService.getTempWorkDataSync();
+  if (!saved || !saved.sessionId || !saved.startTime) return base;
+
+  const breakStart = saved.status === 'break' && saved.breakStart ? new Date(saved.breakStart) : null;
+  return {
+    ...base,
+    status: breakStart ? 'break' : 'working',
+    currentSessionId: saved.sessionId,
+    currentSession: {
+      userId: '',
+      startTime: new Date(saved.startTime),
+      status: 'active',
+      breakPeriods: breakStart ? [{ startTime: breakStart }] : [],
+    },
+    currentBreakStart: breakStart,
+    totalBreakTime: (saved.totalBreakMs || 0) / 1000,
+    isWorking: true,
+  };
+}
+
 // リデューサー
 function workReducer(state: WorkState, action: WorkAction): WorkState {
   switch (action.type) {
@@ -95,9 +115,6 @@ function workReducer(state: WorkState, action: WorkAction): WorkState {
         currentSession: action.payload.session,
         totalWorkingTime: 0,
         totalBreakTime: 0,
-        totalEarnings: 0,
-        totalCases: 0,
-        todayCases: [],
         error: null,
         isWorking: true,
       };
@@ -127,15 +144,6 @@ function workReducer(state: WorkState, action: WorkAction): WorkState {
         totalBreakTime: state.totalBreakTime + action.payload.breakDuration,
       };
     
-    case 'ADD_CASE':
-      const newEarnings = action.payload.earnings + (action.payload.tip || 0);
-      return {
-        ...state,
-        todayCases: [...state.todayCases, action.payload],
-        totalCases: state.totalCases + 1,
-        totalEarnings: state.totalEarnings + newEarnings,
-      };
-    
     case 'ADD_DELIVERY_RECORD':
       return {
         ...state,
@@ -143,12 +151,6 @@ function workReducer(state: WorkState, action: WorkAction): WorkState {
         // 必要に応じて totalEarnings や totalCases も更新
       };
     
-    case 'UPDATE_EARNINGS':
-      return {
-        ...state,
-        totalEarnings: action.payload,
-      };
-    
     case 'UPDATE_TIMES':
       return {
         ...state,
@@ -157,21 +159,20 @@ function workReducer(state: WorkState, action: WorkAction): WorkState {
       };
     
     case 'LOAD_SESSION':
-      const sessionEarnings = action.payload.cases.reduce(
-        (sum, case_) => sum + case_.earnings + (case_.tip || 0),
-        0
-      );
       return {
         ...state,
-        status: 'working',
+        status: state.status === 'break' ? 'break' : 'working',
         currentSessionId: action.payload.sessionId,
         currentSession: action.payload.session,
-        todayCases: action.payload.cases,
-        totalCases: action.payload.cases.length,
-        totalEarnings: sessionEarnings,
         isWorking: true,
       };
     
+    case 'UPDATE_SESSION':
+      return {
+        ...state,
+        currentSession: action.payload,
+      };
+    
     case 'RESET_STATE':
       return initialState;
     
@@ -207,6 +208,11 @@ interface WorkContextType {
     beforeFirstCase: number;
     betweenCases: number;
     afterLastCase: number;
+    // 端末の行動判定（Android）から求めた内訳（秒）
+    pickupWaitingTime?: number;
+    dropoffDwellTime?: number;
+    idleTime?: number;
+    drivingTime?: number;
   };
   loadWeeklyData: () => Promise<void>;
   refreshSession: () => Promise<void>;
@@ -222,8 +228,71 @@ interface WorkProviderProps {
 }
 
 export function WorkProvider({ children }: WorkProviderProps) {
-  const [state, dispatch] = useReducer(workReducer, initialState);
-  const { user } = useAuth();
+  const [state, dispatch] = useReducer(workReducer, initialState, initWorkState);
+  const { user, loading: authLoading } = useAuth();
+  const sessionAggregator = SessionAggregatorService.getInstance();
+  const activitySegments = ActivitySegmentService.getInstance();
+
+  // 勤務セッションをFirestoreに作成して勤務中にする（startMsは実時刻）
+  // タイル・通知から開始された勤務はネイティブの時計が既に動いているので、集計は作り直さない
+  const createSession = async (startMs: number, nativeClockRunning: boolean): Promise<string> => {
+    // 日本時間で勤務開始時刻を設定
+    const jstStartTime = new Date(startMs + (9 * 60 * 60 * 1000));
+
+    const sessionData: WorkSessionData = {
+      userId: user!.uid,
+      startTime: jstStartTime,
+      status: 'active',
+      breakPeriods: [],
+    };
+
+    const sessionId = await FirebaseService.createWorkSession(sessionData);
+
+    dispatch({
+      type: 'START_WORK',
+      payload: {
+        sessionId,
+        session: sessionData,
+      },
+    });
+    if (!nativeClockRunning) {
+      sessionAggregator.startSession(startMs);
+    }
+    activitySegments.start();
+
+    // 一時データを保存
+    await StorageService.saveTempWorkData({
+      sessionId,
+      startTime: sessionData.startTime.toISOString(),
+      status: 'working',
+    });
+    return sessionId;
+  };
+
+  // アプリを開く前にタイル・通知から開始された勤務を取り込む。取り込んだ場合はtrue
+  const adoptQuickLaunchSession = useCallback(async (hasActiveSession: boolean): Promise<boolean> => {
+    if (!user) return false;
+    // キューは通知として読み捨て、開始時刻は状態ファイル（セッションIDが未確定の勤務）から取る。
+    // Firestoreへの作成に失敗しても状態ファイルが残るので次回の起動時に作り直せる
+    await OverlayService.getInstance().takePendingActions('session_started');
+    const saved = StorageService.getTempWorkDataSync();
+    if (!saved || saved.sessionId || !saved.startTime) return false;
+    if (hasActiveSession) {
+      // 別の端末などで既に勤務中だった場合はそちらを優先する
+      console.log('Quick launch session ignored: session already active');
+      return false;
+    }
+
+    const startMs = new Date(saved.startTime).getTime() - (9 * 60 * 60 * 1000);
+    await createSession(startMs, true);
+    Toast.show({
+      type: 'success',
+      text1: '勤務開始',
+      text2: 'クイック設定から開始した勤務を記録しました',
+    });
+    return true;
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [user]);
 
   // 進行中のセッションをチェック
   const checkActiveSession = useCallback(async () => {
@@ -236,8 +305,11 @@ export function WorkProvider({ children }: WorkProviderProps) {
       try {
         // 最新のセッションを取得
         const sessions = await FirebaseService.getUserWorkSessions(user.uid, 1);
-        
-        if (sessions.length > 0) {
+        const hasActiveSession = sessions.length > 0 && sessions[0].status === 'active';
+
+        if (await adoptQuickLaunchSession(hasActiveSession)) {
+          // タイル・通知から開始した勤務をセッションとして作成した
+        } else if (sessions.length > 0) {
           const latestSession = sessions[0];
           
           // アクティブなセッションがあるかチェック
@@ -249,9 +321,15 @@ export function WorkProvider({ children }: WorkProviderProps) {
               payload: {
                 sessionId: latestSession.id,
                 session: latestSession,
-                cases,
               },
             });
+            sessionAggregator.restoreSession(latestSession, cases);
+            activitySegments.start();
+          } else if (StorageService.getTempWorkDataSync()) {
+            // 端末に残っていたセッションが別の端末などで既に終了していた
+            dispatch({ type: 'RESET_STATE' });
+            sessionAggregator.endSession();
+            await StorageService.clearTempWorkData();
           }
         }
       } catch (firestoreError) {
@@ -264,62 +342,58 @@ export function WorkProvider({ children }: WorkProviderProps) {
     } finally {
       dispatch({ type: 'SET_LOADING', payload: false });
     }
-  }, [user]);
+  }, [user, adoptQuickLaunchSession]);
+
+  // アプリの起動中にタイル・通知から勤務が開始された
+  useEffect(() => {
+    if (!user) return;
+    return OverlayService.getInstance().addPendingActionListener((type) => {
+      if (type === 'session_started' && !state.currentSessionId) {
+        adoptQuickLaunchSession(false).catch((error) => {
+          console.error('クイック起動の勤務の取り込みエラー:', error);
+        });
+      }
+    });
+  }, [user, state.currentSessionId, adoptQuickLaunchSession]);
 
-  // リアルタイムリスナーの設定
+  // 配達案件のリアルタイムリスナー
+  // 変更のあった案件だけをSessionCaseStoreに反映する。一覧・合計はコンテキストの状態に載せず、
+  // 必要な画面がuseSessionCaseTotalsなどでストアを直接購読する（案件の追加でコンテキスト全体を再レンダリングしない）
   useEffect(() => {
     if (!user || !state.currentSessionId) return;
 
-    // 配達案件のリアルタイムリスナー
+    const caseStore = SessionCaseStore.getInstance();
+    caseStore.reset(state.currentSessionId);
+
     const unsubscribeCases = firestore()
       .collection('deliveryCases')
       .where('userId', '==', user.uid)
       .where('workSessionId', '==', state.currentSessionId)
       .orderBy('timestamp', 'desc')
       .onSnapshot(
-        (snapshot) => {
-          const cases: DeliveryCaseData[] = [];
-          snapshot.forEach((doc) => {
-            const data = doc.data();
-            cases.push({
-              id: doc.id,
-              ...data,
-              timestamp: data.timestamp && typeof data.timestamp.toDate === 'function' 
-                ? data.timestamp.toDate() 
-                : data.timestamp,
-            } as unknown as DeliveryCaseData);
-          });
-
-          // 案件データを更新
-          const totalEarnings = cases.reduce(
-            (sum, case_) => sum + case_.earnings + (case_.tip || 0),
-            0
-          );
-
-          dispatch({ type: 'UPDATE_EARNINGS', payload: totalEarnings });
-          
-          // 案件リストを更新
-          const currentCases = [...cases].reverse(); // 時系列順に並び替え
-          dispatch({
-            type: 'LOAD_SESSION',
-            payload: {
-              sessionId: state.currentSessionId!,
-              session: state.currentSession!,
-              cases: currentCases,
-            },
-          });
-        },
+        WakeupAuditService.getInstance().wrap('firestore_snapshot', (snapshot: FirebaseFirestoreTypes.QuerySnapshot) => {
+          caseStore.applySnapshot(snapshot);
+        }),
         (error) => {
           console.error('案件リアルタイム更新エラー:', error);
         }
       );
 
-    // 勤務セッションのリアルタイムリスナー
+    return () => {
+      unsubscribeCases();
+      caseStore.reset(null);
+    };
+  }, [user, state.currentSessionId]);
+
+  // 勤務セッションのリアルタイムリスナー
+  useEffect(() => {
+    if (!user || !state.currentSessionId) return;
+
     const unsubscribeSession = firestore()
       .collection('workSessions')
       .doc(state.currentSessionId)
       .onSnapshot(
-        (doc) => {
+        WakeupAuditService.getInstance().wrap('firestore_snapshot', (doc: FirebaseFirestoreTypes.DocumentSnapshot) => {
           if (doc.exists()) {
             const sessionData = doc.data();
             
@@ -340,36 +414,28 @@ export function WorkProvider({ children }: WorkProviderProps) {
             } as unknown as WorkSessionData;
 
             // セッション情報を更新（アクティブなセッションのみ）
-            dispatch({
-              type: 'LOAD_SESSION',
-              payload: {
-                sessionId: state.currentSessionId!,
-                session: updatedSession,
-                cases: state.todayCases,
-              },
-            });
+            dispatch({ type: 'UPDATE_SESSION', payload: updatedSession });
           }
-        },
+        }),
         (error) => {
           console.error('セッションリアルタイム更新エラー:', error);
         }
       );
 
-    // クリーンアップ関数
     return () => {
-      unsubscribeCases();
       unsubscribeSession();
     };
-  }, [user, state.currentSessionId, state.currentSession, state.todayCases]);
+  }, [user, state.currentSessionId]);
 
   // アプリ起動時に進行中のセッションをチェック
   useEffect(() => {
     if (user) {
       checkActiveSession();
-    } else {
+    } else if (!authLoading) {
+      // 認証の確認中は状態ファイルから復元した勤務状態を残しておく
       dispatch({ type: 'RESET_STATE' });
     }
-  }, [user, checkActiveSession]);
+  }, [user, authLoading, checkActiveSession]);
 
   // 勤務開始
   const startWork = async () => {
@@ -378,33 +444,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
     try {
       dispatch({ type: 'SET_LOADING', payload: true });
 
-      // 日本時間で勤務開始時刻を設定
-      const now = new Date();
-      const jstStartTime = new Date(now.getTime() + (9 * 60 * 60 * 1000));
-
-      const sessionData: WorkSessionData = {
-        userId: user.uid,
-        startTime: jstStartTime,
-        status: 'active',
-        breakPeriods: [],
-      };
-
-      const sessionId = await FirebaseService.createWorkSession(sessionData);
-      
-      dispatch({
-        type: 'START_WORK',
-        payload: {
-          sessionId,
-          session: sessionData,
-        },
-      });
-
-      // 一時データを保存
-      await StorageService.saveTempWorkData({
-        sessionId,
-        startTime: sessionData.startTime.toISOString(),
-        status: 'working',
-      });
+      await createSession(Date.now(), false);
 
       Toast.show({
         type: 'success',
@@ -448,8 +488,8 @@ export function WorkProvider({ children }: WorkProviderProps) {
         status: 'completed' as const,
         _totalWorkingDurationSeconds: finalWorkingTime,
         _totalBreakDurationSeconds: finalBreakTime,
-        _totalEarnings: state.totalEarnings,
-        _totalCases: state.totalCases,
+        _totalEarnings: SessionCaseStore.getInstance().getTotals().totalEarnings,
+        _totalCases: SessionCaseStore.getInstance().getTotals().totalCases,
         _averageHourlyRate: finalHourlyRate,
       };
 
@@ -459,6 +499,8 @@ export function WorkProvider({ children }: WorkProviderProps) {
       await FirebaseService.calculateSessionStatistics(state.currentSessionId);
 
       dispatch({ type: 'END_WORK' });
+      sessionAggregator.endSession();
+      activitySegments.refreshSegments();
 
       // 一時データを削除し、最終同期時刻を保存
       await StorageService.clearTempWorkData();
@@ -484,8 +526,8 @@ export function WorkProvider({ children }: WorkProviderProps) {
               status: 'completed' as const,
               _totalWorkingDurationSeconds: getCurrentWorkingTime(),
               _totalBreakDurationSeconds: getCurrentBreakTime(),
-              _totalEarnings: state.totalEarnings,
-              _totalCases: state.totalCases,
+              _totalEarnings: SessionCaseStore.getInstance().getTotals().totalEarnings,
+              _totalCases: SessionCaseStore.getInstance().getTotals().totalCases,
               _averageHourlyRate: getEstimatedHourlyRate(),
             };
             await FirebaseService.updateWorkSession(state.currentSessionId, updateData);
@@ -494,6 +536,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
             await FirebaseService.calculateSessionStatistics(state.currentSessionId);
             
             dispatch({ type: 'END_WORK' });
+            sessionAggregator.endSession();
             await StorageService.clearTempWorkData();
             await StorageService.saveLastSyncTime();
             
@@ -535,6 +578,8 @@ export function WorkProvider({ children }: WorkProviderProps) {
       });
 
       dispatch({ type: 'START_BREAK', payload: breakStart });
+      sessionAggregator.startBreak(now.getTime());
+      activitySegments.refreshSegments();
 
       // 一時データを更新
       await StorageService.saveTempWorkData({
@@ -542,6 +587,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
         startTime: state.currentSession?.startTime.toISOString(),
         status: 'break',
         breakStart: breakStart.toISOString(),
+        totalBreakMs: state.totalBreakTime * 1000,
       });
 
       Toast.show({
@@ -580,12 +626,15 @@ export function WorkProvider({ children }: WorkProviderProps) {
       });
 
       dispatch({ type: 'END_BREAK', payload: { breakDuration } });
+      sessionAggregator.endBreak(now.getTime());
+      activitySegments.refreshSegments();
 
       // 一時データを更新
       await StorageService.saveTempWorkData({
         sessionId: state.currentSessionId,
         startTime: state.currentSession?.startTime.toISOString(),
         status: 'working',
+        totalBreakMs: (state.totalBreakTime + breakDuration) * 1000,
       });
 
       Toast.show({
@@ -615,8 +664,9 @@ export function WorkProvider({ children }: WorkProviderProps) {
         workSessionId: state.currentSessionId,
       } as DeliveryCaseData;
 
+      // 一覧と合計へはリアルタイムリスナーが反映する（ローカルの書き込みもすぐに届く）
       await FirebaseService.createDeliveryCase(fullCaseData);
-      dispatch({ type: 'ADD_CASE', payload: fullCaseData });
+      sessionAggregator.recordDelivery(fullCaseData);
 
       Toast.show({
         type: 'success',
@@ -702,8 +752,13 @@ export function WorkProvider({ children }: WorkProviderProps) {
 
   // 推定時給を計算
   const getEstimatedHourlyRate = (): number => {
+    // ネイティブ集計があればイベント時に計算済みの値を使う
+    const snapshot = sessionAggregator.getLatest();
+    if (snapshot && snapshot.status !== 'idle') {
+      return snapshot.hourlyRate;
+    }
     const workingTimeHours = getCurrentWorkingTime() / 3600;
-    return workingTimeHours > 0 ? state.totalEarnings / workingTimeHours : 0;
+    return workingTimeHours > 0 ? SessionCaseStore.getInstance().getTotals().totalEarnings / workingTimeHours : 0;
   };
 
   // 地蔵時間（待機時間）を計算（秒）
@@ -713,7 +768,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
     const currentWorkingTime = getCurrentWorkingTime();
     
     // 案件にかかった総時間を計算（分単位から秒単位に変換）
-    const totalCaseDuration = state.todayCases.reduce((sum, case_) => sum + (case_.duration * 60), 0);
+    const totalCaseDuration = SessionCaseStore.getInstance().getCases().reduce((sum, case_) => sum + (case_.duration * 60), 0);
     
     // 地蔵時間 = 勤務時間 - 案件時間
     return Math.max(0, currentWorkingTime - totalCaseDuration);
@@ -732,7 +787,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
 
     const sessionStart = state.currentSession.startTime;
     const now = new Date();
-    const sortedCases = [...state.todayCases].sort((a, b) => a.timestamp.getTime() - b.timestamp.getTime());
+    const sortedCases = [...SessionCaseStore.getInstance().getCases()].sort((a, b) => a.timestamp.getTime() - b.timestamp.getTime());
 
     let beforeFirstCase = 0;
     let betweenCases = 0;
@@ -775,6 +830,20 @@ export function WorkProvider({ children }: WorkProviderProps) {
 
     const totalWaitingTime = beforeFirstCase + betweenCases + afterLastCase;
 
+    if (activitySegments.isAvailable() && (activitySegments.getCurrentState() !== 'unknown' || activitySegments.getSegments().length > 0)) {
+      const totals = activitySegments.getTotals(now.getTime());
+      return {
+        totalWaitingTime,
+        beforeFirstCase,
+        betweenCases,
+        afterLastCase,
+        pickupWaitingTime: totals.waitingPickup,
+        dropoffDwellTime: totals.dwellDropoff,
+        idleTime: totals.idle,
+        drivingTime: totals.driving,
+      };
+    }
+
     return {
       totalWaitingTime,
       beforeFirstCase,
@@ -797,9 +866,9 @@ export function WorkProvider({ children }: WorkProviderProps) {
           payload: {
             sessionId: state.currentSessionId,
             session,
-            cases,
           },
         });
+        sessionAggregator.restoreSession(session, cases);
       }
     } catch (error) {
       console.error('セッション更新エラー:', error);
@@ -898,6 +967,7 @@ export function WorkProvider({ children }: WorkProviderProps) {
   const forceResetSession = async () => {
     console.log('セッションを強制リセットします');
     dispatch({ type: 'RESET_STATE' });
+    sessionAggregator.endSession();
     await StorageService.clearTempWorkData();
     Toast.show({
       type: 'success',
@@ -1,5 +1,7 @@
 import React, { createContext, useContext, useState, useEffect, ReactNode, useCallback, useRef } from 'react';
 import OverlayService, { OverlaySettings, OverlayPosition, FormData } from '../services/OverlayService';
+import { SpatialIndexService } from '../services/SpatialIndexService';
+import { DriveLogService } from '../services/DriveLogService';
 import { useWork } from '../context/WorkContext';
 import firestore from '@react-native-firebase/firestore';
 import auth from '@react-native-firebase/auth';
@@ -60,7 +62,8 @@ export const OverlayProvider: React.FC<OverlayProviderProps> = ({ children }) =>
         service: data.deliveryService,
         earnings: parseInt(data.reward),
         tip: 0, // チップは削除されたので0
-        timestamp: firestore.Timestamp.fromDate(new Date()),
+        // キューから保存する送信は送信した時刻で記録する
+        timestamp: firestore.Timestamp.fromDate(data.finishTime && parseInt(data.finishTime) > 0 ? new Date(parseInt(data.finishTime)) : new Date()),
         createdAt: firestore.FieldValue.serverTimestamp(),
       };
 
@@ -100,15 +103,56 @@ export const OverlayProvider: React.FC<OverlayProviderProps> = ({ children }) =>
         deliveryCaseData.memo = data.memo.trim();
       }
       
+      // 実測の走行距離・移動時間（入力された距離とは別に残す）
+      if (data.route) {
+        deliveryCaseData.routeDistanceMeters = Math.round(data.route.distanceMeters);
+        deliveryCaseData.routeMovingSeconds = data.route.movingSeconds;
+        // 開始時点からの測位がない経路は実際より短いので区別できるようにする
+        deliveryCaseData.routePartial = data.route.partial;
+      }
+      
       if (data.deliveryService === 'その他') {
         deliveryCaseData.customDeliveryServiceName = data.deliveryService;
       }
 
       // Firestoreに保存
-      await firestore()
+      const caseRef = await firestore()
         .collection('deliveryCases')
         .add(deliveryCaseData);
 
+      // 配達ごとの経路を案件に紐付けた走行ログとして保存（失敗しても案件の保存は成功扱い）
+      if (data.route && data.startTime && data.finishTime) {
+        try {
+          await DriveLogService.getInstance().saveDriveLog({
+            userId: user.uid,
+            workSessionId: state.currentSessionId!,
+            deliveryCaseId: caseRef.id,
+            startTime: new Date(parseInt(data.startTime)),
+            endTime: new Date(parseInt(data.finishTime)),
+            totalDistanceMeters: data.route.distanceMeters,
+            durationSeconds: data.route.durationSeconds,
+            averageSpeedKmh: data.route.averageSpeedKmh,
+            maxSpeedKmh: data.route.maxSpeedKmh,
+            partial: data.route.partial,
+            routePath: data.route.path,
+          });
+        } catch (routeError) {
+          console.error('Error saving delivery route:', routeError);
+        }
+      }
+
+      // 稼げるエリアの集計用に端末内の空間インデックスへも記録（失敗しても保存は成功扱い）
+      if (deliveryCaseData.deliveryStartTime) {
+        SpatialIndexService.getInstance().recordFinishedDelivery({
+          service: data.deliveryService,
+          earnings: deliveryCaseData.earnings,
+          startTime: parseInt(data.startTime!),
+          finishTime: parseInt(data.finishTime!),
+          route: data.route,
+          dropoff: data.dropoff,
+        });
+      }
+
       console.log('Delivery case saved successfully from overlay form');
     } catch (error) {
       console.error('Error saving delivery case from overlay form:', error);
@@ -138,6 +182,8 @@ export const OverlayProvider: React.FC<OverlayProviderProps> = ({ children }) =>
             console.log('Delivery case saved successfully from overlay form');
           } catch (error) {
             console.error('Error saving delivery case from overlay form:', error);
+            // 呼び出し側（再送・キューへの戻し）が失敗を知れるよう投げ直す
+            throw error;
           }
         });
 
@@ -172,12 +218,22 @@ export const OverlayProvider: React.FC<OverlayProviderProps> = ({ children }) =>
           console.log('Delivery case saved successfully from overlay form');
         } catch (error) {
           console.error('Error saving delivery case from overlay form:', error);
+          throw error;
         }
       });
     }
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [saveDeliveryCase]); // overlayServiceはuseRefで固定されているため依存関係に含めない
 
+  // 勤務セッションが確定したら、アプリを開く前にタイル・通知から送信された案件を保存する
+  useEffect(() => {
+    if (!isInitializedRef.current || !state.currentSessionId) return;
+    overlayService.replayPendingSubmissions().catch((error) => {
+      console.error('Error replaying queued overlay submissions:', error);
+    });
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, [state.currentSessionId, saveDeliveryCase]);
+
   // 勤務状態の変化を監視してオーバーレイを制御（設定は変更しない）
   useEffect(() => {
     const handleWorkStateChange = async () => {
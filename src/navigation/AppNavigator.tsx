@@ -1,5 +1,5 @@
 import React from 'react';
-import { NavigationContainer } from '@react-navigation/native';
+import { NavigationContainer, useNavigationContainerRef } from '@react-navigation/native';
 import { createStackNavigator } from '@react-navigation/stack';
 import { createBottomTabNavigator } from '@react-navigation/bottom-tabs';
 import { View, ActivityIndicator, StyleSheet } from 'react-native';
@@ -12,11 +12,13 @@ import HistoryScreen from '../screens/HistoryScreen';
 import StatisticsScreen from '../screens/StatisticsScreen';
 import AccountSettingsScreen from '../screens/AccountSettingsScreen';
 import OverlaySettingsScreen from '../screens/OverlaySettingsScreen';
-// import MapScreen from '../screens/MapScreen';
+import DataImportScreen from '../screens/DataImportScreen';
+import MapScreen from '../screens/MapScreen';
 import { AuthProvider, useAuth } from '../context/AuthContext';
 import { WorkProvider } from '../context/WorkContext';
 import { OverlayProvider } from '../contexts/OverlayContext';
 import { GpsProvider } from '../context/GpsContext';
+import { FrameMetricsService } from '../services/FrameMetricsService';
 
 export type AuthStackParamList = {
   SignUp: undefined;
@@ -35,6 +37,7 @@ export type MainTabParamList = {
 export type MainStackParamList = {
   MainTabs: undefined;
   OverlaySettings: undefined;
+  DataImport: undefined;
 };
 
 export type RootStackParamList = AuthStackParamList & MainStackParamList;
@@ -125,7 +128,7 @@ const MainNavigator = () => {
       />
       <MainTab.Screen 
         name="Map" 
-        component={HomeScreen}
+        component={MapScreen}
         options={{
           title: '地図',
           tabBarIcon: ({ color, size }) => (
@@ -190,6 +193,20 @@ const MainStackNavigator = () => {
           },
         }}
       />
+      <MainStack.Screen 
+        name="DataImport" 
+        component={DataImportScreen}
+        options={{
+          title: '売上明細の取り込み',
+          headerStyle: {
+            backgroundColor: '#121212',
+          },
+          headerTintColor: '#E0E0E0',
+          headerTitleStyle: {
+            fontWeight: 'bold',
+          },
+        }}
+      />
     </MainStack.Navigator>
   );
 };
@@ -220,9 +237,16 @@ const AppContent = () => {
 };
 
 const AppNavigator = () => {
+  const navigationRef = useNavigationContainerRef();
+
+  // フレーム時間の計測を表示中の画面名で分ける
+  const handleNavigationChange = () => {
+    FrameMetricsService.getInstance().setScreen(navigationRef.getCurrentRoute()?.name);
+  };
+
   return (
     <AuthProvider>
-      <NavigationContainer>
+      <NavigationContainer ref={navigationRef} onReady={handleNavigationChange} onStateChange={handleNavigationChange}>
         <AppContent />
       </NavigationContainer>
     </AuthProvider>
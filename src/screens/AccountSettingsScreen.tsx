@@ -41,6 +41,10 @@ const AccountSettingsScreen = () => {
     navigation.navigate('OverlaySettings');
   };
 
+  const handleDataImport = () => {
+    navigation.navigate('DataImport');
+  };
+
   return (
     <ScrollView style={styles.container}>
       {/* プロフィール情報 */}
@@ -85,6 +89,20 @@ const AccountSettingsScreen = () => {
           </View>
           <Icon name="chevron-right" size={20} color="#94A3B8" />
         </TouchableOpacity>
+
+        <TouchableOpacity
+          onPress={handleDataImport}
+          style={styles.listItem}
+        >
+          <Icon name="file-upload" size={20} color="#2DD4BF" style={styles.listItemIcon} />
+          <View style={styles.listItemContent}>
+            <Text style={styles.listItemTitle}>売上明細の取り込み</Text>
+            <Text style={styles.listItemSubtitle}>
+              配達サービスの明細（CSV）から案件を登録
+            </Text>
+          </View>
+          <Icon name="chevron-right" size={20} color="#94A3B8" />
+        </TouchableOpacity>
       </View>
 
       {/* アカウント操作 */}
@@ -0,0 +1,217 @@
+import React, { useState } from 'react';
+import {
+  View,
+  Text,
+  StyleSheet,
+  TouchableOpacity,
+  ScrollView,
+  ActivityIndicator,
+} from 'react-native';
+import { SafeAreaView } from 'react-native-safe-area-context';
+import Toast from 'react-native-toast-message';
+import { useAuth } from '../context/AuthContext';
+import { DataImportService, ImportProgress, StatementPlatform } from '../services/DataImportService';
+
+const PLATFORMS: StatementPlatform[] = ['Uber Eats', '出前館', 'Wolt', 'menu', 'その他'];
+
+const DataImportScreen: React.FC = () => {
+  const { user } = useAuth();
+  const importService = DataImportService.getInstance();
+  const [platform, setPlatform] = useState<StatementPlatform>('Uber Eats');
+  const [importing, setImporting] = useState(false);
+  const [progress, setProgress] = useState<ImportProgress | null>(null);
+
+  const handleImport = async () => {
+    if (!user || importing) return;
+    try {
+      const uri = await importService.pickStatementFile();
+      if (!uri) return;
+
+      setImporting(true);
+      setProgress(null);
+      const result = await importService.importStatement(user.uid, {
+        uri,
+        platform,
+        onProgress: setProgress,
+      });
+      setProgress(result);
+      Toast.show({
+        type: 'success',
+        text1: `${result.imported}件の案件を取り込みました`,
+        text2: `重複 ${result.duplicates}件・対象外 ${result.skipped}件`,
+      });
+    } catch (error: any) {
+      console.error('Statement import failed:', error);
+      Toast.show({
+        type: 'error',
+        text1: '明細の取り込みに失敗しました',
+        text2: error?.message,
+      });
+    } finally {
+      setImporting(false);
+    }
+  };
+
+  const handleCancel = async () => {
+    await importService.cancel();
+  };
+
+  if (!importService.isAvailable()) {
+    return (
+      <SafeAreaView style={styles.container}>
+        <View style={styles.content}>
+          <Text style={styles.settingDescription}>明細の取り込みはAndroidでのみ利用できます</Text>
+        </View>
+      </SafeAreaView>
+    );
+  }
+
+  return (
+    <SafeAreaView style={styles.container}>
+      <ScrollView style={styles.content}>
+        <View style={styles.section}>
+          <Text style={styles.sectionTitle}>配達サービス</Text>
+          <View style={styles.platformRow}>
+            {PLATFORMS.map((item) => (
+              <TouchableOpacity
+                key={item}
+                style={[styles.platformChip, platform === item && styles.platformChipSelected]}
+                onPress={() => setPlatform(item)}
+                disabled={importing}
+              >
+                <Text style={[styles.platformText, platform === item && styles.platformTextSelected]}>
+                  {item}
+                </Text>
+              </TouchableOpacity>
+            ))}
+          </View>
+        </View>
+
+        <View style={styles.section}>
+          <Text style={styles.sectionTitle}>売上明細（CSV）</Text>
+          <Text style={styles.settingDescription}>
+            配達サービスからダウンロードした明細を配達案件として取り込みます。取り込み済みの行や手入力した案件と同じ行は重複として除外されます
+          </Text>
+
+          {importing ? (
+            <View style={styles.progressBox}>
+              <ActivityIndicator color="#FF3B30" />
+              <Text style={styles.progressText}>
+                {progress ? `${progress.rowsRead}行を読み込み・${progress.imported}件を取り込み中` : 'ファイルを開いています'}
+              </Text>
+              <TouchableOpacity style={styles.cancelButton} onPress={handleCancel}>
+                <Text style={styles.cancelButtonText}>中止</Text>
+              </TouchableOpacity>
+            </View>
+          ) : (
+            <TouchableOpacity style={styles.importButton} onPress={handleImport}>
+              <Text style={styles.importButtonText}>ファイルを選択して取り込む</Text>
+            </TouchableOpacity>
+          )}
+
+          {!importing && progress && (
+            <View style={styles.resultBox}>
+              <Text style={styles.progressText}>
+                {`読み込み ${progress.rowsRead}行 / 取り込み ${progress.imported}件 / 重複 ${progress.duplicates}件 / 対象外 ${progress.skipped}件`}
+              </Text>
+            </View>
+          )}
+        </View>
+      </ScrollView>
+    </SafeAreaView>
+  );
+};
+
+const styles = StyleSheet.create({
+  container: {
+    flex: 1,
+    backgroundColor: '#000000',
+  },
+  content: {
+    flex: 1,
+    padding: 16,
+  },
+  section: {
+    marginBottom: 32,
+  },
+  sectionTitle: {
+    fontSize: 20,
+    fontWeight: 'bold',
+    color: '#E0E0E0',
+    marginBottom: 16,
+  },
+  settingDescription: {
+    fontSize: 14,
+    color: '#999',
+    lineHeight: 20,
+    marginBottom: 16,
+  },
+  platformRow: {
+    flexDirection: 'row',
+    flexWrap: 'wrap',
+  },
+  platformChip: {
+    paddingVertical: 8,
+    paddingHorizontal: 14,
+    borderRadius: 16,
+    backgroundColor: '#1E1E1E',
+    marginRight: 8,
+    marginBottom: 8,
+  },
+  platformChipSelected: {
+    backgroundColor: '#FF3B30',
+  },
+  platformText: {
+    fontSize: 14,
+    color: '#E0E0E0',
+  },
+  platformTextSelected: {
+    color: '#FFFFFF',
+    fontWeight: '600',
+  },
+  importButton: {
+    backgroundColor: '#FF3B30',
+    borderRadius: 12,
+    paddingVertical: 16,
+    alignItems: 'center',
+  },
+  importButtonText: {
+    fontSize: 16,
+    fontWeight: '600',
+    color: '#FFFFFF',
+  },
+  progressBox: {
+    flexDirection: 'row',
+    alignItems: 'center',
+    backgroundColor: '#1E1E1E',
+    borderRadius: 12,
+    padding: 16,
+  },
+  progressText: {
+    flex: 1,
+    fontSize: 14,
+    color: '#E0E0E0',
+    marginLeft: 12,
+  },
+  cancelButton: {
+    backgroundColor: '#3C3C3C',
+    borderRadius: 8,
+    paddingVertical: 8,
+    paddingHorizontal: 16,
+  },
+  cancelButtonText: {
+    fontSize: 14,
+    fontWeight: '600',
+    color: '#FFFFFF',
+  },
+  resultBox: {
+    backgroundColor: '#1A2C1A',
+    borderRadius: 12,
+    padding: 16,
+    marginTop: 12,
+    borderLeftWidth: 4,
+    borderLeftColor: '#34C759',
+  },
+});
+
+export default DataImportScreen;
@@ -3,6 +3,7 @@ import { View, Text, StyleSheet, FlatList, TouchableOpacity, ActivityIndicator,
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 import { useGps } from '../context/GpsContext';
 import { DriveLog } from '../types/driveLog';
+import RouteThumbnail from '../components/RouteThumbnail';
 
 const DriveLogsScreen = () => {
   const { driveLogs, isLoading, loadDriveLogs } = useGps();
@@ -76,7 +77,7 @@ const DriveLogsScreen = () => {
       <TouchableOpacity onPress={() => handleLogPress(item)}>
         <View style={styles.logHeader}>
           <View style={styles.logBasicInfo}>
-            <Icon name="map-marker-path" size={20} color="#4CAF50" />
+            <RouteThumbnail logId={item.id} routePath={item.routePath} />
             <View style={styles.logMainInfo}>
               <Text style={styles.logDate}>{formatDate(item.startTime)}</Text>
               <Text style={styles.logDistance}>{formatDistance(item.totalDistanceMeters)}</Text>
@@ -3,6 +3,8 @@ import { View, StyleSheet, Alert, TouchableOpacity, Text, ScrollView, Platform,
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons'; // MaterialIconsから変更
 import { useAuth } from '../context/AuthContext';
 import { useWork } from '../context/WorkContext';
+import { useSessionSnapshot, useSessionCaseTotals } from '../utils/performance';
+import { WakeupAuditService } from '../services/WakeupAuditService';
 // import { useOverlay } from '../contexts/OverlayContext';
 import { TextInput } from 'react-native'; // TextInputをインポート
 
@@ -15,6 +17,7 @@ const HomeScreen = () => {
     endWork, 
     addDeliveryCase, // addDeliveryCaseを追加
     loadWeeklyData, // 今週データ読み込み機能を追加
+    getDetailedWaitingTime,
     // startBreak, 
     // endBreak,
     // getCurrentWorkingTime,
@@ -23,6 +26,11 @@ const HomeScreen = () => {
     // getWaitingTime
   } = useWork();
 
+  // セッションの売上・時給（ネイティブ集計から変化時のみ更新）
+  const { formatted: sessionSummary } = useSessionSnapshot();
+  // 勤務中の案件数（合計が変わった時だけ更新）
+  const { totalCases } = useSessionCaseTotals();
+
   // const { 
   //   isOverlayEnabled, 
   //   overlaySettings
@@ -64,10 +72,10 @@ const HomeScreen = () => {
 
   // 案件が追加された時に今週データを再読み込み
   useEffect(() => {
-    if (workState.totalCases > 0) {
+    if (totalCases > 0) {
       loadWeeklyData();
     }
-  }, [workState.totalCases]);
+  }, [totalCases]);
 
   // 今週データの変更をログ出力
   useEffect(() => {
@@ -92,11 +100,11 @@ const HomeScreen = () => {
   useEffect(() => {
     let timer: NodeJS.Timeout;
     if (isOnline && workStartTime) {
-      timer = setInterval(() => {
+      timer = setInterval(WakeupAuditService.getInstance().wrap('js_timer', () => {
         const now = new Date();
         const diff = Math.floor((now.getTime() - workStartTime.getTime()) / 1000);
         setCurrentWorkTime(formatTime(diff));
-      }, 1000);
+      }), 1000);
     }
     return () => clearInterval(timer);
   }, [isOnline, workStartTime]);
@@ -104,11 +112,11 @@ const HomeScreen = () => {
   useEffect(() => {
     let deliveryTimer: NodeJS.Timeout;
     if (deliveryStartTime) {
-      deliveryTimer = setInterval(() => {
+      deliveryTimer = setInterval(WakeupAuditService.getInstance().wrap('js_timer', () => {
         const now = new Date();
         const diff = Math.floor((now.getTime() - deliveryStartTime.getTime()) / 1000);
         setCurrentDeliveryTime(formatTime(diff));
-      }, 1000);
+      }), 1000);
     } else {
       setCurrentDeliveryTime('00:00:00'); // リセット時は0に戻す
     }
@@ -241,6 +249,18 @@ const HomeScreen = () => {
 
   const platforms = ["Uber Eats", "出前館", "Wolt", "menu", "Rocket now"];
 
+  // 端末の行動判定による時間の内訳（Androidのみ。勤務時間の表示と同じく1秒ごとの再描画で更新される）
+  const waitingDetail = isOnline ? getDetailedWaitingTime() : null;
+  const activityBreakdown = waitingDetail && waitingDetail.drivingTime !== undefined
+    ? [
+        { label: 'Driving', seconds: waitingDetail.drivingTime || 0 },
+        { label: 'Pickup Wait', seconds: waitingDetail.pickupWaitingTime || 0 },
+        { label: 'Drop-off', seconds: waitingDetail.dropoffDwellTime || 0 },
+        { label: 'Idle', seconds: waitingDetail.idleTime || 0 },
+      ]
+    : null;
+  const formatMinutes = (seconds: number) => `${Math.floor(seconds / 60)}m`;
+
 
 
   if (isOnline) {
@@ -263,6 +283,35 @@ const HomeScreen = () => {
           <Text style={styles.timeValue}>{currentDeliveryTime}</Text>
         </View>
 
+        {sessionSummary && (
+          <>
+            <View style={styles.timeCard}>
+              <Icon name="cash-multiple" size={20} color="#2DD4BF" style={styles.timeIcon} />
+              <Text style={styles.timeLabel}>Session Earnings</Text>
+              <Text style={styles.timeValue}>{sessionSummary.totalEarningsFormatted}</Text>
+            </View>
+
+            <View style={styles.timeCard}>
+              <Icon name="speedometer" size={20} color="#2DD4BF" style={styles.timeIcon} />
+              <Text style={styles.timeLabel}>Hourly (60 min)</Text>
+              <Text style={styles.timeValue}>
+                {sessionSummary.hourlyRateFormatted} ({sessionSummary.last60HourlyRateFormatted})
+              </Text>
+            </View>
+          </>
+        )}
+
+        {activityBreakdown && (
+          <View style={styles.activityCard}>
+            {activityBreakdown.map((item) => (
+              <View key={item.label} style={styles.activityItem}>
+                <Text style={styles.activityLabel}>{item.label}</Text>
+                <Text style={styles.activityValue}>{formatMinutes(item.seconds)}</Text>
+              </View>
+            ))}
+          </View>
+        )}
+
         <View style={styles.rewardCard}>
           <Text style={styles.rewardLabel}>Reward Amount</Text>
           <View style={styles.rewardInputContainer}>
@@ -650,6 +699,38 @@ const styles = StyleSheet.create({
   timeIcon: {
     marginRight: 15,
   },
+  activityCard: {
+    backgroundColor: '#1E2A3A',
+    borderRadius: 12,
+    padding: 12,
+    flexDirection: 'row',
+    justifyContent: 'space-between',
+    marginBottom: 8,
+    shadowColor: '#000',
+    shadowOffset: {
+      width: 0,
+      height: 6,
+    },
+    shadowOpacity: 0.2,
+    shadowRadius: 12,
+    elevation: 8,
+  },
+  activityItem: {
+    flex: 1,
+    alignItems: 'center',
+  },
+  activityLabel: {
+    fontSize: 10,
+    color: '#94A3B8',
+    marginBottom: 4,
+    textTransform: 'uppercase',
+    letterSpacing: 0.5,
+  },
+  activityValue: {
+    fontSize: 16,
+    color: '#2DD4BF',
+    fontWeight: 'bold',
+  },
   timeLabel: {
     fontSize: 16,
     color: '#94A3B8',
@@ -1,17 +1,146 @@
-import React from 'react';
-import { View, StyleSheet, Dimensions, Text } from 'react-native';
+import React, { useState, useEffect, useCallback } from 'react';
+import { View, StyleSheet, Dimensions, Text, TouchableOpacity } from 'react-native';
+import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 // import MapboxGL from '@rnmapbox/maps';
+import { GpsService } from '../services/GpsService';
+import { SpatialIndexService, HeatmapCell, SpatialPointKind } from '../services/SpatialIndexService';
 
 const { width, height } = Dimensions.get('window');
 
+// 表示範囲（緯度方向の幅、度）。ズームボタンで切り替える
+const ZOOM_SPANS = [0.02, 0.04, 0.08, 0.16];
+// 位置情報が取れない場合の初期表示（渋谷駅付近）
+const DEFAULT_CENTER = { latitude: 35.658, longitude: 139.7016 };
+
+const heatColor = (ratio: number): string => {
+  // 低 → 高 を 青 → 黄 → 赤 で表現
+  const r = Math.round(ratio < 0.5 ? 255 * ratio * 2 : 255);
+  const g = Math.round(ratio < 0.5 ? 180 + 75 * ratio * 2 : 255 * (1 - ratio) * 2);
+  const b = Math.round(ratio < 0.5 ? 255 * (1 - ratio * 2) : 0);
+  return `rgba(${r}, ${g}, ${b}, ${0.35 + ratio * 0.45})`;
+};
+
 const MapScreen = () => {
+  const spatialIndex = SpatialIndexService.getInstance();
+  const [center, setCenter] = useState(DEFAULT_CENTER);
+  const [zoomIndex, setZoomIndex] = useState(1);
+  const [kind, setKind] = useState<SpatialPointKind>('pickup');
+  const [currentHourOnly, setCurrentHourOnly] = useState(false);
+  const [cells, setCells] = useState<HeatmapCell[]>([]);
+  const [cellSize, setCellSize] = useState({ lat: 0.002, lng: 0.0025 });
+
+  const latSpan = ZOOM_SPANS[zoomIndex];
+  // 画面の縦横比に合わせて経度方向の幅を決める（中央緯度で補正）
+  const lngSpan = (latSpan * (width / height)) / Math.cos((center.latitude * Math.PI) / 180);
+
+  useEffect(() => {
+    const position = GpsService.getInstance().getTrackingState().currentPosition;
+    if (position) {
+      setCenter({ latitude: position.latitude, longitude: position.longitude });
+      return;
+    }
+    GpsService.getInstance()
+      .getCurrentPosition()
+      .then((current) => {
+        if (current) setCenter(current);
+      })
+      .catch(() => {});
+  }, []);
+
+  useEffect(() => {
+    spatialIndex.getStats().then((stats) => {
+      if (stats) setCellSize({ lat: stats.cellSizeLat, lng: stats.cellSizeLng });
+    });
+  }, [spatialIndex]);
+
+  const loadHeatmap = useCallback(async () => {
+    try {
+      const result = await spatialIndex.queryHeatmap({
+        minLat: center.latitude - latSpan / 2,
+        maxLat: center.latitude + latSpan / 2,
+        minLng: center.longitude - lngSpan / 2,
+        maxLng: center.longitude + lngSpan / 2,
+        kind,
+        hour: currentHourOnly ? new Date().getHours() : null,
+      });
+      setCells(result);
+    } catch (error) {
+      console.error('Error loading heatmap:', error);
+    }
+  }, [spatialIndex, center, latSpan, lngSpan, kind, currentHourOnly]);
+
+  useEffect(() => {
+    loadHeatmap();
+  }, [loadHeatmap]);
+
+  const maxRate = cells.reduce((max, cell) => Math.max(max, cell.earningsPerHour), 0);
+  const cellWidth = (cellSize.lng / lngSpan) * width;
+  const cellHeight = (cellSize.lat / latSpan) * height;
+
   return (
     <View style={styles.container}>
       {/* <MapboxGL.MapView style={styles.map} styleURL={MapboxGL.StyleURL.Dark} /> */}
       <View style={styles.map}>
-        <Text style={{textAlign: 'center', marginTop: 40, color: '#888'}}>
-          地図機能は現在利用できません
-        </Text>
+        {cells.length === 0 && (
+          <Text style={styles.emptyText}>
+            このエリアの配達データはまだありません
+          </Text>
+        )}
+        {cells.map((cell) => {
+          const ratio = maxRate > 0 ? cell.earningsPerHour / maxRate : 0;
+          const left = ((cell.longitude - (center.longitude - lngSpan / 2)) / lngSpan) * width - cellWidth / 2;
+          const top = (((center.latitude + latSpan / 2) - cell.latitude) / latSpan) * height - cellHeight / 2;
+          return (
+            <View
+              key={`${cell.latitude}_${cell.longitude}`}
+              style={[
+                styles.cell,
+                { left, top, width: cellWidth, height: cellHeight, backgroundColor: heatColor(ratio) },
+              ]}
+            >
+              {cellWidth >= 36 && (
+                <Text style={styles.cellText}>¥{Math.round(cell.earningsPerHour)}</Text>
+              )}
+            </View>
+          );
+        })}
+        <View style={[styles.centerMarker, { left: width / 2 - 6, top: height / 2 - 6 }]} />
+      </View>
+
+      <View style={styles.controls}>
+        <TouchableOpacity
+          style={[styles.chip, kind === 'pickup' && styles.chipActive]}
+          onPress={() => setKind('pickup')}
+        >
+          <Text style={styles.chipText}>ピック</Text>
+        </TouchableOpacity>
+        <TouchableOpacity
+          style={[styles.chip, kind === 'dropoff' && styles.chipActive]}
+          onPress={() => setKind('dropoff')}
+        >
+          <Text style={styles.chipText}>ドロップ</Text>
+        </TouchableOpacity>
+        <TouchableOpacity
+          style={[styles.chip, currentHourOnly && styles.chipActive]}
+          onPress={() => setCurrentHourOnly(!currentHourOnly)}
+        >
+          <Text style={styles.chipText}>{currentHourOnly ? `${new Date().getHours()}時台` : '全時間'}</Text>
+        </TouchableOpacity>
+      </View>
+
+      <View style={styles.zoomControls}>
+        <TouchableOpacity
+          style={styles.zoomButton}
+          onPress={() => setZoomIndex(Math.max(0, zoomIndex - 1))}
+        >
+          <Icon name="plus" size={22} color="#E0E0E0" />
+        </TouchableOpacity>
+        <TouchableOpacity
+          style={styles.zoomButton}
+          onPress={() => setZoomIndex(Math.min(ZOOM_SPANS.length - 1, zoomIndex + 1))}
+        >
+          <Icon name="minus" size={22} color="#E0E0E0" />
+        </TouchableOpacity>
       </View>
     </View>
   );
@@ -20,13 +149,75 @@ const MapScreen = () => {
 const styles = StyleSheet.create({
   container: {
     flex: 1,
+    backgroundColor: '#0B1426',
   },
   map: {
     width: width,
     height: height,
     justifyContent: 'center',
     alignItems: 'center',
+    overflow: 'hidden',
+  },
+  emptyText: {
+    textAlign: 'center',
+    color: '#888',
+  },
+  cell: {
+    position: 'absolute',
+    justifyContent: 'center',
+    alignItems: 'center',
+  },
+  cellText: {
+    color: '#FFFFFF',
+    fontSize: 9,
+    fontWeight: '600',
+  },
+  centerMarker: {
+    position: 'absolute',
+    width: 12,
+    height: 12,
+    borderRadius: 6,
+    backgroundColor: '#2DD4BF',
+    borderWidth: 2,
+    borderColor: '#FFFFFF',
+  },
+  controls: {
+    position: 'absolute',
+    top: 60,
+    left: 16,
+    flexDirection: 'row',
+  },
+  chip: {
+    backgroundColor: 'rgba(30, 30, 30, 0.85)',
+    borderRadius: 16,
+    paddingHorizontal: 12,
+    paddingVertical: 6,
+    marginRight: 8,
+    borderWidth: 1,
+    borderColor: '#333',
+  },
+  chipActive: {
+    borderColor: '#4CAF50',
+    backgroundColor: 'rgba(76, 175, 80, 0.3)',
+  },
+  chipText: {
+    color: '#E0E0E0',
+    fontSize: 13,
+  },
+  zoomControls: {
+    position: 'absolute',
+    right: 16,
+    bottom: 120,
+  },
+  zoomButton: {
+    width: 44,
+    height: 44,
+    borderRadius: 22,
+    backgroundColor: 'rgba(30, 30, 30, 0.85)',
+    justifyContent: 'center',
+    alignItems: 'center',
+    marginTop: 8,
   },
 });
 
-export default MapScreen; 
\ No newline at end of file
+export default MapScreen;
@@ -103,6 +103,12 @@ const OverlaySettingsScreen: React.FC = () => {
     await updateOverlaySettings({ size: value });
   };
 
+  const handleCompactRendererChange = async (value: boolean) => {
+    const newSettings = { ...localSettings, compactRenderer: value };
+    setLocalSettings(newSettings);
+    await updateOverlaySettings({ compactRenderer: value });
+  };
+
   const handleRequestPermission = async () => {
     const granted = await requestPermission();
     if (granted) {
@@ -180,6 +186,21 @@ const OverlaySettingsScreen: React.FC = () => {
         <View style={styles.section}>
           <Text style={styles.sectionTitle}>表示設定</Text>
           
+          <View style={styles.settingItem}>
+            <View style={styles.settingInfo}>
+              <Text style={styles.settingLabel}>単一ビュー描画モード</Text>
+              <Text style={styles.settingDescription}>
+                フォームを1枚のビューで描画します。試験中の機能です（次回表示時から反映）
+              </Text>
+            </View>
+            <Switch
+              value={!!localSettings.compactRenderer}
+              onValueChange={handleCompactRendererChange}
+              trackColor={{ false: '#3C3C3C', true: '#FF3B30' }}
+              thumbColor={localSettings.compactRenderer ? '#FFFFFF' : '#E0E0E0'}
+            />
+          </View>
+
           <View style={styles.settingItem}>
             <Text style={styles.settingLabel}>透明度</Text>
             <View style={styles.sliderContainer}>
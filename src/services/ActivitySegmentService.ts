@@ -0,0 +1,210 @@
+import { NativeModules, DeviceEventEmitter, Platform, PermissionsAndroid } from 'react-native';
+
+const { ActivitySegmentation } = NativeModules;
+
+export type ActivityState = 'unknown' | 'driving' | 'waiting_pickup' | 'dwell_dropoff' | 'idle';
+
+export interface ActivitySegment {
+  state: ActivityState;
+  startTime: number;
+  endTime: number;
+  durationMs: number;
+  distanceMeters: number;
+}
+
+export interface ActivityTransition {
+  state: ActivityState;
+  startTime: number;
+  latitude: number;
+  longitude: number;
+  previous: ActivitySegment;
+}
+
+// 状態ごとの合計時間（秒）
+export interface ActivityTotals {
+  driving: number;
+  waitingPickup: number;
+  dwellDropoff: number;
+  idle: number;
+}
+
+// ネイティブの位置の購読から届く測位（GpsServiceのwatchPositionと同じ形）
+export interface SharedPosition {
+  coords: {
+    latitude: number;
+    longitude: number;
+    speed: number | null;
+    accuracy: number;
+  };
+  timestamp: number;
+}
+
+/**
+ * ネイティブで判定した行動区間（走行・ピックアップ待ち・ドロップ先滞在・待機）を受け取る。
+ * 行動判定の測位はブリッジを通らず、状態の切り替わりだけが届く。
+ * 走行記録が測位を必要とする間は、行動判定と同じネイティブの位置の購読から測位を受け取れる
+ */
+export class ActivitySegmentService {
+  private static instance: ActivitySegmentService;
+  private segments: ActivitySegment[] = [];
+  private currentState: ActivityState = 'unknown';
+  private currentStateStart: number = 0;
+  private listeners: ((transition: ActivityTransition) => void)[] = [];
+  private subscription: { remove: () => void } | null = null;
+  private locationSubscription: { remove: () => void } | null = null;
+
+  public static getInstance(): ActivitySegmentService {
+    if (!ActivitySegmentService.instance) {
+      ActivitySegmentService.instance = new ActivitySegmentService();
+    }
+    return ActivitySegmentService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!ActivitySegmentation;
+  }
+
+  /**
+   * 勤務開始・復元時に呼ぶ。動作認識の権限は任意（拒否されても速度と滞在半径で判定する）
+   */
+  public async start(): Promise<void> {
+    if (!this.isAvailable()) return;
+    this.ensureSubscribed();
+    if (Platform.Version >= 29) {
+      try {
+        await PermissionsAndroid.request(PermissionsAndroid.PERMISSIONS.ACTIVITY_RECOGNITION);
+      } catch (error) {
+        console.warn('Activity recognition permission request failed:', error);
+      }
+    }
+    try {
+      await ActivitySegmentation.refresh();
+      await this.loadSegments();
+    } catch (error) {
+      console.error('Failed to start activity segmentation:', error);
+    }
+  }
+
+  public async loadSegments(): Promise<ActivitySegment[]> {
+    if (!this.isAvailable()) return [];
+    const result = await ActivitySegmentation.getSegments();
+    this.segments = result.segments;
+    this.currentState = result.state;
+    this.currentStateStart = result.stateStartTime;
+    return this.segments;
+  }
+
+  /**
+   * 休憩・勤務終了で区間が閉じられた後に呼び、手元の区間を取り直す
+   */
+  public refreshSegments(): void {
+    if (!this.isAvailable()) return;
+    this.loadSegments().catch((error) => console.error('Failed to load activity segments:', error));
+  }
+
+  public getSegments(): ActivitySegment[] {
+    return [...this.segments];
+  }
+
+  public getCurrentState(): ActivityState {
+    return this.currentState;
+  }
+
+  /**
+   * 確定済みの区間と進行中の区間から状態ごとの合計時間を出す
+   */
+  public getTotals(now: number = Date.now()): ActivityTotals {
+    const totals: ActivityTotals = { driving: 0, waitingPickup: 0, dwellDropoff: 0, idle: 0 };
+    const add = (state: ActivityState, ms: number) => {
+      const seconds = Math.max(0, ms) / 1000;
+      switch (state) {
+        case 'driving':
+          totals.driving += seconds;
+          break;
+        case 'waiting_pickup':
+          totals.waitingPickup += seconds;
+          break;
+        case 'dwell_dropoff':
+          totals.dwellDropoff += seconds;
+          break;
+        case 'idle':
+          totals.idle += seconds;
+          break;
+      }
+    };
+    this.segments.forEach((segment) => add(segment.state, segment.durationMs));
+    if (this.currentStateStart > 0) {
+      add(this.currentState, now - this.currentStateStart);
+    }
+    return totals;
+  }
+
+  /**
+   * ネイティブの位置の購読から測位を受け取る（距離フィルター未満の移動はネイティブ側で捨てる）。
+   * 権限がないなどで開始できなければfalse
+   */
+  public async startLocationUpdates(
+    intervalMs: number,
+    distanceFilter: number,
+    callback: (position: SharedPosition) => void
+  ): Promise<boolean> {
+    if (!this.isAvailable()) return false;
+    this.removeLocationSubscription();
+    this.locationSubscription = DeviceEventEmitter.addListener('SharedLocation', (location) => {
+      callback({
+        coords: {
+          latitude: location.latitude,
+          longitude: location.longitude,
+          speed: location.speed,
+          accuracy: location.accuracy,
+        },
+        timestamp: location.timestamp,
+      });
+    });
+    try {
+      const started: boolean = await ActivitySegmentation.startLocationUpdates(intervalMs, distanceFilter);
+      if (!started) this.removeLocationSubscription();
+      return started;
+    } catch (error) {
+      console.error('Failed to start shared location updates:', error);
+      this.removeLocationSubscription();
+      return false;
+    }
+  }
+
+  public stopLocationUpdates(): void {
+    if (!this.isAvailable()) return;
+    this.removeLocationSubscription();
+    ActivitySegmentation.stopLocationUpdates().catch((error: any) =>
+      console.error('Failed to stop shared location updates:', error)
+    );
+  }
+
+  public addListener(callback: (transition: ActivityTransition) => void): () => void {
+    this.listeners.push(callback);
+    this.ensureSubscribed();
+    return () => {
+      this.listeners = this.listeners.filter((listener) => listener !== callback);
+    };
+  }
+
+  private removeLocationSubscription(): void {
+    if (this.locationSubscription) {
+      this.locationSubscription.remove();
+      this.locationSubscription = null;
+    }
+  }
+
+  private ensureSubscribed(): void {
+    if (this.subscription || !this.isAvailable()) return;
+    this.subscription = DeviceEventEmitter.addListener('ActivityTransition', (transition: ActivityTransition) => {
+      const previous = transition.previous;
+      if (previous.durationMs > 0 && previous.state !== 'unknown') {
+        this.segments.push(previous);
+      }
+      this.currentState = transition.state;
+      this.currentStateStart = transition.startTime;
+      this.listeners.forEach((listener) => listener(transition));
+    });
+  }
+}
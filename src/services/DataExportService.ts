@@ -0,0 +1,181 @@
+import { NativeModules, DeviceEventEmitter, Platform } from 'react-native';
+import { getFirestore, collection, query, where, orderBy, limit, startAfter, getDocs } from '@react-native-firebase/firestore';
+import { caseFinishEpochMs, toMillis } from '../utils/caseTime';
+
+const { DataExport } = NativeModules;
+
+export type ExportFormat = 'csv' | 'gpx' | 'ndjson';
+
+export interface ExportOptions {
+  format: ExportFormat;
+  gzip?: boolean;
+  onProgress?: (progress: { records: number; bytes: number }) => void;
+}
+
+export interface ExportResult {
+  path: string;
+  uri: string;
+  records: number;
+  bytes: number;
+}
+
+// 1回のクエリ・ブリッジ転送で扱う件数（メモリ使用量はこの件数分で頭打ちになる）
+const PAGE_SIZE = 200;
+
+/**
+ * ユーザーデータをページ単位で取得し、ネイティブ側でファイルへストリーミング書き出しする
+ * - csv: 配達案件（確定申告用）
+ * - gpx: 走行ログのルート
+ * - ndjson: 勤務セッションと配達案件（1行1レコード）
+ */
+export class DataExportService {
+  private static instance: DataExportService;
+  private db: any = getFirestore();
+  private currentExportId: string | null = null;
+  private isCancelled = false;
+
+  public static getInstance(): DataExportService {
+    if (!DataExportService.instance) {
+      DataExportService.instance = new DataExportService();
+    }
+    return DataExportService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!DataExport;
+  }
+
+  public async exportUserData(userId: string, options: ExportOptions): Promise<ExportResult> {
+    if (!this.isAvailable()) {
+      throw new Error('エクスポート機能はこの端末では利用できません');
+    }
+    if (this.currentExportId) {
+      throw new Error('エクスポートが既に実行中です');
+    }
+
+    this.isCancelled = false;
+    const date = new Date().toISOString().slice(0, 10);
+    const exportId: string = await DataExport.beginExport({
+      format: options.format,
+      gzip: !!options.gzip,
+      fileName: `urbandash_${options.format}_${date}`,
+    });
+    this.currentExportId = exportId;
+
+    const progressSubscription = DeviceEventEmitter.addListener('DataExportProgress', (event) => {
+      if (event.exportId === exportId && options.onProgress) {
+        options.onProgress({ records: event.records, bytes: event.bytes });
+      }
+    });
+
+    try {
+      switch (options.format) {
+        case 'csv':
+          await this.streamCollection(exportId, 'deliveryCases', userId, 'timestamp', this.mapDeliveryCase);
+          break;
+        case 'gpx':
+          await this.streamCollection(exportId, 'driveLogs', userId, 'startTime', this.mapDriveLog);
+          break;
+        case 'ndjson':
+          await this.streamCollection(exportId, 'workSessions', userId, 'startTime', (doc) => ({
+            type: 'workSession',
+            ...this.mapTimestamps(doc),
+          }));
+          await this.streamCollection(exportId, 'deliveryCases', userId, 'timestamp', (doc) => ({
+            type: 'deliveryCase',
+            ...this.mapTimestamps(doc),
+          }));
+          break;
+      }
+
+      return await DataExport.finishExport(exportId);
+    } catch (error) {
+      console.error('Error exporting user data:', error);
+      if (!this.isCancelled) {
+        await DataExport.cancelExport(exportId);
+      }
+      throw error;
+    } finally {
+      progressSubscription.remove();
+      this.currentExportId = null;
+    }
+  }
+
+  public async cancel(): Promise<void> {
+    if (!this.currentExportId) return;
+    this.isCancelled = true;
+    await DataExport.cancelExport(this.currentExportId);
+  }
+
+  private async streamCollection(
+    exportId: string,
+    collectionName: string,
+    userId: string,
+    orderField: string,
+    mapDoc: (doc: any) => Record<string, any>
+  ): Promise<void> {
+    let lastDoc: any = null;
+
+    while (!this.isCancelled) {
+      const conditions: any[] = [where('userId', '==', userId), orderBy(orderField, 'asc')];
+      if (lastDoc) {
+        conditions.push(startAfter(lastDoc));
+      }
+      conditions.push(limit(PAGE_SIZE));
+
+      const snapshot = await getDocs(query(collection(this.db, collectionName), ...conditions));
+      if (snapshot.empty) break;
+
+      await DataExport.writeBatch(exportId, snapshot.docs.map(mapDoc));
+
+      if (snapshot.docs.length < PAGE_SIZE) break;
+      lastDoc = snapshot.docs[snapshot.docs.length - 1];
+    }
+
+    if (this.isCancelled) {
+      throw new Error('エクスポートがキャンセルされました');
+    }
+  }
+
+  private mapDeliveryCase = (doc: any): Record<string, any> => {
+    const data = doc.data();
+    return {
+      id: doc.id,
+      // CSVはUTC（末尾Z）で書くので、+9時間ずれて保存された案件も実時刻に揃えてから渡す
+      timestamp: caseFinishEpochMs(data),
+      service: data.service,
+      earnings: data.earnings || 0,
+      tip: data.tip || 0,
+      duration: data.duration ?? null,
+      distance: data.distance ?? null,
+      estimatedTime: data.estimatedTime ?? null,
+      workSessionId: data.workSessionId,
+      memo: data.memo || '',
+    };
+  };
+
+  private mapDriveLog = (doc: any): Record<string, any> => {
+    const data = doc.data();
+    // [lat, lng, timeMs, ...] のフラット配列にしてブリッジの転送量を抑える
+    const routePath: number[] = [];
+    (data.routePath || []).forEach((point: any) => {
+      routePath.push(point.latitude, point.longitude, toMillis(point.timestamp) || 0);
+    });
+    return {
+      id: doc.id,
+      startTime: toMillis(data.startTime),
+      routePath,
+    };
+  };
+
+  // ndjsonは保存値のバックアップなので、時刻の基準は揃えずミリ秒にするだけ
+  private mapTimestamps(doc: any): Record<string, any> {
+    const data = doc.data();
+    const result: Record<string, any> = { id: doc.id };
+    Object.keys(data).forEach((key) => {
+      const value = data[key];
+      result[key] = value && typeof value.toMillis === 'function' ? value.toMillis() : value;
+    });
+    return result;
+  }
+}
@@ -0,0 +1,177 @@
+import { NativeModules, DeviceEventEmitter, Platform } from 'react-native';
+import { getFirestore, collection, doc, query, where, orderBy, limit, startAfter, getDocs, writeBatch } from '@react-native-firebase/firestore';
+import { caseFinishWallClockMs } from '../utils/caseTime';
+
+const { DataImport } = NativeModules;
+
+export type StatementPlatform = 'Uber Eats' | '出前館' | 'Wolt' | 'menu' | 'その他';
+
+export interface ImportOptions {
+  uri: string;
+  platform: StatementPlatform;
+  onProgress?: (progress: ImportProgress) => void;
+}
+
+export interface ImportProgress {
+  rowsRead: number;
+  imported: number;
+  duplicates: number;
+  skipped: number;
+}
+
+// 1回のブリッジ転送・Firestoreバッチで扱う件数（writeBatchの上限500件以内）
+const BATCH_SIZE = 400;
+// 同時に送信中にしておくバッチ数。これを超えたら古いバッチの完了を待ってから次を読む
+const MAX_PENDING_COMMITS = 3;
+const PAGE_SIZE = 500;
+
+/**
+ * 配達サービスの売上明細（CSV）を配達案件として取り込む
+ * - 解析と重複除外はネイティブ側で行い、JS側はバッチ単位でFirestoreへ書き込む
+ * - ドキュメントIDは明細のキーから決まるので、同じ明細を取り込み直しても上書きになるだけで重複しない
+ * - オフライン時はFirestoreのローカルキャッシュに書き込まれ、接続時に同期される
+ */
+export class DataImportService {
+  private static instance: DataImportService;
+  private db: any = getFirestore();
+  private currentImportId: string | null = null;
+  private isCancelled = false;
+
+  public static getInstance(): DataImportService {
+    if (!DataImportService.instance) {
+      DataImportService.instance = new DataImportService();
+    }
+    return DataImportService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!DataImport;
+  }
+
+  /**
+   * システムのファイル選択画面で明細（CSV）を選ぶ。キャンセルした場合はnull
+   */
+  public async pickStatementFile(): Promise<string | null> {
+    if (!this.isAvailable()) return null;
+    return await DataImport.pickFile();
+  }
+
+  public async importStatement(userId: string, options: ImportOptions): Promise<ImportProgress> {
+    if (!this.isAvailable()) {
+      throw new Error('インポート機能はこの端末では利用できません');
+    }
+    if (this.currentImportId) {
+      throw new Error('インポートが既に実行中です');
+    }
+
+    this.isCancelled = false;
+    const importId: string = await DataImport.beginImport({ uri: options.uri, platform: options.platform });
+    this.currentImportId = importId;
+
+    const progressSubscription = DeviceEventEmitter.addListener('DataImportProgress', (event) => {
+      if (event.importId === importId && options.onProgress) {
+        options.onProgress({
+          rowsRead: event.rowsRead,
+          imported: event.imported,
+          duplicates: event.duplicates,
+          skipped: event.skipped,
+        });
+      }
+    });
+
+    try {
+      await this.sendExistingKeys(importId, userId, options.platform);
+
+      const pending: Promise<void>[] = [];
+      while (!this.isCancelled) {
+        const batch = await DataImport.nextBatch(importId, BATCH_SIZE);
+        if (batch.records.length > 0) {
+          pending.push(this.commitRecords(userId, options.platform, batch.records));
+          if (pending.length >= MAX_PENDING_COMMITS) {
+            await pending.shift();
+          }
+        }
+        if (batch.done) break;
+      }
+      await Promise.all(pending);
+
+      if (this.isCancelled) {
+        throw new Error('インポートがキャンセルされました');
+      }
+      return await DataImport.finishImport(importId);
+    } catch (error) {
+      console.error('Error importing statement:', error);
+      if (!this.isCancelled) {
+        await DataImport.cancelImport(importId);
+      }
+      throw error;
+    } finally {
+      progressSubscription.remove();
+      this.currentImportId = null;
+    }
+  }
+
+  public async cancel(): Promise<void> {
+    if (!this.currentImportId) return;
+    this.isCancelled = true;
+    await DataImport.cancelImport(this.currentImportId);
+  }
+
+  /**
+   * 登録済みの同じサービスの案件のキーをネイティブ側へ渡す（アプリで記録した案件と明細の行の重複判定用）。
+   * 明細の日時は日本時間の壁時計として読むので、案件の時刻も保存経路ごとの基準を揃えてからキーにする
+   */
+  private async sendExistingKeys(importId: string, userId: string, platform: string): Promise<void> {
+    let lastDoc: any = null;
+
+    while (!this.isCancelled) {
+      const conditions: any[] = [where('userId', '==', userId), orderBy('timestamp', 'asc')];
+      if (lastDoc) {
+        conditions.push(startAfter(lastDoc));
+      }
+      conditions.push(limit(PAGE_SIZE));
+
+      const snapshot = await getDocs(query(collection(this.db, 'deliveryCases'), ...conditions));
+      if (snapshot.empty) break;
+
+      const keys: string[] = [];
+      snapshot.docs.forEach((caseDoc: any) => {
+        const data = caseDoc.data();
+        const timestamp = caseFinishWallClockMs(data);
+        // 取り込み済みの案件はドキュメントIDで上書きされるので照合しない
+        if (timestamp === null || data.source === 'import' || (data.service || '').trim() !== platform) return;
+        const amount = (data.earnings || 0) + (data.tip || 0);
+        keys.push(`${platform}|${Math.floor(timestamp / 60000)}|${amount}`);
+      });
+      if (keys.length > 0) {
+        await DataImport.addExistingKeys(importId, keys);
+      }
+
+      if (snapshot.docs.length < PAGE_SIZE) break;
+      lastDoc = snapshot.docs[snapshot.docs.length - 1];
+    }
+  }
+
+  private async commitRecords(userId: string, platform: string, records: any[]): Promise<void> {
+    const batch = writeBatch(this.db);
+    records.forEach((record) => {
+      const caseData: Record<string, any> = {
+        userId,
+        workSessionId: '',
+        service: platform,
+        earnings: record.earnings,
+        tip: record.tip,
+        duration: record.duration ?? 0,
+        timestamp: new Date(record.timestamp),
+        memo: '',
+        source: 'import',
+        importKey: record.key,
+      };
+      if (record.distanceKm !== undefined) {
+        caseData.distance = record.distanceKm;
+      }
+      batch.set(doc(collection(this.db, 'deliveryCases'), record.id), caseData);
+    });
+    await batch.commit();
+  }
+}
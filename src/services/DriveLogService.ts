@@ -56,6 +56,7 @@ export class DriveLogService {
           durationSeconds: data.durationSeconds,
           averageSpeedKmh: data.averageSpeedKmh,
           maxSpeedKmh: data.maxSpeedKmh,
+          partial: !!data.partial,
           routePath: data.routePath.map((point: any) => ({
             latitude: point.latitude,
             longitude: point.longitude,
@@ -100,6 +101,7 @@ export class DriveLogService {
           durationSeconds: data.durationSeconds,
           averageSpeedKmh: data.averageSpeedKmh,
           maxSpeedKmh: data.maxSpeedKmh,
+          partial: !!data.partial,
           routePath: data.routePath.map((point: any) => ({
             latitude: point.latitude,
             longitude: point.longitude,
@@ -158,6 +160,7 @@ export class DriveLogService {
           durationSeconds: data.durationSeconds,
           averageSpeedKmh: data.averageSpeedKmh,
           maxSpeedKmh: data.maxSpeedKmh,
+          partial: !!data.partial,
           routePath: data.routePath.map((point: any) => ({
             latitude: point.latitude,
             longitude: point.longitude,
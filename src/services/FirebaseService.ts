@@ -401,6 +401,7 @@ class FirebaseService {
   }
 
   // バックアップとリストア（将来の機能）
+  // 全件をメモリ上に組み立てるため、大量データのファイル出力にはDataExportServiceを使用する
   async exportUserData(userId: string): Promise<any> {
     const userProfile = await this.getUserProfile(userId);
     const sessions = await this.getUserWorkSessions(userId);
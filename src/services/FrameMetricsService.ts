@@ -0,0 +1,60 @@
+import { NativeModules, Platform } from 'react-native';
+
+const { FrameMetrics } = NativeModules;
+
+export interface FrameStats {
+  window: 'main' | 'overlay';
+  label: string;
+  frames: number;
+  jankFrames: number;
+  frozenFrames: number;
+  jankRate: number;
+  averageMs: number;
+  p50Ms: number;
+  p90Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+  maxMs: number;
+}
+
+/**
+ * 画面・オーバーレイ操作ごとのフレーム時間（ネイティブで計測）を参照する
+ */
+export class FrameMetricsService {
+  private static instance: FrameMetricsService;
+  private currentScreen: string | null = null;
+
+  public static getInstance(): FrameMetricsService {
+    if (!FrameMetricsService.instance) {
+      FrameMetricsService.instance = new FrameMetricsService();
+    }
+    return FrameMetricsService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!FrameMetrics;
+  }
+
+  // 表示中の画面名を計測のラベルにする（画面遷移ごとに呼ぶ）
+  public setScreen(screen: string | undefined): void {
+    if (!this.isAvailable() || !screen || screen === this.currentScreen) return;
+    this.currentScreen = screen;
+    FrameMetrics.setScreen(screen);
+  }
+
+  public async getReport(): Promise<FrameStats[]> {
+    if (!this.isAvailable()) return [];
+    return FrameMetrics.getReport();
+  }
+
+  // 不具合報告用のテキストを書き出す
+  public async dump(): Promise<{ path: string; text: string } | null> {
+    if (!this.isAvailable()) return null;
+    return FrameMetrics.dump();
+  }
+
+  public async reset(): Promise<void> {
+    if (!this.isAvailable()) return;
+    await FrameMetrics.reset();
+  }
+}
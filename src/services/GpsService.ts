@@ -1,12 +1,24 @@
 import Geolocation from 'react-native-geolocation-service';
 import { Platform, PermissionsAndroid } from 'react-native';
 import { RoutePoint, GpsTrackingState, GpsSettings } from '../types/driveLog';
+import { QosService, QosLevel } from './QosService';
+import { WakeupAuditService } from './WakeupAuditService';
+import { ActivitySegmentService, SharedPosition } from './ActivitySegmentService';
+
+// QoSレベルごとの状態通知の最短間隔（位置更新が続いても画面の再描画をまとめる）
+const NOTIFY_INTERVAL_MS: { [level in QosLevel]: number } = {
+  full: 0,
+  reduced: 5000,
+  minimal: 15000,
+};
 
 export class GpsService {
   private static instance: GpsService;
   private watchId: number | null = null;
   private fallbackWatchId: number | null = null;
   private useFallback: boolean = false;
+  private usingSharedLocation: boolean = false;
+  private holdingWatch: boolean = false;
   private trackingState: GpsTrackingState = {
     isTracking: false,
     currentRoutePoints: [],
@@ -20,6 +32,10 @@ export class GpsService {
   };
   
   private listeners: ((state: GpsTrackingState) => void)[] = [];
+  private qosLevel: QosLevel = 'full';
+  private qosUnsubscribe: (() => void) | null = null;
+  private lastNotifyTime: number = 0;
+  private notifyTimer: ReturnType<typeof setTimeout> | null = null;
 
   public static getInstance(): GpsService {
     if (!GpsService.instance) {
@@ -97,13 +113,26 @@ export class GpsService {
         maximumAge = 30000;
         break;
     }
+
+    // 発熱・電池残量に応じて取得間隔を広げる
+    let interval = updateInterval;
+    let filter = distanceFilter;
+    if (this.qosLevel === 'reduced') {
+      interval = updateInterval * 3;
+      filter = Math.max(distanceFilter, 25);
+    } else if (this.qosLevel === 'minimal') {
+      interval = Math.max(updateInterval, 30000);
+      filter = Math.max(distanceFilter, 50);
+      enableHighAccuracy = false;
+      maximumAge = Math.max(maximumAge, 30000);
+    }
     
     return {
       enableHighAccuracy,
       timeout,
       maximumAge,
-      interval: updateInterval,
-      distanceFilter,
+      interval,
+      distanceFilter: filter,
       forceRequestLocation: true,
       forceLocationManager: true, // Changed to true for better compatibility
       showLocationDialog: true,
@@ -153,28 +182,11 @@ export class GpsService {
         currentSpeed: 0,
       };
 
-      const options = this.getGeolocationOptions();
+      this.qosLevel = QosService.getInstance().getLevel();
+      this.startWatch();
+      this.qosUnsubscribe = QosService.getInstance().addListener((level) => this.handleQosLevel(level));
 
-      // まずreact-native-geolocation-serviceを試す
-      try {
-        this.watchId = Geolocation.watchPosition(
-          (position) => {
-            this.handleLocationUpdate(position);
-          },
-          (error) => {
-            console.error('GPS tracking error with geolocation-service:', error);
-            // エラーが発生した場合、フォールバックを試す
-            this.tryFallbackGeolocation(options);
-          },
-          options
-        );
-        console.log('GPS tracking started with react-native-geolocation-service');
-      } catch (error) {
-        console.error('Failed to start with geolocation-service, trying fallback:', error);
-        this.tryFallbackGeolocation(options);
-      }
-
-      this.notifyListeners();
+      this.notifyListeners(true);
       return true;
     } catch (error) {
       console.error('Failed to start GPS tracking:', error);
@@ -182,6 +194,95 @@ export class GpsService {
     }
   }
 
+  // 位置の監視を開始
+  private startWatch(): void {
+    const options = this.getGeolocationOptions();
+
+    // Androidでは行動判定と同じネイティブの位置の購読から受け取り、GPSの購読を2重にしない
+    const shared = ActivitySegmentService.getInstance();
+    if (shared.isAvailable()) {
+      this.usingSharedLocation = true;
+      shared
+        .startLocationUpdates(
+          options.interval,
+          options.distanceFilter,
+          WakeupAuditService.getInstance().wrap('js_gps_callback', (position: SharedPosition) => {
+            this.handleLocationUpdate(position);
+          })
+        )
+        .then((started) => {
+          // 開始できなかった場合（停止済みでなければ）は独自に購読する
+          if (!started && this.usingSharedLocation) {
+            this.usingSharedLocation = false;
+            this.startGeolocationWatch(options);
+          }
+        });
+      console.log('GPS tracking started with the shared native location source');
+      return;
+    }
+    this.startGeolocationWatch(options);
+  }
+
+  private startGeolocationWatch(options: any): void {
+    WakeupAuditService.getInstance().beginHold('js_gps_watch');
+    this.holdingWatch = true;
+
+    // まずreact-native-geolocation-serviceを試す
+    try {
+      this.watchId = Geolocation.watchPosition(
+        WakeupAuditService.getInstance().wrap('js_gps_callback', (position) => {
+          this.handleLocationUpdate(position);
+        }),
+        (error) => {
+          console.error('GPS tracking error with geolocation-service:', error);
+          // エラーが発生した場合、フォールバックを試す
+          this.tryFallbackGeolocation(options);
+        },
+        options
+      );
+      console.log('GPS tracking started with react-native-geolocation-service');
+    } catch (error) {
+      console.error('Failed to start with geolocation-service, trying fallback:', error);
+      this.tryFallbackGeolocation(options);
+    }
+  }
+
+  // 位置の監視を止める（トラッキング状態はそのまま）
+  private clearWatches(): void {
+    if (this.usingSharedLocation) {
+      ActivitySegmentService.getInstance().stopLocationUpdates();
+      this.usingSharedLocation = false;
+    }
+
+    if (this.watchId !== null) {
+      Geolocation.clearWatch(this.watchId);
+      this.watchId = null;
+    }
+
+    if (this.fallbackWatchId !== null) {
+      const { Geolocation: RNGeolocation } = require('react-native');
+      RNGeolocation.clearWatch(this.fallbackWatchId);
+      this.fallbackWatchId = null;
+    }
+
+    this.useFallback = false;
+    if (this.holdingWatch) {
+      WakeupAuditService.getInstance().endHold('js_gps_watch');
+      this.holdingWatch = false;
+    }
+  }
+
+  // QoSレベルが変わったら取得間隔を変えて監視し直す
+  private handleQosLevel(level: QosLevel): void {
+    if (level === this.qosLevel) return;
+    console.log(`GPS QoS level: ${this.qosLevel} -> ${level}`);
+    this.qosLevel = level;
+    if (this.trackingState.isTracking) {
+      this.clearWatches();
+      this.startWatch();
+    }
+  }
+
   // フォールバック用のGeolocation API
   private tryFallbackGeolocation(options: any): void {
     try {
@@ -190,10 +291,10 @@ export class GpsService {
       
       this.useFallback = true;
       this.fallbackWatchId = RNGeolocation.watchPosition(
-        (position: any) => {
+        WakeupAuditService.getInstance().wrap('js_gps_callback', (position: any) => {
           console.log('Using fallback geolocation');
           this.handleLocationUpdate(position);
-        },
+        }),
         (error: any) => {
           console.error('Fallback GPS tracking error:', error);
         },
@@ -252,19 +353,13 @@ export class GpsService {
 
   // トラッキング停止
   public stopTracking(): GpsTrackingState {
-    if (this.watchId !== null) {
-      Geolocation.clearWatch(this.watchId);
-      this.watchId = null;
-    }
+    this.clearWatches();
 
-    if (this.fallbackWatchId !== null) {
-      const { Geolocation: RNGeolocation } = require('react-native');
-      RNGeolocation.clearWatch(this.fallbackWatchId);
-      this.fallbackWatchId = null;
+    if (this.qosUnsubscribe) {
+      this.qosUnsubscribe();
+      this.qosUnsubscribe = null;
     }
 
-    this.useFallback = false;
-
     const finalState = { ...this.trackingState };
     this.trackingState = {
       isTracking: false,
@@ -272,7 +367,7 @@ export class GpsService {
       totalDistance: 0,
     };
 
-    this.notifyListeners();
+    this.notifyListeners(true);
     return finalState;
   }
 
@@ -339,8 +434,23 @@ export class GpsService {
     this.listeners = this.listeners.filter(listener => listener !== callback);
   }
 
-  // リスナーに通知
-  private notifyListeners(): void {
+  // リスナーに通知（QoSレベルが下がっている間は最短間隔ごとにまとめる）
+  private notifyListeners(immediate: boolean = false): void {
+    const wait = this.lastNotifyTime + NOTIFY_INTERVAL_MS[this.qosLevel] - Date.now();
+    if (!immediate && wait > 0) {
+      if (!this.notifyTimer) {
+        this.notifyTimer = setTimeout(WakeupAuditService.getInstance().wrap('js_timer', () => {
+          this.notifyTimer = null;
+          this.notifyListeners(true);
+        }), wait);
+      }
+      return;
+    }
+    if (this.notifyTimer) {
+      clearTimeout(this.notifyTimer);
+      this.notifyTimer = null;
+    }
+    this.lastNotifyTime = Date.now();
     this.listeners.forEach(listener => listener(this.trackingState));
   }
 
@@ -1,5 +1,6 @@
 import { Platform, Alert, Linking, AppState, AppStateStatus, NativeModules, DeviceEventEmitter } from 'react-native';
 import AsyncStorage from '@react-native-async-storage/async-storage';
+import { RoutePoint } from '../types/driveLog';
 
 export interface OverlayPosition {
   x: number;
@@ -11,6 +12,8 @@ export interface OverlaySettings {
   position: OverlayPosition;
   opacity: number;
   size: number;
+  // 単一ビュー描画モード（フォーム全体を1つのViewで描画する）
+  compactRenderer?: boolean;
 }
 
 export interface FormData {
@@ -22,8 +25,63 @@ export interface FormData {
   memo: string;
   distance: string;
   durationMinutes: string;
+  route?: DeliveryRoute; // 配達中の測位から求めた経路（測位がなかった場合はなし）
+  dropoff?: { latitude: number; longitude: number }; // FINISH時点の位置（測位がなかった場合はなし）
 }
 
+// オーバーレイのSTARTからFINISHまでの経路（ネイティブで集計済み）
+export interface DeliveryRoute {
+  distanceMeters: number;
+  durationSeconds: number;
+  movingSeconds: number;
+  averageSpeedKmh: number;
+  maxSpeedKmh: number;
+  partial: boolean; // STARTの時点からの測位がない
+  path: RoutePoint[];
+}
+
+// タイル・通知からJSを起動せずに行われ、次の起動時に反映する操作
+export type PendingActionType = 'session_started' | 'form_submitted';
+
+const toRoute = (event: any): DeliveryRoute | undefined => {
+  if (typeof event.routeDistanceMeters !== 'number' || !event.routePath) return undefined;
+  try {
+    // Firestoreに保存するのでundefinedの項目は作らない
+    const path: RoutePoint[] = JSON.parse(event.routePath).map((p: number[]) => {
+      const point: RoutePoint = { latitude: p[0], longitude: p[1], timestamp: new Date(p[2]), speed: p[3] };
+      if (p[4] >= 0) point.accuracy = p[4];
+      return point;
+    });
+    return {
+      distanceMeters: event.routeDistanceMeters,
+      durationSeconds: event.routeDurationSeconds || 0,
+      movingSeconds: event.routeMovingSeconds || 0,
+      averageSpeedKmh: event.routeAverageSpeedKmh || 0,
+      maxSpeedKmh: event.routeMaxSpeedKmh || 0,
+      partial: !!event.routePartial,
+      path,
+    };
+  } catch (error) {
+    console.error('Failed to parse delivery route:', error);
+    return undefined;
+  }
+};
+
+const toFormData = (event: any): FormData => ({
+  deliveryService: event.deliveryService,
+  estimatedTime: event.estimatedTime || '0',
+  reward: event.reward,
+  startTime: event.startTime,
+  finishTime: event.finishTime,
+  memo: event.memo || '',
+  distance: event.distance || '0',
+  durationMinutes: event.durationMinutes || '0',
+  route: toRoute(event),
+  dropoff: typeof event.finishLatitude === 'number' && typeof event.finishLongitude === 'number'
+    ? { latitude: event.finishLatitude, longitude: event.finishLongitude }
+    : undefined,
+});
+
 export default class OverlayService {
   private static instance: OverlayService;
   private settings: OverlaySettings;
@@ -32,7 +90,8 @@ export default class OverlayService {
   private isHidingOverlay: boolean = false; // 非表示処理中フラグ
   private appStateSubscription: any = null;
   private overlayEventSubscription: any = null;
-  private onFormSubmittedCallback: ((data: FormData) => void) | null = null;
+  private onFormSubmittedCallback: ((data: FormData) => void | Promise<void>) | null = null;
+  private isReplaying: boolean = false; // 保存待ちの送信を再送中
 
   private constructor() {
     console.log('OverlayService: Constructor called');
@@ -48,9 +107,8 @@ export default class OverlayService {
       // 設定読み込み後にリスナーを設定
       this.setupAppStateListener();
       this.setupOverlayEventListener();
-      // 初期化時はオーバーレイを非表示にする（アプリがフォアグラウンドにいるため）
-      console.log('OverlayService: Calling hideOverlay() during initialization');
-      this.hideOverlay();
+      // 非表示にするのはJSが表示したオーバーレイだけ。タイル・通知から表示されたオーバーレイは
+      // JSの起動で閉じず、進行中の配達とともにそのまま残す
     });
   }
 
@@ -70,17 +128,11 @@ export default class OverlayService {
           console.log('Overlay form submitted event received:', event);
           if (this.onFormSubmittedCallback && event.action === 'form_submitted') {
             console.log('Calling form submitted callback');
-            const formData: FormData = {
-              deliveryService: event.deliveryService,
-              estimatedTime: event.estimatedTime || '0',
-              reward: event.reward,
-              startTime: event.startTime,
-              finishTime: event.finishTime,
-              memo: event.memo || '',
-              distance: event.distance || '0',
-              durationMinutes: event.durationMinutes || '0'
-            };
-            this.onFormSubmittedCallback(formData);
+            Promise.resolve(this.onFormSubmittedCallback(toFormData(event))).catch((error) => {
+              // 保存できなかった送信はキューへ戻し、次の再送で保存し直す
+              console.error('Failed to save overlay submission, queueing for retry:', error);
+              this.requeuePendingAction('form_submitted', event);
+            });
           } else {
             console.log('No form submitted callback set');
           }
@@ -89,11 +141,89 @@ export default class OverlayService {
     }
   }
 
-  public setOnFormSubmittedCallback(callback: (data: FormData) => void): void {
+  public setOnFormSubmittedCallback(callback: (data: FormData) => void | Promise<void>): void {
     console.log('Setting overlay form submitted callback');
     this.onFormSubmittedCallback = callback;
   }
 
+  /**
+   * JSが動いていない間にネイティブ側で積まれた操作を取り出す（取り出した操作はキューから消える）
+   */
+  public async takePendingActions(type: PendingActionType): Promise<any[]> {
+    const { OverlayModule } = NativeModules;
+    if (Platform.OS !== 'android' || !OverlayModule?.takePendingActions) return [];
+    try {
+      return await OverlayModule.takePendingActions(type);
+    } catch (error) {
+      console.error('Error taking pending overlay actions:', error);
+      return [];
+    }
+  }
+
+  /**
+   * 保存待ちの操作をキューに残したまま取得する。処理が済んだものはackPendingActionで消す
+   */
+  public async peekPendingActions(type: PendingActionType): Promise<any[]> {
+    const { OverlayModule } = NativeModules;
+    if (Platform.OS !== 'android' || !OverlayModule?.peekPendingActions) return [];
+    try {
+      return await OverlayModule.peekPendingActions(type);
+    } catch (error) {
+      console.error('Error reading pending overlay actions:', error);
+      return [];
+    }
+  }
+
+  private async ackPendingAction(id: string): Promise<void> {
+    const { OverlayModule } = NativeModules;
+    if (Platform.OS !== 'android' || !OverlayModule?.ackPendingAction || !id) return;
+    await OverlayModule.ackPendingAction(id);
+  }
+
+  private async requeuePendingAction(type: PendingActionType, data: any): Promise<void> {
+    const { OverlayModule } = NativeModules;
+    if (Platform.OS !== 'android' || !OverlayModule?.requeuePendingAction) return;
+    try {
+      await OverlayModule.requeuePendingAction(type, data);
+    } catch (error) {
+      console.error('Error requeueing overlay action:', error);
+    }
+  }
+
+  /**
+   * アプリの起動中にタイル・通知から操作が積まれた時に呼ばれる
+   */
+  public addPendingActionListener(listener: (type: PendingActionType) => void): () => void {
+    if (Platform.OS !== 'android') return () => {};
+    const subscription = DeviceEventEmitter.addListener('PendingActionQueued', (event) => listener(event.type));
+    return () => subscription.remove();
+  }
+
+  /**
+   * 保存待ちの案件送信を送信順に保存する。以降の送信はネイティブから直接届く。
+   * 保存できた送信だけをキューから消し、失敗したらそこで止めて残りは次回に送る
+   */
+  public async replayPendingSubmissions(): Promise<number> {
+    if (!this.onFormSubmittedCallback || this.isReplaying) return 0;
+    const callback = this.onFormSubmittedCallback;
+    this.isReplaying = true;
+    let saved = 0;
+    try {
+      const actions = await this.peekPendingActions('form_submitted');
+      for (const action of actions) {
+        await callback(toFormData(action));
+        await this.ackPendingAction(action.id);
+        saved++;
+      }
+    } finally {
+      this.isReplaying = false;
+      if (saved > 0) {
+        console.log(`OverlayService: Replayed ${saved} queued form submissions`);
+      }
+    }
+    return saved;
+  }
+
   /**
    * オーバーレイ権限をチェックする
    */
@@ -301,7 +431,17 @@ export default class OverlayService {
   public async updateSettings(newSettings: Partial<OverlaySettings>): Promise<void> {
     this.settings = { ...this.settings, ...newSettings };
     await this.saveSettings();
-    
+
+    const { OverlayModule } = NativeModules;
+    if (Platform.OS === 'android' && newSettings.compactRenderer !== undefined && OverlayModule?.setFlatRendererEnabled) {
+      try {
+        // 次にオーバーレイを生成した時から反映される
+        await OverlayModule.setFlatRendererEnabled(newSettings.compactRenderer);
+      } catch (error) {
+        console.error('Error updating overlay renderer:', error);
+      }
+    }
+
     // 実際の実装では、ネイティブモジュールに設定を通知
     console.log('Overlay settings updated:', this.settings);
   }
@@ -0,0 +1,76 @@
+import { NativeModules, DeviceEventEmitter, Platform } from 'react-native';
+
+const { QosGovernor } = NativeModules;
+
+export type QosLevel = 'full' | 'reduced' | 'minimal';
+
+export interface QosState {
+  level: QosLevel;
+  thermalStatus: number;
+  thermalHeadroom: number | null;
+  batteryPercent: number;
+  charging: boolean;
+  powerSave: boolean;
+  screenOn: boolean;
+  reasons: string[];
+}
+
+/**
+ * 端末の発熱・電池・画面状態から決まる動作品質レベルを受け取る（Androidのみ、それ以外は常にfull）
+ */
+export class QosService {
+  private static instance: QosService;
+  private latest: QosState | null = null;
+  private listeners: ((level: QosLevel) => void)[] = [];
+  private subscription: { remove: () => void } | null = null;
+
+  public static getInstance(): QosService {
+    if (!QosService.instance) {
+      QosService.instance = new QosService();
+    }
+    return QosService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!QosGovernor;
+  }
+
+  public getLevel(): QosLevel {
+    return this.latest ? this.latest.level : 'full';
+  }
+
+  public async getState(): Promise<QosState | null> {
+    if (!this.isAvailable()) return null;
+    try {
+      this.latest = await QosGovernor.getState();
+    } catch (error) {
+      console.error('Failed to get QoS state:', error);
+    }
+    return this.latest;
+  }
+
+  /**
+   * レベルが変わった時だけ呼ばれる。登録直後に現在のレベルを1回取得して通知する
+   */
+  public addListener(callback: (level: QosLevel) => void): () => void {
+    this.listeners.push(callback);
+    if (!this.subscription && this.isAvailable()) {
+      this.subscription = DeviceEventEmitter.addListener('QosLevelChanged', (state: QosState) => {
+        this.latest = state;
+        this.listeners.forEach((listener) => listener(state.level));
+      });
+    }
+    this.getState().then((state) => {
+      if (state && this.listeners.includes(callback)) {
+        callback(state.level);
+      }
+    });
+    return () => {
+      this.listeners = this.listeners.filter((listener) => listener !== callback);
+      if (this.listeners.length === 0 && this.subscription) {
+        this.subscription.remove();
+        this.subscription = null;
+      }
+    };
+  }
+}
@@ -0,0 +1,86 @@
+import { NativeModules, Platform } from 'react-native';
+import { RoutePoint } from '../types/driveLog';
+
+const { RouteThumbnail } = NativeModules;
+
+/**
+ * 走行ルートのサムネイル画像をネイティブで描画・キャッシュする
+ */
+export class RouteThumbnailService {
+  private static instance: RouteThumbnailService;
+  // 同じサムネイルへの同時リクエストをまとめる
+  private pending = new Map<string, Promise<string | null>>();
+
+  public static getInstance(): RouteThumbnailService {
+    if (!RouteThumbnailService.instance) {
+      RouteThumbnailService.instance = new RouteThumbnailService();
+    }
+    return RouteThumbnailService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!RouteThumbnail;
+  }
+
+  // サムネイルのURIを取得（未キャッシュならネイティブ側で描画）
+  public getThumbnailUri(
+    logId: string,
+    routePath: RoutePoint[] | string,
+    width: number,
+    height: number
+  ): Promise<string | null> {
+    if (!this.isAvailable()) {
+      return Promise.resolve(null);
+    }
+
+    const key = `${logId}_${width}x${height}`;
+    const inFlight = this.pending.get(key);
+    if (inFlight) {
+      return inFlight;
+    }
+
+    const request = this.requestThumbnail(logId, routePath, width, height).finally(() => {
+      this.pending.delete(key);
+    });
+    this.pending.set(key, request);
+    return request;
+  }
+
+  public async clearCache(): Promise<void> {
+    if (!this.isAvailable()) return;
+    try {
+      await RouteThumbnail.clearCache();
+    } catch (error) {
+      console.error('Error clearing route thumbnail cache:', error);
+    }
+  }
+
+  private async requestThumbnail(
+    logId: string,
+    routePath: RoutePoint[] | string,
+    width: number,
+    height: number
+  ): Promise<string | null> {
+    try {
+      // キャッシュ済みなら座標をブリッジに渡さずに済む
+      const cached = await RouteThumbnail.getCachedThumbnail(logId, width, height);
+      if (cached) {
+        return cached;
+      }
+
+      if (typeof routePath === 'string') {
+        return await RouteThumbnail.renderEncodedThumbnail(logId, routePath, width, height);
+      }
+
+      const latLngs = new Array<number>(routePath.length * 2);
+      routePath.forEach((point, i) => {
+        latLngs[i * 2] = point.latitude;
+        latLngs[i * 2 + 1] = point.longitude;
+      });
+      return await RouteThumbnail.renderThumbnail(logId, latLngs, width, height);
+    } catch (error) {
+      console.error('Error rendering route thumbnail:', error);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+import { NativeModules, DeviceEventEmitter, Platform } from 'react-native';
+import { WorkSessionData, DeliveryCaseData } from './FirebaseService';
+import { caseFinishEpochMs } from '../utils/caseTime';
+
+const { SessionAggregator } = NativeModules;
+
+// WorkContextの勤務・休憩時刻は+9時間ずらして保存されているため、ネイティブへは実時刻に戻して渡す
+const JST_OFFSET_MS = 9 * 60 * 60 * 1000;
+
+export interface ServiceSnapshot {
+  earnings: number;
+  cases: number;
+  busyMs: number;
+  hourlyRate: number;
+}
+
+export interface SessionSnapshot {
+  version: number;
+  computedAt: number;
+  status: 'idle' | 'working' | 'break';
+  sessionStartTime: number;
+  totalBreakMs: number;
+  breakStartTime: number;
+  workingMs: number;
+  busyMs: number;
+  earnings: number;
+  cases: number;
+  hourlyRate: number;
+  last60Earnings: number;
+  last60Cases: number;
+  last60HourlyRate: number;
+  todayEarnings: number;
+  todayCases: number;
+  distanceMeters: number;
+  services: { [service: string]: ServiceSnapshot };
+}
+
+const toMillis = (value: any): number | null => {
+  if (!value) return null;
+  if (value instanceof Date) return value.getTime();
+  if (typeof value.toDate === 'function') return value.toDate().getTime();
+  return typeof value === 'number' ? value : null;
+};
+
+/**
+ * ネイティブのセッション集計へイベントを送り、変化したスナップショットだけを受け取る
+ */
+export class SessionAggregatorService {
+  private static instance: SessionAggregatorService;
+  private latest: SessionSnapshot | null = null;
+  private listeners: ((snapshot: SessionSnapshot) => void)[] = [];
+  private subscription: { remove: () => void } | null = null;
+
+  public static getInstance(): SessionAggregatorService {
+    if (!SessionAggregatorService.instance) {
+      SessionAggregatorService.instance = new SessionAggregatorService();
+    }
+    return SessionAggregatorService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!SessionAggregator;
+  }
+
+  public startSession(startTime: number = Date.now()): void {
+    if (!this.isAvailable()) return;
+    SessionAggregator.startSession(startTime);
+  }
+
+  public endSession(endTime: number = Date.now()): void {
+    if (!this.isAvailable()) return;
+    SessionAggregator.endSession(endTime);
+  }
+
+  public startBreak(startTime: number = Date.now()): void {
+    if (!this.isAvailable()) return;
+    SessionAggregator.startBreak(startTime);
+  }
+
+  public endBreak(endTime: number = Date.now()): void {
+    if (!this.isAvailable()) return;
+    SessionAggregator.endBreak(endTime);
+  }
+
+  public recordDelivery(caseData: Partial<DeliveryCaseData>): void {
+    if (!this.isAvailable()) return;
+    const finishTime = toMillis(caseData.deliveryEndTime) || Date.now();
+    const startTime = toMillis(caseData.deliveryStartTime)
+      || finishTime - (caseData.duration || 0) * 60 * 1000;
+    SessionAggregator.recordDelivery({
+      service: caseData.service || '',
+      reward: (caseData.earnings || 0) + (caseData.tip || 0),
+      startTime,
+      finishTime,
+    });
+  }
+
+  public recordTracking(distanceMeters: number): void {
+    if (!this.isAvailable() || distanceMeters <= 0) return;
+    SessionAggregator.recordTracking(distanceMeters);
+  }
+
+  /**
+   * 保存済みのセッションと案件から集計を作り直す（アプリ起動時・手動更新時のみ）
+   */
+  public restoreSession(session: WorkSessionData, cases: DeliveryCaseData[]): void {
+    if (!this.isAvailable() || !session.startTime) return;
+
+    let totalBreakMs = 0;
+    let breakStartTime: number | null = null;
+    (session.breakPeriods || []).forEach((period) => {
+      const start = toMillis(period.startTime);
+      const end = toMillis(period.endTime);
+      if (start && end) {
+        totalBreakMs += end - start;
+      } else if (start) {
+        breakStartTime = start - JST_OFFSET_MS;
+      }
+    });
+
+    SessionAggregator.restoreSession({
+      startTime: toMillis(session.startTime)! - JST_OFFSET_MS,
+      totalBreakMs,
+      breakStartTime,
+      deliveries: cases.map((case_) => {
+        // 手入力の案件はtimestampが+9時間ずれているので、本日分の日付判定の前に実時刻に揃える
+        const finishTime = caseFinishEpochMs(case_) || Date.now();
+        return {
+          service: case_.service || '',
+          reward: (case_.earnings || 0) + (case_.tip || 0),
+          startTime: toMillis(case_.deliveryStartTime) || finishTime - (case_.duration || 0) * 60 * 1000,
+          finishTime,
+        };
+      }),
+    });
+  }
+
+  public getLatest(): SessionSnapshot | null {
+    return this.latest;
+  }
+
+  public async getSnapshot(): Promise<SessionSnapshot | null> {
+    if (!this.isAvailable()) return null;
+    this.latest = await SessionAggregator.getSnapshot();
+    return this.latest;
+  }
+
+  public addListener(callback: (snapshot: SessionSnapshot) => void): () => void {
+    this.listeners.push(callback);
+    if (!this.subscription && this.isAvailable()) {
+      this.subscription = DeviceEventEmitter.addListener('SessionSnapshotChanged', (snapshot: SessionSnapshot) => {
+        this.latest = snapshot;
+        this.listeners.forEach((listener) => listener(snapshot));
+      });
+    }
+    return () => {
+      this.listeners = this.listeners.filter((listener) => listener !== callback);
+      if (this.listeners.length === 0 && this.subscription) {
+        this.subscription.remove();
+        this.subscription = null;
+      }
+    };
+  }
+}
@@ -0,0 +1,205 @@
+import { FirebaseFirestoreTypes } from '@react-native-firebase/firestore';
+import { DeliveryCaseData } from './FirebaseService';
+
+export type SessionCase = DeliveryCaseData & { id: string };
+
+export interface SessionCaseTotals {
+  totalEarnings: number;
+  totalCases: number;
+}
+
+// 1回のスナップショットで変わった案件（ID）
+export interface SessionCaseChange {
+  added: string[];
+  modified: string[];
+  removed: string[];
+  orderChanged: boolean;
+  totals: SessionCaseTotals;
+}
+
+type ChangeListener = (change: SessionCaseChange) => void;
+type TotalsListener = (totals: SessionCaseTotals) => void;
+
+const caseEarnings = (item: DeliveryCaseData): number => (item.earnings || 0) + (item.tip || 0);
+
+const toSessionCase = (doc: FirebaseFirestoreTypes.QueryDocumentSnapshot): SessionCase => {
+  const data = doc.data();
+  return {
+    id: doc.id,
+    ...data,
+    timestamp: data.timestamp && typeof data.timestamp.toDate === 'function'
+      ? data.timestamp.toDate()
+      : data.timestamp,
+  } as unknown as SessionCase;
+};
+
+const isSameValue = (a: any, b: any): boolean => {
+  if (a === b) return true;
+  if (a instanceof Date && b instanceof Date) return a.getTime() === b.getTime();
+  if (a && b && typeof a.isEqual === 'function') return a.isEqual(b); // Timestamp・GeoPoint
+  return false;
+};
+
+const isSameCase = (a: SessionCase, b: SessionCase): boolean => {
+  const keys = Object.keys(a);
+  if (keys.length !== Object.keys(b).length) return false;
+  return keys.every((key) => isSameValue((a as any)[key], (b as any)[key]));
+};
+
+/**
+ * 勤務中のセッションの配達案件をIDで持ち、onSnapshotのdocChanges()だけを反映する。
+ * - 追加・変更・削除は1件ごとにマップの更新と売上合計の差分で済ませ、一覧全体を作り直さない
+ * - 並びはクエリ（timestampの新しい順）のインデックスから時系列順に置き換えて保つ。新しい案件は末尾への追加になる
+ * - 合計は変わった時だけ合計のリスナーに通知するので、購読側は案件が増えても合計が同じなら再描画しない
+ */
+export class SessionCaseStore {
+  private static instance: SessionCaseStore;
+  private sessionId: string | null = null;
+  private cases = new Map<string, SessionCase>();
+  private order: string[] = []; // 時系列順のID
+  private totals: SessionCaseTotals = { totalEarnings: 0, totalCases: 0 };
+  private list: SessionCase[] | null = []; // 一覧の表示用。変更があった時は次に参照された時に作る
+  private listeners = new Set<ChangeListener>();
+  private totalsListeners = new Set<TotalsListener>();
+
+  public static getInstance(): SessionCaseStore {
+    if (!SessionCaseStore.instance) {
+      SessionCaseStore.instance = new SessionCaseStore();
+    }
+    return SessionCaseStore.instance;
+  }
+
+  /**
+   * 購読するセッションを切り替える（nullで空にする）
+   */
+  public reset(sessionId: string | null): void {
+    const removed = [...this.order];
+    this.sessionId = sessionId;
+    this.cases.clear();
+    this.order = [];
+    this.list = [];
+    const hadCases = removed.length > 0 || this.totals.totalEarnings !== 0;
+    this.totals = { totalEarnings: 0, totalCases: 0 };
+    if (hadCases) {
+      this.notify({ added: [], modified: [], removed, orderChanged: true, totals: this.totals });
+    }
+  }
+
+  public getSessionId(): string | null {
+    return this.sessionId;
+  }
+
+  /**
+   * スナップショットの差分を反映する。表示に関わる変更がなければnull
+   */
+  public applySnapshot(snapshot: FirebaseFirestoreTypes.QuerySnapshot): SessionCaseChange | null {
+    const added: string[] = [];
+    const modified: string[] = [];
+    const removed: string[] = [];
+    let orderChanged = false;
+    let earnings = this.totals.totalEarnings;
+
+    // インデックスは直前の変更を反映した後の並びに対するもの
+    snapshot.docChanges().forEach((change) => {
+      const id = change.doc.id;
+      switch (change.type) {
+        case 'added': {
+          const item = toSessionCase(change.doc);
+          const previous = this.cases.get(id);
+          if (previous) {
+            earnings -= caseEarnings(previous);
+            this.removeFromOrder(id, this.order.length - 1 - change.oldIndex);
+          }
+          this.cases.set(id, item);
+          earnings += caseEarnings(item);
+          this.order.splice(Math.max(0, this.order.length - change.newIndex), 0, id);
+          added.push(id);
+          orderChanged = true;
+          break;
+        }
+        case 'modified': {
+          const previous = this.cases.get(id);
+          const item = toSessionCase(change.doc);
+          if (change.oldIndex !== change.newIndex || !previous) {
+            if (previous) {
+              this.removeFromOrder(id, this.order.length - 1 - change.oldIndex);
+            }
+            this.order.splice(Math.max(0, this.order.length - change.newIndex), 0, id);
+            orderChanged = true;
+          }
+          if (previous && isSameCase(previous, item)) break;
+          earnings += caseEarnings(item) - (previous ? caseEarnings(previous) : 0);
+          this.cases.set(id, item);
+          modified.push(id);
+          break;
+        }
+        case 'removed': {
+          const previous = this.cases.get(id);
+          if (!previous) break;
+          this.cases.delete(id);
+          earnings -= caseEarnings(previous);
+          this.removeFromOrder(id, this.order.length - 1 - change.oldIndex);
+          removed.push(id);
+          orderChanged = true;
+          break;
+        }
+      }
+    });
+
+    if (!orderChanged && modified.length === 0) return null;
+
+    this.list = null;
+    const totalsChanged = earnings !== this.totals.totalEarnings || this.cases.size !== this.totals.totalCases;
+    if (totalsChanged) {
+      this.totals = { totalEarnings: earnings, totalCases: this.cases.size };
+    }
+    const result: SessionCaseChange = { added, modified, removed, orderChanged, totals: this.totals };
+    this.notify(result, totalsChanged);
+    return result;
+  }
+
+  public getCase(id: string): SessionCase | null {
+    return this.cases.get(id) || null;
+  }
+
+  /**
+   * 時系列順の案件一覧。変更がなければ同じ配列を返す
+   */
+  public getCases(): SessionCase[] {
+    if (!this.list) {
+      this.list = this.order.map((id) => this.cases.get(id)!);
+    }
+    return this.list;
+  }
+
+  public getTotals(): SessionCaseTotals {
+    return this.totals;
+  }
+
+  public addListener(listener: ChangeListener): () => void {
+    this.listeners.add(listener);
+    return () => {
+      this.listeners.delete(listener);
+    };
+  }
+
+  public addTotalsListener(listener: TotalsListener): () => void {
+    this.totalsListeners.add(listener);
+    return () => {
+      this.totalsListeners.delete(listener);
+    };
+  }
+
+  private removeFromOrder(id: string, index: number): void {
+    // インデックスがずれていた場合（想定外の順序で届いた差分）はIDで探す
+    const at = this.order[index] === id ? index : this.order.indexOf(id);
+    if (at >= 0) this.order.splice(at, 1);
+  }
+
+  private notify(change: SessionCaseChange, totalsChanged: boolean = true): void {
+    if (totalsChanged) {
+      this.totalsListeners.forEach((listener) => listener(change.totals));
+    }
+    this.listeners.forEach((listener) => listener(change));
+  }
+}
@@ -0,0 +1,141 @@
+import { NativeModules, Platform } from 'react-native';
+import { GpsService } from './GpsService';
+import { DeliveryRoute } from './OverlayService';
+
+const { SpatialIndex } = NativeModules;
+
+export type SpatialPointKind = 'pickup' | 'dropoff';
+
+export interface LatLng {
+  latitude: number;
+  longitude: number;
+}
+
+export interface SpatialQuery {
+  minLat: number;
+  minLng: number;
+  maxLat: number;
+  maxLng: number;
+  kind?: SpatialPointKind;
+  hour?: number | null;
+  service?: string | null;
+}
+
+export interface HeatmapCell extends LatLng {
+  earnings: number;
+  durationSeconds: number;
+  count: number;
+  earningsPerHour: number;
+}
+
+export interface GroupedStat {
+  hour?: number;
+  service?: string;
+  earnings: number;
+  durationSeconds: number;
+  count: number;
+  earningsPerHour: number;
+}
+
+// ピックアップ・ドロップ地点とみなす位置の許容時間差
+const POSITION_MATCH_WINDOW_MS = 2 * 60 * 1000;
+
+/**
+ * 配達のピックアップ・ドロップ地点を端末内の空間インデックスに蓄積し、
+ * ビューポート単位で時給を集計する（ネットワーク通信なし）
+ */
+export class SpatialIndexService {
+  private static instance: SpatialIndexService;
+
+  public static getInstance(): SpatialIndexService {
+    if (!SpatialIndexService.instance) {
+      SpatialIndexService.instance = new SpatialIndexService();
+    }
+    return SpatialIndexService.instance;
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!SpatialIndex;
+  }
+
+  /**
+   * 配達完了時に呼ぶ。ピックアップ地点は配達の経路（なければ走行中のルート）から開始時刻に最も近い点、
+   * ドロップ地点はFINISH時点の位置を使う。後から保存する配達（キューからの反映など）では現在位置を使わない
+   */
+  public async recordFinishedDelivery(delivery: {
+    service: string;
+    earnings: number;
+    startTime: number;
+    finishTime: number;
+    route?: DeliveryRoute;
+    dropoff?: LatLng;
+  }): Promise<void> {
+    if (!this.isAvailable() || delivery.finishTime <= delivery.startTime) return;
+
+    try {
+      const gpsService = GpsService.getInstance();
+      const routePoints = delivery.route && !delivery.route.partial
+        ? delivery.route.path
+        : gpsService.getTrackingState().currentRoutePoints;
+      const pickup = this.findPointNear(routePoints, delivery.startTime);
+      let dropoff: LatLng | null = delivery.dropoff || null;
+      if (!dropoff && Date.now() - delivery.finishTime <= POSITION_MATCH_WINDOW_MS) {
+        dropoff = gpsService.getTrackingState().currentPosition || (await gpsService.getCurrentPosition());
+      }
+      if (!pickup && !dropoff) return;
+
+      await SpatialIndex.recordDelivery({
+        service: delivery.service,
+        earnings: delivery.earnings,
+        durationSeconds: Math.round((delivery.finishTime - delivery.startTime) / 1000),
+        startTime: delivery.startTime,
+        pickup,
+        dropoff: dropoff ? { latitude: dropoff.latitude, longitude: dropoff.longitude } : null,
+      });
+    } catch (error) {
+      console.error('Error recording delivery to spatial index:', error);
+    }
+  }
+
+  public async queryHeatmap(query: SpatialQuery): Promise<HeatmapCell[]> {
+    if (!this.isAvailable()) return [];
+    return await SpatialIndex.queryViewport({ ...query, groupBy: 'cell' });
+  }
+
+  // 1件の配達はピックアップ・ドロップの2地点で記録されるので、売上を二重に数えないようkindを必須にする
+  public async queryByHour(query: SpatialQuery & { kind: SpatialPointKind }): Promise<GroupedStat[]> {
+    if (!this.isAvailable()) return [];
+    return await SpatialIndex.queryViewport({ ...query, groupBy: 'hour' });
+  }
+
+  public async queryByService(query: SpatialQuery & { kind: SpatialPointKind }): Promise<GroupedStat[]> {
+    if (!this.isAvailable()) return [];
+    return await SpatialIndex.queryViewport({ ...query, groupBy: 'service' });
+  }
+
+  public async getStats(): Promise<{ records: number; cells: number; cellSizeLat: number; cellSizeLng: number } | null> {
+    if (!this.isAvailable()) return null;
+    return await SpatialIndex.getStats();
+  }
+
+  public async clear(): Promise<void> {
+    if (!this.isAvailable()) return;
+    await SpatialIndex.clearIndex();
+  }
+
+  private findPointNear(points: { latitude: number; longitude: number; timestamp: Date }[], timeMs: number): LatLng | null {
+    let best: LatLng | null = null;
+    let bestDiff = POSITION_MATCH_WINDOW_MS;
+    // ルートは時系列順なので後ろから探し、差が広がり始めたら打ち切る
+    for (let i = points.length - 1; i >= 0; i--) {
+      const diff = Math.abs(new Date(points[i].timestamp).getTime() - timeMs);
+      if (diff <= bestDiff) {
+        bestDiff = diff;
+        best = { latitude: points[i].latitude, longitude: points[i].longitude };
+      } else if (best) {
+        break;
+      }
+    }
+    return best;
+  }
+}
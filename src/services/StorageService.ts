@@ -1,4 +1,10 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
+import { NativeModules, Platform } from 'react-native';
+
+const { SessionState } = NativeModules;
+
+// WorkContextの勤務・休憩時刻は+9時間ずらして保存されているため、ネイティブの状態ファイルとは実時刻で受け渡す
+const JST_OFFSET_MS = 9 * 60 * 60 * 1000;
 
 interface UserSettings {
   theme: 'dark' | 'light';
@@ -13,6 +19,7 @@ interface TempWorkData {
   startTime?: string;
   status?: 'idle' | 'working' | 'break';
   breakStart?: string;
+  totalBreakMs?: number;
 }
 
 class StorageService {
@@ -77,18 +84,68 @@ class StorageService {
   }
 
   // 一時的な勤務データの保存・取得
+  // Androidではメモリマップした状態ファイル（SessionState）に書き、オーバーレイやプロセス再起動時の復元にも使う
+  private hasNativeSessionState(): boolean {
+    return Platform.OS === 'android' && !!SessionState;
+  }
+
   async saveTempWorkData(data: TempWorkData): Promise<void> {
     try {
+      if (this.hasNativeSessionState() && data.startTime) {
+        await SessionState.saveSession({
+          sessionId: data.sessionId || '',
+          status: data.status === 'break' ? 'break' : 'working',
+          startTime: new Date(data.startTime).getTime() - JST_OFFSET_MS,
+          totalBreakMs: data.totalBreakMs || 0,
+          breakStartTime: data.breakStart ? new Date(data.breakStart).getTime() - JST_OFFSET_MS : null,
+        });
+        return;
+      }
       await AsyncStorage.setItem(this.KEYS.TEMP_WORK_DATA, JSON.stringify(data));
     } catch (error) {
       console.error('一時勤務データの保存に失敗しました:', error);
     }
   }
 
+  /**
+   * ネイティブの状態ファイルから同期的に読み込む（Android以外では常にnull）
+   */
+  getTempWorkDataSync(): TempWorkData | null {
+    if (!this.hasNativeSessionState()) return null;
+    try {
+      const state = SessionState.getStateSync();
+      if (!state || state.status === 'idle' || !state.startTime) return null;
+      return {
+        sessionId: state.sessionId || undefined,
+        startTime: new Date(state.startTime + JST_OFFSET_MS).toISOString(),
+        status: state.status,
+        breakStart: state.status === 'break' && state.breakStartTime
+          ? new Date(state.breakStartTime + JST_OFFSET_MS).toISOString()
+          : undefined,
+        totalBreakMs: state.totalBreakMs || 0,
+      };
+    } catch (error) {
+      console.error('一時勤務データの取得に失敗しました:', error);
+      return null;
+    }
+  }
+
   async getTempWorkData(): Promise<TempWorkData | null> {
+    if (this.hasNativeSessionState()) {
+      const nativeData = this.getTempWorkDataSync();
+      if (nativeData) return nativeData;
+    }
     try {
+      // Androidでネイティブ側が勤務外の場合は、状態ファイル導入前にAsyncStorageへ保存された勤務を引き継ぐ
       const dataJson = await AsyncStorage.getItem(this.KEYS.TEMP_WORK_DATA);
-      return dataJson ? JSON.parse(dataJson) : null;
+      const data: TempWorkData | null = dataJson ? JSON.parse(dataJson) : null;
+      if (data && data.startTime && this.hasNativeSessionState()) {
+        await this.saveTempWorkData(data);
+        if (this.getTempWorkDataSync()) {
+          await AsyncStorage.removeItem(this.KEYS.TEMP_WORK_DATA);
+        }
+      }
+      return data;
     } catch (error) {
       console.error('一時勤務データの取得に失敗しました:', error);
       return null;
@@ -97,6 +154,9 @@ class StorageService {
 
   async clearTempWorkData(): Promise<void> {
     try {
+      if (this.hasNativeSessionState()) {
+        await SessionState.clearSession();
+      }
       await AsyncStorage.removeItem(this.KEYS.TEMP_WORK_DATA);
     } catch (error) {
       console.error('一時勤務データの削除に失敗しました:', error);
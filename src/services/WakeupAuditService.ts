@@ -0,0 +1,120 @@
+import { NativeModules, AppState, Platform } from 'react-native';
+
+const { WakeupAudit } = NativeModules;
+
+export type JsWakeupSource = 'js_timer' | 'js_gps_callback' | 'firestore_snapshot';
+export type JsHoldSource = 'js_gps_watch';
+
+export interface WakeupSourceReport {
+  source: string;
+  wakeups: number;
+  screenOffWakeups: number; // ネイティブの発生元のみ
+  wakeupsPerHour: number;
+  cpuMs: number; // JSの発生元はコールバックの実行時間
+  holdMs: number;
+  budgetPerHour: number; // 0は予算なし
+  overBudget: boolean;
+}
+
+export interface WakeupReport {
+  shiftStartTime: number;
+  windowMs: number;
+  totalWakeups: number;
+  totalWakeupsPerHour: number;
+  totalCpuMs: number;
+  overBudget: string[];
+  sources: WakeupSourceReport[];
+}
+
+// この件数たまったらネイティブへ送る（送信のために別のタイマーは使わない）
+const FLUSH_THRESHOLD = 100;
+
+const now = (): number => (typeof performance !== 'undefined' ? performance.now() : Date.now());
+
+/**
+ * JSのタイマー・GPS・onSnapshotのコールバックの回数と実行時間を数え、ネイティブの起床の集計に加える
+ * - 毎回ブリッジを呼ばないよう、件数がたまった時・バックグラウンドへ移る時・レポート取得時にまとめて送る
+ */
+export class WakeupAuditService {
+  private static instance: WakeupAuditService;
+  private pending: { [source: string]: { wakeups: number; cpuMs: number } } = {};
+  private pendingCount = 0;
+
+  public static getInstance(): WakeupAuditService {
+    if (!WakeupAuditService.instance) {
+      WakeupAuditService.instance = new WakeupAuditService();
+    }
+    return WakeupAuditService.instance;
+  }
+
+  private constructor() {
+    if (this.isAvailable()) {
+      AppState.addEventListener('change', () => this.flush());
+    }
+  }
+
+  public isAvailable(): boolean {
+    return Platform.OS === 'android' && !!WakeupAudit;
+  }
+
+  /**
+   * コールバックを計測付きで実行する
+   */
+  public track<T>(source: JsWakeupSource, callback: () => T): T {
+    if (!this.isAvailable()) return callback();
+    const start = now();
+    try {
+      return callback();
+    } finally {
+      this.add(source, now() - start);
+    }
+  }
+
+  /**
+   * setInterval・onSnapshotなどに渡すコールバックを計測付きにする
+   */
+  public wrap<A extends any[]>(source: JsWakeupSource, callback: (...args: A) => void): (...args: A) => void {
+    return (...args: A) => this.track(source, () => callback(...args));
+  }
+
+  public beginHold(source: JsHoldSource): void {
+    if (!this.isAvailable()) return;
+    WakeupAudit.beginHold(source);
+  }
+
+  public endHold(source: JsHoldSource): void {
+    if (!this.isAvailable()) return;
+    WakeupAudit.endHold(source);
+  }
+
+  /**
+   * 今の勤務の起床レポート（勤務開始からの集計）
+   */
+  public async getShiftReport(): Promise<WakeupReport | null> {
+    if (!this.isAvailable()) return null;
+    this.flush();
+    try {
+      return await WakeupAudit.getReport();
+    } catch (error) {
+      console.error('Failed to get wakeup report:', error);
+      return null;
+    }
+  }
+
+  public flush(): void {
+    if (this.pendingCount === 0) return;
+    WakeupAudit.recordBatch(this.pending);
+    this.pending = {};
+    this.pendingCount = 0;
+  }
+
+  private add(source: JsWakeupSource, cpuMs: number): void {
+    const entry = this.pending[source] || (this.pending[source] = { wakeups: 0, cpuMs: 0 });
+    entry.wakeups++;
+    entry.cpuMs += cpuMs;
+    this.pendingCount++;
+    if (this.pendingCount >= FLUSH_THRESHOLD) {
+      this.flush();
+    }
+  }
+}
@@ -17,6 +17,7 @@ export interface DriveLog {
   durationSeconds: number;
   averageSpeedKmh?: number;
   maxSpeedKmh?: number;
+  partial?: boolean; // 配達の開始時点からの測位がない（距離・速度は測位のあった区間だけのもの）
   routePath: RoutePoint[];
   createdAt: Date;
 }
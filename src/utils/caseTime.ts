@@ -0,0 +1,29 @@
+// 配達案件の時刻の正規化
+//
+// 保存経路によってtimestampの基準が異なる:
+// - 手入力（AddCaseModal）・ホーム画面・明細の取り込み: 日本時間の壁時計を+9時間ずらした値
+// - オーバーレイ: 実時刻（エポックミリ秒）
+// deliveryEndTimeはオーバーレイ・ホーム画面のどちらも実時刻で保存している
+
+export const JST_OFFSET_MS = 9 * 60 * 60 * 1000;
+
+export const toMillis = (value: any): number | null => {
+  if (!value) return null;
+  if (typeof value.toMillis === 'function') return value.toMillis();
+  if (value instanceof Date) return value.getTime();
+  return typeof value === 'number' ? value : null;
+};
+
+// 案件の完了時刻（実時刻）。deliveryEndTimeがあればそれを、なければ+9時間ずれたtimestampを直して使う
+export const caseFinishEpochMs = (data: any): number | null => {
+  const end = toMillis(data.deliveryEndTime);
+  if (end !== null) return end;
+  const timestamp = toMillis(data.timestamp);
+  return timestamp === null ? null : timestamp - JST_OFFSET_MS;
+};
+
+// 案件の完了時刻を日本時間の壁時計（+9時間ずらした値）で返す。明細の日時と同じ基準
+export const caseFinishWallClockMs = (data: any): number | null => {
+  const epoch = caseFinishEpochMs(data);
+  return epoch === null ? null : epoch + JST_OFFSET_MS;
+};
@@ -1,4 +1,7 @@
-import React, { useCallback, useMemo } from 'react';
+import React, { useCallback, useMemo, useState, useEffect } from 'react';
+import { SessionAggregatorService, SessionSnapshot } from '../services/SessionAggregatorService';
+import { WakeupAuditService } from '../services/WakeupAuditService';
+import { SessionCaseStore, SessionCaseTotals } from '../services/SessionCaseStore';
 
 // メモリ使用量監視
 export const useMemoryMonitor = () => {
@@ -16,49 +19,44 @@ export const useMemoryMonitor = () => {
   return { checkMemoryUsage };
 };
 
-// レンダリング最適化のためのヘルパー
-export const useOptimizedCalculations = (
-  getCurrentWorkingTime: () => number,
-  getCurrentBreakTime: () => number,
-  getEstimatedHourlyRate: () => number,
-  getWaitingTime: () => number,
-  totalEarnings: number,
-  totalCases: number,
-  status: string
-) => {
-  // 時間関連の計算をメモ化
-  const workingTimeFormatted = useMemo(() => {
-    const workingTimeSeconds = getCurrentWorkingTime();
-    const hours = Math.floor(workingTimeSeconds / 3600);
-    const minutes = Math.floor((workingTimeSeconds % 3600) / 60);
-    return `${hours}時間${minutes}分`;
-  }, [getCurrentWorkingTime]);
-
-  const breakTimeFormatted = useMemo(() => {
-    const breakTimeSeconds = getCurrentBreakTime();
-    const hours = Math.floor(breakTimeSeconds / 3600);
-    const minutes = Math.floor((breakTimeSeconds % 3600) / 60);
-    return `${hours}時間${minutes}分`;
-  }, [getCurrentBreakTime]);
-
-  const waitingTimeFormatted = useMemo(() => {
-    const waitingTimeSeconds = getWaitingTime();
-    const hours = Math.floor(waitingTimeSeconds / 3600);
-    const minutes = Math.floor((waitingTimeSeconds % 3600) / 60);
-    return `${hours}時間${minutes}分`;
-  }, [getWaitingTime]);
-
-  const hourlyRateFormatted = useMemo(() => {
-    const rate = getEstimatedHourlyRate();
-    return `¥${Math.floor(rate).toLocaleString()}`;
-  }, [getEstimatedHourlyRate]);
-
-  const totalEarningsFormatted = useMemo(() => {
-    return `¥${Math.floor(totalEarnings).toLocaleString()}`;
-  }, [totalEarnings]);
+const formatHoursMinutes = (ms: number): string => {
+  const totalMinutes = Math.floor(ms / 60000);
+  return `${Math.floor(totalMinutes / 60)}時間${totalMinutes % 60}分`;
+};
+
+const formatYen = (value: number): string => `¥${Math.floor(value).toLocaleString()}`;
+
+// セッション集計の購読。ネイティブ側で値が変わった時だけ再レンダリングし、
+// 表示用文字列もスナップショットの更新時にだけ作り直す
+export const useSessionSnapshot = () => {
+  const service = SessionAggregatorService.getInstance();
+  const [snapshot, setSnapshot] = useState<SessionSnapshot | null>(service.getLatest());
+
+  useEffect(() => {
+    const unsubscribe = service.addListener(setSnapshot);
+    if (!service.getLatest()) {
+      service.getSnapshot().then((latest) => {
+        if (latest) setSnapshot(latest);
+      }).catch((error) => console.error('Error loading session snapshot:', error));
+    }
+    return unsubscribe;
+  }, [service]);
+
+  const formatted = useMemo(() => {
+    if (!snapshot) return null;
+    return {
+      workingTimeFormatted: formatHoursMinutes(snapshot.workingMs),
+      breakTimeFormatted: formatHoursMinutes(snapshot.totalBreakMs),
+      waitingTimeFormatted: formatHoursMinutes(Math.max(0, snapshot.workingMs - snapshot.busyMs)),
+      hourlyRateFormatted: formatYen(snapshot.hourlyRate),
+      last60HourlyRateFormatted: formatYen(snapshot.last60HourlyRate),
+      totalEarningsFormatted: formatYen(snapshot.earnings),
+      todayEarningsFormatted: formatYen(snapshot.todayEarnings),
+    };
+  }, [snapshot]);
 
   const statusInfo = useMemo(() => {
-    switch (status) {
+    switch (snapshot?.status) {
       case 'working':
         return { text: '勤務中', color: '#4CAF50' };
       case 'break':
@@ -66,17 +64,22 @@ export const useOptimizedCalculations = (
       default:
         return { text: '未勤務', color: '#FF3B30' };
     }
-  }, [status]);
-
-  return {
-    workingTimeFormatted,
-    breakTimeFormatted,
-    waitingTimeFormatted,
-    hourlyRateFormatted,
-    totalEarningsFormatted,
-    statusInfo,
-    totalCases,
-  };
+  }, [snapshot?.status]);
+
+  return { snapshot, formatted, statusInfo };
+};
+
+// 勤務中の案件の売上合計・件数の購読。案件が変わっても合計が同じなら再レンダリングしない
+export const useSessionCaseTotals = (): SessionCaseTotals => {
+  const store = SessionCaseStore.getInstance();
+  const [totals, setTotals] = useState<SessionCaseTotals>(store.getTotals());
+
+  useEffect(() => {
+    setTotals(store.getTotals());
+    return store.addTotalsListener(setTotals);
+  }, [store]);
+
+  return totals;
 };
 
 // 不要なレンダリングを防ぐためのメモ化されたコンポーネント作成ヘルパー
@@ -94,7 +97,7 @@ export const useOptimizedInterval = (callback: () => void, delay: number, isActi
   useMemo(() => {
     if (!isActive) return;
 
-    const interval = setInterval(optimizedCallback, delay);
+    const interval = setInterval(WakeupAuditService.getInstance().wrap('js_timer', optimizedCallback), delay);
     return () => clearInterval(interval);
   }, [optimizedCallback, delay, isActive]);
 };
@@ -108,14 +111,14 @@ export const useActiveScreenTimer = (callback: () => void, delay: number = 1000)
     let interval: NodeJS.Timeout;
 
     const startTimer = () => {
-      interval = setInterval(() => {
+      interval = setInterval(WakeupAuditService.getInstance().wrap('js_timer', () => {
         if (isActive) {
           callback();
           if (__DEV__) {
             checkMemoryUsage();
           }
         }
-      }, delay);
+      }), delay);
     };
 
     startTimer();